@@ -0,0 +1,188 @@
+package com.example.goranminov.popmovies;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.Choreographer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Flings the poster grid with and without the PosterPrefetcher and compares the frame times.
+ *
+ * Needs the network, every run flings over rows that were not shown before so none finds
+ * the posters in the cache. The runs alternate over several rounds, so neither side always
+ * gets the rows further down the lists.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PosterGridJankTest {
+
+    private static final String TAG = PosterGridJankTest.class.getSimpleName();
+
+    private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(16) + 700000;
+    private static final int FLINGS = 4;
+    private static final int FLING_VELOCITY = 6000;
+    private static final long SETTLE_MILLIS = 1500;
+    private static final int ROUNDS = 3;
+
+    /*
+     * The posters come from the live API, so two runs with the same settings already differ
+     * by a few points of jank. Prefetching fails the test when it is worse by more than that.
+     */
+    private static final int JANK_TOLERANCE_PERCENT = 3;
+
+    @Rule
+    public final ActivityTestRule<MainActivity> mActivityRule =
+            new ActivityTestRule<>(MainActivity.class);
+
+    @Test
+    public void prefetchingDoesNotIncreaseJank() throws Throwable {
+        final RecyclerView grid = (RecyclerView) mActivityRule.getActivity()
+                .findViewById(R.id.movies_data_recycler_view);
+        waitForMovies(grid);
+
+        FrameStats withoutPrefetch = new FrameStats();
+        FrameStats withPrefetch = new FrameStats();
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean prefetchFirst = round % 2 == 1;
+            for (int run = 0; run < 2; run++) {
+                final boolean prefetch = prefetchFirst == (run == 0);
+                // Picasso only cancels the pending prefetches on the main thread.
+                mActivityRule.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        mActivityRule.getActivity().getPosterPrefetcher().setEnabled(prefetch);
+                    }
+                });
+                (prefetch ? withPrefetch : withoutPrefetch).addAll(flingAndMeasure(grid));
+            }
+        }
+
+        Log.i(TAG, "Without prefetch: " + withoutPrefetch);
+        Log.i(TAG, "With prefetch: " + withPrefetch);
+        assertTrue(withPrefetch.frameCount() > 0);
+        assertTrue("With prefetch: " + withPrefetch + ", without: " + withoutPrefetch,
+                withPrefetch.jankPercent()
+                        <= withoutPrefetch.jankPercent() + JANK_TOLERANCE_PERCENT);
+    }
+
+    private static void waitForMovies(RecyclerView grid) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(20);
+        while (grid.getAdapter().getItemCount() == 0) {
+            assertTrue("No movies loaded", System.currentTimeMillis() < deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    private FrameStats flingAndMeasure(final RecyclerView grid) throws Throwable {
+        final FrameStats stats = new FrameStats();
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                stats.start();
+            }
+        });
+        for (int i = 0; i < FLINGS; i++) {
+            mActivityRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    grid.fling(0, FLING_VELOCITY);
+                }
+            });
+            Thread.sleep(SETTLE_MILLIS);
+        }
+        final CountDownLatch stopped = new CountDownLatch(1);
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                stats.stop();
+                stopped.countDown();
+            }
+        });
+        stopped.await();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        return stats;
+    }
+
+    /**
+     * Collects the time between consecutive frames, must be used on the main thread.
+     */
+    private static final class FrameStats implements Choreographer.FrameCallback {
+
+        private final List<Long> mFrameNanos = new ArrayList<>();
+        private long mLastFrameNanos;
+        private boolean mRunning;
+
+        void start() {
+            mRunning = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            mRunning = false;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRunning) {
+                return;
+            }
+            if (mLastFrameNanos != 0) {
+                mFrameNanos.add(frameTimeNanos - mLastFrameNanos);
+            }
+            mLastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void addAll(FrameStats other) {
+            mFrameNanos.addAll(other.mFrameNanos);
+        }
+
+        int frameCount() {
+            return mFrameNanos.size();
+        }
+
+        int jankyFrameCount() {
+            int janky = 0;
+            for (long nanos : mFrameNanos) {
+                if (nanos > FRAME_BUDGET_NANOS) {
+                    janky++;
+                }
+            }
+            return janky;
+        }
+
+        int jankPercent() {
+            return mFrameNanos.isEmpty() ? 0 : 100 * jankyFrameCount() / mFrameNanos.size();
+        }
+
+        long percentileMillis(int percentile) {
+            if (mFrameNanos.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(mFrameNanos);
+            Collections.sort(sorted);
+            int index = Math.min(sorted.size() - 1, sorted.size() * percentile / 100);
+            return TimeUnit.NANOSECONDS.toMillis(sorted.get(index));
+        }
+
+        @Override
+        public String toString() {
+            return frameCount() + " frames, " + jankyFrameCount() + " janky (" + jankPercent()
+                    + "%), p50 " + percentileMillis(50) + "ms, p90 " + percentileMillis(90)
+                    + "ms, p99 " + percentileMillis(99) + "ms";
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.goranminov.popmovies;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.View;
+
+import com.example.goranminov.popmovies.utilities.PosterCache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lays the poster grid out with 2 to 6 columns and reports how long the visible cells take to
+ * bind and lay out, and how much memory their posters take.
+ *
+ * Needs the network. The memory cache is emptied before each layout, so every poster is
+ * decoded for the cell size of that layout.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PosterGridLayoutTest {
+
+    private static final String TAG = PosterGridLayoutTest.class.getSimpleName();
+
+    // Binding and laying out a cell, the grid binds up to a row of them per frame.
+    private static final long CELL_BUDGET_MICROS = 2000;
+    private static final long SETTLE_MILLIS = 3000;
+
+    @Rule
+    public final ActivityTestRule<MainActivity> mActivityRule =
+            new ActivityTestRule<>(MainActivity.class);
+
+    @Test
+    public void postersAreDecodedToTheCellSize() throws Throwable {
+        final RecyclerView grid = (RecyclerView) mActivityRule.getActivity()
+                .findViewById(R.id.movies_data_recycler_view);
+        waitForMovies(grid);
+
+        for (int spanCount = PosterGridSpec.MIN_SPAN_COUNT;
+             spanCount <= PosterGridSpec.MAX_SPAN_COUNT; spanCount++) {
+            final PosterGridSpec spec = PosterGridSpec.forSpanCount(grid.getWidth(), spanCount);
+            final long[] layout = new long[2];
+            mActivityRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    PosterCache.getInstance(grid.getContext()).clearMemory();
+                    spec.applyTo(grid, (MovieAdapter) grid.getAdapter());
+                    grid.scrollToPosition(0);
+                    layout[0] = layOut(grid);
+                    layout[1] = grid.getChildCount();
+                }
+            });
+            Thread.sleep(SETTLE_MILLIS);
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+            final PosterStats stats = new PosterStats();
+            mActivityRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    stats.collect(grid);
+                }
+            });
+
+            long cellMicros = TimeUnit.NANOSECONDS.toMicros(layout[0]) / Math.max(1, layout[1]);
+            Log.i(TAG, spec + ": " + layout[1] + " cells, " + cellMicros + "us per cell, "
+                    + stats);
+            assertTrue(spec + " took " + cellMicros + "us per cell",
+                    cellMicros < CELL_BUDGET_MICROS);
+            assertTrue(spec + " has no poster", stats.mPosters > 0);
+            assertTrue(spec + " has " + stats.mMaxWidth + "x" + stats.mMaxHeight + " posters",
+                    stats.mMaxWidth <= spec.getCellWidth()
+                            && stats.mMaxHeight <= spec.getCellHeight());
+        }
+    }
+
+    /*
+     * Binds and lays out the visible cells again, returns how long it took.
+     */
+    private static long layOut(RecyclerView grid) {
+        int width = View.MeasureSpec.makeMeasureSpec(grid.getWidth(), View.MeasureSpec.EXACTLY);
+        int height = View.MeasureSpec.makeMeasureSpec(grid.getHeight(), View.MeasureSpec.EXACTLY);
+        long start = System.nanoTime();
+        grid.measure(width, height);
+        grid.layout(grid.getLeft(), grid.getTop(), grid.getRight(), grid.getBottom());
+        return System.nanoTime() - start;
+    }
+
+    private static void waitForMovies(RecyclerView grid) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(20);
+        while (grid.getAdapter().getItemCount() == 0) {
+            assertTrue("No movies loaded", System.currentTimeMillis() < deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * The posters shown by the visible cells, must be collected on the main thread.
+     */
+    private static final class PosterStats {
+
+        int mPosters;
+        long mBytes;
+        int mMaxWidth;
+        int mMaxHeight;
+
+        void collect(RecyclerView grid) {
+            for (int i = 0; i < grid.getChildCount(); i++) {
+                RecyclerView.ViewHolder holder = grid.getChildViewHolder(grid.getChildAt(i));
+                if (!(holder instanceof MovieAdapter.MovieAdapterViewHolder)) {
+                    continue;
+                }
+                Drawable drawable =
+                        ((MovieAdapter.MovieAdapterViewHolder) holder).mPosterImageView.getDrawable();
+                if (!(drawable instanceof BitmapDrawable)) {
+                    continue;
+                }
+                Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+                mPosters++;
+                mBytes += bitmap.getByteCount();
+                mMaxWidth = Math.max(mMaxWidth, bitmap.getWidth());
+                mMaxHeight = Math.max(mMaxHeight, bitmap.getHeight());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return mPosters + " posters, " + mBytes / 1024 + "KB, up to " + mMaxWidth + "x"
+                    + mMaxHeight;
+        }
+    }
+}
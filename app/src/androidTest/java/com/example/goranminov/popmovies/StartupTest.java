@@ -0,0 +1,124 @@
+package com.example.goranminov.popmovies;
+
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.goranminov.popmovies.data.GridSnapshot;
+import com.example.goranminov.popmovies.data.GridSnapshotStore;
+import com.example.goranminov.popmovies.data.HomeSection;
+import com.example.goranminov.popmovies.data.Movie;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the first frame of MainActivity with and without the snapshot of the last grid.
+ *
+ * The process is already running under instrumentation, so this is the Activity part of a
+ * cold start: from onCreate to the first frame. The snapshot path doesn't wait on the network
+ * or the catalog, so the result is the same with the device offline.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupTest {
+
+    private static final String TAG = StartupTest.class.getSimpleName();
+
+    private static final long FIRST_FRAME_BUDGET_MILLIS = 300;
+    private static final int SNAPSHOT_MOVIES = 12;
+
+    @Rule
+    public final ActivityTestRule<MainActivity> mActivityRule =
+            new ActivityTestRule<>(MainActivity.class, false, false);
+
+    private File mSnapshotFile;
+
+    @Before
+    public void setUp() {
+        mSnapshotFile = GridSnapshotter.getSnapshotFile(
+                InstrumentationRegistry.getTargetContext());
+        mSnapshotFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mSnapshotFile.delete();
+    }
+
+    @Test
+    public void firstFrameShowsTheSnapshot() throws Throwable {
+        new GridSnapshotStore(mSnapshotFile).save(snapshot());
+
+        long firstFrameMillis = launchAndMeasure();
+        int cells = mActivityRule.getActivity().getFirstFrameItemCount();
+
+        Log.i(TAG, "First frame from the snapshot: " + firstFrameMillis + "ms, " + cells
+                + " cells");
+        assertEquals(SNAPSHOT_MOVIES, cells);
+        assertTrue("First frame took " + firstFrameMillis + "ms",
+                firstFrameMillis < FIRST_FRAME_BUDGET_MILLIS);
+    }
+
+    /*
+     * The baseline: the first frame has nothing to show unless the catalog answered first,
+     * but reading the missing snapshot must not push it past the budget either.
+     */
+    @Test
+    public void firstFrameWithoutSnapshot() throws Throwable {
+        long firstFrameMillis = launchAndMeasure();
+        int cells = mActivityRule.getActivity().getFirstFrameItemCount();
+
+        Log.i(TAG, "First frame without a snapshot: " + firstFrameMillis + "ms, " + cells
+                + " cells");
+        assertTrue("First frame took " + firstFrameMillis + "ms",
+                firstFrameMillis < FIRST_FRAME_BUDGET_MILLIS);
+    }
+
+    private long launchAndMeasure() throws Throwable {
+        mActivityRule.launchActivity(null);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        final long[] firstFrameNanos = new long[1];
+        while (firstFrameNanos[0] == 0) {
+            assertTrue("No frame drawn", System.currentTimeMillis() < deadline);
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            mActivityRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    firstFrameNanos[0] = mActivityRule.getActivity().getFirstFrameNanos();
+                }
+            });
+        }
+        return TimeUnit.NANOSECONDS.toMillis(firstFrameNanos[0]);
+    }
+
+    private static GridSnapshot snapshot() {
+        List<Movie> movies = new ArrayList<>();
+        Map<Integer, byte[]> thumbnails = new HashMap<>();
+        for (int id = 1; id <= SNAPSHOT_MOVIES; id++) {
+            movies.add(new Movie(id, "/" + id + ".jpg", "Movie " + id, "Overview " + id, 7.5f,
+                    Movie.parseEpochDay("2017-03-26")));
+            Bitmap thumbnail = Bitmap.createBitmap(32, 48, Bitmap.Config.ARGB_8888);
+            ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, 60, jpeg);
+            thumbnails.put(id, jpeg.toByteArray());
+        }
+        return new GridSnapshot("popular",
+                Collections.singletonList(new HomeSection("popular", movies)), thumbnails);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.goranminov.popmovies.data;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the SqliteCatalogStore against an in-memory database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SqliteCatalogStoreTest {
+
+    private MovieDbHelper mDbHelper;
+    private SqliteCatalogStore mStore;
+
+    @Before
+    public void setUp() {
+        mDbHelper = new MovieDbHelper(InstrumentationRegistry.getTargetContext(), null);
+        mStore = new SqliteCatalogStore(mDbHelper);
+    }
+
+    @After
+    public void tearDown() {
+        mDbHelper.close();
+    }
+
+    private static MoviePage page(int page, int count, String suffix) {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int id = page * 100 + i;
+            movies.add(new Movie(id, i == 0 ? null : "/" + id + ".jpg", "Movie " + id + suffix,
+                    "Overview " + id, 7.5f, Movie.parseEpochDay("2017-03-26")));
+        }
+        return new MoviePage(page, 50, movies);
+    }
+
+    @Test
+    public void missingPageIsNull() {
+        assertNull(mStore.getPage("popular", 1));
+    }
+
+    @Test
+    public void storedPageRoundTrips() {
+        MoviePage page = page(1, 20, "");
+        mStore.putPage("popular", new CachedPage(page, "\"etag\"", "Sun, 26 Mar 2017 15:51:25 GMT", 42L));
+
+        CachedPage stored = mStore.getPage("popular", 1);
+        assertEquals(page.getMovies(), stored.getPage().getMovies());
+        assertEquals(50, stored.getPage().getTotalPages());
+        assertEquals("\"etag\"", stored.getETag());
+        assertEquals("Sun, 26 Mar 2017 15:51:25 GMT", stored.getLastModified());
+        assertEquals(42L, stored.getFetchedAt());
+    }
+
+    @Test
+    public void sortOrdersAreKeptApart() {
+        mStore.putPage("popular", new CachedPage(page(1, 20, " popular"), null, null, 1L));
+        mStore.putPage("top_rated", new CachedPage(page(1, 5, " top"), null, null, 2L));
+
+        assertEquals(20, mStore.getPage("popular", 1).getPage().getMovies().size());
+        assertEquals(5, mStore.getPage("top_rated", 1).getPage().getMovies().size());
+    }
+
+    @Test
+    public void putReplacesThePage() {
+        mStore.putPage("popular", new CachedPage(page(2, 20, ""), "\"a\"", null, 1L));
+        mStore.putPage("popular", new CachedPage(page(2, 12, " new"), "\"b\"", null, 2L));
+
+        CachedPage stored = mStore.getPage("popular", 2);
+        assertEquals(12, stored.getPage().getMovies().size());
+        assertEquals("Movie 200 new", stored.getPage().getMovies().get(0).getTitle());
+        assertEquals("\"b\"", stored.getETag());
+    }
+
+    @Test
+    public void mergeOnlyWritesTheChangedMovies() {
+        mStore.putPage("popular", new CachedPage(page(1, 20, ""), "\"a\"", null, 1L));
+        List<Movie> movies = new ArrayList<>(page(1, 20, "").getMovies());
+        Movie second = movies.get(1);
+        movies.set(1, new Movie(second.getId(), second.getPosterPath(),
+                second.getTitle() + " new", second.getOverview(), second.getVoteAverage(),
+                second.getReleaseDate()));
+        MoviePage changed = new MoviePage(1, 50, movies);
+
+        int written = mStore.mergePage("popular", new CachedPage(changed, "\"b\"", null, 2L));
+
+        assertEquals(1, written);
+        CachedPage stored = mStore.getPage("popular", 1);
+        assertEquals(changed.getMovies(), stored.getPage().getMovies());
+        assertEquals("\"b\"", stored.getETag());
+        assertEquals(2L, stored.getFetchedAt());
+    }
+
+    @Test
+    public void mergeRemovesTheMoviesPastTheEnd() {
+        mStore.putPage("popular", new CachedPage(page(1, 20, ""), null, null, 1L));
+
+        int written = mStore.mergePage("popular", new CachedPage(page(1, 12, ""), null, null, 2L));
+
+        assertEquals(8, written);
+        assertEquals(12, mStore.getPage("popular", 1).getPage().getMovies().size());
+    }
+
+    @Test
+    public void touchOnlyUpdatesTheFetchTime() {
+        mStore.putPage("popular", new CachedPage(page(1, 20, ""), "\"a\"", null, 1L));
+        mStore.touchPage("popular", 1, 99L);
+
+        CachedPage stored = mStore.getPage("popular", 1);
+        assertEquals(99L, stored.getFetchedAt());
+        assertEquals("\"a\"", stored.getETag());
+        assertEquals(20, stored.getPage().getMovies().size());
+    }
+
+    @Test
+    public void posterPlaceholdersSurviveThePages() {
+        mStore.putPage("popular", new CachedPage(page(1, 20, ""), null, null, 1L));
+        mStore.putPosterPlaceholder("101.jpg", "LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+        mStore.putPosterPlaceholder("102.jpg", "L00000fQfQfQfQfQfQfQfQfQfQfQ");
+        mStore.putPage("popular", new CachedPage(page(1, 12, " new"), null, null, 2L));
+
+        Map<String, String> placeholders =
+                mStore.getPosterPlaceholders(Arrays.asList("101.jpg", "102.jpg", "103.jpg"));
+        assertEquals(2, placeholders.size());
+        assertEquals("LEHV6nWB2yk8pyo0adR*.7kCMdnj", placeholders.get("101.jpg"));
+    }
+
+    @Test
+    public void putReplacesThePlaceholder() {
+        mStore.putPosterPlaceholder("101.jpg", "L00000fQfQfQfQfQfQfQfQfQfQfQ");
+        mStore.putPosterPlaceholder("101.jpg", "LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+
+        assertEquals("LEHV6nWB2yk8pyo0adR*.7kCMdnj",
+                mStore.getPosterPlaceholders(Arrays.asList("101.jpg")).get("101.jpg"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.goranminov.popmovies;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Global executor pools for the whole application.
+ *
+ * Grouping tasks like this avoids the effects of task starvation (e.g. disk reads don't wait
+ * behind network requests).
+ */
+public class AppExecutors {
+
+    private static final int NETWORK_THREADS = 3;
+
+    /*
+     * The home grid requests every page it shows at once, a thread each keeps its load time
+     * close to the one of the slowest request.
+     */
+    private static final int FAN_OUT_THREADS = 8;
+
+    // The poster placeholders are looked up, encoded and decoded two at a time.
+    private static final int PLACEHOLDER_THREADS = 2;
+
+    private static final Object LOCK = new Object();
+    private static AppExecutors sInstance;
+
+    private final Executor mDiskIO;
+    private final Executor mNetworkIO;
+    private final Executor mFanOutIO;
+    private final Executor mPrefetchIO;
+    private final Executor mComputation;
+    private final Executor mPlaceholderIO;
+    private final Executor mMainThread;
+
+    private AppExecutors(Executor diskIO, Executor networkIO, Executor fanOutIO,
+                         Executor prefetchIO, Executor computation, Executor placeholderIO,
+                         Executor mainThread) {
+        mDiskIO = diskIO;
+        mNetworkIO = networkIO;
+        mFanOutIO = fanOutIO;
+        mPrefetchIO = prefetchIO;
+        mComputation = computation;
+        mPlaceholderIO = placeholderIO;
+        mMainThread = mainThread;
+    }
+
+    public static AppExecutors getInstance() {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    sInstance = new AppExecutors(Executors.newSingleThreadExecutor(),
+                            Executors.newFixedThreadPool(NETWORK_THREADS),
+                            Executors.newFixedThreadPool(FAN_OUT_THREADS),
+                            Executors.newSingleThreadExecutor(),
+                            Executors.newSingleThreadExecutor(),
+                            Executors.newFixedThreadPool(PLACEHOLDER_THREADS),
+                            new MainThreadExecutor());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    public Executor diskIO() {
+        return mDiskIO;
+    }
+
+    public Executor networkIO() {
+        return mNetworkIO;
+    }
+
+    /**
+     * @return Executor for bursts of parallel requests, kept apart from networkIO so a burst
+     * doesn't hold up the pagers.
+     */
+    public Executor fanOutIO() {
+        return mFanOutIO;
+    }
+
+    /**
+     * @return Executor for speculative requests, one at a time, so what the user may need
+     * next never competes with what they are waiting for.
+     */
+    public Executor prefetchIO() {
+        return mPrefetchIO;
+    }
+
+    /**
+     * @return Executor for CPU bound work that must stay off the main thread, like list diffs.
+     */
+    public Executor computation() {
+        return mComputation;
+    }
+
+    /**
+     * @return Executor for the poster placeholders, kept apart so they are ready before the
+     * posters they stand in for.
+     */
+    public Executor placeholderIO() {
+        return mPlaceholderIO;
+    }
+
+    public Executor mainThread() {
+        return mMainThread;
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            mMainThreadHandler.post(command);
+        }
+    }
+}
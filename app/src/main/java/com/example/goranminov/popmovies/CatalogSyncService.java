@@ -0,0 +1,167 @@
+package com.example.goranminov.popmovies;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.goranminov.popmovies.data.CatalogSync;
+import com.example.goranminov.popmovies.data.PosterSize;
+import com.example.goranminov.popmovies.data.SearchIndex;
+import com.example.goranminov.popmovies.data.SqliteCatalogStore;
+import com.example.goranminov.popmovies.data.SyncSchedule;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.Clock;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
+import com.example.goranminov.popmovies.utilities.PosterCache;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Job refreshing the popular and top rated lists, and their posters, in the local catalog
+ * while the device is charging on an unmetered network, so the grid rarely has to wait for
+ * the network.
+ *
+ * It is a one shot job that schedules the next run when it is done: one interval later, or
+ * with an exponential backoff after a failure, see SyncSchedule. JobScheduler is only
+ * available from Lollipop, older devices keep refreshing the pages as they are shown.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class CatalogSyncService extends JobService {
+
+    private static final String TAG = CatalogSyncService.class.getSimpleName();
+
+    private static final int JOB_ID = 1;
+
+    /*
+     * The lists and pages refreshed in one wake-up, 6 requests over the same connections.
+     */
+    private static final List<String> SORT_ORDERS = Arrays.asList("popular", "top_rated");
+    private static final int PAGES_PER_SORT_ORDER = 3;
+
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private static final String PREFERENCES_NAME = "catalog_sync";
+    private static final String KEY_FAILURES = "failures";
+    private static final String KEY_NEXT_RUN_AT = "next_run_at";
+
+    // Only touched on the main thread.
+    private CatalogSync mSync;
+
+    /**
+     * Schedules the sync unless it is already scheduled. Reads the persisted schedule, so it
+     * must not be called on the main thread.
+     */
+    public static void scheduleSync(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo job : jobScheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return;
+            }
+        }
+        schedule(context, loadSchedule(context).getRemainingDelay());
+    }
+
+    private static void schedule(Context context, long delayMillis) {
+        JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, CatalogSyncService.class))
+                .setRequiresCharging(true)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setMinimumLatency(delayMillis)
+                .setPersisted(true)
+                .build();
+        if (jobScheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            Log.w(TAG, "Catalog sync could not be scheduled");
+        }
+    }
+
+    private static SyncSchedule loadSchedule(Context context) {
+        SharedPreferences preferences =
+                context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        long intervalMillis = TimeUnit.HOURS.toMillis(
+                context.getResources().getInteger(R.integer.catalog_sync_interval_hours));
+        return new SyncSchedule(intervalMillis, INITIAL_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS,
+                preferences.getInt(KEY_FAILURES, 0), preferences.getLong(KEY_NEXT_RUN_AT, 0),
+                Clock.SYSTEM);
+    }
+
+    private static void saveSchedule(Context context, SyncSchedule schedule) {
+        context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE).edit()
+                .putInt(KEY_FAILURES, schedule.getFailures())
+                .putLong(KEY_NEXT_RUN_AT, schedule.getNextRunAt())
+                .apply();
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final Context context = getApplicationContext();
+        final CatalogSync sync = createSync(context);
+        mSync = sync;
+        AppExecutors.getInstance().prefetchIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                SyncSchedule schedule = loadSchedule(context);
+                long delayMillis;
+                try {
+                    CatalogSync.Result result = sync.sync();
+                    delayMillis = result.cancelled ? schedule.onCancelled() : schedule.onSuccess();
+                } catch (IOException e) {
+                    Log.w(TAG, "Catalog sync failed", e);
+                    delayMillis = schedule.onFailure();
+                }
+                saveSchedule(context, schedule);
+                jobFinished(params, false);
+                schedule(context, delayMillis);
+            }
+        });
+        return true;
+    }
+
+    /*
+     * The device was unplugged or left the unmetered network. The sync stops after the
+     * request in flight and schedules itself again.
+     */
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        if (mSync != null) {
+            mSync.cancel();
+        }
+        return false;
+    }
+
+    private static CatalogSync createSync(Context context) {
+        long freshMillis = TimeUnit.MINUTES.toMillis(
+                context.getResources().getInteger(R.integer.catalog_cache_ttl_minutes));
+        // The posters in the size the grid requests them.
+        PosterSize posterSize = PosterGridSpec.forScreen(context).getPosterSize();
+        final PosterCache posterCache = PosterCache.getInstance(context);
+        // The variant the grid shows, the others are refreshed as they are shown.
+        return new CatalogSync(ApiClient.getInstance(), NetworkUtils.MDB_BASE_URL,
+                BuildConfig.MOVIE_DATABASE_API_KEY, FeedVariantSettings.getVariant(context),
+                SqliteCatalogStore.getInstance(context),
+                SearchIndex.getInstance(),
+                new CatalogSync.PosterFetcher() {
+                    @Override
+                    public void fetch(String url) throws IOException {
+                        posterCache.prefetch(url);
+                    }
+                },
+                posterSize, SORT_ORDERS, PAGES_PER_SORT_ORDER, freshMillis, Clock.SYSTEM);
+    }
+}
@@ -1,29 +1,86 @@
 package com.example.goranminov.popmovies;
 
 import android.content.Intent;
+import android.graphics.Bitmap;
+import android.net.Uri;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.ImageView;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 
+import com.example.goranminov.popmovies.data.HomeSection;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MovieDetails;
+import com.example.goranminov.popmovies.data.MovieDetailsRepository;
+import com.example.goranminov.popmovies.data.MovieList;
+import com.example.goranminov.popmovies.data.MovieListCodec;
+import com.example.goranminov.popmovies.data.MovieRegistry;
+import com.example.goranminov.popmovies.data.PosterSize;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.NetworkPolicy;
 import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
 
-public class DetailActivity extends AppCompatActivity {
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shows a movie. What the grid passed is displayed right away, the runtime, genres, trailer,
+ * cast and reviews are filled in section by section as MovieDetailsRepository decodes them,
+ * or at once when the grid already prefetched them.
+ */
+public class DetailActivity extends AppCompatActivity implements
+        MovieDetailsRepository.Listener {
+
+    private static final String TAG = DetailActivity.class.getSimpleName();
+
+    // The cast members listed, the top billed ones.
+    private static final int MAX_CAST_SHOWN = 8;
+
+    // The movie shown, encoded by MovieListCodec, for a restart after the process was killed.
+    private static final String STATE_MOVIE = "movie";
+
+    //Key used to pass the id of the selected Movie, registered in the MovieRegistry.
+    public static final String EXTRA_MOVIE_ID =
+            "com.example.goranminov.popmovies.EXTRA_MOVIE_ID";
+
+    //Key used to pass the PosterSize the grid already downloaded.
+    public static final String EXTRA_THUMBNAIL_SIZE =
+            "com.example.goranminov.popmovies.EXTRA_THUMBNAIL_SIZE";
 
     private TextView mMovieTitle;
     private TextView mMovieOverview;
     private TextView mMovieVoteAverage;
     private TextView mMovieReleaseDate;
     private ImageView mMoviePoster;
-    //String used to get the data from the intent.
-    private String mMovieDetails;
-    final String MDB_BASE = "http://image.tmdb.org/t/p/w185/";
+    private TextView mMovieRuntime;
+    private TextView mMovieGenres;
+    private TextView mMovieTagline;
+    private ProgressBar mDetailsLoading;
+    private TextView mMovieTrailer;
+    private TextView mMovieCastTitle;
+    private TextView mMovieCast;
+    private TextView mMovieReviewsTitle;
+    private TextView mMovieReviews;
+
+    private MovieDetailsRepository mDetailsRepository;
+    private MemoryGovernor mMemoryGovernor;
+    // The id of the movie shown, or -1 before it is known.
+    private int mMovieId = -1;
+    private Movie mMovie;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_detail);
+        mMemoryGovernor = ((PopMoviesApplication) getApplication()).getMemoryGovernor();
 
         /*
          * We get the references to our TextViews and ImageView so we can later
@@ -34,49 +91,260 @@ public class DetailActivity extends AppCompatActivity {
         mMovieVoteAverage = (TextView) findViewById(R.id.movie_vote_average);
         mMovieReleaseDate = (TextView) findViewById(R.id.movie_release_date);
         mMoviePoster = (ImageView) findViewById(R.id.movie_poster_detail_activity);
+        mMovieRuntime = (TextView) findViewById(R.id.movie_runtime);
+        mMovieGenres = (TextView) findViewById(R.id.movie_genres);
+        mMovieTagline = (TextView) findViewById(R.id.movie_tagline);
+        mDetailsLoading = (ProgressBar) findViewById(R.id.movie_details_loading);
+        mMovieTrailer = (TextView) findViewById(R.id.movie_trailer);
+        mMovieCastTitle = (TextView) findViewById(R.id.movie_cast_title);
+        mMovieCast = (TextView) findViewById(R.id.movie_cast);
+        mMovieReviewsTitle = (TextView) findViewById(R.id.movie_reviews_title);
+        mMovieReviews = (TextView) findViewById(R.id.movie_reviews);
         Intent intent = getIntent();
         //If there is intent
         if (intent != null) {
 
             //And we passed the data
-            if (intent.hasExtra(Intent.EXTRA_TEXT)) {
+            if (intent.hasExtra(EXTRA_MOVIE_ID)) {
+
+                // Used to call displayMovie method.
+                int movieId = intent.getIntExtra(EXTRA_MOVIE_ID, -1);
+                Movie movie = findMovie(movieId, savedInstanceState);
+                if (movie == null) {
+                    // Neither the grid nor the saved state has it anymore.
+                    Log.w(TAG, "Movie " + movieId + " is not known");
+                    finish();
+                    return;
+                }
+                mMovie = movie;
+                PosterSize thumbnailSize =
+                        (PosterSize) intent.getSerializableExtra(EXTRA_THUMBNAIL_SIZE);
+                displayMovie(movie, thumbnailSize);
+                loadDetails(movie.getId());
+            }
+        }
+    }
+
+    /*
+     * The movie the grid registered, or the one saved in the state if the process was killed
+     * since.
+     */
+    private static Movie findMovie(int movieId, Bundle savedInstanceState) {
+        Movie movie = MovieRegistry.getInstance().get(movieId);
+        byte[] state = savedInstanceState == null
+                ? null : savedInstanceState.getByteArray(STATE_MOVIE);
+        if (movie != null || state == null) {
+            return movie;
+        }
+        try {
+            List<Movie> movies = MovieListCodec.decode(state).getMovies();
+            return movies.isEmpty() ? null : movies.get(0);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to restore movie " + movieId, e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (mMovie != null) {
+            MovieList list = new MovieList(null, Collections.singletonList(
+                    new HomeSection(null, Collections.singletonList(mMovie))));
+            outState.putByteArray(STATE_MOVIE, MovieListCodec.encode(list));
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (mDetailsRepository != null) {
+            mDetailsRepository.removeListener(mMovieId, this);
+        }
+    }
+
+    /*
+     * The details come from the cache when the grid prefetched them, in which case they are
+     * displayed before the first frame.
+     */
+    private void loadDetails(int movieId) {
+        mMovieId = movieId;
+        mDetailsRepository = ((PopMoviesApplication) getApplication()).getDetailsRepository();
+        mDetailsLoading.setVisibility(View.VISIBLE);
+        mDetailsRepository.load(movieId, this);
+    }
+
+    @Override
+    public void onDetailsLoaded(MovieDetails details) {
+        if (details.isComplete()) {
+            mDetailsLoading.setVisibility(View.GONE);
+        }
+        if (details.hasSection(MovieDetails.SECTION_INFO)) {
+            displayInfo(details);
+        }
+        if (details.hasSection(MovieDetails.SECTION_VIDEOS)) {
+            displayTrailer(details.getVideos());
+        }
+        if (details.hasSection(MovieDetails.SECTION_CREDITS)) {
+            displayCast(details.getCast());
+        }
+        if (details.hasSection(MovieDetails.SECTION_REVIEWS)) {
+            displayReviews(details.getReviews());
+        }
+    }
+
+    @Override
+    public void onDetailsFailed(int movieId, IOException e) {
+        // The screen keeps what the grid passed.
+        Log.w(TAG, "Failed to load the details of movie " + movieId, e);
+        mDetailsLoading.setVisibility(View.GONE);
+    }
 
-                //We put the passed data into the created String
-                mMovieDetails = intent.getStringExtra(Intent.EXTRA_TEXT);
+    private void displayInfo(MovieDetails details) {
+        if (details.getRuntime() != MovieDetails.NO_RUNTIME) {
+            mMovieRuntime.setText(getString(R.string.detail_runtime, details.getRuntime()));
+            mMovieRuntime.setVisibility(View.VISIBLE);
+        }
+        if (!details.getGenres().isEmpty()) {
+            mMovieGenres.setText(TextUtils.join(", ", details.getGenres()));
+            mMovieGenres.setVisibility(View.VISIBLE);
+        }
+        if (!TextUtils.isEmpty(details.getTagline())) {
+            mMovieTagline.setText(details.getTagline());
+            mMovieTagline.setVisibility(View.VISIBLE);
+        }
+    }
 
-                // Used to call parsePassedData method.
-                parsePassedData();
+    /*
+     * Links the first trailer we can play, a teaser or clip if there is no trailer.
+     */
+    private void displayTrailer(List<MovieDetails.Video> videos) {
+        String watchUrl = null;
+        for (MovieDetails.Video video : videos) {
+            String url = video.getWatchUrl();
+            if (url != null && (watchUrl == null || "Trailer".equals(video.getType()))) {
+                watchUrl = url;
+                if ("Trailer".equals(video.getType())) {
+                    break;
+                }
             }
         }
+        if (watchUrl == null) {
+            return;
+        }
+        final Uri uri = Uri.parse(watchUrl);
+        mMovieTrailer.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(new Intent(Intent.ACTION_VIEW, uri));
+            }
+        });
+        mMovieTrailer.setVisibility(View.VISIBLE);
     }
 
-    private void parsePassedData() {
+    private void displayCast(List<MovieDetails.CastMember> cast) {
+        if (cast.isEmpty()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (MovieDetails.CastMember member : cast.subList(0, Math.min(cast.size(),
+                MAX_CAST_SHOWN))) {
+            lines.add(TextUtils.isEmpty(member.getCharacter()) ? member.getName()
+                    : getString(R.string.detail_cast_member, member.getName(),
+                    member.getCharacter()));
+        }
+        mMovieCast.setText(TextUtils.join("\n", lines));
+        mMovieCastTitle.setVisibility(View.VISIBLE);
+        mMovieCast.setVisibility(View.VISIBLE);
+    }
+
+    private void displayReviews(List<MovieDetails.Review> reviews) {
+        if (reviews.isEmpty()) {
+            return;
+        }
+        List<String> texts = new ArrayList<>();
+        for (MovieDetails.Review review : reviews) {
+            texts.add(getString(R.string.detail_review, review.getAuthor(),
+                    review.getContent()));
+        }
+        mMovieReviews.setText(TextUtils.join("\n\n", texts));
+        mMovieReviewsTitle.setVisibility(View.VISIBLE);
+        mMovieReviews.setVisibility(View.VISIBLE);
+    }
+
+    private void displayMovie(final Movie movie, final PosterSize thumbnailSize) {
 
         /*
-         * Here came handy why we have used different symbols while we were creating the String Array
-         * from the JSONObject.
-         *
-         * We extract the substrings and we passed the information to their TextView and ImageView.
+         * The poster size depends on the measured width of the ImageView, so we wait
+         * for the layout before loading it.
          */
-        String moviePath = MDB_BASE + mMovieDetails.substring(0, mMovieDetails.indexOf("!"));
+        mMoviePoster.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        mMoviePoster.getViewTreeObserver().removeOnPreDrawListener(this);
+                        // A size smaller when memory is low.
+                        loadPoster(movie, thumbnailSize, mMemoryGovernor.getPosterSize(
+                                PosterSize.forWidth(mMoviePoster.getWidth())));
+                        return true;
+                    }
+                });
+        mMovieTitle.setText(movie.getTitle());
+        mMovieOverview.setText(movie.getOverview());
+        mMovieVoteAverage.setText(movie.getVoteAverage() + "/10");
+        int releaseYear = movie.getReleaseYear();
+        if (releaseYear != Movie.NO_RELEASE_DATE) {
+            mMovieReleaseDate.setText(String.valueOf(releaseYear));
+        }
+    }
 
-        /* We use Picasso to handle image loading, we trigger the URL asynchronously
-         * into the ImageView.
-         */
-        Picasso.with(getApplicationContext()).load(moviePath)
+    /**
+     * Loads the poster in the given size. If the grid already downloaded a smaller variant,
+     * it is shown from the cache right away and used as the placeholder of the larger one.
+     */
+    private void loadPoster(final Movie movie, PosterSize thumbnailSize,
+                            final PosterSize posterSize) {
+        if (thumbnailSize == null || thumbnailSize.getWidth() >= posterSize.getWidth()) {
+            loadPoster(movie.getPosterUrl(posterSize), false);
+            return;
+        }
+        Picasso.with(getApplicationContext()).load(movie.getPosterUrl(thumbnailSize))
+                .networkPolicy(NetworkPolicy.OFFLINE)
                 .placeholder(R.drawable.placeholder)
+                .noFade()
                 .centerInside()
                 .fit()
-                .into(mMoviePoster);
-        String movieTitle = mMovieDetails.substring(mMovieDetails.indexOf("!") + 1, mMovieDetails.indexOf("@"));
-        mMovieTitle.setText(movieTitle);
-        String movieOverview = mMovieDetails.substring(mMovieDetails.indexOf("@") + 1, mMovieDetails.indexOf("#"));
-        mMovieOverview.setText(movieOverview);
-        String movieVoteAverage = mMovieDetails.substring(mMovieDetails.indexOf("#") + 1, mMovieDetails.indexOf("£"));
-        mMovieVoteAverage.setText(movieVoteAverage + "/10");
-        String movieReleaseDate = mMovieDetails.substring(mMovieDetails.indexOf("#") + 1, mMovieDetails.length() - 1);
-        movieReleaseDate = movieReleaseDate.substring(movieReleaseDate.indexOf("£") + 1, movieReleaseDate.indexOf("-"));
-        mMovieReleaseDate.setText(movieReleaseDate);
+                .into(mMoviePoster, new Callback() {
+                    @Override
+                    public void onSuccess() {
+                        loadPoster(movie.getPosterUrl(posterSize), true);
+                    }
 
+                    @Override
+                    public void onError() {
+                        loadPoster(movie.getPosterUrl(posterSize), false);
+                    }
+                });
+    }
+
+    /* We use Picasso to handle image loading, we trigger the URL asynchronously
+     * into the ImageView.
+     */
+    private void loadPoster(String posterUrl, boolean keepThumbnail) {
+        if (isFinishing()) {
+            return;
+        }
+        RequestCreator request = Picasso.with(getApplicationContext()).load(posterUrl);
+        if (keepThumbnail) {
+            request.placeholder(mMoviePoster.getDrawable()).noFade();
+        } else {
+            request.placeholder(R.drawable.placeholder);
+        }
+        if (mMemoryGovernor.getLevel().reducesBitmapDepth()) {
+            request.config(Bitmap.Config.RGB_565);
+        }
+        request.centerInside()
+                .fit()
+                .into(mMoviePoster);
     }
 }
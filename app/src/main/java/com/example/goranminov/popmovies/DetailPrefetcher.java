@@ -0,0 +1,97 @@
+package com.example.goranminov.popmovies;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MovieDetailsRepository;
+
+/**
+ * Scroll listener prefetching the details of the movies the user looks at, so the detail
+ * screen opens fully populated.
+ *
+ * A movie is prefetched once its cell has been completely visible for a while with the
+ * grid at rest: cells scrolled past are never requested, and a user who stops on a few
+ * posters is probably choosing among them. Only the first few cells are prefetched, the
+ * requests go one at a time on the prefetch Executor of the repository.
+ */
+public class DetailPrefetcher extends RecyclerView.OnScrollListener {
+
+    private final RecyclerView mRecyclerView;
+    private final GridLayoutManager mLayoutManager;
+    private final MovieAdapter mAdapter;
+    private final MovieDetailsRepository mRepository;
+    private final long mDwellMillis;
+    private final int mMaxMovies;
+
+    private final Runnable mPrefetchVisible = new Runnable() {
+        @Override
+        public void run() {
+            prefetchVisible();
+        }
+    };
+
+    /**
+     * Creates a DetailPrefetcher.
+     *
+     * @param recyclerView  The grid.
+     * @param layoutManager The layout manager of the grid.
+     * @param adapter       The adapter of the grid.
+     * @param repository    Loads the details.
+     * @param dwellMillis   How long the cells must stay visible.
+     * @param maxMovies     How many of the visible movies are prefetched.
+     */
+    public DetailPrefetcher(RecyclerView recyclerView, GridLayoutManager layoutManager,
+                            MovieAdapter adapter, MovieDetailsRepository repository,
+                            long dwellMillis, int maxMovies) {
+        mRecyclerView = recyclerView;
+        mLayoutManager = layoutManager;
+        mAdapter = adapter;
+        mRepository = repository;
+        mDwellMillis = dwellMillis;
+        mMaxMovies = maxMovies;
+    }
+
+    /**
+     * Starts the dwell time over, called when the grid comes to rest or shows new movies.
+     */
+    public void schedule() {
+        mRecyclerView.removeCallbacks(mPrefetchVisible);
+        mRecyclerView.postDelayed(mPrefetchVisible, mDwellMillis);
+    }
+
+    /**
+     * Forgets the pending prefetch, called when the grid is going away.
+     */
+    public void cancel() {
+        mRecyclerView.removeCallbacks(mPrefetchVisible);
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            schedule();
+        } else {
+            cancel();
+        }
+    }
+
+    private void prefetchVisible() {
+        int first = mLayoutManager.findFirstCompletelyVisibleItemPosition();
+        int last = mLayoutManager.findLastCompletelyVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int prefetched = 0;
+        for (int position = first;
+             position <= last && position < mAdapter.getItemCount() && prefetched < mMaxMovies;
+             position++) {
+            Movie movie = mAdapter.getMovie(position);
+            // Section headers have no details.
+            if (movie != null) {
+                mRepository.prefetch(movie.getId());
+                prefetched++;
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.goranminov.popmovies;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.goranminov.popmovies.data.FeedVariant;
+
+import java.util.Locale;
+
+/**
+ * The FeedVariant the lists are shown in: the one of the device locale, unless the user
+ * picked another one from the menu of the grid.
+ */
+public final class FeedVariantSettings {
+
+    private static final String PREFERENCES_NAME = "feed_variant";
+    private static final String KEY_OVERRIDE = "override";
+
+    private FeedVariantSettings() {
+    }
+
+    /**
+     * @return The variant the user picked, or the one of the device locale.
+     */
+    public static FeedVariant getVariant(Context context) {
+        String tag = getOverride(context);
+        return tag == null
+                ? FeedVariant.fromLocale(Locale.getDefault()) : FeedVariant.fromTag(tag);
+    }
+
+    /**
+     * @return The tag of the variant the user picked, or null if the device locale is
+     * followed.
+     */
+    public static String getOverride(Context context) {
+        return getPreferences(context).getString(KEY_OVERRIDE, null);
+    }
+
+    /**
+     * Makes the lists follow the variant, or the device locale again if it is null.
+     */
+    public static void setOverride(Context context, FeedVariant variant) {
+        SharedPreferences.Editor editor = getPreferences(context).edit();
+        if (variant == null) {
+            editor.remove(KEY_OVERRIDE);
+        } else {
+            editor.putString(KEY_OVERRIDE, variant.getTag());
+        }
+        editor.apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+}
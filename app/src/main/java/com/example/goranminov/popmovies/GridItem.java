@@ -0,0 +1,77 @@
+package com.example.goranminov.popmovies;
+
+import com.example.goranminov.popmovies.data.Movie;
+
+/**
+ * One cell of the poster grid: a movie, or the header of a section of the home grid.
+ */
+final class GridItem {
+
+    static final int TYPE_MOVIE = 0;
+    static final int TYPE_HEADER = 1;
+
+    private final int mType;
+    private final Movie mMovie;
+    private final String mFeed;
+
+    private GridItem(int type, Movie movie, String feed) {
+        mType = type;
+        mMovie = movie;
+        mFeed = feed;
+    }
+
+    static GridItem movie(Movie movie) {
+        return new GridItem(TYPE_MOVIE, movie, null);
+    }
+
+    /**
+     * @param feed The list the section shows, e.g. "popular".
+     */
+    static GridItem header(String feed) {
+        return new GridItem(TYPE_HEADER, null, feed);
+    }
+
+    int getType() {
+        return mType;
+    }
+
+    /**
+     * @return The movie, or null for a header.
+     */
+    Movie getMovie() {
+        return mMovie;
+    }
+
+    /**
+     * @return The list of a header, or null for a movie.
+     */
+    String getFeed() {
+        return mFeed;
+    }
+
+    /**
+     * @return A stable id: the movie id for movies, which are positive, and a negative id
+     * derived from the list for headers.
+     */
+    long getId() {
+        return mType == TYPE_MOVIE ? mMovie.getId() : -1L - (mFeed.hashCode() & 0xffffffffL);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GridItem)) {
+            return false;
+        }
+        GridItem other = (GridItem) o;
+        return mType == other.mType
+                && (mType == TYPE_MOVIE ? mMovie.equals(other.mMovie) : mFeed.equals(other.mFeed));
+    }
+
+    @Override
+    public int hashCode() {
+        return mType == TYPE_MOVIE ? mMovie.hashCode() : mFeed.hashCode();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.goranminov.popmovies;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps the list of grid cells shown by an adapter and turns new lists into the insert,
+ * remove, move and change events that lead to them.
+ *
+ * The difference is computed with DiffUtil on a background executor, matching cells by id
+ * and comparing their contents, so a refresh that changes nothing dispatches nothing. A list
+ * submitted while an older one is still being diffed supersedes it.
+ *
+ * {@link #submitList(List)} and the getters must be called on the main thread.
+ */
+public class GridItemDiffer {
+
+    private final ListUpdateCallback mCallback;
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainThreadExecutor;
+
+    private List<GridItem> mItems = Collections.emptyList();
+
+    // Incremented by every submission, a diff is only applied if no newer one was made.
+    private int mGeneration;
+
+    /**
+     * Creates a GridItemDiffer.
+     *
+     * @param callback           Receives the update events, on the main thread.
+     * @param backgroundExecutor Executor the differences are computed on.
+     * @param mainThreadExecutor Executor posting to the main thread.
+     */
+    public GridItemDiffer(ListUpdateCallback callback, Executor backgroundExecutor,
+                          Executor mainThreadExecutor) {
+        mCallback = callback;
+        mBackgroundExecutor = backgroundExecutor;
+        mMainThreadExecutor = mainThreadExecutor;
+    }
+
+    /**
+     * @return The list currently shown.
+     */
+    public List<GridItem> getItems() {
+        return mItems;
+    }
+
+    /**
+     * Shows a new list. It is copied, so the caller may keep changing its own list.
+     *
+     * @param items The cells to show, null to show none.
+     */
+    public void submitList(List<GridItem> items) {
+        final int generation = ++mGeneration;
+        final List<GridItem> oldItems = mItems;
+        final List<GridItem> newItems = items == null || items.isEmpty()
+                ? Collections.<GridItem>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(items));
+
+        // Nothing to compare against, no need for a background pass.
+        if (oldItems.isEmpty() || newItems.isEmpty()) {
+            mItems = newItems;
+            if (!oldItems.isEmpty()) {
+                mCallback.onRemoved(0, oldItems.size());
+            }
+            if (!newItems.isEmpty()) {
+                mCallback.onInserted(0, newItems.size());
+            }
+            return;
+        }
+
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result =
+                        DiffUtil.calculateDiff(new GridItemDiffCallback(oldItems, newItems));
+                mMainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            mItems = newItems;
+                            result.dispatchUpdatesTo(mCallback);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private static final class GridItemDiffCallback extends DiffUtil.Callback {
+
+        private final List<GridItem> mOldItems;
+        private final List<GridItem> mNewItems;
+
+        GridItemDiffCallback(List<GridItem> oldItems, List<GridItem> newItems) {
+            mOldItems = oldItems;
+            mNewItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItems.get(oldItemPosition).getId()
+                    == mNewItems.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItems.get(oldItemPosition).equals(mNewItems.get(newItemPosition));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.goranminov.popmovies;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import com.example.goranminov.popmovies.data.GridSnapshot;
+import com.example.goranminov.popmovies.data.GridSnapshotStore;
+import com.example.goranminov.popmovies.data.HomeSection;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.PosterSize;
+import com.squareup.picasso.MemoryPolicy;
+import com.squareup.picasso.NetworkPolicy;
+import com.squareup.picasso.Picasso;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Saves the top of the grid when the user leaves it, and reads it back for the first frame
+ * of the next cold start.
+ *
+ * The thumbnails are made from the posters in the disk cache, so capturing never touches
+ * the network; a poster that was never downloaded just has no thumbnail.
+ */
+public class GridSnapshotter {
+
+    private static final String TAG = GridSnapshotter.class.getSimpleName();
+
+    private static final String SNAPSHOT_FILE = "grid.snapshot";
+
+    /*
+     * A 2:3 thumbnail of about 1KB, stretched over the cell until the poster arrives. It only
+     * needs to look like the poster from a distance.
+     */
+    private static final int THUMBNAIL_WIDTH = 32;
+    private static final int THUMBNAIL_HEIGHT = 48;
+    private static final int THUMBNAIL_QUALITY = 60;
+
+    private final Context mContext;
+    private final GridSnapshotStore mStore;
+    private final Executor mDiskExecutor;
+    private final int mMaxMovies;
+
+    /**
+     * Creates a GridSnapshotter.
+     *
+     * @param context      Any Context, only the application Context is kept.
+     * @param store        Where the snapshot is kept.
+     * @param diskExecutor Executor the thumbnails are made and the snapshot saved on.
+     * @param maxMovies    How many of the first movies are saved.
+     */
+    public GridSnapshotter(Context context, GridSnapshotStore store, Executor diskExecutor,
+                           int maxMovies) {
+        mContext = context.getApplicationContext();
+        mStore = store;
+        mDiskExecutor = diskExecutor;
+        mMaxMovies = maxMovies;
+    }
+
+    /**
+     * @return The file the snapshot of the grid is kept in.
+     */
+    public static File getSnapshotFile(Context context) {
+        return new File(context.getCacheDir(), SNAPSHOT_FILE);
+    }
+
+    /**
+     * Reads the last snapshot. It is a few kilobytes, small enough to be read on the main
+     * thread before the first frame.
+     *
+     * @return The snapshot, or null if there is none.
+     */
+    public GridSnapshot load() {
+        return mStore.load();
+    }
+
+    /**
+     * @return The thumbnails of the snapshot by movie id, the ones that can't be decoded left
+     * out.
+     */
+    public static Map<Integer, Bitmap> decodeThumbnails(GridSnapshot snapshot) {
+        Map<Integer, Bitmap> thumbnails = new HashMap<>();
+        for (Map.Entry<Integer, byte[]> entry : snapshot.getThumbnails().entrySet()) {
+            byte[] jpeg = entry.getValue();
+            Bitmap thumbnail = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length);
+            if (thumbnail != null) {
+                thumbnails.put(entry.getKey(), thumbnail);
+            }
+        }
+        return thumbnails;
+    }
+
+    /**
+     * Saves the first movies shown in the background, replacing the previous snapshot.
+     *
+     * @param sortOrder  The sort order shown.
+     * @param sections   The sections shown, a single one named after the sort order for a
+     *                   single list.
+     * @param posterSize The poster size of the grid, the one in the disk cache.
+     */
+    public void capture(String sortOrder, List<HomeSection> sections,
+                        final PosterSize posterSize) {
+        final List<HomeSection> top = new ArrayList<>();
+        int remaining = mMaxMovies;
+        for (HomeSection section : sections) {
+            if (remaining == 0) {
+                break;
+            }
+            List<Movie> movies = section.getMovies();
+            if (movies.isEmpty()) {
+                continue;
+            }
+            List<Movie> kept = movies.subList(0, Math.min(remaining, movies.size()));
+            top.add(new HomeSection(section.getFeed(), new ArrayList<>(kept)));
+            remaining -= kept.size();
+        }
+        if (top.isEmpty()) {
+            return;
+        }
+        final String snapshotSortOrder = sortOrder;
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<Integer, byte[]> thumbnails = new HashMap<>();
+                for (HomeSection section : top) {
+                    for (Movie movie : section.getMovies()) {
+                        byte[] thumbnail = makeThumbnail(movie, posterSize);
+                        if (thumbnail != null) {
+                            thumbnails.put(movie.getId(), thumbnail);
+                        }
+                    }
+                }
+                try {
+                    mStore.save(new GridSnapshot(snapshotSortOrder, top, thumbnails));
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to save the grid snapshot", e);
+                }
+            }
+        });
+    }
+
+    /*
+     * The JPEG thumbnail of the cached poster of the movie, or null if it has none.
+     */
+    private byte[] makeThumbnail(Movie movie, PosterSize posterSize) {
+        String url = movie.getPosterUrl(posterSize);
+        if (url == null) {
+            return null;
+        }
+        Bitmap poster;
+        try {
+            poster = Picasso.with(mContext)
+                    .load(url)
+                    .resize(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT)
+                    .centerCrop()
+                    .networkPolicy(NetworkPolicy.OFFLINE)
+                    .memoryPolicy(MemoryPolicy.NO_CACHE, MemoryPolicy.NO_STORE)
+                    .get();
+        } catch (IOException e) {
+            // Not in the disk cache.
+            return null;
+        }
+        if (poster == null) {
+            return null;
+        }
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        poster.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, jpeg);
+        return jpeg.toByteArray();
+    }
+}
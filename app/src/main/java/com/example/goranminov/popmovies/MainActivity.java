@@ -1,8 +1,9 @@
 package com.example.goranminov.popmovies;
 
+import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
-import android.net.Uri;
-import android.os.AsyncTask;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.support.v7.widget.GridLayoutManager;
@@ -12,35 +13,123 @@ import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.example.goranminov.popmovies.data.CachingPageSource;
+import com.example.goranminov.popmovies.data.FeedVariant;
+import com.example.goranminov.popmovies.data.GridSnapshot;
+import com.example.goranminov.popmovies.data.GridSnapshotStore;
+import com.example.goranminov.popmovies.data.HomeFeedLoader;
+import com.example.goranminov.popmovies.data.HomeSection;
+import com.example.goranminov.popmovies.data.MemoryPageCache;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MovieDetailsRepository;
+import com.example.goranminov.popmovies.data.MovieList;
+import com.example.goranminov.popmovies.data.MovieListCodec;
+import com.example.goranminov.popmovies.data.MoviePager;
+import com.example.goranminov.popmovies.data.MovieRegistry;
+import com.example.goranminov.popmovies.data.SearchIndex;
+import com.example.goranminov.popmovies.data.SqliteCatalogStore;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.Clock;
+import com.example.goranminov.popmovies.utilities.Metrics;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
     /*
      * I have followed the examples from the Sunshine app that was provided during my Nanodegree course.
      * I have followed the AsyncTask class the documentation on android.developer Website
      * as well as the AsyncTask class from the Sunshine app.
      */
-public class MainActivity extends AppCompatActivity implements MovieAdapter.MovieAdapterOnClickHandler {
+public class MainActivity extends AppCompatActivity implements MovieAdapter.MovieAdapterOnClickHandler,
+        MovieListModel.Ui {
+
+    private static final String TAG = MainActivity.class.getSimpleName();
+
+    private static final String SORT_POPULAR = "popular";
+    private static final String SORT_TOP_RATED = "top_rated";
+    private static final String SORT_NOW_PLAYING = "now_playing";
+    private static final String SORT_UPCOMING = "upcoming";
+
+    /*
+     * The lists of the home grid, highest ranked first, and how many pages of each it shows.
+     * That is 8 requests, one for each thread of AppExecutors.fanOutIO().
+     */
+    private static final List<String> HOME_FEEDS = Arrays.asList(
+            SORT_POPULAR, SORT_TOP_RATED, SORT_NOW_PLAYING, SORT_UPCOMING);
+    private static final int HOME_PAGES_PER_FEED = 2;
+
+    /*
+     * The next page is requested when the user is within half a page of the end of the grid,
+     * and at most ten pages (200 movies) are kept in memory.
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final int MAX_PAGES_IN_MEMORY = 10;
+
+    // Rows of posters fetched ahead of the visible ones.
+    private static final int PREFETCH_ROWS = 3;
+
+    /*
+     * The details of the movies that stayed on screen this long are prefetched, the first
+     * few of them.
+     */
+    private static final long DETAIL_PREFETCH_DWELL_MILLIS = 1500;
+    private static final int DETAIL_PREFETCH_MAX_MOVIES = 6;
+
+    /*
+     * The first rows of the grid are saved when the user leaves it, and drawn by the next
+     * cold start before anything is loaded.
+     */
+    private static final int SNAPSHOT_ROWS = 6;
+
+    /*
+     * The first movies shown are kept in the saved instance state, encoded by MovieListCodec,
+     * so the grid is drawn again at once after the process was killed in the background.
+     * Three pages are about 40KB, well under what a Bundle should carry.
+     */
+    private static final String STATE_MOVIE_LIST = "movie_list";
+    private static final int STATE_MAX_MOVIES = 60;
+
+    // The tag of the FeedVariant the retained model loads.
+    private static final String STATE_VARIANT = "variant";
 
     private RecyclerView mRecyclerView;
     private MovieAdapter mMovieAdapter;
+    private PosterPrefetcher mPosterPrefetcher;
+    private DetailPrefetcher mDetailPrefetcher;
+    private MetricsOverlay mMetricsOverlay;
+    private GridSnapshotter mGridSnapshotter;
     private TextView mErrorMessage;
     private ProgressBar mLoadingData;
 
+    // The columns and cell size of the grid, from the width of the screen.
+    private PosterGridSpec mGridSpec;
+
+    // The sort order of the snapshot drawn by a cold start, loaded after the first frame.
+    private String mSnapshotSortOrder;
+
+    // The language and region the model loads the lists in.
+    private FeedVariant mVariant;
+
+    // How long the first frame took from onCreate, and how many cells it had.
+    private long mFirstFrameNanos;
+    private int mFirstFrameItemCount;
+
+    /*
+     * Retained across configuration changes, so a rotation doesn't start another download.
+     */
+    private MovieListModel mListModel;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        // The start of Metric.FIRST_FRAME and Metric.FIRST_POSTER.
+        long createdAt = System.nanoTime();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
@@ -64,39 +153,367 @@ public class MainActivity extends AppCompatActivity implements MovieAdapter.Movi
 
         /*
          * We attach GridLayoutManager to our RecyclerView as we need to display our results
-         * in Grid style.
+         * in Grid style, with as many columns as the width of the screen fits.
          */
-        GridLayoutManager layoutManager = new GridLayoutManager(this, 2);
+        mGridSpec = PosterGridSpec.forScreen(this);
+        final GridLayoutManager layoutManager =
+                new GridLayoutManager(this, mGridSpec.getSpanCount());
         mRecyclerView.setLayoutManager(layoutManager);
         mRecyclerView.setHasFixedSize(true);
 
+        /*
+         * Let the pager know where the user is, so it can load the pages around it.
+         */
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                mListModel.onScrolled(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
+            }
+        });
+
         /*
          * The MovieAdapter is responsible to attach our data and display it.
          */
         mMovieAdapter = new MovieAdapter(this);
+        mMovieAdapter.trackFirstPoster(createdAt);
+        mMovieAdapter.setPosterPlaceholders(PosterPlaceholders.getInstance(this));
+        mMovieAdapter.setMemoryGovernor(
+                ((PopMoviesApplication) getApplication()).getMemoryGovernor());
+
+        /*
+         * The grid fills the width of the screen, so a cell is a span's share of it. We
+         * request the smallest poster covering that many pixels.
+         */
+        mGridSpec.applyTo(mRecyclerView, mMovieAdapter);
         mRecyclerView.setAdapter(mMovieAdapter);
 
         /*
-         * Call our loadPopularMovies method.
+         * The debug build can show what the Metrics recorded over the grid.
+         */
+        mMetricsOverlay = new MetricsOverlay((TextView) findViewById(R.id.metrics_overlay),
+                Metrics.getInstance());
+
+        /*
+         * Reuse the model of the previous instance after a configuration change, and show
+         * what it already loaded.
+         */
+        FeedVariant variant = FeedVariantSettings.getVariant(this);
+        mListModel = (MovieListModel) getLastCustomNonConfigurationInstance();
+        if (mListModel == null) {
+            CachingPagerFactory factory = new CachingPagerFactory(this, variant);
+            mListModel = new MovieListModel(factory, factory);
+            mVariant = variant;
+        } else {
+            mVariant = FeedVariant.fromTag(savedInstanceState.getString(STATE_VARIANT));
+        }
+        mListModel.attach(this);
+        showModelData();
+
+        /*
+         * The device locale may have changed while the model was retained.
+         */
+        showVariant(variant);
+
+        mGridSnapshotter = new GridSnapshotter(this,
+                new GridSnapshotStore(GridSnapshotter.getSnapshotFile(this)),
+                AppExecutors.getInstance().diskIO(), mGridSpec.getSpanCount() * SNAPSHOT_ROWS);
+        GridSnapshot snapshot = null;
+        if (mListModel.getSortOrder() == null) {
+            snapshot = restoreSnapshot(savedInstanceState);
+            if (snapshot == null) {
+                snapshot = mGridSnapshotter.load();
+            }
+        }
+
+        if (snapshot != null) {
+
+            /*
+             * A cold start, or a restart after the process was killed: draw the grid the user
+             * left until it is loaded again.
+             */
+            showSnapshot(snapshot);
+        } else if (mListModel.getSortOrder() == null) {
+
+            /*
+             * Call our loadPopularMovies method.
+             */
+            loadPopularMovies();
+        } else if (mListModel.hasFailed()) {
+            showErrorData();
+        } else if (mListModel.isLoading() && mListModel.isEmpty()) {
+            mLoadingData.setVisibility(View.VISIBLE);
+        }
+
+        runAfterFirstFrame(createdAt, layoutManager);
+    }
+
+    /*
+     * Records the first frame, then sets up what it didn't need: the prefetchers and, after a
+     * cold start from the snapshot, the loading of its sort order. They are posted to run
+     * after the frame instead of delaying it.
+     */
+    private void runAfterFirstFrame(final long createdAt, final GridLayoutManager layoutManager) {
+        mRecyclerView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        mRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        mFirstFrameNanos = System.nanoTime() - createdAt;
+                        mFirstFrameItemCount = mMovieAdapter.getItemCount();
+                        Metrics.getInstance().record(Metrics.Metric.FIRST_FRAME,
+                                mFirstFrameNanos);
+                        mRecyclerView.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!isFinishing()) {
+                                    setUpAfterFirstFrame(layoutManager);
+                                }
+                            }
+                        });
+                        return true;
+                    }
+                });
+    }
+
+    private void setUpAfterFirstFrame(GridLayoutManager layoutManager) {
+        if (mSnapshotSortOrder != null) {
+            mListModel.showSortOrder(mSnapshotSortOrder);
+            mSnapshotSortOrder = null;
+        }
+
+        /*
+         * Warm the image cache for the rows the user scrolls towards.
+         */
+        mPosterPrefetcher = new PosterPrefetcher(this, layoutManager, mMovieAdapter,
+                PREFETCH_ROWS);
+        mRecyclerView.addOnScrollListener(mPosterPrefetcher);
+
+        /*
+         * Load the details of the movies the user looks at or holds down before they are
+         * opened.
+         */
+        final MovieDetailsRepository detailsRepository =
+                ((PopMoviesApplication) getApplication()).getDetailsRepository();
+        mDetailPrefetcher = new DetailPrefetcher(mRecyclerView, layoutManager, mMovieAdapter,
+                detailsRepository, DETAIL_PREFETCH_DWELL_MILLIS, DETAIL_PREFETCH_MAX_MOVIES);
+        mRecyclerView.addOnScrollListener(mDetailPrefetcher);
+        mMovieAdapter.setOnLongPressHandler(new MovieAdapter.MovieAdapterOnLongPressHandler() {
+            @Override
+            public void onLongPress(Movie pressedMovie) {
+                detailsRepository.prefetch(pressedMovie.getId());
+            }
+        });
+        if (mMovieAdapter.getItemCount() > 0) {
+            mDetailPrefetcher.schedule();
+        }
+    }
+
+    /**
+     * @return The prefetcher of the poster grid, used by the instrumentation tests. It is
+     * created once the first frame is drawn.
+     */
+    PosterPrefetcher getPosterPrefetcher() {
+        return mPosterPrefetcher;
+    }
+
+    /**
+     * @return The time from onCreate to the first frame, 0 until it is drawn. Used by the
+     * instrumentation tests.
+     */
+    long getFirstFrameNanos() {
+        return mFirstFrameNanos;
+    }
+
+    /**
+     * @return How many cells the first frame had, used by the instrumentation tests.
+     */
+    int getFirstFrameItemCount() {
+        return mFirstFrameItemCount;
+    }
+
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        return mListModel;
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_VARIANT, mVariant.getTag());
+
+        /*
+         * A configuration change keeps the model, the state only matters if the process is
+         * killed.
          */
-        loadPopularMovies();
+        if (!isChangingConfigurations() && !mListModel.isEmpty()) {
+            MovieList list = new MovieList(mListModel.getSortOrder(), getShownSections());
+            outState.putByteArray(STATE_MOVIE_LIST,
+                    MovieListCodec.encode(list.first(STATE_MAX_MOVIES)));
+        }
+    }
+
+    /*
+     * The grid saved by onSaveInstanceState, without thumbnails: the posters are still in the
+     * disk cache. Null if nothing was saved or it can't be read.
+     */
+    private static GridSnapshot restoreSnapshot(Bundle savedInstanceState) {
+        byte[] state = savedInstanceState == null
+                ? null : savedInstanceState.getByteArray(STATE_MOVIE_LIST);
+        if (state == null) {
+            return null;
+        }
+        try {
+            MovieList list = MovieListCodec.decode(state);
+            return new GridSnapshot(list.getSortOrder(), list.getSections(),
+                    Collections.<Integer, byte[]>emptyMap());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to restore the movie list", e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        /*
+         * Save the top of the grid for the next cold start. A configuration change keeps the
+         * model, so there is nothing to save then.
+         */
+        if (!isChangingConfigurations() && !mListModel.isEmpty()) {
+            mGridSnapshotter.capture(mListModel.getSortOrder(), getShownSections(),
+                    mMovieAdapter.getPosterSize());
+        }
+    }
 
+    /*
+     * The sections of the model, a single one named after the sort order for a single list.
+     */
+    private List<HomeSection> getShownSections() {
+        if (mListModel.isHome()) {
+            return mListModel.getSections();
+        }
+        return Collections.singletonList(
+                new HomeSection(mListModel.getSortOrder(), mListModel.getMovies()));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (mDetailPrefetcher != null) {
+            mDetailPrefetcher.cancel();
+        }
+        mMetricsOverlay.hide();
+        mListModel.detach();
+        if (isFinishing()) {
+            mListModel.release();
+        }
     }
 
     /*
      * Method used to get the movies data. The preffered sorting is set to be popular.
      */
     private void loadPopularMovies() {
-        showMovieData();
-        new GetMovieData().execute("popular");
+        loadMovies(SORT_POPULAR);
     }
 
     /*
      * Method used to get the movies data with the top_rated sorting.
      */
     private void loadTopRatedMovies() {
-        showMovieData();
-        new GetMovieData().execute("top_rated");
+        loadMovies(SORT_TOP_RATED);
+    }
+
+    /*
+     * Method used to show the popular, top rated, now playing and upcoming movies together.
+     */
+    private void loadHome() {
+        loadMovies(MovieListModel.SORT_HOME);
+    }
+
+    /*
+     * Method used to show the given sort order. Nothing is reloaded if it is already shown.
+     */
+    private void loadMovies(String sortOrder) {
+        mSnapshotSortOrder = null;
+        if (mListModel.showSortOrder(sortOrder)) {
+            if (mPosterPrefetcher != null) {
+                mPosterPrefetcher.reset();
+            }
+            mMovieAdapter.setMovieData(null);
+            showMovieData();
+            mLoadingData.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /*
+     * Method used to show the lists in another language and region. The grid keeps what it
+     * shows until the same sort order is loaded in the new variant, which the caches keep
+     * apart from the old one.
+     */
+    private void showVariant(FeedVariant variant) {
+        ((PopMoviesApplication) getApplication()).getDetailsRepository().setVariant(variant);
+        if (variant.equals(mVariant)) {
+            return;
+        }
+        mVariant = variant;
+        CachingPagerFactory factory = new CachingPagerFactory(this, variant);
+        mListModel.replaceFactories(factory, factory);
+    }
+
+    /*
+     * Method used to let the user pick the language and region of the lists, or go back to
+     * the ones of the device.
+     */
+    private void showFeedVariantDialog() {
+        final String[] tags = getResources().getStringArray(R.array.feed_variant_tags);
+        String override = FeedVariantSettings.getOverride(this);
+        int checked = 0;
+        for (int i = 1; i < tags.length; i++) {
+            if (tags[i].equals(override)) {
+                checked = i;
+            }
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.action_feed_variant)
+                .setSingleChoiceItems(R.array.feed_variant_labels, checked,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                dialog.dismiss();
+                                FeedVariantSettings.setOverride(MainActivity.this,
+                                        which == 0 ? null : FeedVariant.fromTag(tags[which]));
+                                showVariant(FeedVariantSettings.getVariant(MainActivity.this));
+                            }
+                        })
+                .show();
+    }
+
+    /*
+     * Method used to draw the snapshot of the grid the user last left. Its sort order is
+     * loaded once the first frame is drawn, and replaces the snapshot cell by cell.
+     */
+    private void showSnapshot(GridSnapshot snapshot) {
+        mMovieAdapter.setThumbnails(GridSnapshotter.decodeThumbnails(snapshot));
+        if (MovieListModel.SORT_HOME.equals(snapshot.getSortOrder())) {
+            mMovieAdapter.setSections(snapshot.getSections());
+        } else {
+            mMovieAdapter.setMovieData(snapshot.getMovies());
+        }
+        mSnapshotSortOrder = snapshot.getSortOrder();
+    }
+
+    /*
+     * Method used to hand what the model has to the adapter, the sections of the home grid
+     * or the list of a single sort order.
+     */
+    private void showModelData() {
+        if (mListModel.isHome()) {
+            mMovieAdapter.setSections(mListModel.getSections());
+        } else {
+            mMovieAdapter.setMovieData(mListModel.getMovies());
+        }
     }
 
     /*
@@ -123,191 +540,74 @@ public class MainActivity extends AppCompatActivity implements MovieAdapter.Movi
      * @param selectedMovie The information for the movie that was clicked.
      */
     @Override
-    public void onClick(String selectedMovie) {
+    public void onClick(Movie selectedMovie) {
+        MovieRegistry.getInstance().put(selectedMovie);
         Intent intent = new Intent(this, DetailActivity.class);
-        intent.putExtra(Intent.EXTRA_TEXT, selectedMovie);
+        intent.putExtra(DetailActivity.EXTRA_MOVIE_ID, selectedMovie.getId());
+        intent.putExtra(DetailActivity.EXTRA_THUMBNAIL_SIZE, mMovieAdapter.getPosterSize());
         startActivity(intent);
     }
 
-    /*
-     * Class used to perform network requests, extends AsyncTask
+    /**
+     * Called by the MoviePager when a page has been loaded or refreshed. The adapter works
+     * out which cells changed, so a refresh that changed nothing rebinds nothing.
+     *
+     * @param position The position of the first new movie.
+     * @param movies   The new movies.
      */
-    public class GetMovieData extends AsyncTask<String, Void, String[]> {
-
-        /**
-         * Take the String representing the complete details in JSON format and
-         * pull out the data we need to construct the Strings needed.
-         *
-         * @param stringMovies String representing the complete details in JSON format.
-         *
-         * @return Strings needed for the wireframes.
-         */
-        private String[] getMovieDataFromJson(String stringMovies) throws JSONException {
-
-            /*
-             * The names of the JSON objects that we need to extract.
-             */
-            final String MDB_RESULTS = "results";
-            final String MDB_ORIGINAL_TITLE = "original_title";
-            final String MDB_POSTER_PATH = "poster_path";
-            final String MDB_OVERVIEW = "overview";
-            final String MDB_VOTE_AVERAGE = "vote_average";
-            final String MDB_RELEASE_DATE = "release_date";
-
-            /*
-             * Object from the returned string and use that Object to create an Array from
-             * the parent MDB_RESULTS.
-             */
-            JSONObject moviesResultJsonObject = new JSONObject(stringMovies);
-            JSONArray moviesResultJsonArray = moviesResultJsonObject.getJSONArray(MDB_RESULTS);
-
-            /*
-             * The String Array to be returned.
-             */
-            String[] resultString = new String[20];
-
-            for (int i = 0; i < moviesResultJsonArray.length(); i++) {
-                String originalTitle;
-                String posterPath;
-                String overview;
-                String voteAverage;
-                String releaseDate;
-
-                /*
-                 * Get the JSONObject.
-                 */
-                JSONObject moviesResults = moviesResultJsonArray.getJSONObject(i);
-                originalTitle = moviesResults.getString(MDB_ORIGINAL_TITLE);
-                posterPath = moviesResults.getString(MDB_POSTER_PATH);
-                overview = moviesResults.getString(MDB_OVERVIEW);
-                voteAverage = moviesResults.getString(MDB_VOTE_AVERAGE);
-                releaseDate = moviesResults.getString(MDB_RELEASE_DATE);
-
-                /* This is implemented this way so that will be easy when we will need
-                 * to extract the data later.
-                 */
-                resultString[i] = posterPath + "!" + originalTitle + "@"
-                        + overview + "#" + voteAverage +
-                        "£" + releaseDate;
-            }
-            return resultString;
-        }
-
-        /*
-         * Set the ProgressBar to be visible to indicate the user that we are
-         * loading the data.
-         */
-        @Override
-        protected void onPreExecute() {
-            super.onPreExecute();
-            mLoadingData.setVisibility(View.VISIBLE);
+    @Override
+    public void onMoviesInserted(int position, List<Movie> movies) {
+        mLoadingData.setVisibility(View.INVISIBLE);
+        showMovieData();
+        mMovieAdapter.setMovieData(mListModel.getMovies());
+        if (mDetailPrefetcher != null) {
+            mDetailPrefetcher.schedule();
         }
+    }
 
-        @Override
-        protected String[] doInBackground(String... params) {
-
-
-             // If there is no params there is nothing to look up.
-            if (params.length == 0) {
-                return null;
-            }
+    /**
+     * Called by the MoviePager when a page has been dropped from memory.
+     *
+     * @param position The position of the first removed movie.
+     * @param count    The number of removed movies.
+     */
+    @Override
+    public void onMoviesRemoved(int position, int count) {
+        mMovieAdapter.setMovieData(mListModel.getMovies());
+    }
 
-            /*
-             * These two need to be declared outside the try/catch
-             * so that they can be closed in the finally block.
-             */
-            HttpURLConnection urlConnection = null;
-            BufferedReader bufferedReader = null;
-
-            // Will contain the raw JSON response as a string.
-            String moviesJsonString = null;
-
-            try {
-
-                /*
-                 * Construct the URL for the TheMovieDB query.
-                 * Possible parameters are available at TMDB's API page.
-                 */
-                final String MDB_BASE_URL = "http://api.themoviedb.org/3/movie/";
-                final String APPID_PARAM = "api_key";
-                Uri builtUri = Uri.parse(MDB_BASE_URL).buildUpon()
-                        .appendPath(params[0])
-                        .appendQueryParameter(APPID_PARAM, BuildConfig.MOVIE_DATABASE_API_KEY)
-                        .build();
-
-                URL url = new URL(builtUri.toString());
-
-                // Create the request to theMovieDB, and open the connection.
-                urlConnection = (HttpURLConnection) url.openConnection();
-                urlConnection.setRequestMethod("GET");
-                urlConnection.connect();
-
-                // Read the input stream into a String.
-                InputStream inputStream = urlConnection.getInputStream();
-                StringBuffer stringBuffer = new StringBuffer();
-
-                if (inputStream == null) {
-
-                    // Nothing to do.
-                    return null;
-                }
-
-                bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    // Since it's JSON, adding a newline isn't necessary (it won't affect parsing)
-                    // But it does make debugging a *lot* easier if you print out the completed
-                    // buffer for debugging.
-                    stringBuffer.append(line + "\n");
-                }
-                if (stringBuffer.length() == 0) {
-
-                    // Stream was empty.  No point in parsing.
-                    return null;
-                }
-
-                moviesJsonString = stringBuffer.toString();
-            } catch (MalformedURLException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
-
-                /* If the code didn't successfully get the data, there's no point in attemping
-                 * to parse it.
-                 */
-                return null;
-            } finally {
-                if (urlConnection != null) {
-                    urlConnection.disconnect();
-                }
-                if (bufferedReader != null) {
-                    try {
-                        bufferedReader.close();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-            try {
-                return getMovieDataFromJson(moviesJsonString);
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-            return null;
+    /**
+     * Called by the HomeFeedLoader every time a page of the home grid has been merged in.
+     *
+     * @param sections The sections loaded so far.
+     */
+    @Override
+    public void onSectionsChanged(List<HomeSection> sections) {
+        mLoadingData.setVisibility(View.INVISIBLE);
+        showMovieData();
+        mMovieAdapter.setSections(sections);
+        if (mDetailPrefetcher != null) {
+            mDetailPrefetcher.schedule();
         }
+    }
 
-        @Override
-        protected void onPostExecute(String[] strings) {
-            /*
-             * Set the ProgressBar to invisible and pass the data to the Adapter.
-             */
+    /**
+     * Called by the MoviePager or the HomeFeedLoader when a page could not be loaded. We only
+     * show the error if there is nothing else to display, not even the snapshot of a cold
+     * start, a later page is requested again on the next scroll.
+     *
+     * @param page The page that failed.
+     * @param e    The cause.
+     */
+    @Override
+    public void onLoadFailed(int page, IOException e) {
+        Log.e(TAG, "Failed to load page " + page, e);
+        if (!mListModel.isLoading()) {
             mLoadingData.setVisibility(View.INVISIBLE);
-            if (strings != null) {
-                showMovieData();
-                mMovieAdapter.setMovieData(strings);
-            } else {
-                showErrorData();
-            }
+        }
+        if (mListModel.isEmpty() && mMovieAdapter.getItemCount() == 0
+                && !mListModel.isLoading()) {
+            showErrorData();
         }
     }
 
@@ -319,6 +619,7 @@ public class MainActivity extends AppCompatActivity implements MovieAdapter.Movi
          */
         MenuInflater inflater = getMenuInflater();
         inflater.inflate(R.menu.menu_main, menu);
+        menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
         return true;
     }
 
@@ -326,23 +627,95 @@ public class MainActivity extends AppCompatActivity implements MovieAdapter.Movi
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
         /*
-         * Clear the data in the Adapter and load it again.
+         * Open the search screen.
+         */
+        if (id == R.id.action_search) {
+            startActivity(new Intent(this, SearchActivity.class));
+            return true;
+        }
+
+        /*
+         * Load the home grid, unless it is already shown.
+         */
+        if (id == R.id.action_home) {
+            loadHome();
+            return true;
+        }
+
+        /*
+         * Load the popular movies, unless they are already shown.
          */
         if (id == R.id.action_popular) {
-            mMovieAdapter.setMovieData(null);
             loadPopularMovies();
             return true;
         }
 
         /*
-         * Clear the data in the Adapter and load it again.
+         * Load the top rated movies, unless they are already shown.
          */
         if (id == R.id.action_top_rated) {
-            mMovieAdapter.setMovieData(null);
             loadTopRatedMovies();
             return true;
         }
 
+        /*
+         * Pick the language and region of the lists.
+         */
+        if (id == R.id.action_feed_variant) {
+            showFeedVariantDialog();
+            return true;
+        }
+
+        /*
+         * Show or hide the Metrics overlay, debug build only.
+         */
+        if (id == R.id.action_metrics) {
+            if (mMetricsOverlay.isShown()) {
+                mMetricsOverlay.hide();
+            } else {
+                mMetricsOverlay.show();
+            }
+            item.setChecked(mMetricsOverlay.isShown());
+            return true;
+        }
+
         return super.onOptionsItemSelected(item);
     }
+
+    /*
+     * Creates the pagers and the home grid loader of the MovieListModel, for one FeedVariant.
+     * Pages are served from memory or the local catalog when we have them and refreshed in the
+     * background once they are older than the TTL. It is static and only keeps the application
+     * Context, as it outlives this Activity.
+     */
+    private static class CachingPagerFactory implements MovieListModel.PagerFactory,
+            MovieListModel.HomeLoaderFactory {
+
+        private final CachingPageSource mPageSource;
+
+        CachingPagerFactory(Context context, FeedVariant variant) {
+            long ttlMillis = TimeUnit.MINUTES.toMillis(
+                    context.getResources().getInteger(R.integer.catalog_cache_ttl_minutes));
+            mPageSource = new CachingPageSource(ApiClient.getInstance(),
+                    NetworkUtils.MDB_BASE_URL, BuildConfig.MOVIE_DATABASE_API_KEY, variant,
+                    MemoryPageCache.getInstance(),
+                    SqliteCatalogStore.getInstance(context), SearchIndex.getInstance(),
+                    AppExecutors.getInstance().networkIO(), ttlMillis, Clock.SYSTEM);
+        }
+
+        @Override
+        public MoviePager create(String sortOrder, MoviePager.Listener listener) {
+            AppExecutors executors = AppExecutors.getInstance();
+            return new MoviePager(sortOrder, mPageSource,
+                    executors.networkIO(), executors.mainThread(), listener,
+                    PREFETCH_DISTANCE, MAX_PAGES_IN_MEMORY);
+        }
+
+        @Override
+        public HomeFeedLoader create(HomeFeedLoader.Listener listener) {
+            AppExecutors executors = AppExecutors.getInstance();
+            return new HomeFeedLoader(HOME_FEEDS, HOME_PAGES_PER_FEED, mPageSource,
+                    executors.fanOutIO(), executors.mainThread(), listener);
+        }
+    }
 }
@@ -0,0 +1,194 @@
+package com.example.goranminov.popmovies;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+import com.example.goranminov.popmovies.data.MemoryPageCache;
+import com.example.goranminov.popmovies.data.PosterSize;
+import com.example.goranminov.popmovies.utilities.Clock;
+import com.example.goranminov.popmovies.utilities.LruMemoryCache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listens to the memory trim callbacks of the system and gives memory back in tiers, so a
+ * low RAM device keeps the application instead of killing it.
+ *
+ * Each {@link Level} shrinks the poster memory cache and the page cache to a share of their
+ * budget, the least recently used entries going first: the pages and posters off screen,
+ * which are restored from the catalog and the disk cache when they are shown again. From
+ * MODERATE on posters are decoded as RGB_565, half the bytes of ARGB_8888, and from LOW on
+ * they are requested one size smaller. The listeners release whatever else they hold.
+ *
+ * The system never tells when the pressure is over, so the level goes back to NORMAL once
+ * no trim was received for a while.
+ */
+public class MemoryGovernor implements ComponentCallbacks2 {
+
+    /**
+     * How much memory the application gives back.
+     */
+    public enum Level {
+        NORMAL(1, 1),
+        MODERATE(2, 2),
+        LOW(4, 4),
+        CRITICAL(8, 0);
+
+        // The caches keep 1/divisor of their budget, the page cache none at all when 0.
+        private final int mPosterCacheDivisor;
+        private final int mPageCacheDivisor;
+
+        Level(int posterCacheDivisor, int pageCacheDivisor) {
+            mPosterCacheDivisor = posterCacheDivisor;
+            mPageCacheDivisor = pageCacheDivisor;
+        }
+
+        /**
+         * @return True if posters are decoded as RGB_565.
+         */
+        public boolean reducesBitmapDepth() {
+            return this != NORMAL;
+        }
+
+        /**
+         * @return True if posters are requested one size smaller.
+         */
+        public boolean reducesPosterSize() {
+            return this == LOW || this == CRITICAL;
+        }
+    }
+
+    /**
+     * Told when the level changes, on the thread of the trim callback or of
+     * {@link #getLevel()}.
+     */
+    public interface Listener {
+        void onMemoryLevelChanged(Level level);
+    }
+
+    // Without a new trim for this long the caches get their whole budget back.
+    static final long RECOVERY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final LruMemoryCache<?> mPosterCache;
+    private final MemoryPageCache mPageCache;
+    private final int mPosterCacheMaxSize;
+    private final int mPageCacheMaxSize;
+    private final Clock mClock;
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this.
+    private Level mLevel = Level.NORMAL;
+    private long mTrimmedAt;
+
+    /**
+     * Creates a MemoryGovernor, the current budgets of the caches being their whole budgets.
+     *
+     * @param posterCache The decoded posters.
+     * @param pageCache   The decoded movie pages.
+     * @param clock       Source of the current time.
+     */
+    public MemoryGovernor(LruMemoryCache<?> posterCache, MemoryPageCache pageCache,
+                          Clock clock) {
+        mPosterCache = posterCache;
+        mPageCache = pageCache;
+        mPosterCacheMaxSize = posterCache.maxSize();
+        mPageCacheMaxSize = pageCache.maxSize();
+        mClock = clock;
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    /**
+     * Maps a level of {@link ComponentCallbacks2#onTrimMemory(int)} to a Level. Once the UI
+     * is hidden the posters are not on screen anymore, so more of them go the further the
+     * process is down the LRU list.
+     */
+    static Level levelFor(int trimLevel) {
+        if (trimLevel >= TRIM_MEMORY_MODERATE) {
+            return Level.CRITICAL;
+        } else if (trimLevel >= TRIM_MEMORY_BACKGROUND) {
+            return Level.LOW;
+        } else if (trimLevel >= TRIM_MEMORY_UI_HIDDEN) {
+            return Level.MODERATE;
+        } else if (trimLevel >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            return Level.CRITICAL;
+        } else if (trimLevel >= TRIM_MEMORY_RUNNING_LOW) {
+            return Level.LOW;
+        }
+        return Level.MODERATE;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        trim(levelFor(level));
+    }
+
+    @Override
+    public void onLowMemory() {
+        trim(Level.CRITICAL);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // Nothing to do.
+    }
+
+    /**
+     * @return The current level, NORMAL again once the pressure is over.
+     */
+    public Level getLevel() {
+        Level level;
+        synchronized (this) {
+            if (mLevel == Level.NORMAL
+                    || mClock.currentTimeMillis() - mTrimmedAt < RECOVERY_MILLIS) {
+                return mLevel;
+            }
+            level = Level.NORMAL;
+            apply(level);
+        }
+        notifyListeners(level);
+        return level;
+    }
+
+    /**
+     * @return The size to request instead of the one that fits, smaller from LOW on.
+     */
+    public PosterSize getPosterSize(PosterSize fitting) {
+        return getLevel().reducesPosterSize() ? fitting.smaller() : fitting;
+    }
+
+    /*
+     * A lower level than the current one doesn't give memory back, but restarts the recovery
+     * delay.
+     */
+    private void trim(Level level) {
+        synchronized (this) {
+            mTrimmedAt = mClock.currentTimeMillis();
+            if (level.compareTo(mLevel) <= 0) {
+                return;
+            }
+            apply(level);
+        }
+        notifyListeners(level);
+    }
+
+    private void apply(Level level) {
+        mLevel = level;
+        mPosterCache.resize(mPosterCacheMaxSize / level.mPosterCacheDivisor);
+        if (level.mPageCacheDivisor == 0) {
+            mPageCache.resize(0);
+        } else {
+            mPageCache.resize(mPageCacheMaxSize / level.mPageCacheDivisor);
+        }
+    }
+
+    private void notifyListeners(Level level) {
+        for (Listener listener : mListeners) {
+            listener.onMemoryLevelChanged(level);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.goranminov.popmovies;
+
+import android.view.View;
+import android.widget.TextView;
+
+import com.example.goranminov.popmovies.utilities.Metrics;
+
+/**
+ * Shows the summaries of the Metrics over the grid, refreshed every second while visible.
+ * Only the debug build offers it, as the release build doesn't record anything.
+ */
+public class MetricsOverlay {
+
+    private static final long REFRESH_MILLIS = 1000;
+
+    private final TextView mText;
+    private final Metrics mMetrics;
+    private boolean mShown;
+
+    private final Runnable mRefresh = new Runnable() {
+        @Override
+        public void run() {
+            String dump = mMetrics.dumpText();
+            if (dump.isEmpty()) {
+                mText.setText(R.string.metrics_empty);
+            } else {
+                mText.setText(dump);
+            }
+            mText.postDelayed(this, REFRESH_MILLIS);
+        }
+    };
+
+    /**
+     * @param text    The TextView the summaries are shown in, hidden until {@link #show()}.
+     * @param metrics The Metrics shown.
+     */
+    public MetricsOverlay(TextView text, Metrics metrics) {
+        mText = text;
+        mMetrics = metrics;
+    }
+
+    public boolean isShown() {
+        return mShown;
+    }
+
+    public void show() {
+        if (!mShown) {
+            mShown = true;
+            mText.setVisibility(View.VISIBLE);
+            mRefresh.run();
+        }
+    }
+
+    /**
+     * Hides the overlay and stops refreshing it, also called when the screen goes away.
+     */
+    public void hide() {
+        mShown = false;
+        mText.removeCallbacks(mRefresh);
+        mText.setVisibility(View.GONE);
+    }
+}
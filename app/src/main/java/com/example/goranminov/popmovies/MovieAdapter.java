@@ -1,14 +1,36 @@
 package com.example.goranminov.popmovies;
 
 import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.ContextCompat;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.support.v7.widget.GridLayoutManager;
 import android.widget.ImageView;
+import android.widget.TextView;
 
+import com.example.goranminov.popmovies.data.HomeSection;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.PosterSize;
+import com.example.goranminov.popmovies.utilities.Metrics;
+import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
     /*
      * I have followed the examples from the Sunshine app that was provided during my Nanodegree course.
@@ -19,10 +41,58 @@ import com.squareup.picasso.Picasso;
  * Created by goranminov on 26/03/2017.
  */
 
-public class MovieAdapter  extends RecyclerView.Adapter<MovieAdapter.MovieAdapterViewHolder>{
+public class MovieAdapter  extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
+
+    // Tag of the poster loads, PosterPrefetcher pauses them during flings.
+    static final String GRID_TAG = "poster_grid";
+
+    // Value of mFirstPosterStartNanos once the first poster was drawn, or if not measured.
+    private static final long NOT_TRACKED = -1L;
+
+    /*
+     * Holds the cells shown, and turns new lists into the item events of the cells that
+     * actually changed.
+     */
+    private final GridItemDiffer mMovieData;
+
+    // The poster size requested for the grid cells.
+    private PosterSize mPosterSize = PosterSize.W185;
+
+    /*
+     * The size of the cells, the posters are decoded to it. Until a PosterGridSpec is set
+     * the cells wrap their poster, which is fitted once they are measured.
+     */
+    private int mCellWidth;
+    private int mCellHeight;
+
+    // The time the screen was created at, until its first poster is drawn.
+    private long mFirstPosterStartNanos = NOT_TRACKED;
 
-    final String MDB_BASE = "http://image.tmdb.org/t/p/w185/";
-    private String[] mMovieData;
+    // Thumbnails by movie id, shown instead of the placeholder while the posters load.
+    private Map<Integer, Bitmap> mThumbnails = Collections.emptyMap();
+
+    // The blurred placeholders of the posters, shown when there is no thumbnail.
+    private PosterPlaceholders mPosterPlaceholders;
+
+    // Lowers the quality of the posters when memory runs low, can be null.
+    private MemoryGovernor mMemoryGovernor;
+
+    // The placeholder, measured the first time a thumbnail takes its place.
+    private Drawable mPlaceholder;
+
+    /*
+     * The cells showing the placeholder while their poster loads, they get the blurred
+     * placeholder of their poster if it is loaded in time.
+     */
+    private final Set<MovieAdapterViewHolder> mWaitingHolders = new HashSet<>();
+
+    private final PosterPlaceholders.Listener mPlaceholdersListener =
+            new PosterPlaceholders.Listener() {
+                @Override
+                public void onPlaceholdersLoaded() {
+                    showLoadedPlaceholders();
+                }
+            };
 
     /* And onClick handler to make it easy for an Activity to interface
      * with our RecyclerView.
@@ -31,9 +101,16 @@ public class MovieAdapter  extends RecyclerView.Adapter<MovieAdapter.MovieAdapte
 
     //The interface that receives onClick messages.
     public interface MovieAdapterOnClickHandler {
-        void onClick(String selectedMovie);
+        void onClick(Movie selectedMovie);
+    }
+
+    //The interface that receives long presses, a movie held is likely to be opened.
+    public interface MovieAdapterOnLongPressHandler {
+        void onLongPress(Movie pressedMovie);
     }
 
+    private MovieAdapterOnLongPressHandler mLongPressHandler;
+
     /**
      * Creates a MovieAdapter.
      *
@@ -41,18 +118,46 @@ public class MovieAdapter  extends RecyclerView.Adapter<MovieAdapter.MovieAdapte
      */
     public MovieAdapter(MovieAdapterOnClickHandler movieAdapterOnClickHandler) {
         this.movieAdapterOnClickHandler = movieAdapterOnClickHandler;
+        AppExecutors executors = AppExecutors.getInstance();
+        mMovieData = new GridItemDiffer(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                notifyItemRangeChanged(position, count, payload);
+            }
+        }, executors.computation(), executors.mainThread());
+
+        // setMovieData() and setSections() drop repeated movies, so the ids are unique in the
+        // grid and cells keep their identity across updates.
+        setHasStableIds(true);
     }
 
     /*
      * Cache of the children views.
      */
-    public class MovieAdapterViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+    public class MovieAdapterViewHolder extends RecyclerView.ViewHolder implements
+            View.OnClickListener, View.OnLongClickListener, Callback {
         public final ImageView mPosterImageView;
 
         public MovieAdapterViewHolder(View view) {
             super(view);
             mPosterImageView = (ImageView) view.findViewById(R.id.picasso_image_view);
             view.setOnClickListener(this);
+            view.setOnLongClickListener(this);
         }
 
         /**
@@ -63,9 +168,57 @@ public class MovieAdapter  extends RecyclerView.Adapter<MovieAdapter.MovieAdapte
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            String selectedMovie = mMovieData[adapterPosition];
+            // The cell can be clicked while its page is being removed.
+            if (adapterPosition == RecyclerView.NO_POSITION) {
+                return;
+            }
+            Movie selectedMovie = mMovieData.getItems().get(adapterPosition).getMovie();
             movieAdapterOnClickHandler.onClick(selectedMovie);
         }
+
+        /**
+         * This gets called when a child view is held down. The press is not consumed, so
+         * releasing it still clicks the cell.
+         *
+         * @param v The View that is held down.
+         * @return Always false.
+         */
+        @Override
+        public boolean onLongClick(View v) {
+            int adapterPosition = getAdapterPosition();
+            if (mLongPressHandler != null && adapterPosition != RecyclerView.NO_POSITION) {
+                mLongPressHandler.onLongPress(
+                        mMovieData.getItems().get(adapterPosition).getMovie());
+            }
+            return false;
+        }
+
+        /**
+         * This gets called by Picasso when the poster is set.
+         */
+        @Override
+        public void onSuccess() {
+            mWaitingHolders.remove(this);
+            if (mFirstPosterStartNanos != NOT_TRACKED) {
+                recordFirstPoster(mPosterImageView);
+            }
+        }
+
+        @Override
+        public void onError() {
+        }
+    }
+
+    /*
+     * The title above a section of the home grid.
+     */
+    static class SectionHeaderViewHolder extends RecyclerView.ViewHolder {
+        final TextView mTitleTextView;
+
+        SectionHeaderViewHolder(View view) {
+            super(view);
+            mTitleTextView = (TextView) view.findViewById(R.id.section_title);
+        }
     }
 
     /**
@@ -74,14 +227,19 @@ public class MovieAdapter  extends RecyclerView.Adapter<MovieAdapter.MovieAdapte
      *
      * @param parent The ViewGroup that these ViewHolders are contained within.
      * @param viewType  If the RecyclerView has more than one type of item.
-     * @return A new MovieAdapterViewHolder that holds the View for each grid item
+     * @return A new MovieAdapterViewHolder that holds the View for each grid item, or a
+     * SectionHeaderViewHolder for the section titles of the home grid.
      */
     @Override
-    public MovieAdapterViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         Context context = parent.getContext();
-        int layoutListItem = R.layout.movies_list_item;
         LayoutInflater inflater = LayoutInflater.from(context);
         boolean shouldAttach = false;
+        if (viewType == GridItem.TYPE_HEADER) {
+            View view = inflater.inflate(R.layout.grid_section_header, parent, shouldAttach);
+            return new SectionHeaderViewHolder(view);
+        }
+        int layoutListItem = R.layout.movies_list_item;
         View view = inflater.inflate(layoutListItem, parent, shouldAttach);
         return new MovieAdapterViewHolder(view);
     }
@@ -95,19 +253,148 @@ public class MovieAdapter  extends RecyclerView.Adapter<MovieAdapter.MovieAdapte
      * @param position The position of the item within the adapter's data set.
      */
     @Override
-    public void onBindViewHolder(MovieAdapterViewHolder holder, int position) {
-        String selectedMovie = mMovieData[position];
-        selectedMovie = MDB_BASE + selectedMovie.substring(0, selectedMovie.indexOf("!"));
+    public void onBindViewHolder(RecyclerView.ViewHolder viewHolder, int position) {
+        GridItem item = mMovieData.getItems().get(position);
+        if (item.getType() == GridItem.TYPE_HEADER) {
+            TextView titleView = ((SectionHeaderViewHolder) viewHolder).mTitleTextView;
+            titleView.setText(getSectionTitle(titleView.getContext(), item.getFeed()));
+            return;
+        }
+        MovieAdapterViewHolder holder = (MovieAdapterViewHolder) viewHolder;
+        Movie selectedMovie = item.getMovie();
+
+        // A cell from the pool can have been laid out for another grid.
+        ViewGroup.LayoutParams params = holder.itemView.getLayoutParams();
+        if (mCellHeight > 0 && params.height != mCellHeight) {
+            params.height = mCellHeight;
+            holder.itemView.setLayoutParams(params);
+        }
 
         /* We use Picasso to handle image loading, we trigger the URL asynchronously
-         * into the ImageView.
+         * into the ImageView. The poster URL is already built by the Movie.
+         */
+        Context context = holder.mPosterImageView.getContext();
+        RequestCreator request = Picasso.with(context)
+                .load(selectedMovie.getPosterUrl(getPosterSize()));
+        Drawable placeholder = getPlaceholder(context, selectedMovie);
+        if (placeholder == null) {
+            request.placeholder(R.drawable.placeholder);
+            // Added before the request, a poster in memory is set right away.
+            mWaitingHolders.add(holder);
+        } else {
+            request.placeholder(placeholder);
+            mWaitingHolders.remove(holder);
+        }
+        /*
+         * With the cell size known the request starts right away, fit() would wait for the
+         * cell to be measured.
          */
-        Picasso.with(holder.mPosterImageView.getContext()).load(selectedMovie)
-                .placeholder(R.drawable.placeholder)
-                .centerInside()
-                .fit()
-                .into(holder.mPosterImageView);
+        if (mCellWidth > 0) {
+            request.resize(mCellWidth, mCellHeight);
+        } else {
+            request.fit();
+        }
+        applyMemoryLevel(request);
+        request.centerInside()
+                .tag(GRID_TAG)
+                .into(holder.mPosterImageView, holder);
+
+    }
 
+    /*
+     * The snapshot thumbnail of the poster of the movie, else its blurred placeholder, or
+     * null if neither is in memory.
+     */
+    private Drawable getPlaceholder(Context context, Movie movie) {
+        Bitmap bitmap = mThumbnails.get(movie.getId());
+        if (bitmap == null && mPosterPlaceholders != null) {
+            bitmap = mPosterPlaceholders.get(movie);
+        }
+        if (bitmap == null) {
+            return null;
+        }
+        if (mPlaceholder == null) {
+            mPlaceholder = ContextCompat.getDrawable(context, R.drawable.placeholder);
+        }
+        return new PlaceholderDrawable(context.getResources(), bitmap,
+                mPlaceholder.getIntrinsicWidth(), mPlaceholder.getIntrinsicHeight());
+    }
+
+    /*
+     * Swaps the placeholder of the cells still waiting for their poster for the blurred one,
+     * if it was loaded. Picasso fades the poster in from whatever the cell shows.
+     */
+    private void showLoadedPlaceholders() {
+        for (MovieAdapterViewHolder holder : new ArrayList<>(mWaitingHolders)) {
+            int position = holder.getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            ImageView poster = holder.mPosterImageView;
+            Drawable placeholder = getPlaceholder(poster.getContext(), getMovie(position));
+            if (placeholder != null) {
+                poster.setImageDrawable(placeholder);
+                mWaitingHolders.remove(holder);
+            }
+        }
+    }
+
+    /*
+     * A small bitmap stretched to the size of the placeholder, so the cell is laid out as it
+     * would be without it.
+     */
+    private static class PlaceholderDrawable extends BitmapDrawable {
+        private final int mWidth;
+        private final int mHeight;
+
+        PlaceholderDrawable(Resources resources, Bitmap bitmap, int width, int height) {
+            super(resources, bitmap);
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public int getIntrinsicWidth() {
+            return mWidth;
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return mHeight;
+        }
+    }
+
+    /*
+     * Records the time to the first poster drawn, the frame after it was set.
+     */
+    private void recordFirstPoster(final ImageView poster) {
+        poster.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        poster.getViewTreeObserver().removeOnPreDrawListener(this);
+                        if (mFirstPosterStartNanos != NOT_TRACKED) {
+                            Metrics.getInstance().record(Metrics.Metric.FIRST_POSTER,
+                                    System.nanoTime() - mFirstPosterStartNanos);
+                            mFirstPosterStartNanos = NOT_TRACKED;
+                        }
+                        return true;
+                    }
+                });
+    }
+
+    /**
+     * Cancels the poster load of a recycled cell, it is not going to be shown.
+     *
+     * @param holder The recycled ViewHolder.
+     */
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        if (holder instanceof MovieAdapterViewHolder) {
+            mWaitingHolders.remove(holder);
+            ImageView poster = ((MovieAdapterViewHolder) holder).mPosterImageView;
+            Picasso.with(poster.getContext()).cancelRequest(poster);
+        }
     }
 
     /**
@@ -117,20 +404,218 @@ public class MovieAdapter  extends RecyclerView.Adapter<MovieAdapter.MovieAdapte
      */
     @Override
     public int getItemCount() {
-        if (mMovieData == null) {
-            return 0;
+        return mMovieData.getItems().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mMovieData.getItems().get(position).getId();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mMovieData.getItems().get(position).getType();
+    }
+
+    /**
+     * @return The movie at the position, or null if it is a section header.
+     */
+    public Movie getMovie(int position) {
+        return mMovieData.getItems().get(position).getMovie();
+    }
+
+    /**
+     * Makes the section headers as wide as the grid, the movies take one span each.
+     *
+     * @param spanCount The span count of the GridLayoutManager.
+     * @return The lookup to set on the GridLayoutManager.
+     */
+    public GridLayoutManager.SpanSizeLookup getSpanSizeLookup(final int spanCount) {
+        return new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return getItemViewType(position) == GridItem.TYPE_HEADER ? spanCount : 1;
+            }
+        };
+    }
+
+    /*
+     * The title of a section, the list name itself for lists without a string.
+     */
+    private static String getSectionTitle(Context context, String feed) {
+        switch (feed) {
+            case "popular":
+                return context.getString(R.string.action_popular);
+            case "top_rated":
+                return context.getString(R.string.action_top_rated);
+            case "now_playing":
+                return context.getString(R.string.section_now_playing);
+            case "upcoming":
+                return context.getString(R.string.section_upcoming);
+            default:
+                return feed;
         }
-        return mMovieData.length;
+    }
+
+    /**
+     * Records Metric.FIRST_POSTER when the first poster is drawn, if the Metrics are enabled.
+     *
+     * @param startNanos The System.nanoTime() the screen was created at.
+     */
+    public void trackFirstPoster(long startNanos) {
+        if (Metrics.getInstance().isEnabled()) {
+            mFirstPosterStartNanos = startNanos;
+        }
+    }
+
+    /**
+     * Shows the thumbnails of the movies instead of the placeholder until their posters are
+     * loaded. The cells already bound keep what they show.
+     *
+     * @param thumbnails The thumbnails by movie id.
+     */
+    public void setThumbnails(Map<Integer, Bitmap> thumbnails) {
+        mThumbnails = thumbnails;
+    }
+
+    /**
+     * Shows the blurred placeholder of the posters, where there is no thumbnail, until they
+     * are loaded. They are loaded along with the movies given to the adapter.
+     *
+     * @param posterPlaceholders The placeholders, can be null.
+     */
+    public void setPosterPlaceholders(PosterPlaceholders posterPlaceholders) {
+        mPosterPlaceholders = posterPlaceholders;
+    }
+
+    /**
+     * Decodes the posters in fewer bytes, and requests them smaller, while the governor says
+     * memory is low.
+     *
+     * @param memoryGovernor The governor of the application, can be null.
+     */
+    public void setMemoryGovernor(MemoryGovernor memoryGovernor) {
+        mMemoryGovernor = memoryGovernor;
+    }
+
+    /**
+     * @return The current memory level, NORMAL without a MemoryGovernor.
+     */
+    MemoryGovernor.Level getMemoryLevel() {
+        return mMemoryGovernor == null ? MemoryGovernor.Level.NORMAL : mMemoryGovernor.getLevel();
+    }
+
+    /*
+     * Under memory pressure the poster is decoded without alpha channel, and from LOW on not
+     * scaled up from the smaller size requested, see MemoryGovernor.
+     */
+    void applyMemoryLevel(RequestCreator request) {
+        MemoryGovernor.Level level = getMemoryLevel();
+        if (level.reducesBitmapDepth()) {
+            request.config(Bitmap.Config.RGB_565);
+        }
+        if (level.reducesPosterSize()) {
+            request.onlyScaleDown();
+        }
+    }
+
+    /**
+     * @param longPressHandler Receives the movies held down, can be null.
+     */
+    public void setOnLongPressHandler(MovieAdapterOnLongPressHandler longPressHandler) {
+        mLongPressHandler = longPressHandler;
+    }
+
+    /**
+     * Sets the size of the cells and of the posters requested for them, rebinding the cells
+     * if it changed. See {@link PosterGridSpec#applyTo(RecyclerView, MovieAdapter)}.
+     *
+     * @param gridSpec The layout of the grid.
+     */
+    public void setGridSpec(PosterGridSpec gridSpec) {
+        if (gridSpec.getPosterSize() != mPosterSize || gridSpec.getCellWidth() != mCellWidth
+                || gridSpec.getCellHeight() != mCellHeight) {
+            mPosterSize = gridSpec.getPosterSize();
+            mCellWidth = gridSpec.getCellWidth();
+            mCellHeight = gridSpec.getCellHeight();
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * @return The poster size requested for the cells, smaller than the one of the grid when
+     * memory is low.
+     */
+    public PosterSize getPosterSize() {
+        return mMemoryGovernor == null ? mPosterSize : mMemoryGovernor.getPosterSize(mPosterSize);
+    }
+
+    /**
+     * @return The width the posters are decoded to, 0 if they are fitted to their cell.
+     */
+    public int getCellWidth() {
+        return mCellWidth;
+    }
+
+    /**
+     * @return The height the posters are decoded to, 0 if they are fitted to their cell.
+     */
+    public int getCellHeight() {
+        return mCellHeight;
     }
 
     /**
      * This method is used to set the movie data on a MovieAdapter if we've already
-     * created one.
+     * created one. The difference with the movies shown is computed in the background, and
+     * only the cells that changed are updated. A movie listed twice is only shown once.
      *
-     * @param movieData The new movie data to be displayed.
+     * @param movieData The new movie data to be displayed, null to clear it.
      */
-    public void setMovieData(String[] movieData) {
-        mMovieData = movieData;
-        notifyDataSetChanged();
+    public void setMovieData(List<Movie> movieData) {
+        if (movieData == null) {
+            mMovieData.submitList(null);
+            return;
+        }
+        List<GridItem> items = new ArrayList<>(movieData.size());
+        List<Movie> movies = new ArrayList<>(movieData.size());
+        Set<Integer> shownIds = new HashSet<>();
+        for (Movie movie : movieData) {
+            if (shownIds.add(movie.getId())) {
+                items.add(GridItem.movie(movie));
+                movies.add(movie);
+            }
+        }
+        mMovieData.submitList(items);
+        loadPlaceholders(movies);
+    }
+
+    /**
+     * Shows the sections of the home grid, each one under a header. Like
+     * {@link #setMovieData(List)}, only the cells that changed are updated, so a movie that
+     * moves to another section moves its cell.
+     *
+     * @param sections The sections to display.
+     */
+    public void setSections(List<HomeSection> sections) {
+        List<GridItem> items = new ArrayList<>();
+        List<Movie> movies = new ArrayList<>();
+        Set<Integer> shownIds = new HashSet<>();
+        for (HomeSection section : sections) {
+            items.add(GridItem.header(section.getFeed()));
+            for (Movie movie : section.getMovies()) {
+                if (shownIds.add(movie.getId())) {
+                    items.add(GridItem.movie(movie));
+                    movies.add(movie);
+                }
+            }
+        }
+        mMovieData.submitList(items);
+        loadPlaceholders(movies);
+    }
+
+    private void loadPlaceholders(List<Movie> movies) {
+        if (mPosterPlaceholders != null) {
+            mPosterPlaceholders.load(movies, mPlaceholdersListener);
+        }
     }
 }
@@ -0,0 +1,367 @@
+package com.example.goranminov.popmovies;
+
+import com.example.goranminov.popmovies.data.HomeFeedLoader;
+import com.example.goranminov.popmovies.data.HomeSection;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MoviePager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the movie list shown by MainActivity and the MoviePager loading it, or the sections
+ * of the home grid and the HomeFeedLoader loading them.
+ *
+ * The model is retained across configuration changes, so a rotation re-attaches the new
+ * Activity to the running pager instead of starting another download. Asking for the sort
+ * order that is already shown does nothing, and switching to another sort order releases the
+ * previous pager, so its late results never reach the UI.
+ *
+ * The factories can be replaced, e.g. for another FeedVariant. What is shown then stays on
+ * screen while the new factories load the same sort order in the background, and is only
+ * replaced once they have something to show: the first page of a list, or the whole home
+ * grid.
+ *
+ * All methods must be called on the main thread.
+ */
+public class MovieListModel implements MoviePager.Listener, HomeFeedLoader.Listener {
+
+    /**
+     * The sort order of the home grid, which shows several lists at once.
+     */
+    public static final String SORT_HOME = "home";
+
+    /**
+     * Creates the pager for a sort order.
+     *
+     * Implementations are kept for the lifetime of the model, so they must not hold on to
+     * an Activity.
+     */
+    public interface PagerFactory {
+        MoviePager create(String sortOrder, MoviePager.Listener listener);
+    }
+
+    /**
+     * Creates the loader of the home grid, with the same lifetime rules as PagerFactory.
+     */
+    public interface HomeLoaderFactory {
+        HomeFeedLoader create(HomeFeedLoader.Listener listener);
+    }
+
+    /**
+     * Receives the changes of the list, or of the home sections when they are shown.
+     */
+    public interface Ui extends MoviePager.Listener {
+        void onSectionsChanged(List<HomeSection> sections);
+    }
+
+    private PagerFactory mPagerFactory;
+    private HomeLoaderFactory mHomeLoaderFactory;
+    private final List<Movie> mMovies = new ArrayList<>();
+    private String mSortOrder;
+    private MoviePager mPager;
+    private HomeFeedLoader mHomeLoader;
+    private Ui mUi;
+    private boolean mFailed;
+
+    // The loader of the replacing factories, until it replaces the one shown.
+    private Replacement mReplacement;
+
+    public MovieListModel(PagerFactory pagerFactory, HomeLoaderFactory homeLoaderFactory) {
+        mPagerFactory = pagerFactory;
+        mHomeLoaderFactory = homeLoaderFactory;
+    }
+
+    /**
+     * Attaches the UI that receives the list changes. The UI should first display
+     * {@link #getMovies()}, or {@link #getSections()} for the home grid, later changes are
+     * delivered to it.
+     */
+    public void attach(Ui ui) {
+        mUi = ui;
+    }
+
+    /**
+     * Detaches the UI, the pager keeps loading and the UI catches up on attach.
+     */
+    public void detach() {
+        mUi = null;
+    }
+
+    /**
+     * Shows the given sort order, or the home grid for {@link #SORT_HOME}. Nothing happens
+     * if it is already shown (or loading), unless the last load failed.
+     *
+     * @param sortOrder The sort order to show.
+     * @return True if the list was cleared and a new load started.
+     */
+    public boolean showSortOrder(String sortOrder) {
+        if (sortOrder.equals(mSortOrder) && !mFailed) {
+            return false;
+        }
+        releaseLoaders();
+        mMovies.clear();
+        mFailed = false;
+        mSortOrder = sortOrder;
+        if (isHome()) {
+            mHomeLoader = mHomeLoaderFactory.create(this);
+            mHomeLoader.load();
+        } else {
+            mPager = mPagerFactory.create(sortOrder, this);
+            mPager.loadInitial();
+        }
+        return true;
+    }
+
+    /**
+     * Loads with the given factories from now on. The sort order shown is loaded again with
+     * them in the background, and replaces what is shown once it has something to show. If
+     * that load fails, what is shown stays.
+     */
+    public void replaceFactories(PagerFactory pagerFactory, HomeLoaderFactory homeLoaderFactory) {
+        mPagerFactory = pagerFactory;
+        mHomeLoaderFactory = homeLoaderFactory;
+        releaseReplacement();
+        if (mSortOrder == null) {
+            return;
+        }
+        if (isEmpty()) {
+            // Nothing on screen to keep.
+            String sortOrder = mSortOrder;
+            mSortOrder = null;
+            showSortOrder(sortOrder);
+            return;
+        }
+        mReplacement = new Replacement();
+        if (isHome()) {
+            mReplacement.mHomeLoader = mHomeLoaderFactory.create(mReplacement);
+            mReplacement.mHomeLoader.load();
+        } else {
+            mReplacement.mPager = mPagerFactory.create(mSortOrder, mReplacement);
+            mReplacement.mPager.loadInitial();
+        }
+    }
+
+    /**
+     * @return True while factories given to {@link #replaceFactories} load in the background.
+     */
+    public boolean isReplacing() {
+        return mReplacement != null;
+    }
+
+    /**
+     * @return The sort order shown, or null if nothing was requested yet.
+     */
+    public String getSortOrder() {
+        return mSortOrder;
+    }
+
+    /**
+     * @return True if the home grid is shown.
+     */
+    public boolean isHome() {
+        return SORT_HOME.equals(mSortOrder);
+    }
+
+    /**
+     * Forwards the visible range to the pager, see {@link MoviePager#onScrolled(int, int)}.
+     * The home grid loads everything up front and ignores it.
+     */
+    public void onScrolled(int firstVisible, int lastVisible) {
+        if (mPager != null) {
+            mPager.onScrolled(firstVisible, lastVisible);
+        }
+    }
+
+    /**
+     * @return The movies loaded so far, empty for the home grid.
+     */
+    public List<Movie> getMovies() {
+        return Collections.unmodifiableList(mMovies);
+    }
+
+    /**
+     * @return The sections of the home grid loaded so far, empty for the other sort orders.
+     */
+    public List<HomeSection> getSections() {
+        return mHomeLoader == null
+                ? Collections.<HomeSection>emptyList() : mHomeLoader.getSections();
+    }
+
+    /**
+     * @return True if there is nothing to display yet.
+     */
+    public boolean isEmpty() {
+        return mMovies.isEmpty() && getSections().isEmpty();
+    }
+
+    public boolean isLoading() {
+        return (mPager != null && mPager.isLoading())
+                || (mHomeLoader != null && mHomeLoader.isLoading())
+                || mReplacement != null;
+    }
+
+    /**
+     * @return True if the last load failed and there is nothing to display.
+     */
+    public boolean hasFailed() {
+        return mFailed && isEmpty();
+    }
+
+    /**
+     * Stops loading, called when the Activity finishes for good.
+     */
+    public void release() {
+        releaseLoaders();
+        mUi = null;
+    }
+
+    private void releaseLoaders() {
+        releaseReplacement();
+        if (mPager != null) {
+            mPager.release();
+            mPager = null;
+        }
+        if (mHomeLoader != null) {
+            mHomeLoader.release();
+            mHomeLoader = null;
+        }
+    }
+
+    private void releaseReplacement() {
+        if (mReplacement != null) {
+            mReplacement.release();
+            mReplacement = null;
+        }
+    }
+
+    /*
+     * The replacing loader becomes the one shown: the UI is told the old movies went and the
+     * new ones came.
+     */
+    private void swapIn(Replacement replacement) {
+        mReplacement = null;
+        replacement.mSwapped = true;
+        MoviePager pager = replacement.mPager;
+        HomeFeedLoader homeLoader = replacement.mHomeLoader;
+        replacement.mPager = null;
+        replacement.mHomeLoader = null;
+        releaseLoaders();
+        mPager = pager;
+        mHomeLoader = homeLoader;
+        mFailed = false;
+        if (!mMovies.isEmpty()) {
+            onMoviesRemoved(0, mMovies.size());
+        }
+    }
+
+    /*
+     * Listens to the loader of the replacing factories. Until it is swapped in its results are
+     * held back, afterwards they are the model's.
+     */
+    private final class Replacement implements MoviePager.Listener, HomeFeedLoader.Listener {
+        MoviePager mPager;
+        HomeFeedLoader mHomeLoader;
+        boolean mSwapped;
+
+        @Override
+        public void onMoviesInserted(int position, List<Movie> movies) {
+            if (!mSwapped) {
+                swapIn(this);
+            }
+            MovieListModel.this.onMoviesInserted(position, movies);
+        }
+
+        @Override
+        public void onMoviesRemoved(int position, int count) {
+            // Nothing was inserted before the swap, so nothing can be removed.
+            if (mSwapped) {
+                MovieListModel.this.onMoviesRemoved(position, count);
+            }
+        }
+
+        @Override
+        public void onLoadFailed(int page, IOException e) {
+            if (mSwapped) {
+                MovieListModel.this.onLoadFailed(page, e);
+            } else if (mPager != null) {
+                // Keep showing the old list.
+                releaseReplacement();
+            }
+        }
+
+        @Override
+        public void onSectionsChanged(List<HomeSection> sections) {
+            if (!mSwapped) {
+                if (mHomeLoader.isLoading()) {
+                    return;
+                }
+                if (sections.isEmpty()) {
+                    releaseReplacement();
+                    return;
+                }
+                swapIn(this);
+            }
+            MovieListModel.this.onSectionsChanged(sections);
+        }
+
+        @Override
+        public void onLoadFailed(String feed, int page, IOException e) {
+            if (mSwapped) {
+                MovieListModel.this.onLoadFailed(feed, page, e);
+            }
+            // Otherwise the sections that did load are swapped in with the last of them.
+        }
+
+        void release() {
+            if (mPager != null) {
+                mPager.release();
+            }
+            if (mHomeLoader != null) {
+                mHomeLoader.release();
+            }
+        }
+    }
+
+    @Override
+    public void onMoviesInserted(int position, List<Movie> movies) {
+        mFailed = false;
+        mMovies.addAll(position, movies);
+        if (mUi != null) {
+            mUi.onMoviesInserted(position, movies);
+        }
+    }
+
+    @Override
+    public void onMoviesRemoved(int position, int count) {
+        mMovies.subList(position, position + count).clear();
+        if (mUi != null) {
+            mUi.onMoviesRemoved(position, count);
+        }
+    }
+
+    @Override
+    public void onLoadFailed(int page, IOException e) {
+        mFailed = true;
+        if (mUi != null) {
+            mUi.onLoadFailed(page, e);
+        }
+    }
+
+    @Override
+    public void onSectionsChanged(List<HomeSection> sections) {
+        if (!sections.isEmpty()) {
+            mFailed = false;
+        }
+        if (mUi != null) {
+            mUi.onSectionsChanged(sections);
+        }
+    }
+
+    @Override
+    public void onLoadFailed(String feed, int page, IOException e) {
+        onLoadFailed(page, e);
+    }
+}
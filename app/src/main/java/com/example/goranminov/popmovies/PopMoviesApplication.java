@@ -0,0 +1,121 @@
+package com.example.goranminov.popmovies;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.http.HttpResponseCache;
+import android.util.Log;
+
+import com.example.goranminov.popmovies.data.MemoryPageCache;
+import com.example.goranminov.popmovies.data.MovieDetailsRepository;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.Clock;
+import com.example.goranminov.popmovies.utilities.Metrics;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
+import com.example.goranminov.popmovies.utilities.PosterCache;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Application class, used to set up the process wide state.
+ */
+public class PopMoviesApplication extends Application {
+
+    private static final String TAG = PopMoviesApplication.class.getSimpleName();
+
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final long HTTP_CACHE_SIZE_BYTES = 10 * 1024 * 1024;
+
+    // How many movies' details are kept in memory.
+    private static final int DETAILS_CACHE_ENTRIES = 50;
+
+    private MovieDetailsRepository mDetailsRepository;
+    private MemoryGovernor mMemoryGovernor;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        /*
+         * Only the debug build records the request and render timings, for its overlay.
+         */
+        Metrics.getInstance().setEnabled(BuildConfig.DEBUG);
+
+        /*
+         * Make every Picasso.with() call use the poster cache, and compute the blurred
+         * placeholder of the posters it downloads.
+         */
+        PosterCache posterCache = PosterCache.getInstance(this);
+        posterCache.setDownloadListener(PosterPlaceholders.getInstance(this));
+
+        /*
+         * Give memory back when the system runs low: the caches shrink and the posters get
+         * lighter, see MemoryGovernor. The trim callbacks come on the main thread.
+         */
+        mMemoryGovernor = new MemoryGovernor(posterCache.getMemoryCache(),
+                MemoryPageCache.getInstance(), Clock.SYSTEM);
+        mMemoryGovernor.addListener(new MemoryGovernor.Listener() {
+            @Override
+            public void onMemoryLevelChanged(MemoryGovernor.Level level) {
+                if (level.compareTo(MemoryGovernor.Level.LOW) < 0) {
+                    return;
+                }
+                // Both are filled again from the disk as the movies are shown.
+                PosterPlaceholders.getInstance(PopMoviesApplication.this).clearMemory();
+                if (mDetailsRepository != null) {
+                    mDetailsRepository.evictAll();
+                }
+            }
+        });
+        registerComponentCallbacks(mMemoryGovernor);
+
+        /*
+         * Install the on-disk HTTP cache used by HttpURLConnection, and so by ApiClient.
+         * Opening the cache touches the disk, so it is done off the main thread.
+         */
+        final File cacheDir = new File(getCacheDir(), HTTP_CACHE_DIR);
+        AppExecutors.getInstance().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    HttpResponseCache.install(cacheDir, HTTP_CACHE_SIZE_BYTES);
+                } catch (IOException e) {
+                    Log.w(TAG, "HTTP response cache installation failed", e);
+                }
+            }
+        });
+
+        /*
+         * Keep the catalog refreshed in the background, see CatalogSyncService.
+         */
+        final Context context = getApplicationContext();
+        AppExecutors.getInstance().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                CatalogSyncService.scheduleSync(context);
+            }
+        });
+    }
+
+    /**
+     * @return The governor of the memory held by the caches and the posters.
+     */
+    public MemoryGovernor getMemoryGovernor() {
+        return mMemoryGovernor;
+    }
+
+    /**
+     * @return The details repository shared by the grid, which prefetches, and the detail
+     * screen. Must be called on the main thread.
+     */
+    public MovieDetailsRepository getDetailsRepository() {
+        if (mDetailsRepository == null) {
+            AppExecutors executors = AppExecutors.getInstance();
+            mDetailsRepository = new MovieDetailsRepository(ApiClient.getInstance(),
+                    NetworkUtils.MDB_BASE_URL, BuildConfig.MOVIE_DATABASE_API_KEY,
+                    FeedVariantSettings.getVariant(this), DETAILS_CACHE_ENTRIES,
+                    executors.networkIO(), executors.prefetchIO(), executors.mainThread());
+        }
+        return mDetailsRepository;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.goranminov.popmovies;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.example.goranminov.popmovies.data.PosterSize;
+
+/**
+ * The layout of a poster grid: how many columns fit the width, and the size of the cells.
+ *
+ * The column count is the one bringing the cells closest to R.dimen.grid_poster_width, so a
+ * phone in portrait shows two columns, in landscape four, and a tablet up to six. The cells
+ * have the 2:3 aspect ratio of TheMovieDB posters, so their size is known before they are
+ * measured and the poster requests are sized right away.
+ */
+public final class PosterGridSpec {
+
+    static final int MIN_SPAN_COUNT = 2;
+    static final int MAX_SPAN_COUNT = 6;
+
+    // TheMovieDB posters are 2:3.
+    private static final int POSTER_RATIO_WIDTH = 2;
+    private static final int POSTER_RATIO_HEIGHT = 3;
+
+    /*
+     * Rows of cells kept in the pool of the RecyclerView. The default of 5 cells is less
+     * than a row of a wide grid, which then inflates cells while it scrolls.
+     */
+    private static final int RECYCLED_ROWS = 2;
+
+    private final int mSpanCount;
+    private final int mCellWidth;
+    private final int mCellHeight;
+    private final PosterSize mPosterSize;
+
+    private PosterGridSpec(int spanCount, int cellWidth) {
+        mSpanCount = spanCount;
+        mCellWidth = cellWidth;
+        mCellHeight = cellWidth * POSTER_RATIO_HEIGHT / POSTER_RATIO_WIDTH;
+        mPosterSize = PosterSize.forWidth(cellWidth);
+    }
+
+    /**
+     * @param availableWidth  The width of the grid in pixels.
+     * @param targetCellWidth The preferred width of a cell in pixels.
+     * @return The grid with the cells closest to the preferred width.
+     */
+    public static PosterGridSpec forWidth(int availableWidth, int targetCellWidth) {
+        int spanCount = Math.round((float) availableWidth / targetCellWidth);
+        return forSpanCount(availableWidth,
+                Math.max(MIN_SPAN_COUNT, Math.min(MAX_SPAN_COUNT, spanCount)));
+    }
+
+    /**
+     * @param availableWidth The width of the grid in pixels.
+     * @param spanCount      The number of columns.
+     * @return The grid with that many columns.
+     */
+    public static PosterGridSpec forSpanCount(int availableWidth, int spanCount) {
+        return new PosterGridSpec(spanCount, availableWidth / spanCount);
+    }
+
+    /**
+     * @return The grid of a screen wide RecyclerView, as the Activities show it.
+     */
+    public static PosterGridSpec forScreen(Context context) {
+        Resources resources = context.getResources();
+        return forWidth(resources.getDisplayMetrics().widthPixels,
+                resources.getDimensionPixelSize(R.dimen.grid_poster_width));
+    }
+
+    public int getSpanCount() {
+        return mSpanCount;
+    }
+
+    public int getCellWidth() {
+        return mCellWidth;
+    }
+
+    public int getCellHeight() {
+        return mCellHeight;
+    }
+
+    /**
+     * @return The smallest poster covering a cell.
+     */
+    public PosterSize getPosterSize() {
+        return mPosterSize;
+    }
+
+    /**
+     * Lays out the grid this way: the span count of its GridLayoutManager, the cell size of
+     * its adapter and the size of its view pool.
+     */
+    public void applyTo(RecyclerView grid, MovieAdapter adapter) {
+        GridLayoutManager layoutManager = (GridLayoutManager) grid.getLayoutManager();
+        layoutManager.setSpanCount(mSpanCount);
+        // The section headers of the home grid take a whole row.
+        layoutManager.setSpanSizeLookup(adapter.getSpanSizeLookup(mSpanCount));
+        grid.getRecycledViewPool().setMaxRecycledViews(GridItem.TYPE_MOVIE,
+                mSpanCount * RECYCLED_ROWS);
+        // A row scrolled back into view is shown without being bound again.
+        grid.setItemViewCacheSize(mSpanCount);
+        adapter.setGridSpec(this);
+    }
+
+    @Override
+    public String toString() {
+        return mSpanCount + " columns of " + mCellWidth + "x" + mCellHeight + " (" + mPosterSize
+                + ")";
+    }
+}
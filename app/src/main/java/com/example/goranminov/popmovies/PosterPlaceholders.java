@@ -0,0 +1,252 @@
+package com.example.goranminov.popmovies;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.example.goranminov.popmovies.data.CatalogStore;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.SqliteCatalogStore;
+import com.example.goranminov.popmovies.utilities.BlurHash;
+import com.example.goranminov.popmovies.utilities.PosterDownloader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Blurred placeholders of the posters, shown in the grid cells while the posters load.
+ *
+ * The first time a poster is downloaded, its BlurHash is computed from a small decode of the
+ * file and stored in the CatalogStore, so every later session has it before the poster. The
+ * grid asks for the placeholders of the movies it is about to show: they are looked up and
+ * decoded into tiny bitmaps in the background, and kept in a small LRU cache by poster file
+ * name. The cells stretch them, a blur looks the same at any size.
+ */
+public class PosterPlaceholders implements PosterDownloader.Listener {
+
+    /**
+     * Told on the main thread that placeholders were loaded.
+     */
+    public interface Listener {
+        void onPlaceholdersLoaded();
+    }
+
+    // Three by four terms, the shape of a poster.
+    private static final int COMPONENTS_X = 3;
+    private static final int COMPONENTS_Y = 4;
+
+    // The size the downloaded poster is reduced to before it is encoded.
+    private static final int ENCODE_WIDTH = 24;
+    private static final int ENCODE_HEIGHT = 36;
+
+    // The size of the placeholder bitmaps, 864 bytes each.
+    private static final int DECODE_WIDTH = 12;
+    private static final int DECODE_HEIGHT = 18;
+
+    private static final int DEFAULT_MAX_ENTRIES = 300;
+
+    /*
+     * The file names looked up this session are not looked up again while their placeholder
+     * is in memory or known to be missing, the posters downloaded since are cached by
+     * onPosterDownloaded. The set is cleared when it gets this large.
+     */
+    private static final int MAX_LOOKED_UP = 2000;
+
+    private static final Object LOCK = new Object();
+    private static PosterPlaceholders sInstance;
+
+    private final CatalogStore mStore;
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainExecutor;
+    private final LinkedHashMap<String, Bitmap> mBitmaps;
+
+    // Guarded by mBitmaps. A name leaves it with its bitmap, so it is looked up again.
+    private final Set<String> mLookedUp = new HashSet<>();
+
+    /**
+     * Creates a PosterPlaceholders.
+     *
+     * @param store              Where the BlurHashes are kept.
+     * @param backgroundExecutor Executor the placeholders are encoded and decoded on.
+     * @param mainExecutor       Executor the listeners are called on.
+     * @param maxEntries         How many placeholder bitmaps are kept in memory.
+     */
+    public PosterPlaceholders(CatalogStore store, Executor backgroundExecutor,
+                              Executor mainExecutor, final int maxEntries) {
+        mStore = store;
+        mBackgroundExecutor = backgroundExecutor;
+        mMainExecutor = mainExecutor;
+        mBitmaps = new LinkedHashMap<String, Bitmap>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bitmap> eldest) {
+                if (size() > maxEntries) {
+                    mLookedUp.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The placeholders of the application, backed by the catalog.
+     */
+    public static PosterPlaceholders getInstance(Context context) {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                AppExecutors executors = AppExecutors.getInstance();
+                sInstance = new PosterPlaceholders(SqliteCatalogStore.getInstance(context),
+                        executors.placeholderIO(), executors.mainThread(), DEFAULT_MAX_ENTRIES);
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * @return The placeholder of the poster of the movie if it is in memory, else null.
+     */
+    public Bitmap get(Movie movie) {
+        String fileName = movie.getPosterFileName();
+        if (fileName == null) {
+            return null;
+        }
+        synchronized (mBitmaps) {
+            return mBitmaps.get(fileName);
+        }
+    }
+
+    /**
+     * Loads the placeholders of the movies into memory in the background. Must be called on
+     * the main thread.
+     *
+     * @param movies   The movies about to be shown.
+     * @param listener Told once placeholders were loaded, not called if none were.
+     */
+    public void load(List<Movie> movies, final Listener listener) {
+        final List<String> fileNames = new ArrayList<>();
+        synchronized (mBitmaps) {
+            if (mLookedUp.size() > MAX_LOOKED_UP) {
+                mLookedUp.clear();
+            }
+            for (Movie movie : movies) {
+                String fileName = movie.getPosterFileName();
+                if (fileName != null && mLookedUp.add(fileName)) {
+                    fileNames.add(fileName);
+                }
+            }
+        }
+        if (fileNames.isEmpty()) {
+            return;
+        }
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int loaded = 0;
+                for (Map.Entry<String, String> entry
+                        : mStore.getPosterPlaceholders(fileNames).entrySet()) {
+                    if (cache(entry.getKey(), entry.getValue())) {
+                        loaded++;
+                    }
+                }
+                if (loaded > 0) {
+                    mMainExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onPlaceholdersLoaded();
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Computes and stores the placeholder of a poster downloaded for the first time.
+     */
+    @Override
+    public void onPosterDownloaded(String url, final File file) {
+        final String fileName = url.substring(url.lastIndexOf('/') + 1);
+        synchronized (mBitmaps) {
+            if (mBitmaps.containsKey(fileName)) {
+                return;
+            }
+        }
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String blurHash = encode(file);
+                if (blurHash != null) {
+                    mStore.putPosterPlaceholder(fileName, blurHash);
+                    cache(fileName, blurHash);
+                }
+            }
+        });
+    }
+
+    /**
+     * Empties the memory cache, the stored placeholders are kept.
+     */
+    public void clearMemory() {
+        synchronized (mBitmaps) {
+            mBitmaps.clear();
+            mLookedUp.clear();
+        }
+    }
+
+    /*
+     * The BlurHash of a poster file, or null if it can't be decoded, e.g. if the disk cache
+     * evicted it in the meantime.
+     */
+    private static String encode(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        // The largest power of two keeping the decode at least as large as the encoded size.
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= ENCODE_WIDTH
+                && options.outHeight / (sampleSize * 2) >= ENCODE_HEIGHT) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap decoded = BitmapFactory.decodeFile(file.getPath(), options);
+        if (decoded == null) {
+            return null;
+        }
+        Bitmap small = Bitmap.createScaledBitmap(decoded, ENCODE_WIDTH, ENCODE_HEIGHT, true);
+        int[] pixels = new int[ENCODE_WIDTH * ENCODE_HEIGHT];
+        small.getPixels(pixels, 0, ENCODE_WIDTH, 0, 0, ENCODE_WIDTH, ENCODE_HEIGHT);
+        if (small != decoded) {
+            small.recycle();
+        }
+        decoded.recycle();
+        return BlurHash.encode(pixels, ENCODE_WIDTH, ENCODE_HEIGHT, COMPONENTS_X, COMPONENTS_Y);
+    }
+
+    /*
+     * Decodes a BlurHash into the memory cache, returns false if it is invalid.
+     */
+    private boolean cache(String fileName, String blurHash) {
+        int[] pixels;
+        try {
+            pixels = BlurHash.decode(blurHash, DECODE_WIDTH, DECODE_HEIGHT);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(pixels, DECODE_WIDTH, DECODE_HEIGHT,
+                Bitmap.Config.ARGB_8888);
+        synchronized (mBitmaps) {
+            mBitmaps.put(fileName, bitmap);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.goranminov.popmovies;
+
+import android.content.Context;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+/**
+ * Scroll listener warming Picasso's cache with the posters of the next rows in the scroll
+ * direction, so they are ready when their cells bind.
+ *
+ * The poster loads of the grid and the prefetches are paused while the grid flings, as the
+ * cells they are for are scrolled past before they could be shown, and resumed once the
+ * scroll settles. Prefetches are cancelled when the scroll direction changes.
+ */
+public class PosterPrefetcher extends RecyclerView.OnScrollListener {
+
+    // Tag of the prefetch requests.
+    static final String PREFETCH_TAG = "poster_prefetch";
+
+    private final Picasso mPicasso;
+    private final GridLayoutManager mLayoutManager;
+    private final MovieAdapter mAdapter;
+    private final int mPrefetchRows;
+
+    private boolean mEnabled = true;
+    private boolean mPaused;
+
+    /*
+     * Direction of the last scroll (1 down, -1 up, 0 unknown) and the furthest position
+     * prefetched in it.
+     */
+    private int mDirection;
+    private int mPrefetchedTo = RecyclerView.NO_POSITION;
+
+    /**
+     * Creates a PosterPrefetcher.
+     *
+     * @param context       Used to get the Picasso instance.
+     * @param layoutManager The layout manager of the grid.
+     * @param adapter       The adapter of the grid.
+     * @param prefetchRows  How many rows ahead of the visible ones are prefetched.
+     */
+    public PosterPrefetcher(Context context, GridLayoutManager layoutManager,
+                            MovieAdapter adapter, int prefetchRows) {
+        mPicasso = Picasso.with(context);
+        mLayoutManager = layoutManager;
+        mAdapter = adapter;
+        mPrefetchRows = prefetchRows;
+    }
+
+    /**
+     * Turns prefetching and pausing on or off, used to measure what they save.
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+        if (!enabled) {
+            reset();
+            resume();
+        }
+    }
+
+    /**
+     * Forgets what was prefetched, called when the grid shows another list.
+     */
+    public void reset() {
+        mPicasso.cancelTag(PREFETCH_TAG);
+        mDirection = 0;
+        mPrefetchedTo = RecyclerView.NO_POSITION;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (!mEnabled) {
+            return;
+        }
+        if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+            mPicasso.pauseTag(MovieAdapter.GRID_TAG);
+            mPicasso.pauseTag(PREFETCH_TAG);
+            mPaused = true;
+        } else {
+            resume();
+            prefetch();
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (!mEnabled || dy == 0) {
+            return;
+        }
+        int direction = dy > 0 ? 1 : -1;
+        if (direction != mDirection) {
+            // The rows prefetched the other way are behind the user now.
+            mPicasso.cancelTag(PREFETCH_TAG);
+            mDirection = direction;
+            mPrefetchedTo = RecyclerView.NO_POSITION;
+        }
+        if (!mPaused) {
+            prefetch();
+        }
+    }
+
+    private void resume() {
+        if (mPaused) {
+            mPicasso.resumeTag(MovieAdapter.GRID_TAG);
+            mPicasso.resumeTag(PREFETCH_TAG);
+            mPaused = false;
+        }
+    }
+
+    private void prefetch() {
+        int itemCount = mAdapter.getItemCount();
+        int first = mLayoutManager.findFirstVisibleItemPosition();
+        int last = mLayoutManager.findLastVisibleItemPosition();
+        if (mDirection == 0 || itemCount == 0 || first == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        /*
+         * Prefetch in the size the cells load, so the prefetched bitmap is the one the
+         * memory cache hands to the cell.
+         */
+        int width = mAdapter.getCellWidth();
+        int height = mAdapter.getCellHeight();
+        if (width == 0 || height == 0) {
+            return;
+        }
+        // The memory cache is too small to hold posters ahead of the scroll.
+        if (mAdapter.getMemoryLevel() == MemoryGovernor.Level.CRITICAL) {
+            return;
+        }
+
+        int distance = mPrefetchRows * mLayoutManager.getSpanCount();
+        int from;
+        int to;
+        if (mDirection > 0) {
+            from = Math.max(last + 1, mPrefetchedTo + 1);
+            to = Math.min(last + distance, itemCount - 1);
+        } else {
+            from = Math.max(first - distance, 0);
+            to = mPrefetchedTo == RecyclerView.NO_POSITION
+                    ? first - 1 : Math.min(first - 1, mPrefetchedTo - 1);
+        }
+        for (int position = from; position <= to; position++) {
+            Movie movie = mAdapter.getMovie(position);
+            // Section headers have no poster.
+            if (movie == null || movie.getPosterPath() == null) {
+                continue;
+            }
+            RequestCreator request = mPicasso.load(movie.getPosterUrl(mAdapter.getPosterSize()))
+                    .resize(width, height);
+            mAdapter.applyMemoryLevel(request);
+            request.centerInside()
+                    .priority(Picasso.Priority.LOW)
+                    .tag(PREFETCH_TAG)
+                    .fetch();
+        }
+        if (from <= to) {
+            mPrefetchedTo = mDirection > 0 ? to : from;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.goranminov.popmovies;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MovieRegistry;
+import com.example.goranminov.popmovies.data.MovieSearch;
+import com.example.goranminov.popmovies.data.SearchIndex;
+import com.example.goranminov.popmovies.data.SqliteCatalogStore;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Searches the movies as the user types. The movies we already downloaded are found
+ * locally, TheMovieDB is only asked when none of them matches.
+ */
+public class SearchActivity extends AppCompatActivity implements
+        MovieAdapter.MovieAdapterOnClickHandler, MovieSearch.Callback {
+
+    private static final String TAG = SearchActivity.class.getSimpleName();
+
+    private static final int RESULT_LIMIT = 60;
+
+    private EditText mQuery;
+    private TextView mEmptyMessage;
+    private MovieAdapter mMovieAdapter;
+    private MovieSearch mSearch;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        mQuery = (EditText) findViewById(R.id.search_query);
+        mEmptyMessage = (TextView) findViewById(R.id.search_empty);
+        RecyclerView results = (RecyclerView) findViewById(R.id.search_results);
+
+        /*
+         * The results are shown in the same grid as the movie lists.
+         */
+        PosterGridSpec gridSpec = PosterGridSpec.forScreen(this);
+        results.setLayoutManager(new GridLayoutManager(this, gridSpec.getSpanCount()));
+        results.setHasFixedSize(true);
+        mMovieAdapter = new MovieAdapter(this);
+        mMovieAdapter.setMemoryGovernor(
+                ((PopMoviesApplication) getApplication()).getMemoryGovernor());
+        gridSpec.applyTo(results, mMovieAdapter);
+        results.setAdapter(mMovieAdapter);
+
+        AppExecutors executors = AppExecutors.getInstance();
+        mSearch = new MovieSearch(SearchIndex.getInstance(),
+                SqliteCatalogStore.getInstance(this), ApiClient.getInstance(),
+                NetworkUtils.MDB_SEARCH_URL, BuildConfig.MOVIE_DATABASE_API_KEY,
+                FeedVariantSettings.getVariant(this), RESULT_LIMIT,
+                executors.diskIO(), executors.networkIO(), executors.mainThread());
+
+        /*
+         * Every keystroke is a new query, a local one costs a few milliseconds.
+         */
+        mQuery.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                mSearch.search(s.toString(), SearchActivity.this);
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mSearch.cancel();
+    }
+
+    @Override
+    public void onResults(String query, List<Movie> movies, boolean remote) {
+        mMovieAdapter.setMovieData(movies);
+        boolean nothingFound = movies.isEmpty() && !query.trim().isEmpty();
+        mEmptyMessage.setVisibility(nothingFound ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public void onSearchFailed(String query, IOException e) {
+        Log.e(TAG, "Failed to search for " + query, e);
+        mMovieAdapter.setMovieData(null);
+        mEmptyMessage.setVisibility(View.VISIBLE);
+    }
+
+    @Override
+    public void onClick(Movie selectedMovie) {
+        MovieRegistry.getInstance().put(selectedMovie);
+        Intent intent = new Intent(this, DetailActivity.class);
+        intent.putExtra(DetailActivity.EXTRA_MOVIE_ID, selectedMovie.getId());
+        intent.putExtra(DetailActivity.EXTRA_THUMBNAIL_SIZE, mMovieAdapter.getPosterSize());
+        startActivity(intent);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.goranminov.popmovies.data;
+
+/**
+ * A MoviePage together with the HTTP validators it was served with and the time it was
+ * last confirmed to be up to date.
+ */
+public final class CachedPage {
+
+    private final MoviePage mPage;
+    private final String mETag;
+    private final String mLastModified;
+    private final long mFetchedAt;
+
+    /**
+     * Creates a CachedPage.
+     *
+     * @param page         The page.
+     * @param eTag         The ETag response header, can be null.
+     * @param lastModified The Last-Modified response header, can be null.
+     * @param fetchedAt    When the page was last fetched or revalidated, in milliseconds.
+     */
+    public CachedPage(MoviePage page, String eTag, String lastModified, long fetchedAt) {
+        mPage = page;
+        mETag = eTag;
+        mLastModified = lastModified;
+        mFetchedAt = fetchedAt;
+    }
+
+    public MoviePage getPage() {
+        return mPage;
+    }
+
+    public String getETag() {
+        return mETag;
+    }
+
+    public String getLastModified() {
+        return mLastModified;
+    }
+
+    public long getFetchedAt() {
+        return mFetchedAt;
+    }
+
+    /**
+     * @return A copy of this page that was revalidated at the given time.
+     */
+    public CachedPage revalidatedAt(long fetchedAt) {
+        return new CachedPage(mPage, mETag, mLastModified, fetchedAt);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.Clock;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
+import com.example.goranminov.popmovies.utilities.RateLimiter;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Offline first PageSource: pages are served from the MemoryPageCache or the CatalogStore
+ * whenever we have them, and
+ * stale pages are revalidated in the background (stale-while-revalidate). Revalidation is a
+ * conditional request, so an unchanged page costs a 304 without a body.
+ *
+ * The network is only waited on for pages we never stored.
+ *
+ * Every page read from the store or the network is added to the SearchIndex, so the index
+ * follows the catalog as the user browses.
+ *
+ * A source serves one FeedVariant: its pages are requested in the variant's language and
+ * region, and cached under keys of their own, so switching the variant never shows a page
+ * of another one.
+ */
+public class CachingPageSource implements MoviePager.PageSource {
+
+    private final ApiClient mClient;
+    private final String mBaseUrl;
+    private final String mApiKey;
+    private final FeedVariant mVariant;
+    private final MemoryPageCache mMemoryCache;
+    private final CatalogStore mStore;
+    private final SearchIndex mSearchIndex;
+    private final Executor mRevalidateExecutor;
+    private final long mTtlMillis;
+    private final Clock mClock;
+
+    // Keys of the pages being revalidated, guarded by itself.
+    private final Set<String> mRevalidating = new HashSet<>();
+
+    /**
+     * Creates a CachingPageSource.
+     *
+     * @param client             The client used to make the requests.
+     * @param baseUrl            The base URL ending with a slash, normally NetworkUtils.MDB_BASE_URL.
+     * @param apiKey             The TheMovieDB API key.
+     * @param variant            The language and region the pages are requested in.
+     * @param memoryCache        The in-memory tier in front of the store.
+     * @param store              Where the pages are persisted.
+     * @param searchIndex        Where the movies of the pages are indexed for search.
+     * @param revalidateExecutor Executor the background revalidations run on.
+     * @param ttlMillis          How long a stored page is used before it is revalidated.
+     * @param clock              Source of the current time.
+     */
+    public CachingPageSource(ApiClient client, String baseUrl, String apiKey,
+                             FeedVariant variant, MemoryPageCache memoryCache, CatalogStore store,
+                             SearchIndex searchIndex, Executor revalidateExecutor,
+                             long ttlMillis, Clock clock) {
+        mClient = client;
+        mBaseUrl = baseUrl;
+        mApiKey = apiKey;
+        mVariant = variant;
+        mMemoryCache = memoryCache;
+        mStore = store;
+        mSearchIndex = searchIndex;
+        mRevalidateExecutor = revalidateExecutor;
+        mTtlMillis = ttlMillis;
+        mClock = clock;
+    }
+
+    /**
+     * @return The language and region of the pages.
+     */
+    public FeedVariant getVariant() {
+        return mVariant;
+    }
+
+    @Override
+    public MoviePage loadPage(String sortOrder, int page,
+                              MoviePager.RefreshCallback refreshCallback) throws IOException {
+        String memoryKey = MemoryPageCache.key(sortOrder, page, mVariant);
+        CachedPage remembered = mMemoryCache.getCached(memoryKey);
+        if (remembered != null) {
+            if (isStale(remembered)) {
+                revalidate(sortOrder, memoryKey, remembered, refreshCallback);
+            }
+            return remembered.getPage();
+        }
+
+        String storeKey = mVariant.partition(sortOrder);
+        CachedPage cached = mStore.getPage(storeKey, page);
+        if (cached == null) {
+            CachedPage fetched = fetch(sortOrder, page, null, RateLimiter.Priority.VISIBLE);
+            mStore.putPage(storeKey, fetched);
+            mMemoryCache.put(memoryKey, fetched);
+            mSearchIndex.add(fetched.getPage().getMovies());
+            return fetched.getPage();
+        }
+        if (isStale(cached)) {
+            revalidate(sortOrder, memoryKey, cached, refreshCallback);
+        }
+        mMemoryCache.put(memoryKey, cached);
+        mSearchIndex.add(cached.getPage().getMovies());
+        return cached.getPage();
+    }
+
+    /**
+     * @return True if the page is older than the TTL.
+     */
+    public boolean isStale(CachedPage cached) {
+        long age = mClock.currentTimeMillis() - cached.getFetchedAt();
+        return age < 0 || age >= mTtlMillis;
+    }
+
+    private void revalidate(final String sortOrder, final String memoryKey,
+                            final CachedPage cached,
+                            final MoviePager.RefreshCallback refreshCallback) {
+        final int page = cached.getPage().getPage();
+        final String storeKey = mVariant.partition(sortOrder);
+        final String key = storeKey + '/' + page;
+        synchronized (mRevalidating) {
+            if (!mRevalidating.add(key)) {
+                return;
+            }
+        }
+        mRevalidateExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // The stored copy is on screen already, the refresh can wait.
+                    CachedPage fetched =
+                            fetch(sortOrder, page, cached, RateLimiter.Priority.PREFETCH);
+                    if (fetched.getPage() == cached.getPage()) {
+                        // 304 Not Modified, only the fetch time changes.
+                        mStore.touchPage(storeKey, page, fetched.getFetchedAt());
+                        mMemoryCache.put(memoryKey, fetched);
+                    } else {
+                        mStore.mergePage(storeKey, fetched);
+                        mMemoryCache.put(memoryKey, fetched);
+                        mSearchIndex.add(fetched.getPage().getMovies());
+                        refreshCallback.onPageRefreshed(fetched.getPage());
+                    }
+                } catch (IOException e) {
+                    // Keep showing the stored copy, we try again the next time it is loaded.
+                } finally {
+                    synchronized (mRevalidating) {
+                        mRevalidating.remove(key);
+                    }
+                }
+            }
+        });
+    }
+
+    private CachedPage fetch(String sortOrder, int page, CachedPage cached,
+                             RateLimiter.Priority priority) throws IOException {
+        return NetworkUtils.fetchMoviePage(mClient,
+                NetworkUtils.buildMovieListUrl(mBaseUrl, mApiKey, sortOrder, page, mVariant),
+                cached, mClock.currentTimeMillis(), priority);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.goranminov.popmovies.data;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent store for the pages of the movie lists, one set of pages per sort order. The
+ * callers store every FeedVariant of a list apart, under FeedVariant.partition(sortOrder).
+ * Implementations must be safe to use from several threads.
+ */
+public interface CatalogStore {
+
+    /**
+     * @return The stored page, or null if we never stored it.
+     */
+    CachedPage getPage(String sortOrder, int page);
+
+    /**
+     * Stores the page, replacing any previous copy.
+     */
+    void putPage(String sortOrder, CachedPage page);
+
+    /**
+     * Stores the page like {@link #putPage(String, CachedPage)}, but only writes the movies
+     * that differ from the stored copy, so refreshing a page that barely changed is cheap.
+     *
+     * @return How many movies were written or removed.
+     */
+    int mergePage(String sortOrder, CachedPage page);
+
+    /**
+     * Records that the stored page was confirmed to be up to date at the given time.
+     */
+    void touchPage(String sortOrder, int page, long fetchedAt);
+
+    /**
+     * @return Every stored movie once, even if it is on pages of several sort orders.
+     */
+    List<Movie> getAllMovies();
+
+    /**
+     * @param posterFileNames Poster file names, see Movie.getPosterFileName().
+     * @return The BlurHash placeholders stored for the posters, by file name. Posters without
+     * one are left out.
+     */
+    Map<String, String> getPosterPlaceholders(Collection<String> posterFileNames);
+
+    /**
+     * Stores the BlurHash placeholder of a poster. It is kept when the pages showing the
+     * poster are replaced.
+     */
+    void putPosterPlaceholder(String posterFileName, String blurHash);
+}
@@ -0,0 +1,188 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.Clock;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
+import com.example.goranminov.popmovies.utilities.RateLimiter;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Refreshes the first pages of some movie lists in the CatalogStore, and downloads their
+ * posters, in one go. It is run in the background so that the grid almost always finds the
+ * pages fresh in the store.
+ *
+ * Every page is requested conditionally on the validators of its stored copy, so an unchanged
+ * page costs a 304 and only updates its fetch time. A changed page is merged into the store,
+ * which only writes the movies that changed. Pages confirmed more recently than the freshness
+ * window, e.g. by the grid, are not requested at all.
+ */
+public class CatalogSync {
+
+    /**
+     * Downloads posters ahead of time.
+     */
+    public interface PosterFetcher {
+        /**
+         * Downloads the poster unless it is cached already. Blocks.
+         */
+        void fetch(String url) throws IOException;
+    }
+
+    /**
+     * What a sync did.
+     */
+    public static final class Result {
+        public int pagesFetched;
+        public int pagesNotModified;
+        public int pagesSkipped;
+        public int moviesWritten;
+        public int postersFetched;
+        public int postersFailed;
+        public boolean cancelled;
+
+        @Override
+        public String toString() {
+            return "CatalogSync.Result[fetched=" + pagesFetched
+                    + " notModified=" + pagesNotModified + " skipped=" + pagesSkipped
+                    + ", movies=" + moviesWritten
+                    + ", posters=" + postersFetched + " failed=" + postersFailed
+                    + (cancelled ? ", cancelled" : "") + "]";
+        }
+    }
+
+    private final ApiClient mClient;
+    private final String mBaseUrl;
+    private final String mApiKey;
+    private final FeedVariant mVariant;
+    private final CatalogStore mStore;
+    private final SearchIndex mSearchIndex;
+    private final PosterFetcher mPosterFetcher;
+    private final PosterSize mPosterSize;
+    private final List<String> mSortOrders;
+    private final int mPagesPerSortOrder;
+    private final long mFreshMillis;
+    private final Clock mClock;
+
+    private volatile boolean mCancelled;
+
+    /**
+     * Creates a CatalogSync.
+     *
+     * @param client            The client used to make the requests.
+     * @param baseUrl           The base URL ending with a slash, normally NetworkUtils.MDB_BASE_URL.
+     * @param apiKey            The TheMovieDB API key.
+     * @param variant           The language and region of the pages, the grid's.
+     * @param store             Where the pages are persisted.
+     * @param searchIndex       Where the movies of the changed pages are indexed for search.
+     * @param posterFetcher     Downloads the posters of the movies, can be null to skip them.
+     * @param posterSize        The size of the posters to download.
+     * @param sortOrders        The lists to refresh, e.g. "popular".
+     * @param pagesPerSortOrder How many pages of each list to refresh.
+     * @param freshMillis       Pages confirmed more recently than this are not requested.
+     * @param clock             Source of the current time.
+     */
+    public CatalogSync(ApiClient client, String baseUrl, String apiKey, FeedVariant variant,
+                       CatalogStore store, SearchIndex searchIndex, PosterFetcher posterFetcher,
+                       PosterSize posterSize, List<String> sortOrders, int pagesPerSortOrder,
+                       long freshMillis, Clock clock) {
+        mClient = client;
+        mBaseUrl = baseUrl;
+        mApiKey = apiKey;
+        mVariant = variant;
+        mStore = store;
+        mSearchIndex = searchIndex;
+        mPosterFetcher = posterFetcher;
+        mPosterSize = posterSize;
+        mSortOrders = sortOrders;
+        mPagesPerSortOrder = pagesPerSortOrder;
+        mFreshMillis = freshMillis;
+        mClock = clock;
+    }
+
+    /**
+     * Refreshes the pages, then downloads the posters that are not cached. Blocks, the pages
+     * are requested one after the other over the connections of the client.
+     *
+     * A poster that can't be downloaded is skipped, it is downloaded when it is shown.
+     *
+     * @return What was done.
+     * @throws IOException If a page can't be fetched. The pages refreshed until then are kept.
+     */
+    public Result sync() throws IOException {
+        Result result = new Result();
+        Set<String> posterUrls = new LinkedHashSet<>();
+        for (String sortOrder : mSortOrders) {
+            for (int page = 1; page <= mPagesPerSortOrder; page++) {
+                if (mCancelled) {
+                    result.cancelled = true;
+                    return result;
+                }
+                MoviePage synced = syncPage(sortOrder, page, result);
+                for (Movie movie : synced.getMovies()) {
+                    String url = movie.getPosterUrl(mPosterSize);
+                    if (url != null) {
+                        posterUrls.add(url);
+                    }
+                }
+                if (page >= synced.getTotalPages()) {
+                    break;
+                }
+            }
+        }
+
+        if (mPosterFetcher == null) {
+            return result;
+        }
+        for (String url : posterUrls) {
+            if (mCancelled) {
+                result.cancelled = true;
+                return result;
+            }
+            try {
+                mPosterFetcher.fetch(url);
+                result.postersFetched++;
+            } catch (IOException e) {
+                result.postersFailed++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops a running sync after the request in flight. Can be called from any thread.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    private MoviePage syncPage(String sortOrder, int page, Result result) throws IOException {
+        String storeKey = mVariant.partition(sortOrder);
+        CachedPage cached = mStore.getPage(storeKey, page);
+        long now = mClock.currentTimeMillis();
+        if (cached != null) {
+            long age = now - cached.getFetchedAt();
+            if (age >= 0 && age < mFreshMillis) {
+                result.pagesSkipped++;
+                return cached.getPage();
+            }
+        }
+
+        CachedPage fetched = NetworkUtils.fetchMoviePage(mClient,
+                NetworkUtils.buildMovieListUrl(mBaseUrl, mApiKey, sortOrder, page, mVariant),
+                cached, now, RateLimiter.Priority.PREFETCH);
+        if (cached != null && fetched.getPage() == cached.getPage()) {
+            // 304 Not Modified, only the fetch time changes.
+            mStore.touchPage(storeKey, page, fetched.getFetchedAt());
+            result.pagesNotModified++;
+        } else {
+            result.moviesWritten += mStore.mergePage(storeKey, fetched);
+            mSearchIndex.add(fetched.getPage().getMovies());
+            result.pagesFetched++;
+        }
+        return fetched.getPage();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.goranminov.popmovies.data;
+
+import java.util.Locale;
+
+/**
+ * The language and region the movie lists are requested in. TheMovieDB translates the titles,
+ * overviews and posters to the language, and the region picks which release dates the now
+ * playing and upcoming lists follow.
+ *
+ * Everything fetched for a variant is cached apart from the other variants: see
+ * {@link #partition(String)} and MemoryPageCache.key().
+ */
+public final class FeedVariant {
+
+    // Separates the list from the variant in the keys of the CatalogStore.
+    private static final char PARTITION_SEPARATOR = '@';
+
+    private final String mLanguage;
+    private final String mRegion;
+
+    /**
+     * Creates a FeedVariant.
+     *
+     * @param language The ISO 639-1 language code, e.g. "de". The withdrawn codes Locale
+     *                 still reports for Hebrew, Indonesian and Yiddish are replaced by the
+     *                 current ones, which TheMovieDB expects.
+     * @param region   The ISO 3166-1 country code, e.g. "DE", or null for TheMovieDB's
+     *                 default region.
+     */
+    public FeedVariant(String language, String region) {
+        if (language == null || language.isEmpty()) {
+            throw new IllegalArgumentException("No language");
+        }
+        mLanguage = currentCode(language.toLowerCase(Locale.US));
+        mRegion = region == null || region.isEmpty() ? null : region.toUpperCase(Locale.US);
+    }
+
+    /**
+     * @return The variant of the locale, English if it has no language.
+     */
+    public static FeedVariant fromLocale(Locale locale) {
+        String language = locale.getLanguage();
+        return new FeedVariant(language.isEmpty() ? "en" : language, locale.getCountry());
+    }
+
+    /**
+     * @param tag A tag returned by {@link #getTag()}, e.g. "pt-BR" or "fr".
+     * @return The variant of the tag.
+     * @throws IllegalArgumentException If the tag has no language.
+     */
+    public static FeedVariant fromTag(String tag) {
+        int separator = tag.indexOf('-');
+        if (separator < 0) {
+            return new FeedVariant(tag, null);
+        }
+        return new FeedVariant(tag.substring(0, separator), tag.substring(separator + 1));
+    }
+
+    /*
+     * The current ISO 639-1 code of a language Locale reports under its withdrawn code.
+     */
+    private static String currentCode(String language) {
+        switch (language) {
+            case "iw":
+                return "he";
+            case "in":
+                return "id";
+            case "ji":
+                return "yi";
+            default:
+                return language;
+        }
+    }
+
+    public String getLanguage() {
+        return mLanguage;
+    }
+
+    /**
+     * @return The country code, or null for TheMovieDB's default region.
+     */
+    public String getRegion() {
+        return mRegion;
+    }
+
+    /**
+     * @return The language and region as TheMovieDB's language parameter takes them, e.g.
+     * "pt-BR", or only the language if there is no region.
+     */
+    public String getTag() {
+        return mRegion == null ? mLanguage : mLanguage + '-' + mRegion;
+    }
+
+    /**
+     * @return The key the pages of the list are stored under for this variant, so the
+     * variants of a list never replace each other.
+     */
+    public String partition(String sortOrder) {
+        return sortOrder + PARTITION_SEPARATOR + getTag();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FeedVariant)) {
+            return false;
+        }
+        FeedVariant other = (FeedVariant) o;
+        return mLanguage.equals(other.mLanguage)
+                && (mRegion == null ? other.mRegion == null : mRegion.equals(other.mRegion));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mLanguage.hashCode() + (mRegion != null ? mRegion.hashCode() : 0);
+    }
+
+    @Override
+    public String toString() {
+        return getTag();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.goranminov.popmovies.data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the top of the grid showed when the user last left it: the sort order, the first
+ * movies and a tiny thumbnail of their posters. A cold start draws it before anything is
+ * loaded, so the first frame already has content.
+ *
+ * A single list is one section, named after its sort order. The movies are encoded with
+ * MovieListCodec and written with their length, followed by the thumbnails: small JPEGs,
+ * decoded by the screen that shows them. A snapshot of an older version fails to read and
+ * is dropped by GridSnapshotStore.
+ */
+public final class GridSnapshot {
+
+    private static final int MAGIC = 0x504d4753;
+    // Version 2 stores the movies with MovieListCodec, each movie once.
+    private static final int VERSION = 2;
+
+    // A corrupt length larger than these is rejected before anything is allocated.
+    private static final int MAX_LENGTH = 64 * 1024;
+    private static final int MAX_LIST_LENGTH = 1024 * 1024;
+
+    private final String mSortOrder;
+    private final List<HomeSection> mSections;
+    private final Map<Integer, byte[]> mThumbnails;
+
+    /**
+     * Creates a GridSnapshot.
+     *
+     * @param sortOrder  The sort order shown, MovieListModel.SORT_HOME for the home grid.
+     * @param sections   The sections shown, or a single one for a single list.
+     * @param thumbnails The JPEG thumbnails by movie id, movies without one are left out.
+     */
+    public GridSnapshot(String sortOrder, List<HomeSection> sections,
+                        Map<Integer, byte[]> thumbnails) {
+        mSortOrder = sortOrder;
+        mSections = Collections.unmodifiableList(new ArrayList<>(sections));
+        mThumbnails = Collections.unmodifiableMap(new HashMap<>(thumbnails));
+    }
+
+    public String getSortOrder() {
+        return mSortOrder;
+    }
+
+    public List<HomeSection> getSections() {
+        return mSections;
+    }
+
+    /**
+     * @return The movies of all the sections, in grid order.
+     */
+    public List<Movie> getMovies() {
+        List<Movie> movies = new ArrayList<>();
+        for (HomeSection section : mSections) {
+            movies.addAll(section.getMovies());
+        }
+        return movies;
+    }
+
+    public Map<Integer, byte[]> getThumbnails() {
+        return mThumbnails;
+    }
+
+    /**
+     * Writes the snapshot. The stream is not closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        byte[] list = MovieListCodec.encode(new MovieList(mSortOrder, mSections));
+        data.writeInt(list.length);
+        data.write(list);
+        data.writeInt(mThumbnails.size());
+        for (Map.Entry<Integer, byte[]> thumbnail : mThumbnails.entrySet()) {
+            data.writeInt(thumbnail.getKey());
+            data.writeInt(thumbnail.getValue().length);
+            data.write(thumbnail.getValue());
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo(OutputStream)}. The stream is not closed.
+     *
+     * @throws IOException If the stream is truncated or not a snapshot of this version.
+     */
+    public static GridSnapshot readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a grid snapshot");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported grid snapshot version " + version);
+        }
+        int listLength = data.readInt();
+        if (listLength < 0 || listLength > MAX_LIST_LENGTH) {
+            throw new IOException("Invalid movie list length " + listLength);
+        }
+        byte[] encodedList = new byte[listLength];
+        data.readFully(encodedList);
+        MovieList list = MovieListCodec.decode(encodedList);
+        int thumbnailCount = readCount(data);
+        Map<Integer, byte[]> thumbnails = new HashMap<>();
+        for (int i = 0; i < thumbnailCount; i++) {
+            int id = data.readInt();
+            byte[] thumbnail = new byte[readCount(data)];
+            data.readFully(thumbnail);
+            thumbnails.put(id, thumbnail);
+        }
+        return new GridSnapshot(list.getSortOrder(), list.getSections(), thumbnails);
+    }
+
+    /*
+     * A count or length read from the stream, rejected if a corrupt file makes it negative
+     * or implausibly large.
+     */
+    private static int readCount(DataInputStream data) throws IOException {
+        int count = data.readInt();
+        if (count < 0 || count > MAX_LENGTH) {
+            throw new IOException("Invalid count " + count);
+        }
+        return count;
+    }
+}
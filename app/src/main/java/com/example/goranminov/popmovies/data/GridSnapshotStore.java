@@ -0,0 +1,80 @@
+package com.example.goranminov.popmovies.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Keeps the last GridSnapshot in a file.
+ *
+ * The snapshot is replaced atomically, a process killed while saving leaves the previous one.
+ * A file that can't be read is deleted and treated as missing: the snapshot only makes the
+ * first frame faster, losing it costs nothing else.
+ */
+public class GridSnapshotStore {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mFile;
+
+    /**
+     * @param file The file the snapshot is kept in, its directory must exist.
+     */
+    public GridSnapshotStore(File file) {
+        mFile = file;
+    }
+
+    /**
+     * @return The saved snapshot, or null if there is none or it could not be read.
+     */
+    public GridSnapshot load() {
+        if (!mFile.exists()) {
+            return null;
+        }
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(mFile));
+            try {
+                return GridSnapshot.readFrom(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            mFile.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the saved snapshot.
+     *
+     * @throws IOException If the file could not be written, the previous snapshot is kept.
+     */
+    public synchronized void save(GridSnapshot snapshot) throws IOException {
+        File temp = new File(mFile.getPath() + TEMP_SUFFIX);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+        try {
+            snapshot.writeTo(out);
+        } catch (IOException e) {
+            out.close();
+            temp.delete();
+            throw e;
+        }
+        out.close();
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+            throw new IOException("Can't rename " + temp + " to " + mFile);
+        }
+    }
+
+    /**
+     * Deletes the saved snapshot.
+     */
+    public synchronized void clear() {
+        mFile.delete();
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.goranminov.popmovies.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the first pages of several TheMovieDB lists at once for the combined home grid.
+ *
+ * Every page of every feed is requested up front on the fetch Executor, so as long as it has
+ * a thread per request the whole grid takes about as long as the slowest request. The pages
+ * are merged as they arrive: the sections are rebuilt in feed order from the pages received
+ * so far, a movie is only kept in the first section that has it, and the Listener gets the
+ * new sections. A section thus shows up as soon as its first page is in, and a movie that a
+ * higher ranked feed delivers later moves up to that feed.
+ *
+ * All the public methods must be called on the thread behind the main Executor, which is
+ * also the thread the Listener is called on.
+ */
+public class HomeFeedLoader {
+
+    /**
+     * Receives the merged sections.
+     */
+    public interface Listener {
+        void onSectionsChanged(List<HomeSection> sections);
+
+        void onLoadFailed(String feed, int page, IOException e);
+    }
+
+    private final List<String> mFeeds;
+    private final int mPagesPerFeed;
+    private final MoviePager.PageSource mPageSource;
+    private final Executor mFetchExecutor;
+    private final Executor mMainExecutor;
+    private final Listener mListener;
+
+    // The pages received, by feed and page - 1. A failed page stays null.
+    private final MoviePage[][] mPages;
+    // Whether a page was received or failed, a section only shows the pages before the
+    // first one still in flight so it keeps the order of its list.
+    private final boolean[][] mSettled;
+    private List<HomeSection> mSections = Collections.emptyList();
+    private int mInFlight;
+    private boolean mStarted;
+    private volatile boolean mReleased;
+
+    /**
+     * Creates a HomeFeedLoader.
+     *
+     * @param feeds         The lists to show, highest ranked first, e.g. "popular".
+     * @param pagesPerFeed  How many pages of each list are loaded.
+     * @param pageSource    Used to fetch the pages.
+     * @param fetchExecutor Executor the pages are fetched on, ideally with a thread per page.
+     * @param mainExecutor  Executor the results are delivered on.
+     * @param listener      Receives the sections.
+     */
+    public HomeFeedLoader(List<String> feeds, int pagesPerFeed, MoviePager.PageSource pageSource,
+                          Executor fetchExecutor, Executor mainExecutor, Listener listener) {
+        if (pagesPerFeed < 1) {
+            throw new IllegalArgumentException("pagesPerFeed must be at least 1");
+        }
+        mFeeds = Collections.unmodifiableList(new ArrayList<>(feeds));
+        mPagesPerFeed = pagesPerFeed;
+        mPageSource = pageSource;
+        mFetchExecutor = fetchExecutor;
+        mMainExecutor = mainExecutor;
+        mListener = listener;
+        mPages = new MoviePage[mFeeds.size()][pagesPerFeed];
+        mSettled = new boolean[mFeeds.size()][pagesPerFeed];
+    }
+
+    public List<String> getFeeds() {
+        return mFeeds;
+    }
+
+    /**
+     * Requests every page, the first call only.
+     */
+    public void load() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        // The first page of every feed goes first, in case the executor runs short of threads.
+        for (int page = 1; page <= mPagesPerFeed; page++) {
+            for (int feed = 0; feed < mFeeds.size(); feed++) {
+                requestPage(feed, page);
+            }
+        }
+    }
+
+    /**
+     * Stops delivering results and skips the requests that haven't started yet, used when
+     * the grid is no longer displayed.
+     */
+    public void release() {
+        mReleased = true;
+    }
+
+    /**
+     * @return The sections merged from the pages received so far.
+     */
+    public List<HomeSection> getSections() {
+        return mSections;
+    }
+
+    /**
+     * @return True while at least one page request is in flight.
+     */
+    public boolean isLoading() {
+        return mInFlight > 0;
+    }
+
+    private void requestPage(final int feed, final int page) {
+        mInFlight++;
+        final String sortOrder = mFeeds.get(feed);
+        final MoviePager.RefreshCallback refreshCallback = new MoviePager.RefreshCallback() {
+            @Override
+            public void onPageRefreshed(final MoviePage refreshed) {
+                mMainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        replacePage(feed, refreshed);
+                    }
+                });
+            }
+        };
+        mFetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                MoviePage result = null;
+                IOException error = null;
+                // Don't fetch for a loader that was released while the request was queued.
+                if (!mReleased) {
+                    try {
+                        result = mPageSource.loadPage(sortOrder, page, refreshCallback);
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                }
+                final MoviePage loaded = result;
+                final IOException failure = error;
+                mMainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageSettled(feed, page, loaded, failure);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageSettled(int feed, int page, MoviePage result, IOException error) {
+        mInFlight--;
+        if (mReleased) {
+            return;
+        }
+        mPages[feed][page - 1] = result;
+        mSettled[feed][page - 1] = true;
+        if (error != null) {
+            mListener.onLoadFailed(mFeeds.get(feed), page, error);
+        }
+        merge();
+    }
+
+    /*
+     * Replaces a page that was revalidated after it was first loaded.
+     */
+    private void replacePage(int feed, MoviePage refreshed) {
+        int index = refreshed.getPage() - 1;
+        if (mReleased || index < 0 || index >= mPagesPerFeed || mPages[feed][index] == null) {
+            return;
+        }
+        mPages[feed][index] = refreshed;
+        merge();
+    }
+
+    /*
+     * Rebuilds the sections from every page received. There are only a few hundred movies,
+     * so starting over is cheaper than keeping track of where each one went, and the grid
+     * works out which cells changed.
+     *
+     * A page that settles before the earlier pages of its feed changes nothing yet, so the
+     * listener is only called when the sections changed, and once more when the last request
+     * settled, so it learns that loading is over.
+     */
+    private void merge() {
+        Set<Integer> shownIds = new HashSet<>();
+        List<HomeSection> sections = new ArrayList<>(mFeeds.size());
+        for (int feed = 0; feed < mFeeds.size(); feed++) {
+            List<Movie> movies = new ArrayList<>();
+            for (int page = 0; page < mPagesPerFeed && mSettled[feed][page]; page++) {
+                MoviePage loaded = mPages[feed][page];
+                if (loaded == null) {
+                    continue;
+                }
+                for (Movie movie : loaded.getMovies()) {
+                    if (shownIds.add(movie.getId())) {
+                        movies.add(movie);
+                    }
+                }
+            }
+            if (!movies.isEmpty()) {
+                sections.add(new HomeSection(mFeeds.get(feed), movies));
+            }
+        }
+        if (sameSections(sections, mSections) && isLoading()) {
+            return;
+        }
+        mSections = Collections.unmodifiableList(sections);
+        mListener.onSectionsChanged(mSections);
+    }
+
+    private static boolean sameSections(List<HomeSection> a, List<HomeSection> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).getFeed().equals(b.get(i).getFeed())
+                    || !a.get(i).getMovies().equals(b.get(i).getMovies())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.goranminov.popmovies.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One section of the combined home grid: the movies of a TheMovieDB list that no higher
+ * ranked list already shows.
+ */
+public final class HomeSection {
+
+    private final String mFeed;
+    private final List<Movie> mMovies;
+
+    /**
+     * Creates a HomeSection.
+     *
+     * @param feed   The list the movies come from, e.g. "popular".
+     * @param movies The movies of the section, in the order of the list.
+     */
+    public HomeSection(String feed, List<Movie> movies) {
+        mFeed = feed;
+        mMovies = Collections.unmodifiableList(movies);
+    }
+
+    public String getFeed() {
+        return mFeed;
+    }
+
+    public List<Movie> getMovies() {
+        return mMovies;
+    }
+}
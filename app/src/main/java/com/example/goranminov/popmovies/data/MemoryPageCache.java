@@ -0,0 +1,230 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.Clock;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache of decoded movie pages, keyed by endpoint, page and FeedVariant.
+ * A page can be put with its validators and fetch time, so whoever reads it can still tell
+ * how old it is.
+ *
+ * Entries are evicted least recently used first once the estimated size of the cached pages
+ * goes over the budget, and each entry expires a fixed time after it was put. The process wide
+ * instance outlives any Activity, so toggling the sort order back and forth, or rotating the
+ * screen, is served without touching the database, the network or the JSON decoder.
+ */
+public class MemoryPageCache {
+
+    /*
+     * The default instance keeps about 1MB of pages (roughly 70 pages of 20 movies) for
+     * ten minutes.
+     */
+    private static final int DEFAULT_MAX_SIZE_BYTES = 1024 * 1024;
+    private static final long DEFAULT_EXPIRY_MILLIS = 10 * 60 * 1000L;
+
+    /*
+     * Rough per object overheads used to estimate the size of a page.
+     */
+    private static final int PAGE_OVERHEAD_BYTES = 64;
+    private static final int MOVIE_OVERHEAD_BYTES = 96;
+
+    private static final Object LOCK = new Object();
+    private static MemoryPageCache sInstance;
+
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Clock mClock;
+    private final long mExpiryMillis;
+    private int mMaxSize;
+    private int mSize;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+    private int mExpiredCount;
+
+    /**
+     * Creates a MemoryPageCache.
+     *
+     * @param maxSizeBytes The budget for the estimated size of the cached pages.
+     * @param expiryMillis How long an entry is served after it was put.
+     * @param clock        Source of the current time.
+     */
+    public MemoryPageCache(int maxSizeBytes, long expiryMillis, Clock clock) {
+        mMaxSize = maxSizeBytes;
+        mExpiryMillis = expiryMillis;
+        mClock = clock;
+    }
+
+    /**
+     * @return The process wide cache.
+     */
+    public static MemoryPageCache getInstance() {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                sInstance = new MemoryPageCache(DEFAULT_MAX_SIZE_BYTES, DEFAULT_EXPIRY_MILLIS,
+                        Clock.SYSTEM);
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Builds the cache key of a page.
+     *
+     * @param endpoint The list endpoint, e.g. "popular".
+     * @param page     The 1-based page.
+     * @param variant  The language and region the page was requested in.
+     * @return The key.
+     */
+    public static String key(String endpoint, int page, FeedVariant variant) {
+        return endpoint + '/' + page + '/' + variant.getTag();
+    }
+
+    /**
+     * @return The cached page, or null if it is not cached or has expired.
+     */
+    public MoviePage get(String key) {
+        CachedPage cached = getCached(key);
+        return cached == null ? null : cached.getPage();
+    }
+
+    /**
+     * @return The cached page with its validators and fetch time, or null if it is not cached
+     * or has expired. A page put without them was fetched when it was put.
+     */
+    public synchronized CachedPage getCached(String key) {
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        if (mClock.currentTimeMillis() - entry.mPutAt >= mExpiryMillis) {
+            mEntries.remove(key);
+            mSize -= entry.mSize;
+            mExpiredCount++;
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return entry.mPage;
+    }
+
+    /**
+     * Caches the page, evicting the least recently used pages if needed. A page larger than
+     * the whole budget is not cached.
+     */
+    public void put(String key, MoviePage page) {
+        put(key, new CachedPage(page, null, null, mClock.currentTimeMillis()));
+    }
+
+    /**
+     * Caches the page with its validators and fetch time, see {@link #put(String, MoviePage)}.
+     */
+    public synchronized void put(String key, CachedPage page) {
+        int size = sizeOf(page.getPage());
+        Entry previous = mEntries.remove(key);
+        if (previous != null) {
+            mSize -= previous.mSize;
+        }
+        if (size > mMaxSize) {
+            return;
+        }
+        mEntries.put(key, new Entry(page, size, mClock.currentTimeMillis()));
+        mSize += size;
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Removes every cached page.
+     */
+    public synchronized void evictAll() {
+        mEvictionCount += mEntries.size();
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Changes the budget, evicting pages if the cache is now too big.
+     */
+    public synchronized void resize(int maxSizeBytes) {
+        mMaxSize = maxSizeBytes;
+        trimToSize(maxSizeBytes);
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mSize > maxSize && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            mSize -= eldest.mSize;
+            mEvictionCount++;
+        }
+    }
+
+    /**
+     * Estimates the memory held by a page, counting two bytes per character.
+     */
+    static int sizeOf(MoviePage page) {
+        int size = PAGE_OVERHEAD_BYTES;
+        for (Movie movie : page.getMovies()) {
+            size += MOVIE_OVERHEAD_BYTES
+                    + 2 * (length(movie.getTitle()) + length(movie.getOverview())
+                    + 2 * length(movie.getPosterPath()));
+        }
+        return size;
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public synchronized int maxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized int entryCount() {
+        return mEntries.size();
+    }
+
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    public synchronized int evictionCount() {
+        return mEvictionCount;
+    }
+
+    public synchronized int expiredCount() {
+        return mExpiredCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MemoryPageCache[size=" + mSize + "/" + mMaxSize + ", entries=" + mEntries.size()
+                + ", hits=" + mHitCount + ", misses=" + mMissCount
+                + ", evictions=" + mEvictionCount + ", expired=" + mExpiredCount + "]";
+    }
+
+    private static final class Entry {
+        final CachedPage mPage;
+        final int mSize;
+        final long mPutAt;
+
+        Entry(CachedPage page, int size, long putAt) {
+            mPage = page;
+            mSize = size;
+            mPutAt = putAt;
+        }
+    }
+}
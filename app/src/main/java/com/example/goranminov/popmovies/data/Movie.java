@@ -0,0 +1,216 @@
+package com.example.goranminov.popmovies.data;
+
+/**
+ * Model for a single movie returned by TheMovieDB. Its fields never change.
+ *
+ * Poster URLs are built once per PosterSize and remembered, so the grid can bind a cell
+ * without scanning or concatenating Strings on every scroll. That cache is filled in from
+ * any thread without locking, see {@link #getPosterUrl(PosterSize)}.
+ */
+public final class Movie {
+
+    /*
+     * Value used when TheMovieDB did not give us a (valid) release date.
+     */
+    public static final int NO_RELEASE_DATE = Integer.MIN_VALUE;
+
+    private final int mId;
+    private final String mPosterPath;
+    private final String mTitle;
+    private final String mOverview;
+    private final float mVoteAverage;
+    private final int mReleaseDate;
+
+    /*
+     * Poster URLs by PosterSize ordinal, filled in lazily. A benign race: the array is
+     * published through the final field, and a String is safe to read from any thread, so
+     * a thread that misses another's write only builds the same URL again. Null if the
+     * movie has no poster, or was not built by the constructor, e.g. by Gson.
+     */
+    private final transient String[] mPosterUrls;
+
+    /**
+     * Creates a Movie.
+     *
+     * @param id          TheMovieDB id of the movie.
+     * @param posterPath  Relative poster path, e.g. "/abc.jpg".
+     * @param title       The original title.
+     * @param overview    The plot synopsis.
+     * @param voteAverage The vote average out of 10.
+     * @param releaseDate The release date as days since 1970-01-01, or {@link #NO_RELEASE_DATE}.
+     */
+    public Movie(int id, String posterPath, String title, String overview,
+                 float voteAverage, int releaseDate) {
+        mId = id;
+        mPosterPath = posterPath == null ? null : posterPath.intern();
+        mPosterUrls = posterPath == null ? null : new String[PosterSize.count()];
+        mTitle = title;
+        mOverview = overview;
+        mVoteAverage = voteAverage;
+        mReleaseDate = releaseDate;
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    public String getPosterPath() {
+        return mPosterPath;
+    }
+
+    /**
+     * Safe to call from any thread, the grid, the prefetchers and the sync all do.
+     *
+     * @param size The poster width to request.
+     * @return The full poster URL, or null if the movie has no poster.
+     */
+    public String getPosterUrl(PosterSize size) {
+        if (mPosterPath == null) {
+            return null;
+        }
+        if (mPosterUrls == null) {
+            return size.getBaseUrl() + stripSlash(mPosterPath);
+        }
+        String url = mPosterUrls[size.ordinal()];
+        if (url == null) {
+            url = size.getBaseUrl() + stripSlash(mPosterPath);
+            mPosterUrls[size.ordinal()] = url;
+        }
+        return url;
+    }
+
+    /**
+     * @return The poster file name, the last segment of its URLs in every size, or null if
+     * the movie has no poster.
+     */
+    public String getPosterFileName() {
+        return mPosterPath == null ? null : stripSlash(mPosterPath);
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public String getOverview() {
+        return mOverview;
+    }
+
+    public float getVoteAverage() {
+        return mVoteAverage;
+    }
+
+    /**
+     * @return The release date as days since 1970-01-01, or {@link #NO_RELEASE_DATE}.
+     */
+    public int getReleaseDate() {
+        return mReleaseDate;
+    }
+
+    /**
+     * @return The release year, or {@link #NO_RELEASE_DATE} if it is not known.
+     */
+    public int getReleaseYear() {
+        if (mReleaseDate == NO_RELEASE_DATE) {
+            return NO_RELEASE_DATE;
+        }
+        return yearFromEpochDay(mReleaseDate);
+    }
+
+    /**
+     * Parse a "yyyy-MM-dd" date as returned by TheMovieDB into days since 1970-01-01.
+     *
+     * @param date The date String, can be null or empty.
+     * @return The epoch day or {@link #NO_RELEASE_DATE} if the String can't be parsed.
+     */
+    public static int parseEpochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return NO_RELEASE_DATE;
+        }
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 5, 7);
+        int day = parseDigits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return NO_RELEASE_DATE;
+        }
+        return epochDay(year, month, day);
+    }
+
+    /*
+     * Days from civil date, see http://howardhinnant.github.io/date_algorithms.html
+     */
+    static int epochDay(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /*
+     * Civil year from days, the inverse of epochDay.
+     */
+    static int yearFromEpochDay(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthPart = (5 * dayOfYear + 2) / 153;
+        int month = monthPart < 10 ? monthPart + 3 : monthPart - 9;
+        return yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    }
+
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static String stripSlash(String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Movie)) {
+            return false;
+        }
+        Movie other = (Movie) o;
+        return mId == other.mId
+                && Float.compare(mVoteAverage, other.mVoteAverage) == 0
+                && mReleaseDate == other.mReleaseDate
+                && equal(mPosterPath, other.mPosterPath)
+                && equal(mTitle, other.mTitle)
+                && equal(mOverview, other.mOverview);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mId;
+        result = 31 * result + (mPosterPath != null ? mPosterPath.hashCode() : 0);
+        result = 31 * result + (mTitle != null ? mTitle.hashCode() : 0);
+        result = 31 * result + (mOverview != null ? mOverview.hashCode() : 0);
+        result = 31 * result + Float.floatToIntBits(mVoteAverage);
+        result = 31 * result + mReleaseDate;
+        return result;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public String toString() {
+        return "Movie{" + mId + ", " + mTitle + "}";
+    }
+}
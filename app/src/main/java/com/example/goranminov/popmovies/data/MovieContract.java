@@ -0,0 +1,60 @@
+package com.example.goranminov.popmovies.data;
+
+import android.provider.BaseColumns;
+
+/**
+ * Defines table and column names for the movie catalog database.
+ */
+public class MovieContract {
+
+    private MovieContract() {
+    }
+
+    /*
+     * Inner class that defines the table contents of the pages table. There is one row per
+     * page of each sort order. The sort order columns hold the list partitioned by its
+     * FeedVariant, e.g. "popular@de-DE".
+     */
+    public static final class PageEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "pages";
+
+        public static final String COLUMN_SORT_ORDER = "sort_order";
+        public static final String COLUMN_PAGE = "page";
+        public static final String COLUMN_TOTAL_PAGES = "total_pages";
+        public static final String COLUMN_ETAG = "etag";
+        public static final String COLUMN_LAST_MODIFIED = "last_modified";
+        public static final String COLUMN_FETCHED_AT = "fetched_at";
+    }
+
+    /*
+     * Inner class that defines the table contents of the movies table. There is one row per
+     * movie on each stored page.
+     */
+    public static final class MovieEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "movies";
+
+        public static final String COLUMN_SORT_ORDER = "sort_order";
+        public static final String COLUMN_PAGE = "page";
+        public static final String COLUMN_POSITION = "position";
+        public static final String COLUMN_MOVIE_ID = "movie_id";
+        public static final String COLUMN_POSTER_PATH = "poster_path";
+        public static final String COLUMN_TITLE = "title";
+        public static final String COLUMN_OVERVIEW = "overview";
+        public static final String COLUMN_VOTE_AVERAGE = "vote_average";
+        public static final String COLUMN_RELEASE_DATE = "release_date";
+    }
+
+    /*
+     * Inner class that defines the table contents of the posters table. There is one row per
+     * poster file whose placeholder was computed, shared by every movie row showing it.
+     */
+    public static final class PosterEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "posters";
+
+        public static final String COLUMN_FILE_NAME = "file_name";
+        public static final String COLUMN_BLUR_HASH = "blur_hash";
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.goranminov.popmovies.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.goranminov.popmovies.data.MovieContract.MovieEntry;
+import com.example.goranminov.popmovies.data.MovieContract.PageEntry;
+import com.example.goranminov.popmovies.data.MovieContract.PosterEntry;
+
+/**
+ * Manages a local database for the movie catalog.
+ */
+public class MovieDbHelper extends SQLiteOpenHelper {
+
+    public static final String DATABASE_NAME = "movies.db";
+
+    /*
+     * If you change the database schema, you must increment the database version. Version 3
+     * partitions the pages by FeedVariant, the pages stored without one are dropped.
+     */
+    private static final int DATABASE_VERSION = 3;
+
+    /**
+     * Creates a MovieDbHelper.
+     *
+     * @param context The Context used to open the database.
+     * @param name    The database file name, or null for an in-memory database.
+     */
+    public MovieDbHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    public MovieDbHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase sqLiteDatabase) {
+
+        final String SQL_CREATE_PAGES_TABLE =
+                "CREATE TABLE " + PageEntry.TABLE_NAME + " (" +
+                        PageEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        PageEntry.COLUMN_SORT_ORDER + " TEXT NOT NULL, " +
+                        PageEntry.COLUMN_PAGE + " INTEGER NOT NULL, " +
+                        PageEntry.COLUMN_TOTAL_PAGES + " INTEGER NOT NULL, " +
+                        PageEntry.COLUMN_ETAG + " TEXT, " +
+                        PageEntry.COLUMN_LAST_MODIFIED + " TEXT, " +
+                        PageEntry.COLUMN_FETCHED_AT + " INTEGER NOT NULL, " +
+                        " UNIQUE (" + PageEntry.COLUMN_SORT_ORDER + ", " + PageEntry.COLUMN_PAGE +
+                        ") ON CONFLICT REPLACE);";
+
+        final String SQL_CREATE_MOVIES_TABLE =
+                "CREATE TABLE " + MovieEntry.TABLE_NAME + " (" +
+                        MovieEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        MovieEntry.COLUMN_SORT_ORDER + " TEXT NOT NULL, " +
+                        MovieEntry.COLUMN_PAGE + " INTEGER NOT NULL, " +
+                        MovieEntry.COLUMN_POSITION + " INTEGER NOT NULL, " +
+                        MovieEntry.COLUMN_MOVIE_ID + " INTEGER NOT NULL, " +
+                        MovieEntry.COLUMN_POSTER_PATH + " TEXT, " +
+                        MovieEntry.COLUMN_TITLE + " TEXT, " +
+                        MovieEntry.COLUMN_OVERVIEW + " TEXT, " +
+                        MovieEntry.COLUMN_VOTE_AVERAGE + " REAL NOT NULL, " +
+                        MovieEntry.COLUMN_RELEASE_DATE + " INTEGER NOT NULL, " +
+                        " UNIQUE (" + MovieEntry.COLUMN_SORT_ORDER + ", " + MovieEntry.COLUMN_PAGE +
+                        ", " + MovieEntry.COLUMN_POSITION + ") ON CONFLICT REPLACE);";
+
+        final String SQL_CREATE_POSTERS_TABLE =
+                "CREATE TABLE " + PosterEntry.TABLE_NAME + " (" +
+                        PosterEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        PosterEntry.COLUMN_FILE_NAME + " TEXT NOT NULL, " +
+                        PosterEntry.COLUMN_BLUR_HASH + " TEXT NOT NULL, " +
+                        " UNIQUE (" + PosterEntry.COLUMN_FILE_NAME + ") ON CONFLICT REPLACE);";
+
+        sqLiteDatabase.execSQL(SQL_CREATE_PAGES_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_MOVIES_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_POSTERS_TABLE);
+    }
+
+    /*
+     * The catalog is only a cache of TheMovieDB, so on upgrade we simply drop it.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + PageEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + MovieEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + PosterEntry.TABLE_NAME);
+        onCreate(sqLiteDatabase);
+    }
+}
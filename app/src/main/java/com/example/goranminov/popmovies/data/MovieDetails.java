@@ -0,0 +1,195 @@
+package com.example.goranminov.popmovies.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What the detail screen shows on top of the Movie of the grid: runtime, genres, videos,
+ * reviews and cast, all fetched with a single /movie/{id} request.
+ *
+ * The response is decoded section by section, so a MovieDetails can be partial: the
+ * sections it has are given by {@link #hasSection(int)}, the getters of the others return
+ * empty values. Instances are immutable.
+ */
+public final class MovieDetails {
+
+    /*
+     * The sections of the response, in the order TheMovieDB sends them.
+     */
+    public static final int SECTION_INFO = 1;
+    public static final int SECTION_VIDEOS = 1 << 1;
+    public static final int SECTION_REVIEWS = 1 << 2;
+    public static final int SECTION_CREDITS = 1 << 3;
+    public static final int ALL_SECTIONS =
+            SECTION_INFO | SECTION_VIDEOS | SECTION_REVIEWS | SECTION_CREDITS;
+
+    // Value of the runtime when TheMovieDB doesn't know it.
+    public static final int NO_RUNTIME = 0;
+
+    private final int mMovieId;
+    private final int mSections;
+    private final int mRuntime;
+    private final String mTagline;
+    private final List<String> mGenres;
+    private final List<Video> mVideos;
+    private final List<Review> mReviews;
+    private final List<CastMember> mCast;
+
+    public MovieDetails(int movieId, int sections, int runtime, String tagline,
+                        List<String> genres, List<Video> videos, List<Review> reviews,
+                        List<CastMember> cast) {
+        mMovieId = movieId;
+        mSections = sections;
+        mRuntime = runtime;
+        mTagline = tagline;
+        mGenres = unmodifiable(genres);
+        mVideos = unmodifiable(videos);
+        mReviews = unmodifiable(reviews);
+        mCast = unmodifiable(cast);
+    }
+
+    private static <T> List<T> unmodifiable(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : Collections.unmodifiableList(list);
+    }
+
+    public int getMovieId() {
+        return mMovieId;
+    }
+
+    /**
+     * @param section One of the SECTION_ constants.
+     * @return True if the section was decoded.
+     */
+    public boolean hasSection(int section) {
+        return (mSections & section) == section;
+    }
+
+    /**
+     * @return True if every section was decoded.
+     */
+    public boolean isComplete() {
+        return hasSection(ALL_SECTIONS);
+    }
+
+    public int getSections() {
+        return mSections;
+    }
+
+    /**
+     * @return The runtime in minutes, or {@link #NO_RUNTIME}.
+     */
+    public int getRuntime() {
+        return mRuntime;
+    }
+
+    public String getTagline() {
+        return mTagline;
+    }
+
+    public List<String> getGenres() {
+        return mGenres;
+    }
+
+    public List<Video> getVideos() {
+        return mVideos;
+    }
+
+    public List<Review> getReviews() {
+        return mReviews;
+    }
+
+    public List<CastMember> getCast() {
+        return mCast;
+    }
+
+    /**
+     * A trailer, teaser or clip of the movie.
+     */
+    public static final class Video {
+
+        private static final String YOUTUBE = "YouTube";
+        private static final String YOUTUBE_URL = "https://www.youtube.com/watch?v=";
+
+        private final String mKey;
+        private final String mName;
+        private final String mSite;
+        private final String mType;
+
+        public Video(String key, String name, String site, String type) {
+            mKey = key;
+            mName = name;
+            mSite = site;
+            mType = type;
+        }
+
+        public String getKey() {
+            return mKey;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public String getSite() {
+            return mSite;
+        }
+
+        /**
+         * @return The kind of video, e.g. "Trailer" or "Teaser".
+         */
+        public String getType() {
+            return mType;
+        }
+
+        /**
+         * @return The URL to watch the video, or null if it isn't hosted on YouTube.
+         */
+        public String getWatchUrl() {
+            return YOUTUBE.equals(mSite) && mKey != null ? YOUTUBE_URL + mKey : null;
+        }
+    }
+
+    /**
+     * A review of the movie by a TheMovieDB user.
+     */
+    public static final class Review {
+
+        private final String mAuthor;
+        private final String mContent;
+
+        public Review(String author, String content) {
+            mAuthor = author;
+            mContent = content;
+        }
+
+        public String getAuthor() {
+            return mAuthor;
+        }
+
+        public String getContent() {
+            return mContent;
+        }
+    }
+
+    /**
+     * An actor of the movie and the character played.
+     */
+    public static final class CastMember {
+
+        private final String mName;
+        private final String mCharacter;
+
+        public CastMember(String name, String character) {
+            mName = name;
+            mCharacter = character;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public String getCharacter() {
+            return mCharacter;
+        }
+    }
+}
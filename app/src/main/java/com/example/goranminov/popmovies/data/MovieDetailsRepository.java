@@ -0,0 +1,259 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.MovieJsonUtils;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
+import com.example.goranminov.popmovies.utilities.RateLimiter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads and caches the MovieDetails of the detail screen.
+ *
+ * The details of a movie come from a single /movie/{id} request appending its videos, reviews
+ * and credits. The response is decoded as it streams in, and the listeners get the details
+ * again after each section, so the screen fills in section by section instead of waiting for
+ * the whole body. Complete details are kept in a small LRU cache by movie id.
+ *
+ * The grid prefetches the movies the user is likely to open, so the detail screen usually
+ * finds them cached. Prefetches run on their own Executor, so they never hold up the page
+ * requests; a movie opened while its prefetch is still queued is requested right away, and
+ * one opened while its prefetch is running joins it.
+ *
+ * All the public methods must be called on the thread behind the main Executor, which is
+ * also the thread the Listeners are called on.
+ */
+public class MovieDetailsRepository {
+
+    /**
+     * Receives the details of a movie as they load.
+     */
+    public interface Listener {
+        /**
+         * @param details The details decoded so far, complete the last time.
+         */
+        void onDetailsLoaded(MovieDetails details);
+
+        void onDetailsFailed(int movieId, IOException e);
+    }
+
+    private final ApiClient mClient;
+    private final String mBaseUrl;
+    private final String mApiKey;
+    private final Executor mNetworkExecutor;
+    private final Executor mPrefetchExecutor;
+    private final Executor mMainExecutor;
+    private FeedVariant mVariant;
+
+    private final LinkedHashMap<Integer, MovieDetails> mCache;
+    private final Map<Integer, Request> mRequests = new HashMap<>();
+
+    /**
+     * Creates a MovieDetailsRepository.
+     *
+     * @param client           The client used to make the requests.
+     * @param baseUrl          The base URL ending with a slash, normally
+     *                         NetworkUtils.MDB_BASE_URL.
+     * @param apiKey           The TheMovieDB API key.
+     * @param variant          The language the details are requested in.
+     * @param maxEntries       How many movies are cached.
+     * @param networkExecutor  Executor the requests of the detail screen are made on.
+     * @param prefetchExecutor Executor the prefetches are made on.
+     * @param mainExecutor     Executor the details are delivered on.
+     */
+    public MovieDetailsRepository(ApiClient client, String baseUrl, String apiKey,
+                                  FeedVariant variant, final int maxEntries, Executor networkExecutor,
+                                  Executor prefetchExecutor, Executor mainExecutor) {
+        mClient = client;
+        mBaseUrl = baseUrl;
+        mApiKey = apiKey;
+        mVariant = variant;
+        mNetworkExecutor = networkExecutor;
+        mPrefetchExecutor = prefetchExecutor;
+        mMainExecutor = mainExecutor;
+        mCache = new LinkedHashMap<Integer, MovieDetails>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, MovieDetails> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return The complete details of the movie, or null if they are not cached.
+     */
+    public MovieDetails getCached(int movieId) {
+        return mCache.get(movieId);
+    }
+
+    /**
+     * Loads the details of a movie. The listener gets what is already decoded right away,
+     * then each new section, or the failure of the request.
+     *
+     * @param movieId  The TheMovieDB id of the movie.
+     * @param listener Receives the details until it is removed.
+     */
+    public void load(int movieId, Listener listener) {
+        MovieDetails cached = mCache.get(movieId);
+        if (cached != null) {
+            listener.onDetailsLoaded(cached);
+            return;
+        }
+        Request request = mRequests.get(movieId);
+        if (request == null) {
+            request = new Request(movieId, RateLimiter.Priority.VISIBLE);
+            mRequests.put(movieId, request);
+        } else {
+            if (request.mLatest != null) {
+                listener.onDetailsLoaded(request.mLatest);
+            }
+            if (request.mPriority != RateLimiter.Priority.VISIBLE) {
+                // The prefetch may be waiting behind the rate limit.
+                request.mPriority = RateLimiter.Priority.VISIBLE;
+                mClient.onPriorityRaised();
+            }
+        }
+        request.mListeners.add(listener);
+        // Whichever of the two Executors gets to it first makes the request.
+        mNetworkExecutor.execute(request);
+    }
+
+    /**
+     * Stops delivering the details of the movie to the listener.
+     */
+    public void removeListener(int movieId, Listener listener) {
+        Request request = mRequests.get(movieId);
+        if (request != null) {
+            request.mListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Loads the details of a movie in the background, unless they are cached or loading.
+     *
+     * @param movieId The TheMovieDB id of the movie.
+     */
+    public void prefetch(int movieId) {
+        if (mCache.containsKey(movieId) || mRequests.containsKey(movieId)) {
+            return;
+        }
+        Request request = new Request(movieId, RateLimiter.Priority.PREFETCH);
+        mRequests.put(movieId, request);
+        mPrefetchExecutor.execute(request);
+    }
+
+    /**
+     * @return True if the details of the movie are being requested.
+     */
+    public boolean isLoading(int movieId) {
+        return mRequests.containsKey(movieId);
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public void evictAll() {
+        mCache.clear();
+    }
+
+    /**
+     * Requests the details in another language from now on. The cached details and the
+     * requests in flight are for the previous one, so they are dropped.
+     */
+    public void setVariant(FeedVariant variant) {
+        if (variant.equals(mVariant)) {
+            return;
+        }
+        mVariant = variant;
+        mCache.clear();
+        mRequests.clear();
+    }
+
+    public FeedVariant getVariant() {
+        return mVariant;
+    }
+
+    private void onSectionDecoded(Request request, MovieDetails details) {
+        request.mLatest = details;
+        // A request dropped by setVariant() only reaches the listeners it already had.
+        if (details.isComplete() && mRequests.get(request.mMovieId) == request) {
+            mRequests.remove(request.mMovieId);
+            mCache.put(request.mMovieId, details);
+        }
+        for (Listener listener : new ArrayList<>(request.mListeners)) {
+            listener.onDetailsLoaded(details);
+        }
+    }
+
+    private void onFailed(Request request, IOException e) {
+        if (mRequests.get(request.mMovieId) == request) {
+            mRequests.remove(request.mMovieId);
+        }
+        for (Listener listener : new ArrayList<>(request.mListeners)) {
+            listener.onDetailsFailed(request.mMovieId, e);
+        }
+    }
+
+    /*
+     * The request of a movie, run once even if it was handed to both Executors. The
+     * listeners and the latest details are only touched on the main thread. A prefetch
+     * becomes visible once the detail screen loads it.
+     */
+    private final class Request implements Runnable, MovieJsonUtils.SectionListener,
+            RateLimiter.Ticket {
+        final int mMovieId;
+        final FeedVariant mVariant;
+        final List<Listener> mListeners = new ArrayList<>();
+        final AtomicBoolean mStarted = new AtomicBoolean();
+        volatile RateLimiter.Priority mPriority;
+        MovieDetails mLatest;
+
+        Request(int movieId, RateLimiter.Priority priority) {
+            mMovieId = movieId;
+            // Read on the main thread, the request runs on another one.
+            mVariant = MovieDetailsRepository.this.mVariant;
+            mPriority = priority;
+        }
+
+        @Override
+        public RateLimiter.Priority getPriority() {
+            return mPriority;
+        }
+
+        @Override
+        public void run() {
+            if (!mStarted.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                NetworkUtils.getMovieDetails(mClient,
+                        NetworkUtils.buildMovieDetailsUrl(mBaseUrl, mApiKey, mMovieId, mVariant),
+                        this, this);
+            } catch (final IOException e) {
+                mMainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFailed(Request.this, e);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onSectionDecoded(final MovieDetails details) {
+            mMainExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    MovieDetailsRepository.this.onSectionDecoded(Request.this, details);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.goranminov.popmovies.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A movie list as the grid shows it: its sort order and its sections. A single list is one
+ * section, named after its sort order. Encoded by MovieListCodec.
+ */
+public final class MovieList {
+
+    private final String mSortOrder;
+    private final List<HomeSection> mSections;
+
+    /**
+     * Creates a MovieList.
+     *
+     * @param sortOrder The sort order shown, MovieListModel.SORT_HOME for the home grid.
+     * @param sections  The sections shown, or a single one for a single list.
+     */
+    public MovieList(String sortOrder, List<HomeSection> sections) {
+        mSortOrder = sortOrder;
+        mSections = Collections.unmodifiableList(new ArrayList<>(sections));
+    }
+
+    public String getSortOrder() {
+        return mSortOrder;
+    }
+
+    public List<HomeSection> getSections() {
+        return mSections;
+    }
+
+    /**
+     * @return The movies of all the sections, in grid order.
+     */
+    public List<Movie> getMovies() {
+        List<Movie> movies = new ArrayList<>();
+        for (HomeSection section : mSections) {
+            movies.addAll(section.getMovies());
+        }
+        return movies;
+    }
+
+    /**
+     * @return The list cut to its first movies, in grid order, the sections left empty
+     * dropped.
+     */
+    public MovieList first(int maxMovies) {
+        List<HomeSection> sections = new ArrayList<>();
+        int remaining = maxMovies;
+        for (HomeSection section : mSections) {
+            if (remaining == 0) {
+                break;
+            }
+            List<Movie> movies = section.getMovies();
+            if (movies.isEmpty()) {
+                continue;
+            }
+            if (movies.size() > remaining) {
+                movies = movies.subList(0, remaining);
+            }
+            sections.add(new HomeSection(section.getFeed(), movies));
+            remaining -= movies.size();
+        }
+        return new MovieList(mSortOrder, sections);
+    }
+}
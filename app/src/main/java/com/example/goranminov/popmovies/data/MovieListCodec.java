@@ -0,0 +1,281 @@
+package com.example.goranminov.popmovies.data;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary encoding of a MovieList, used for the saved instance state of the
+ * grid, the GridSnapshot file and the movie handed to the detail screen.
+ *
+ * The movies are written once each in a movie table, the sections list their movies by index
+ * in that table: the home grid shows some movies in several sections. Strings are UTF-8
+ * prefixed with their length, numbers are varints, vote averages raw floats.
+ *
+ * <pre>
+ * int     magic "PMML"
+ * varint  version
+ * string  sort order
+ * varint  movie count, then per movie:
+ *         varint id, string poster path, string title, string overview,
+ *         float vote average, zigzag varint release date
+ * varint  section count, then per section:
+ *         string feed, varint movie count, varint movie table index per movie
+ * </pre>
+ *
+ * A string is a varint of its UTF-8 length plus one, 0 being null, then its bytes.
+ *
+ * The list is encoded to and decoded from a byte array directly, without the per byte
+ * overhead of the streams: a page of movies takes a few microseconds either way.
+ */
+public final class MovieListCodec {
+
+    static final int MAGIC = 0x504d4d4c;
+    static final int VERSION = 1;
+
+    // A corrupt length larger than these is rejected before anything is allocated.
+    private static final int MAX_COUNT = 64 * 1024;
+    private static final int MAX_STRING_BYTES = 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private MovieListCodec() {
+    }
+
+    /**
+     * @return The encoded list, see the class comment for the format.
+     */
+    public static byte[] encode(MovieList list) {
+        Writer out = new Writer(estimateSize(list));
+        out.writeInt(MAGIC);
+        out.writeVarint(VERSION);
+        out.writeString(list.getSortOrder());
+
+        Map<Integer, Integer> indexes = new HashMap<>();
+        List<Movie> table = new ArrayList<>();
+        for (HomeSection section : list.getSections()) {
+            for (Movie movie : section.getMovies()) {
+                if (!indexes.containsKey(movie.getId())) {
+                    indexes.put(movie.getId(), table.size());
+                    table.add(movie);
+                }
+            }
+        }
+        out.writeVarint(table.size());
+        for (Movie movie : table) {
+            out.writeVarint(movie.getId());
+            out.writeString(movie.getPosterPath());
+            out.writeString(movie.getTitle());
+            out.writeString(movie.getOverview());
+            out.writeInt(Float.floatToIntBits(movie.getVoteAverage()));
+            // NO_RELEASE_DATE is negative, zigzag keeps it 5 bytes instead of 10.
+            int releaseDate = movie.getReleaseDate();
+            out.writeVarint((releaseDate << 1) ^ (releaseDate >> 31));
+        }
+
+        out.writeVarint(list.getSections().size());
+        for (HomeSection section : list.getSections()) {
+            out.writeString(section.getFeed());
+            out.writeVarint(section.getMovies().size());
+            for (Movie movie : section.getMovies()) {
+                out.writeVarint(indexes.get(movie.getId()));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a list encoded by {@link #encode(MovieList)}.
+     *
+     * @throws IOException If the bytes are truncated or not a list of a supported version.
+     */
+    public static MovieList decode(byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a movie list");
+        }
+        int version = in.readVarint();
+        if (version != VERSION) {
+            throw new IOException("Unsupported movie list version " + version);
+        }
+        String sortOrder = in.readString();
+
+        int movieCount = in.readCount();
+        Movie[] table = new Movie[movieCount];
+        for (int i = 0; i < movieCount; i++) {
+            int id = in.readVarint();
+            String posterPath = in.readString();
+            String title = in.readString();
+            String overview = in.readString();
+            float voteAverage = Float.intBitsToFloat(in.readInt());
+            int zigzag = in.readVarint();
+            table[i] = new Movie(id, posterPath, title, overview, voteAverage,
+                    (zigzag >>> 1) ^ -(zigzag & 1));
+        }
+
+        int sectionCount = in.readCount();
+        List<HomeSection> sections = new ArrayList<>(sectionCount);
+        for (int i = 0; i < sectionCount; i++) {
+            String feed = in.readString();
+            int count = in.readCount();
+            List<Movie> movies = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                int index = in.readVarint();
+                if (index < 0 || index >= movieCount) {
+                    throw new IOException("Invalid movie index " + index);
+                }
+                movies.add(table[index]);
+            }
+            sections.add(new HomeSection(feed, movies));
+        }
+        if (in.remaining() != 0) {
+            throw new IOException(in.remaining() + " bytes after the movie list");
+        }
+        return new MovieList(sortOrder, sections);
+    }
+
+    /*
+     * Close to the encoded size for ASCII text, so the buffer is rarely grown.
+     */
+    private static int estimateSize(MovieList list) {
+        int size = 64;
+        for (HomeSection section : list.getSections()) {
+            size += 16;
+            for (Movie movie : section.getMovies()) {
+                size += 24 + length(movie.getPosterPath()) + length(movie.getTitle())
+                        + length(movie.getOverview());
+            }
+        }
+        return size;
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    /*
+     * Appends to a byte array, grown as needed.
+     */
+    private static final class Writer {
+
+        private byte[] mBytes;
+        private int mLength;
+
+        Writer(int capacity) {
+            mBytes = new byte[capacity];
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            mBytes[mLength++] = (byte) (value >>> 24);
+            mBytes[mLength++] = (byte) (value >>> 16);
+            mBytes[mLength++] = (byte) (value >>> 8);
+            mBytes[mLength++] = (byte) value;
+        }
+
+        /*
+         * Seven bits per byte, low bits first, the high bit set on every byte but the last.
+         */
+        void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7f) != 0) {
+                mBytes[mLength++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mLength++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarint(bytes.length + 1);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, mBytes, mLength, bytes.length);
+            mLength += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return mLength == mBytes.length ? mBytes : Arrays.copyOf(mBytes, mLength);
+        }
+
+        private void ensureCapacity(int count) {
+            if (mLength + count > mBytes.length) {
+                mBytes = Arrays.copyOf(mBytes, Math.max(mBytes.length * 2, mLength + count));
+            }
+        }
+    }
+
+    /*
+     * Reads a byte array, any read past its end failing with an IOException.
+     */
+    private static final class Reader {
+
+        private final byte[] mBytes;
+        private int mPosition;
+
+        Reader(byte[] bytes) {
+            mBytes = bytes;
+        }
+
+        int remaining() {
+            return mBytes.length - mPosition;
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            return (mBytes[mPosition++] & 0xff) << 24
+                    | (mBytes[mPosition++] & 0xff) << 16
+                    | (mBytes[mPosition++] & 0xff) << 8
+                    | (mBytes[mPosition++] & 0xff);
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                require(1);
+                int b = mBytes[mPosition++];
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String readString() throws IOException {
+            int length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (length < 0 || length > MAX_STRING_BYTES) {
+                throw new IOException("Invalid string length " + length);
+            }
+            require(length);
+            String value = new String(mBytes, mPosition, length, UTF_8);
+            mPosition += length;
+            return value;
+        }
+
+        int readCount() throws IOException {
+            int count = readVarint();
+            if (count < 0 || count > MAX_COUNT) {
+                throw new IOException("Invalid count " + count);
+            }
+            return count;
+        }
+
+        private void require(int count) throws IOException {
+            if (count > mBytes.length - mPosition) {
+                throw new IOException("Truncated movie list");
+            }
+        }
+    }
+}
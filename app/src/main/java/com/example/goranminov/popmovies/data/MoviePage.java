@@ -0,0 +1,46 @@
+package com.example.goranminov.popmovies.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a TheMovieDB list response.
+ */
+public final class MoviePage {
+
+    private final int mPage;
+    private final int mTotalPages;
+    private final List<Movie> mMovies;
+
+    /**
+     * Creates a MoviePage.
+     *
+     * @param page       The 1-based page number.
+     * @param totalPages The total number of pages available for the list.
+     * @param movies     The movies on this page.
+     */
+    public MoviePage(int page, int totalPages, List<Movie> movies) {
+        mPage = page;
+        mTotalPages = totalPages;
+        mMovies = Collections.unmodifiableList(movies);
+    }
+
+    public int getPage() {
+        return mPage;
+    }
+
+    public int getTotalPages() {
+        return mTotalPages;
+    }
+
+    public List<Movie> getMovies() {
+        return mMovies;
+    }
+
+    /**
+     * @return True if there are more pages after this one.
+     */
+    public boolean hasNextPage() {
+        return mPage < mTotalPages;
+    }
+}
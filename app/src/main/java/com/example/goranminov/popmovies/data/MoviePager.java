@@ -0,0 +1,309 @@
+package com.example.goranminov.popmovies.data;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the pages of one TheMovieDB list on demand while the user scrolls.
+ *
+ * The pager keeps a window of at most maxPages consecutive pages. When the user nears the end
+ * of the window the next page is prefetched, and when the window grows beyond the cap the
+ * page furthest from the scroll position is dropped again. Scrolling back towards a dropped
+ * page loads it again. A page is never requested twice while a request for it is in flight.
+ *
+ * All the public methods must be called on the thread behind the main Executor, which is
+ * also the thread the Listener is called on.
+ */
+public class MoviePager {
+
+    /**
+     * Fetches one page of a movie list, called on the background Executor.
+     *
+     * A source may answer with a cached copy of the page and revalidate it in the
+     * background, in which case the fresh page is handed to the RefreshCallback later,
+     * on any thread.
+     */
+    public interface PageSource {
+        MoviePage loadPage(String sortOrder, int page, RefreshCallback refreshCallback)
+                throws IOException;
+    }
+
+    /**
+     * Receives pages that changed after they were first loaded.
+     */
+    public interface RefreshCallback {
+        void onPageRefreshed(MoviePage page);
+    }
+
+    /**
+     * Receives the changes to the flat list of movies held by the pager.
+     */
+    public interface Listener {
+        void onMoviesInserted(int position, List<Movie> movies);
+
+        void onMoviesRemoved(int position, int count);
+
+        void onLoadFailed(int page, IOException e);
+    }
+
+    private static final int UNKNOWN = -1;
+
+    private final String mSortOrder;
+    private final PageSource mPageSource;
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainExecutor;
+    private final Listener mListener;
+    private final int mPrefetchDistance;
+    private final int mMaxPages;
+
+    private final ArrayDeque<LoadedPage> mPages = new ArrayDeque<>();
+    private final Set<Integer> mInFlight = new HashSet<>();
+    private final Set<Integer> mLoadedIds = new HashSet<>();
+    private int mItemCount;
+    private int mTotalPages = UNKNOWN;
+    private volatile boolean mReleased;
+
+    private final RefreshCallback mRefreshCallback = new RefreshCallback() {
+        @Override
+        public void onPageRefreshed(final MoviePage page) {
+            mMainExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    replacePage(page);
+                }
+            });
+        }
+    };
+
+    /**
+     * Creates a MoviePager.
+     *
+     * @param sortOrder          The list to page through, e.g. "popular".
+     * @param pageSource         Used to fetch the pages.
+     * @param backgroundExecutor Executor the pages are fetched on.
+     * @param mainExecutor       Executor the results are delivered on.
+     * @param listener           Receives the list changes.
+     * @param prefetchDistance   How many items before the end of the window the next page is requested.
+     * @param maxPages           The maximum number of pages kept in memory.
+     */
+    public MoviePager(String sortOrder, PageSource pageSource, Executor backgroundExecutor,
+                      Executor mainExecutor, Listener listener, int prefetchDistance, int maxPages) {
+        if (maxPages < 2) {
+            throw new IllegalArgumentException("maxPages must be at least 2");
+        }
+        mSortOrder = sortOrder;
+        mPageSource = pageSource;
+        mBackgroundExecutor = backgroundExecutor;
+        mMainExecutor = mainExecutor;
+        mListener = listener;
+        mPrefetchDistance = prefetchDistance;
+        mMaxPages = maxPages;
+    }
+
+    public String getSortOrder() {
+        return mSortOrder;
+    }
+
+    /**
+     * Requests the first page if nothing has been loaded yet.
+     */
+    public void loadInitial() {
+        if (mPages.isEmpty()) {
+            requestPage(1);
+        }
+    }
+
+    /**
+     * Tells the pager which adapter positions are visible, so it can prefetch the pages
+     * around them.
+     *
+     * @param firstVisible The first visible adapter position.
+     * @param lastVisible  The last visible adapter position.
+     */
+    public void onScrolled(int firstVisible, int lastVisible) {
+        if (mPages.isEmpty()) {
+            loadInitial();
+            return;
+        }
+        if (lastVisible >= mItemCount - 1 - mPrefetchDistance) {
+            requestPage(mPages.peekLast().mPage + 1);
+        }
+        if (firstVisible <= mPrefetchDistance) {
+            requestPage(mPages.peekFirst().mPage - 1);
+        }
+    }
+
+    /**
+     * Stops delivering results and skips the requests that haven't started yet, used when
+     * the list is no longer displayed.
+     */
+    public void release() {
+        mReleased = true;
+    }
+
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    public int getLoadedPageCount() {
+        return mPages.size();
+    }
+
+    /**
+     * @return The number of the first page held in memory, or -1 if nothing is loaded.
+     */
+    public int getFirstLoadedPage() {
+        return mPages.isEmpty() ? UNKNOWN : mPages.peekFirst().mPage;
+    }
+
+    /**
+     * @return True while at least one page request is in flight.
+     */
+    public boolean isLoading() {
+        return !mInFlight.isEmpty();
+    }
+
+    private void requestPage(final int page) {
+        if (mReleased || page < 1 || (mTotalPages != UNKNOWN && page > mTotalPages)
+                || mInFlight.contains(page) || isLoaded(page)) {
+            return;
+        }
+        mInFlight.add(page);
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Don't fetch for a pager that was released while the request was queued.
+                if (mReleased) {
+                    mMainExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            mInFlight.remove(page);
+                        }
+                    });
+                    return;
+                }
+                try {
+                    final MoviePage result = mPageSource.loadPage(mSortOrder, page, mRefreshCallback);
+                    mMainExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPageLoaded(page, result);
+                        }
+                    });
+                } catch (final IOException e) {
+                    mMainExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            mInFlight.remove(page);
+                            if (!mReleased) {
+                                mListener.onLoadFailed(page, e);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private boolean isLoaded(int page) {
+        return !mPages.isEmpty()
+                && page >= mPages.peekFirst().mPage && page <= mPages.peekLast().mPage;
+    }
+
+    private void onPageLoaded(int page, MoviePage result) {
+        mInFlight.remove(page);
+        if (mReleased) {
+            return;
+        }
+        mTotalPages = result.getTotalPages();
+
+        boolean append = mPages.isEmpty() || page == mPages.peekLast().mPage + 1;
+        boolean prepend = !append && page == mPages.peekFirst().mPage - 1;
+        if (!append && !prepend) {
+            // The window moved away while the page was loading.
+            return;
+        }
+
+        List<Movie> movies = keepNewMovies(result);
+        LoadedPage loadedPage = new LoadedPage(page, movies);
+
+        if (append) {
+            int position = mItemCount;
+            mPages.addLast(loadedPage);
+            mItemCount += movies.size();
+            mListener.onMoviesInserted(position, movies);
+            while (mPages.size() > mMaxPages) {
+                LoadedPage dropped = mPages.removeFirst();
+                forget(dropped);
+                mListener.onMoviesRemoved(0, dropped.mMovies.size());
+            }
+        } else {
+            mPages.addFirst(loadedPage);
+            mItemCount += movies.size();
+            mListener.onMoviesInserted(0, movies);
+            while (mPages.size() > mMaxPages) {
+                LoadedPage dropped = mPages.removeLast();
+                forget(dropped);
+                mListener.onMoviesRemoved(mItemCount, dropped.mMovies.size());
+            }
+        }
+    }
+
+    /*
+     * Replaces the movies of a page that is in memory with the refreshed ones.
+     */
+    private void replacePage(MoviePage result) {
+        if (mReleased) {
+            return;
+        }
+        int position = 0;
+        for (LoadedPage loadedPage : mPages) {
+            if (loadedPage.mPage == result.getPage()) {
+                mTotalPages = result.getTotalPages();
+                forget(loadedPage);
+                mListener.onMoviesRemoved(position, loadedPage.mMovies.size());
+                loadedPage.mMovies = keepNewMovies(result);
+                mItemCount += loadedPage.mMovies.size();
+                mListener.onMoviesInserted(position, loadedPage.mMovies);
+                return;
+            }
+            position += loadedPage.mMovies.size();
+        }
+    }
+
+    /*
+     * TheMovieDB rankings shift between requests, so a movie can show up on two pages.
+     * We only keep the first copy.
+     */
+    private List<Movie> keepNewMovies(MoviePage result) {
+        List<Movie> movies = new ArrayList<>(result.getMovies().size());
+        for (Movie movie : result.getMovies()) {
+            if (mLoadedIds.add(movie.getId())) {
+                movies.add(movie);
+            }
+        }
+        return movies;
+    }
+
+    private void forget(LoadedPage page) {
+        mItemCount -= page.mMovies.size();
+        for (Movie movie : page.mMovies) {
+            mLoadedIds.remove(movie.getId());
+        }
+    }
+
+    private static final class LoadedPage {
+        final int mPage;
+        List<Movie> mMovies;
+
+        LoadedPage(int page, List<Movie> movies) {
+            mPage = page;
+            mMovies = movies;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.goranminov.popmovies.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The movies the screens of the process have shown, by id, so a screen opening a movie only
+ * passes its id: the intent stays a few bytes and nothing is copied through a Parcel.
+ *
+ * The registry is bounded, the least recently used movies going first, and does not survive
+ * the process, so a screen restored after process death keeps its own movie in its saved
+ * state, encoded with MovieListCodec.
+ */
+public class MovieRegistry {
+
+    // A few pages of every list, far more than the screens can have open.
+    private static final int DEFAULT_MAX_ENTRIES = 200;
+
+    private static final Object LOCK = new Object();
+    private static MovieRegistry sInstance;
+
+    private final LinkedHashMap<Integer, Movie> mMovies;
+
+    /**
+     * @param maxEntries How many movies are kept.
+     */
+    public MovieRegistry(final int maxEntries) {
+        mMovies = new LinkedHashMap<Integer, Movie>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Movie> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return The process wide registry.
+     */
+    public static MovieRegistry getInstance() {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                sInstance = new MovieRegistry(DEFAULT_MAX_ENTRIES);
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Registers the movie, replacing a previous version of it.
+     */
+    public synchronized void put(Movie movie) {
+        mMovies.put(movie.getId(), movie);
+    }
+
+    /**
+     * @return The movie, or null if it was never registered or was evicted.
+     */
+    public synchronized Movie get(int movieId) {
+        return mMovies.get(movieId);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Searches the movies we downloaded, and TheMovieDB for the queries they don't answer.
+ *
+ * The SearchIndex is filled from the CatalogStore before the first query, after that
+ * CachingPageSource keeps it up to date. A query is answered from the index; only when
+ * nothing matches locally and the query is at least {@link #MIN_REMOTE_QUERY_LENGTH}
+ * characters long the search endpoint is asked, and what it returns is indexed as well.
+ * A query made while an older one is running supersedes it: the older results are dropped,
+ * and its request is skipped if it hasn't started yet.
+ *
+ * {@link #search(String, Callback)} must be called on the thread behind the main Executor,
+ * which is also the thread the Callback is called on.
+ */
+public class MovieSearch {
+
+    /**
+     * Receives the results of the latest query.
+     */
+    public interface Callback {
+        /**
+         * @param remote True if the movies come from the search endpoint.
+         */
+        void onResults(String query, List<Movie> movies, boolean remote);
+
+        void onSearchFailed(String query, IOException e);
+    }
+
+    /**
+     * Shorter queries match too much to be worth a request while the user is typing.
+     */
+    public static final int MIN_REMOTE_QUERY_LENGTH = 3;
+
+    private final SearchIndex mIndex;
+    private final CatalogStore mStore;
+    private final ApiClient mClient;
+    private final String mSearchUrl;
+    private final String mApiKey;
+    private final FeedVariant mVariant;
+    private final int mLimit;
+    private final Executor mIndexExecutor;
+    private final Executor mNetworkExecutor;
+    private final Executor mMainExecutor;
+
+    private final AtomicBoolean mIndexLoaded = new AtomicBoolean();
+    // Incremented by every query, results are only delivered if no newer one was made.
+    private volatile int mGeneration;
+
+    /**
+     * Creates a MovieSearch.
+     *
+     * @param index           The index of the downloaded movies.
+     * @param store           The catalog the index is filled from.
+     * @param client          The client used to make the requests.
+     * @param searchUrl       The search endpoint, normally NetworkUtils.MDB_SEARCH_URL.
+     * @param apiKey          The TheMovieDB API key.
+     * @param variant         The language the server is searched in, or null for
+     *                        TheMovieDB's default.
+     * @param limit           The maximum number of results of a query.
+     * @param indexExecutor   Executor the catalog is read and the index queried on.
+     * @param networkExecutor Executor the requests are made on.
+     * @param mainExecutor    Executor the results are delivered on.
+     */
+    public MovieSearch(SearchIndex index, CatalogStore store, ApiClient client,
+                       String searchUrl, String apiKey, FeedVariant variant, int limit,
+                       Executor indexExecutor, Executor networkExecutor,
+                       Executor mainExecutor) {
+        mIndex = index;
+        mStore = store;
+        mClient = client;
+        mSearchUrl = searchUrl;
+        mApiKey = apiKey;
+        mVariant = variant;
+        mLimit = limit;
+        mIndexExecutor = indexExecutor;
+        mNetworkExecutor = networkExecutor;
+        mMainExecutor = mainExecutor;
+    }
+
+    /**
+     * Searches for the query, superseding the previous one.
+     *
+     * @param query    The text typed by the user.
+     * @param callback Receives the results.
+     */
+    public void search(final String query, final Callback callback) {
+        final int generation = ++mGeneration;
+        final String trimmed = query.trim();
+        mIndexExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                if (mIndexLoaded.compareAndSet(false, true)) {
+                    mIndex.add(mStore.getAllMovies());
+                }
+                List<Movie> movies = mIndex.search(trimmed, mLimit);
+                if (movies.isEmpty() && trimmed.length() >= MIN_REMOTE_QUERY_LENGTH) {
+                    searchRemote(generation, query, trimmed, callback);
+                } else {
+                    deliver(generation, query, movies, false, callback);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops the results of the running query, if any.
+     */
+    public void cancel() {
+        mGeneration++;
+    }
+
+    private void searchRemote(final int generation, final String query, final String trimmed,
+                              final Callback callback) {
+        mNetworkExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // The user typed on while the request was queued.
+                if (generation != mGeneration) {
+                    return;
+                }
+                try {
+                    List<Movie> movies = NetworkUtils.getMoviePage(mClient,
+                            NetworkUtils.buildSearchUrl(mSearchUrl, mApiKey, trimmed, 1,
+                                    mVariant)).getMovies();
+                    mIndex.add(movies);
+                    deliver(generation, query, movies.size() > mLimit
+                            ? movies.subList(0, mLimit) : movies, true, callback);
+                } catch (final IOException e) {
+                    mMainExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation == mGeneration) {
+                                callback.onSearchFailed(query, e);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void deliver(final int generation, final String query, final List<Movie> movies,
+                         final boolean remote, final Callback callback) {
+        mMainExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == mGeneration) {
+                    callback.onResults(query, movies, remote);
+                }
+            }
+        });
+    }
+}
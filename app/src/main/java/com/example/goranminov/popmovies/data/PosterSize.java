@@ -0,0 +1,70 @@
+package com.example.goranminov.popmovies.data;
+
+/**
+ * The poster widths served by TheMovieDB image API.
+ *
+ * Posters are requested in the smallest size that covers the ImageView they go into, so low
+ * density devices download and decode less and high density ones never upscale a thumbnail.
+ */
+public enum PosterSize {
+    W92(92),
+    W154(154),
+    W185(185),
+    W342(342),
+    W500(500),
+    W780(780),
+    ORIGINAL(Integer.MAX_VALUE);
+
+    private static final String MDB_IMAGE_BASE = "http://image.tmdb.org/t/p/";
+
+    // values() copies the array on every call.
+    private static final PosterSize[] SIZES = values();
+
+    private final int mWidth;
+    private final String mBaseUrl;
+
+    PosterSize(int width) {
+        mWidth = width;
+        mBaseUrl = MDB_IMAGE_BASE + (width == Integer.MAX_VALUE ? "original" : "w" + width) + '/';
+    }
+
+    /**
+     * @return The width in pixels, Integer.MAX_VALUE for the original image.
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * @return The URL the poster file name is appended to, ending with a slash.
+     */
+    public String getBaseUrl() {
+        return mBaseUrl;
+    }
+
+    /**
+     * Picks the smallest size at least as wide as the view.
+     *
+     * @param widthPx The width of the ImageView in pixels.
+     * @return The size to request, ORIGINAL if no sized variant is wide enough.
+     */
+    public static PosterSize forWidth(int widthPx) {
+        for (PosterSize size : SIZES) {
+            if (size.mWidth >= widthPx) {
+                return size;
+            }
+        }
+        return ORIGINAL;
+    }
+
+    /**
+     * @return The next smaller size, or this one if it is the smallest.
+     */
+    public PosterSize smaller() {
+        return ordinal() == 0 ? this : SIZES[ordinal() - 1];
+    }
+
+    static int count() {
+        return SIZES.length;
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.goranminov.popmovies.data;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the titles and overviews of the movies we downloaded.
+ *
+ * Every word maps to the sorted lists of the movies containing it, in the title and
+ * anywhere, and the words are kept sorted, so the movies matching a prefix are the union of
+ * one contiguous range of lists. A query matches the movies containing a word starting with
+ * each of its words, which is what a search box typed into needs. Movies whose title
+ * matches every word come first, then the ones matching in the overview, each group in the
+ * order the movies were added. Short prefixes match a lot of overviews, but they also match
+ * enough titles to fill the results, in which case the overview lists are not looked at.
+ *
+ * Adding the movies of a page costs a hash lookup per word, so the index follows the
+ * catalog page by page instead of being rebuilt. A movie added again with a new title or
+ * overview replaces its previous version, which is only marked deleted; the index is
+ * rebuilt from the live movies once they are outnumbered by the deleted ones.
+ *
+ * All methods are thread safe.
+ */
+public class SearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Object LOCK = new Object();
+    private static SearchIndex sInstance;
+
+    // The indexed movies by document number, a replaced movie stays here but is deleted.
+    private final List<Movie> mDocuments = new ArrayList<>();
+    private final Map<Integer, Integer> mDocumentByMovieId = new HashMap<>();
+    private final BitSet mDeleted = new BitSet();
+    private int mDeletedCount;
+    // The same postings twice: hashed for adding, sorted for prefix queries.
+    private final Map<String, Postings> mTerms = new HashMap<>();
+    private final TreeMap<String, Postings> mSortedTerms = new TreeMap<>();
+
+    /**
+     * @return The index shared by the catalog and the search screen.
+     */
+    public static SearchIndex getInstance() {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                sInstance = new SearchIndex();
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Indexes the movies, skipping the ones already indexed unchanged.
+     */
+    public synchronized void add(Collection<Movie> movies) {
+        for (Movie movie : movies) {
+            Integer previous = mDocumentByMovieId.get(movie.getId());
+            if (previous != null) {
+                Movie indexed = mDocuments.get(previous);
+                if (sameText(indexed, movie)) {
+                    // Only the vote or the poster changed, the postings still hold.
+                    mDocuments.set(previous, movie);
+                    continue;
+                }
+                mDeleted.set(previous);
+                mDeletedCount++;
+            }
+            index(movie);
+        }
+        if (mDeletedCount > mDocumentByMovieId.size()) {
+            compact();
+        }
+    }
+
+    private void index(Movie movie) {
+        int document = mDocuments.size();
+        mDocuments.add(movie);
+        mDocumentByMovieId.put(movie.getId(), document);
+        for (String word : tokenize(movie.getTitle())) {
+            postingsOf(word).add(document, true);
+        }
+        for (String word : tokenize(movie.getOverview())) {
+            postingsOf(word).add(document, false);
+        }
+    }
+
+    /*
+     * Rebuilds the index from the live documents, in the same order, dropping the deleted
+     * ones and the words only they contained.
+     */
+    private void compact() {
+        List<Movie> live = new ArrayList<>(mDocumentByMovieId.size());
+        for (int document = mDeleted.nextClearBit(0); document < mDocuments.size();
+             document = mDeleted.nextClearBit(document + 1)) {
+            live.add(mDocuments.get(document));
+        }
+        clear();
+        for (Movie movie : live) {
+            index(movie);
+        }
+    }
+
+    private static boolean sameText(Movie a, Movie b) {
+        return equal(a.getTitle(), b.getTitle()) && equal(a.getOverview(), b.getOverview());
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private Postings postingsOf(String word) {
+        Postings postings = mTerms.get(word);
+        if (postings == null) {
+            postings = new Postings();
+            mTerms.put(word, postings);
+            mSortedTerms.put(word, postings);
+        }
+        return postings;
+    }
+
+    /**
+     * Finds the movies matching the query, see the class documentation.
+     *
+     * @param query The text typed, every word of it is used as a prefix.
+     * @param limit The maximum number of movies returned.
+     * @return The matching movies, best matches first.
+     */
+    public synchronized List<Movie> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Movie> results = new ArrayList<>();
+        BitSet inTitle = match(words, true);
+        collect(inTitle, results, limit);
+        if (results.size() < limit) {
+            BitSet anywhere = match(words, false);
+            anywhere.andNot(inTitle);
+            collect(anywhere, results, limit);
+        }
+        return results;
+    }
+
+    /*
+     * The live documents containing a word starting with each of the words.
+     */
+    private BitSet match(List<String> words, boolean titleOnly) {
+        BitSet matches = null;
+        for (String word : words) {
+            BitSet wordMatches = new BitSet(mDocuments.size());
+            // Every word starting with the prefix sorts between it and the prefix + U+FFFF.
+            for (Postings postings : mSortedTerms.subMap(word, word + '\uffff').values()) {
+                postings.collect(wordMatches, titleOnly);
+            }
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                matches.and(wordMatches);
+            }
+            if (matches.isEmpty()) {
+                return matches;
+            }
+        }
+        matches.andNot(mDeleted);
+        return matches;
+    }
+
+    private void collect(BitSet documents, List<Movie> results, int limit) {
+        for (int document = documents.nextSetBit(0);
+             document >= 0 && results.size() < limit;
+             document = documents.nextSetBit(document + 1)) {
+            results.add(mDocuments.get(document));
+        }
+    }
+
+    /**
+     * @return The number of movies that can be found.
+     */
+    public synchronized int size() {
+        return mDocumentByMovieId.size();
+    }
+
+    /**
+     * @return The number of documents held, the deleted ones included, for tests.
+     */
+    synchronized int documentCount() {
+        return mDocuments.size();
+    }
+
+    /**
+     * @return The number of distinct words indexed.
+     */
+    public synchronized int termCount() {
+        return mTerms.size();
+    }
+
+    /**
+     * Empties the index.
+     */
+    public synchronized void clear() {
+        mDocuments.clear();
+        mDocumentByMovieId.clear();
+        mDeleted.clear();
+        mDeletedCount = 0;
+        mTerms.clear();
+        mSortedTerms.clear();
+    }
+
+    /**
+     * Splits the text into lower case words without accents, so "Amélie" is found by
+     * "ame". Anything but letters and digits separates words.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String folded = isAscii(text) ? text.toLowerCase(Locale.ROOT)
+                : COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                        .replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length()
+                    && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * The documents containing a word, ascending: in the title, and anywhere.
+     */
+    private static final class Postings {
+        private final IntList mTitle = new IntList();
+        private final IntList mAnywhere = new IntList();
+
+        void add(int document, boolean title) {
+            if (title) {
+                mTitle.addLast(document);
+            }
+            mAnywhere.addLast(document);
+        }
+
+        void collect(BitSet documents, boolean titleOnly) {
+            IntList list = titleOnly ? mTitle : mAnywhere;
+            for (int i = 0; i < list.mSize; i++) {
+                documents.set(list.mValues[i]);
+            }
+        }
+    }
+
+    /*
+     * Growable array of ascending ints, a value equal to the last one is not added again.
+     */
+    private static final class IntList {
+        int[] mValues = new int[2];
+        int mSize;
+
+        void addLast(int value) {
+            if (mSize > 0 && mValues[mSize - 1] == value) {
+                return;
+            }
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, mSize * 2);
+            }
+            mValues[mSize++] = value;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.goranminov.popmovies.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.goranminov.popmovies.data.MovieContract.MovieEntry;
+import com.example.goranminov.popmovies.data.MovieContract.PageEntry;
+import com.example.goranminov.popmovies.data.MovieContract.PosterEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CatalogStore backed by the SQLite database managed by MovieDbHelper.
+ */
+public class SqliteCatalogStore implements CatalogStore {
+
+    private static final String[] PAGE_PROJECTION = {
+            PageEntry.COLUMN_TOTAL_PAGES,
+            PageEntry.COLUMN_ETAG,
+            PageEntry.COLUMN_LAST_MODIFIED,
+            PageEntry.COLUMN_FETCHED_AT
+    };
+
+    private static final int INDEX_PAGE_TOTAL_PAGES = 0;
+    private static final int INDEX_PAGE_ETAG = 1;
+    private static final int INDEX_PAGE_LAST_MODIFIED = 2;
+    private static final int INDEX_PAGE_FETCHED_AT = 3;
+
+    private static final String[] MOVIE_PROJECTION = {
+            MovieEntry.COLUMN_MOVIE_ID,
+            MovieEntry.COLUMN_POSTER_PATH,
+            MovieEntry.COLUMN_TITLE,
+            MovieEntry.COLUMN_OVERVIEW,
+            MovieEntry.COLUMN_VOTE_AVERAGE,
+            MovieEntry.COLUMN_RELEASE_DATE
+    };
+
+    private static final int INDEX_MOVIE_ID = 0;
+    private static final int INDEX_MOVIE_POSTER_PATH = 1;
+    private static final int INDEX_MOVIE_TITLE = 2;
+    private static final int INDEX_MOVIE_OVERVIEW = 3;
+    private static final int INDEX_MOVIE_VOTE_AVERAGE = 4;
+    private static final int INDEX_MOVIE_RELEASE_DATE = 5;
+
+    private static final String PAGE_SELECTION =
+            PageEntry.COLUMN_SORT_ORDER + " = ? AND " + PageEntry.COLUMN_PAGE + " = ?";
+    private static final String MOVIE_SELECTION =
+            MovieEntry.COLUMN_SORT_ORDER + " = ? AND " + MovieEntry.COLUMN_PAGE + " = ?";
+
+    private static final String[] POSTER_PROJECTION = {
+            PosterEntry.COLUMN_FILE_NAME,
+            PosterEntry.COLUMN_BLUR_HASH
+    };
+
+    private static final int INDEX_POSTER_FILE_NAME = 0;
+    private static final int INDEX_POSTER_BLUR_HASH = 1;
+
+    /*
+     * Poster file names looked up per query, well under SQLite's limit of 999 arguments.
+     */
+    private static final int POSTER_QUERY_BATCH = 100;
+
+    private static final Object LOCK = new Object();
+    private static SqliteCatalogStore sInstance;
+
+    private final MovieDbHelper mDbHelper;
+
+    public SqliteCatalogStore(MovieDbHelper dbHelper) {
+        mDbHelper = dbHelper;
+    }
+
+    /**
+     * @return The store backed by the application's movie database.
+     */
+    public static SqliteCatalogStore getInstance(Context context) {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                sInstance = new SqliteCatalogStore(new MovieDbHelper(context.getApplicationContext()));
+            }
+            return sInstance;
+        }
+    }
+
+    @Override
+    public CachedPage getPage(String sortOrder, int page) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        String[] selectionArgs = {sortOrder, String.valueOf(page)};
+
+        int totalPages;
+        String eTag;
+        String lastModified;
+        long fetchedAt;
+        Cursor pageCursor = db.query(PageEntry.TABLE_NAME, PAGE_PROJECTION, PAGE_SELECTION,
+                selectionArgs, null, null, null);
+        try {
+            if (!pageCursor.moveToFirst()) {
+                return null;
+            }
+            totalPages = pageCursor.getInt(INDEX_PAGE_TOTAL_PAGES);
+            eTag = pageCursor.getString(INDEX_PAGE_ETAG);
+            lastModified = pageCursor.getString(INDEX_PAGE_LAST_MODIFIED);
+            fetchedAt = pageCursor.getLong(INDEX_PAGE_FETCHED_AT);
+        } finally {
+            pageCursor.close();
+        }
+
+        List<Movie> movies = new ArrayList<>();
+        Cursor movieCursor = db.query(MovieEntry.TABLE_NAME, MOVIE_PROJECTION, MOVIE_SELECTION,
+                selectionArgs, null, null, MovieEntry.COLUMN_POSITION + " ASC");
+        try {
+            while (movieCursor.moveToNext()) {
+                movies.add(readMovie(movieCursor));
+            }
+        } finally {
+            movieCursor.close();
+        }
+        return new CachedPage(new MoviePage(page, totalPages, movies), eTag, lastModified, fetchedAt);
+    }
+
+    @Override
+    public void putPage(String sortOrder, CachedPage cachedPage) {
+        MoviePage page = cachedPage.getPage();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(MovieEntry.TABLE_NAME, MOVIE_SELECTION,
+                    new String[]{sortOrder, String.valueOf(page.getPage())});
+
+            ContentValues values = new ContentValues();
+            List<Movie> movies = page.getMovies();
+            for (int i = 0; i < movies.size(); i++) {
+                values.clear();
+                putMovie(values, sortOrder, page.getPage(), i, movies.get(i));
+                db.insert(MovieEntry.TABLE_NAME, null, values);
+            }
+
+            values.clear();
+            putPageRow(values, sortOrder, cachedPage);
+            db.insert(PageEntry.TABLE_NAME, null, values);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public int mergePage(String sortOrder, CachedPage cachedPage) {
+        MoviePage page = cachedPage.getPage();
+        String[] selectionArgs = {sortOrder, String.valueOf(page.getPage())};
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        int changes = 0;
+        db.beginTransaction();
+        try {
+            List<Movie> stored = new ArrayList<>();
+            Cursor movieCursor = db.query(MovieEntry.TABLE_NAME, MOVIE_PROJECTION,
+                    MOVIE_SELECTION, selectionArgs, null, null,
+                    MovieEntry.COLUMN_POSITION + " ASC");
+            try {
+                while (movieCursor.moveToNext()) {
+                    stored.add(readMovie(movieCursor));
+                }
+            } finally {
+                movieCursor.close();
+            }
+
+            // Rows are unique by position, so inserting one replaces the stored movie.
+            ContentValues values = new ContentValues();
+            List<Movie> movies = page.getMovies();
+            for (int i = 0; i < movies.size(); i++) {
+                Movie movie = movies.get(i);
+                if (i < stored.size() && movie.equals(stored.get(i))) {
+                    continue;
+                }
+                values.clear();
+                putMovie(values, sortOrder, page.getPage(), i, movie);
+                db.insert(MovieEntry.TABLE_NAME, null, values);
+                changes++;
+            }
+            if (stored.size() > movies.size()) {
+                changes += db.delete(MovieEntry.TABLE_NAME,
+                        MOVIE_SELECTION + " AND " + MovieEntry.COLUMN_POSITION + " >= ?",
+                        new String[]{sortOrder, String.valueOf(page.getPage()),
+                                String.valueOf(movies.size())});
+            }
+
+            values.clear();
+            putPageRow(values, sortOrder, cachedPage);
+            db.insert(PageEntry.TABLE_NAME, null, values);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return changes;
+    }
+
+    @Override
+    public List<Movie> getAllMovies() {
+        List<Movie> movies = new ArrayList<>();
+        Cursor movieCursor = mDbHelper.getReadableDatabase().query(MovieEntry.TABLE_NAME,
+                MOVIE_PROJECTION, null, null, MovieEntry.COLUMN_MOVIE_ID, null,
+                MovieEntry._ID + " ASC");
+        try {
+            while (movieCursor.moveToNext()) {
+                movies.add(readMovie(movieCursor));
+            }
+        } finally {
+            movieCursor.close();
+        }
+        return movies;
+    }
+
+    @Override
+    public void touchPage(String sortOrder, int page, long fetchedAt) {
+        ContentValues values = new ContentValues();
+        values.put(PageEntry.COLUMN_FETCHED_AT, fetchedAt);
+        mDbHelper.getWritableDatabase().update(PageEntry.TABLE_NAME, values, PAGE_SELECTION,
+                new String[]{sortOrder, String.valueOf(page)});
+    }
+
+    @Override
+    public Map<String, String> getPosterPlaceholders(Collection<String> posterFileNames) {
+        Map<String, String> placeholders = new HashMap<>();
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Iterator<String> fileNames = posterFileNames.iterator();
+        while (fileNames.hasNext()) {
+            List<String> batch = new ArrayList<>(POSTER_QUERY_BATCH);
+            StringBuilder selection = new StringBuilder(PosterEntry.COLUMN_FILE_NAME)
+                    .append(" IN (");
+            while (fileNames.hasNext() && batch.size() < POSTER_QUERY_BATCH) {
+                selection.append(batch.isEmpty() ? "?" : ", ?");
+                batch.add(fileNames.next());
+            }
+            selection.append(')');
+            Cursor cursor = db.query(PosterEntry.TABLE_NAME, POSTER_PROJECTION,
+                    selection.toString(), batch.toArray(new String[batch.size()]), null, null,
+                    null);
+            try {
+                while (cursor.moveToNext()) {
+                    placeholders.put(cursor.getString(INDEX_POSTER_FILE_NAME),
+                            cursor.getString(INDEX_POSTER_BLUR_HASH));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return placeholders;
+    }
+
+    @Override
+    public void putPosterPlaceholder(String posterFileName, String blurHash) {
+        ContentValues values = new ContentValues();
+        values.put(PosterEntry.COLUMN_FILE_NAME, posterFileName);
+        values.put(PosterEntry.COLUMN_BLUR_HASH, blurHash);
+        mDbHelper.getWritableDatabase().insert(PosterEntry.TABLE_NAME, null, values);
+    }
+
+    private static void putMovie(ContentValues values, String sortOrder, int page,
+                                 int position, Movie movie) {
+        values.put(MovieEntry.COLUMN_SORT_ORDER, sortOrder);
+        values.put(MovieEntry.COLUMN_PAGE, page);
+        values.put(MovieEntry.COLUMN_POSITION, position);
+        values.put(MovieEntry.COLUMN_MOVIE_ID, movie.getId());
+        values.put(MovieEntry.COLUMN_POSTER_PATH, movie.getPosterPath());
+        values.put(MovieEntry.COLUMN_TITLE, movie.getTitle());
+        values.put(MovieEntry.COLUMN_OVERVIEW, movie.getOverview());
+        values.put(MovieEntry.COLUMN_VOTE_AVERAGE, movie.getVoteAverage());
+        values.put(MovieEntry.COLUMN_RELEASE_DATE, movie.getReleaseDate());
+    }
+
+    private static void putPageRow(ContentValues values, String sortOrder,
+                                   CachedPage cachedPage) {
+        MoviePage page = cachedPage.getPage();
+        values.put(PageEntry.COLUMN_SORT_ORDER, sortOrder);
+        values.put(PageEntry.COLUMN_PAGE, page.getPage());
+        values.put(PageEntry.COLUMN_TOTAL_PAGES, page.getTotalPages());
+        values.put(PageEntry.COLUMN_ETAG, cachedPage.getETag());
+        values.put(PageEntry.COLUMN_LAST_MODIFIED, cachedPage.getLastModified());
+        values.put(PageEntry.COLUMN_FETCHED_AT, cachedPage.getFetchedAt());
+    }
+
+    private static Movie readMovie(Cursor movieCursor) {
+        return new Movie(
+                movieCursor.getInt(INDEX_MOVIE_ID),
+                movieCursor.getString(INDEX_MOVIE_POSTER_PATH),
+                movieCursor.getString(INDEX_MOVIE_TITLE),
+                movieCursor.getString(INDEX_MOVIE_OVERVIEW),
+                movieCursor.getFloat(INDEX_MOVIE_VOTE_AVERAGE),
+                movieCursor.getInt(INDEX_MOVIE_RELEASE_DATE));
+    }
+}
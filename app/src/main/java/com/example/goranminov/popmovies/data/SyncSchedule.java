@@ -0,0 +1,100 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.Clock;
+
+/**
+ * Decides when the next CatalogSync runs: one interval after a successful sync, and after a
+ * failed one with an exponential backoff, so a server that is down is not woken up for every
+ * few minutes.
+ *
+ * The state is the number of failures in a row and the time of the next run, which the
+ * caller persists between runs.
+ */
+public class SyncSchedule {
+
+    private final long mIntervalMillis;
+    private final long mInitialBackoffMillis;
+    private final long mMaxBackoffMillis;
+    private final Clock mClock;
+
+    private int mFailures;
+    private long mNextRunAt;
+
+    /**
+     * Creates a SyncSchedule.
+     *
+     * @param intervalMillis       The time between two successful syncs.
+     * @param initialBackoffMillis The delay after the first failure, doubled after each
+     *                             following one.
+     * @param maxBackoffMillis     The longest delay after failures.
+     * @param failures             The failures in a row so far, as persisted.
+     * @param nextRunAt            The time of the next run, as persisted, or 0.
+     * @param clock                Source of the current time.
+     */
+    public SyncSchedule(long intervalMillis, long initialBackoffMillis, long maxBackoffMillis,
+                        int failures, long nextRunAt, Clock clock) {
+        mIntervalMillis = intervalMillis;
+        mInitialBackoffMillis = initialBackoffMillis;
+        mMaxBackoffMillis = maxBackoffMillis;
+        mFailures = failures;
+        mNextRunAt = nextRunAt;
+        mClock = clock;
+    }
+
+    /**
+     * @return The delay until the next sync, one interval.
+     */
+    public long onSuccess() {
+        mFailures = 0;
+        return scheduleIn(mIntervalMillis);
+    }
+
+    /**
+     * @return The delay until the next sync, twice as long as after the previous failure.
+     */
+    public long onFailure() {
+        mFailures++;
+        long delay = mInitialBackoffMillis;
+        for (int i = 1; i < mFailures && delay < mMaxBackoffMillis; i++) {
+            delay *= 2;
+        }
+        return scheduleIn(Math.min(delay, mMaxBackoffMillis));
+    }
+
+    /**
+     * The sync was stopped before it could finish, e.g. because the device was unplugged. It
+     * is not counted as a failure.
+     *
+     * @return The delay until the next sync, the initial backoff.
+     */
+    public long onCancelled() {
+        return scheduleIn(mInitialBackoffMillis);
+    }
+
+    /**
+     * @return The failures in a row.
+     */
+    public int getFailures() {
+        return mFailures;
+    }
+
+    /**
+     * @return When the next sync should run, in milliseconds, or 0 before the first one.
+     */
+    public long getNextRunAt() {
+        return mNextRunAt;
+    }
+
+    /**
+     * @return The delay until the next sync is due, 0 if it is overdue. Used to schedule it
+     * again when the scheduled run was lost, e.g. when the application was updated.
+     */
+    public long getRemainingDelay() {
+        return Math.max(0, mNextRunAt - mClock.currentTimeMillis());
+    }
+
+    private long scheduleIn(long delay) {
+        mNextRunAt = mClock.currentTimeMillis() + delay;
+        return delay;
+    }
+}
@@ -0,0 +1,575 @@
+package com.example.goranminov.popmovies.utilities;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP client used for every TheMovieDB API call.
+ *
+ * Connections are never disconnected: each response body is read to the end and closed, which
+ * hands the socket back to the platform's keep-alive pool for the next request. Responses are
+ * requested gzip compressed, requests time out instead of hanging on a bad network, and failed
+ * attempts (I/O errors, 5xx and 429 answers) are retried with exponential backoff, or after
+ * the delay the server asked for with Retry-After.
+ *
+ * The shared client goes through a RateLimiter, which keeps bursts under the rate limit of
+ * TheMovieDB and lets the requests of the visible screen go before the prefetches. Identical
+ * requests made while one is in flight through {@link #fetch} don't go out again: they wait
+ * for it and share its decoded result.
+ *
+ * On-disk HTTP caching is done by the platform's HttpResponseCache, installed by
+ * PopMoviesApplication, which honors the Cache-Control headers of TheMovieDB.
+ *
+ * When the Metrics are enabled, every attempt records its DNS, connect, time to first byte
+ * and download times and the bytes transferred.
+ */
+public class ApiClient {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 15000;
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    public static final long DEFAULT_BACKOFF_MILLIS = 500;
+
+    /*
+     * TheMovieDB allows 40 requests every 10 seconds, of which a quarter are kept for the
+     * visible screen.
+     */
+    private static final int RATE_LIMIT_REQUESTS = 40;
+    private static final long RATE_LIMIT_REFILL_MILLIS = TimeUnit.SECONDS.toMillis(10)
+            / RATE_LIMIT_REQUESTS;
+    private static final int RATE_LIMIT_PREFETCH_RESERVE = 10;
+
+    /*
+     * A request the server wants us to retry later than this fails instead, rather than
+     * holding the screen up.
+     */
+    static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /*
+     * A request that could not get a token from the RateLimiter for this long fails, so a
+     * stuck limiter shows an error instead of a grid that never loads.
+     */
+    static final long MAX_RATE_LIMIT_WAIT_MILLIS = 2 * MAX_RETRY_AFTER_MILLIS;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+
+    private static final Object LOCK = new Object();
+    private static ApiClient sInstance;
+
+    private final int mConnectTimeoutMillis;
+    private final int mReadTimeoutMillis;
+    private final int mMaxRetries;
+    private final long mBackoffMillis;
+    private final RateLimiter mRateLimiter;
+    private final Metrics mMetrics;
+
+    // The requests made through fetch() that are in flight, by requestKey().
+    private final Map<String, Call> mCalls = new HashMap<>();
+
+    /**
+     * Creates an ApiClient without rate limit, recording into the application's Metrics.
+     *
+     * @param connectTimeoutMillis Timeout to establish a connection.
+     * @param readTimeoutMillis    Timeout between two reads of the response.
+     * @param maxRetries           How many times a failed request is retried.
+     * @param backoffMillis        The wait before the first retry, doubled for each next one.
+     */
+    public ApiClient(int connectTimeoutMillis, int readTimeoutMillis, int maxRetries,
+                     long backoffMillis) {
+        this(connectTimeoutMillis, readTimeoutMillis, maxRetries, backoffMillis,
+                Metrics.getInstance());
+    }
+
+    /**
+     * Creates an ApiClient without rate limit.
+     *
+     * @param connectTimeoutMillis Timeout to establish a connection.
+     * @param readTimeoutMillis    Timeout between two reads of the response.
+     * @param maxRetries           How many times a failed request is retried.
+     * @param backoffMillis        The wait before the first retry, doubled for each next one.
+     * @param metrics              Where the timings of the requests are recorded.
+     */
+    public ApiClient(int connectTimeoutMillis, int readTimeoutMillis, int maxRetries,
+                     long backoffMillis, Metrics metrics) {
+        this(connectTimeoutMillis, readTimeoutMillis, maxRetries, backoffMillis, null, metrics);
+    }
+
+    /**
+     * Creates an ApiClient.
+     *
+     * @param connectTimeoutMillis Timeout to establish a connection.
+     * @param readTimeoutMillis    Timeout between two reads of the response.
+     * @param maxRetries           How many times a failed request is retried.
+     * @param backoffMillis        The wait before the first retry, doubled for each next one.
+     * @param rateLimiter          Every attempt takes a token from it first, can be null.
+     * @param metrics              Where the timings of the requests are recorded.
+     */
+    public ApiClient(int connectTimeoutMillis, int readTimeoutMillis, int maxRetries,
+                     long backoffMillis, RateLimiter rateLimiter, Metrics metrics) {
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+        mMaxRetries = maxRetries;
+        mBackoffMillis = backoffMillis;
+        mRateLimiter = rateLimiter;
+        mMetrics = metrics;
+    }
+
+    /**
+     * @return The client of TheMovieDB API shared by the whole application, rate limited.
+     */
+    public static ApiClient getInstance() {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                sInstance = new ApiClient(DEFAULT_CONNECT_TIMEOUT_MILLIS,
+                        DEFAULT_READ_TIMEOUT_MILLIS, DEFAULT_MAX_RETRIES, DEFAULT_BACKOFF_MILLIS,
+                        new RateLimiter(RATE_LIMIT_REQUESTS, RATE_LIMIT_REFILL_MILLIS,
+                                RATE_LIMIT_PREFETCH_RESERVE, Clock.SYSTEM),
+                        Metrics.getInstance());
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Performs a GET request for the visible screen, retrying it if it fails. The returned
+     * Response must be closed.
+     *
+     * @param url            The URL to get.
+     * @param requestHeaders Extra request headers, can be null.
+     * @return The response, which may have any status code that is not retried.
+     * @throws IOException If the last attempt failed.
+     */
+    public Response get(URL url, Map<String, String> requestHeaders) throws IOException {
+        return get(url, requestHeaders, RateLimiter.Priority.VISIBLE);
+    }
+
+    /**
+     * Performs a GET request, retrying it if it fails. The returned Response must be closed.
+     *
+     * @param url            The URL to get.
+     * @param requestHeaders Extra request headers, can be null.
+     * @param ticket         The priority of the request in the RateLimiter, a Priority or a
+     *                       request whose priority can be raised while it waits.
+     * @return The response, which may have any status code that is not retried.
+     * @throws IOException If the last attempt failed.
+     */
+    public Response get(URL url, Map<String, String> requestHeaders, RateLimiter.Ticket ticket)
+            throws IOException {
+        int attempt = 0;
+        while (true) {
+            long retryAfterMillis = -1L;
+            try {
+                acquire(ticket);
+                Response response = execute(url, requestHeaders);
+                int code = response.getCode();
+                if (isRetryable(code)) {
+                    retryAfterMillis = parseRetryAfter(response.getHeader(RETRY_AFTER),
+                            System.currentTimeMillis());
+                    if (retryAfterMillis >= 0 && retryAfterMillis <= MAX_RETRY_AFTER_MILLIS
+                            && mRateLimiter != null) {
+                        // The other requests wait too, they would get the same answer. A
+                        // longer wait fails this request and holds no one else up.
+                        mRateLimiter.pauseFor(retryAfterMillis);
+                    }
+                }
+                if (attempt < mMaxRetries && isRetryable(code)
+                        && retryAfterMillis <= MAX_RETRY_AFTER_MILLIS) {
+                    response.close();
+                } else {
+                    return response;
+                }
+            } catch (IOException e) {
+                if (attempt >= mMaxRetries) {
+                    throw e;
+                }
+            }
+            if (retryAfterMillis < 0) {
+                sleep(mBackoffMillis << attempt);
+            } else if (mRateLimiter == null) {
+                sleep(retryAfterMillis);
+            }
+            // Otherwise the RateLimiter holds the next attempt back.
+            attempt++;
+        }
+    }
+
+    /**
+     * Performs a GET request and decodes its response, or waits for the same request already
+     * in flight and shares its result: a burst of identical requests only goes out once.
+     * The result must not be modified, since it is shared.
+     *
+     * @param url            The URL to get.
+     * @param requestHeaders Extra request headers, can be null.
+     * @param priority       The priority of the request in the RateLimiter. A visible request
+     *                       joining a prefetch in flight raises its priority.
+     * @param handler        Decodes the response, it is closed afterwards.
+     * @return What the handler returned.
+     * @throws IOException If the request failed, or the handler threw it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fetch(URL url, Map<String, String> requestHeaders,
+                       RateLimiter.Priority priority, ResponseHandler<T> handler)
+            throws IOException {
+        String key = requestKey(url, requestHeaders, handler);
+        Call call;
+        boolean inFlight;
+        synchronized (mCalls) {
+            call = mCalls.get(key);
+            inFlight = call != null;
+            if (!inFlight) {
+                call = new Call(priority);
+                mCalls.put(key, call);
+            }
+        }
+        if (inFlight) {
+            if (call.raise(priority)) {
+                onPriorityRaised();
+            }
+            return (T) call.await();
+        }
+        try {
+            Response response = get(url, requestHeaders, call);
+            try {
+                T result = handler.handle(response);
+                call.mResult = result;
+                return result;
+            } finally {
+                response.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            call.mError = e;
+            throw e;
+        } finally {
+            synchronized (mCalls) {
+                mCalls.remove(key);
+            }
+            call.mDone.countDown();
+        }
+    }
+
+    /**
+     * Wakes up the requests waiting in the RateLimiter, because the priority of one of them
+     * was raised to visible.
+     */
+    public void onPriorityRaised() {
+        if (mRateLimiter != null) {
+            mRateLimiter.onPriorityRaised();
+        }
+    }
+
+    /**
+     * @return Where the timings of the requests are recorded.
+     */
+    public Metrics getMetrics() {
+        return mMetrics;
+    }
+
+    private Response execute(URL url, Map<String, String> requestHeaders) throws IOException {
+        boolean timed = mMetrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0L;
+        if (timed) {
+            /*
+             * HttpURLConnection doesn't tell how long the lookup took, so we make it first:
+             * the connection then finds the address in the platform's DNS cache.
+             */
+            InetAddress.getAllByName(url.getHost());
+            long resolved = System.nanoTime();
+            mMetrics.record(Metrics.Metric.DNS, resolved - start);
+            start = resolved;
+        }
+        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        urlConnection.setConnectTimeout(mConnectTimeoutMillis);
+        urlConnection.setReadTimeout(mReadTimeoutMillis);
+        urlConnection.setRequestMethod("GET");
+        urlConnection.setRequestProperty(ACCEPT_ENCODING, GZIP);
+        if (requestHeaders != null) {
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                urlConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        long connected = 0L;
+        if (timed) {
+            urlConnection.connect();
+            connected = System.nanoTime();
+            mMetrics.record(Metrics.Metric.CONNECT, connected - start);
+        }
+        int code = urlConnection.getResponseCode();
+        InputStream body = code < HttpURLConnection.HTTP_BAD_REQUEST
+                ? urlConnection.getInputStream() : urlConnection.getErrorStream();
+        TimedInputStream timedBody = null;
+        if (timed) {
+            mMetrics.record(Metrics.Metric.TTFB, System.nanoTime() - connected);
+            if (body != null) {
+                // Below the decompression, so the bytes counted are the ones transferred.
+                body = timedBody = new TimedInputStream(body);
+            }
+        }
+        if (body != null && GZIP.equalsIgnoreCase(urlConnection.getHeaderField(CONTENT_ENCODING))) {
+            body = new GZIPInputStream(body);
+        }
+        return new Response(urlConnection, code, body, timed ? mMetrics : null, start, timedBody);
+    }
+
+    private void acquire(RateLimiter.Ticket ticket) throws IOException {
+        if (mRateLimiter == null) {
+            return;
+        }
+        try {
+            if (!mRateLimiter.acquire(ticket, MAX_RATE_LIMIT_WAIT_MILLIS)) {
+                throw new IOException("Timed out waiting for the rate limit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the rate limit", e);
+        }
+    }
+
+    private static boolean isRetryable(int code) {
+        return code >= HttpURLConnection.HTTP_INTERNAL_ERROR || code == HTTP_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Parses a Retry-After header, which is either a number of seconds or an HTTP date.
+     *
+     * @return The delay it asks for in milliseconds, or -1 if there is none.
+     */
+    static long parseRetryAfter(String value, long now) {
+        if (value == null) {
+            return -1L;
+        }
+        value = value.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0L, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // Not seconds, maybe a date.
+        }
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0L, format.parse(value).getTime() - now);
+        } catch (ParseException e) {
+            return -1L;
+        }
+    }
+
+    /*
+     * Requests are identical when they have the same URL and headers, and their responses are
+     * decoded the same way.
+     */
+    private static String requestKey(URL url, Map<String, String> requestHeaders,
+                                     ResponseHandler<?> handler) {
+        String headers = requestHeaders == null || requestHeaders.isEmpty()
+                ? "" : new TreeMap<>(requestHeaders).toString();
+        return handler.getClass().getName() + ' ' + url + ' ' + headers;
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while backing off", e);
+        }
+    }
+
+    /**
+     * Decodes a response for {@link #fetch}.
+     */
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    /*
+     * A request made through fetch(), with the callers waiting for its result. The result
+     * and the error are written before mDone is counted down, and read after.
+     */
+    private static final class Call implements RateLimiter.Ticket {
+        final CountDownLatch mDone = new CountDownLatch(1);
+        volatile RateLimiter.Priority mPriority;
+        Object mResult;
+        Exception mError;
+
+        Call(RateLimiter.Priority priority) {
+            mPriority = priority;
+        }
+
+        @Override
+        public RateLimiter.Priority getPriority() {
+            return mPriority;
+        }
+
+        /**
+         * @return True if the priority was raised.
+         */
+        synchronized boolean raise(RateLimiter.Priority priority) {
+            if (priority != RateLimiter.Priority.VISIBLE
+                    || mPriority == RateLimiter.Priority.VISIBLE) {
+                return false;
+            }
+            mPriority = priority;
+            return true;
+        }
+
+        /**
+         * Waits for the request to be done, and hands its result or error to a follower.
+         */
+        Object await() throws IOException {
+            try {
+                mDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the same request", e);
+            }
+            if (mError instanceof IOException) {
+                // Thrown from this thread, with the original cause.
+                throw new IOException(mError.getMessage(), mError);
+            } else if (mError != null) {
+                throw new IllegalStateException(mError.getMessage(), mError);
+            }
+            return mResult;
+        }
+    }
+
+    /**
+     * A response to a GET request. Closing it reads what is left of the body, so the
+     * connection can be reused.
+     */
+    public static final class Response implements Closeable {
+
+        private final HttpURLConnection mConnection;
+        private final int mCode;
+        private final InputStream mBody;
+        // Set when the Metrics were enabled as the request was made.
+        private final Metrics mMetrics;
+        private final long mStartNanos;
+        private final TimedInputStream mTimedBody;
+
+        Response(HttpURLConnection connection, int code, InputStream body, Metrics metrics,
+                 long startNanos, TimedInputStream timedBody) {
+            mConnection = connection;
+            mCode = code;
+            mBody = body;
+            mMetrics = metrics;
+            mStartNanos = startNanos;
+            mTimedBody = timedBody;
+        }
+
+        public int getCode() {
+            return mCode;
+        }
+
+        public String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        /**
+         * @return The decompressed body, or null if the response has none.
+         */
+        public InputStream getBody() {
+            return mBody;
+        }
+
+        /**
+         * @return The Metrics the request is timed into, or null if they were disabled.
+         */
+        public Metrics getMetrics() {
+            return mMetrics;
+        }
+
+        /**
+         * @return The time spent waiting for the bytes of the body so far, 0 if the request
+         * is not timed.
+         */
+        public long getReadNanos() {
+            return mTimedBody == null ? 0L : mTimedBody.mReadNanos;
+        }
+
+        @Override
+        public void close() {
+            if (mBody == null) {
+                recordRequest();
+                return;
+            }
+            try {
+                byte[] buffer = new byte[1024];
+                while (mBody.read(buffer) != -1) {
+                    // Drain the body so the connection goes back to the pool.
+                }
+            } catch (IOException e) {
+                // The connection can't be reused, it is closed below.
+            } finally {
+                try {
+                    mBody.close();
+                } catch (IOException e) {
+                    // Nothing else we can do.
+                }
+                recordRequest();
+            }
+        }
+
+        private void recordRequest() {
+            if (mMetrics == null) {
+                return;
+            }
+            mMetrics.record(Metrics.Metric.REQUEST, System.nanoTime() - mStartNanos);
+            if (mTimedBody != null) {
+                mMetrics.record(Metrics.Metric.DOWNLOAD, mTimedBody.mReadNanos);
+                mMetrics.record(Metrics.Metric.RESPONSE_BYTES, mTimedBody.mBytes);
+            }
+        }
+    }
+
+    /*
+     * Counts the bytes read from a stream, and the time spent in the reads.
+     */
+    private static final class TimedInputStream extends FilterInputStream {
+        long mBytes;
+        long mReadNanos;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            mReadNanos += System.nanoTime() - start;
+            if (b >= 0) {
+                mBytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(buffer, offset, count);
+            mReadNanos += System.nanoTime() - start;
+            if (read > 0) {
+                mBytes += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.goranminov.popmovies.utilities;
+
+/**
+ * Encodes an image into a BlurHash, a string of a few dozen characters describing its blurred
+ * colours, and decodes a BlurHash back into pixels.
+ *
+ * The image is described by the first few terms of its cosine transform, computed in linear
+ * RGB: the average colour, then the horizontal and vertical variations. Three by four terms
+ * fit a poster in 28 characters and are enough to tell posters apart at a glance.
+ *
+ * See https://github.com/woltapp/blurhash for the format. Pixels are ARGB ints, the alpha is
+ * ignored when encoding and opaque when decoding.
+ */
+public final class BlurHash {
+
+    private static final String BASE83 =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private static final int MAX_COMPONENTS = 9;
+
+    private BlurHash() {
+    }
+
+    /**
+     * @param pixels      The ARGB pixels of the image, row by row.
+     * @param width       The width of the image.
+     * @param height      The height of the image.
+     * @param componentsX The terms kept horizontally, 1 to 9.
+     * @param componentsY The terms kept vertically, 1 to 9.
+     * @return The BlurHash of the image.
+     */
+    public static String encode(int[] pixels, int width, int height, int componentsX,
+                                int componentsY) {
+        if (componentsX < 1 || componentsX > MAX_COMPONENTS
+                || componentsY < 1 || componentsY > MAX_COMPONENTS) {
+            throw new IllegalArgumentException("Components must be between 1 and 9");
+        }
+        if (width <= 0 || height <= 0 || pixels.length < width * height) {
+            throw new IllegalArgumentException("Not a " + width + "x" + height + " image");
+        }
+
+        double[] cosX = cosines(componentsX, width);
+        double[] cosY = cosines(componentsY, height);
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                double r = 0;
+                double g = 0;
+                double b = 0;
+                for (int y = 0; y < height; y++) {
+                    double basisY = cosY[j * height + y];
+                    for (int x = 0; x < width; x++) {
+                        double basis = cosX[i * width + x] * basisY;
+                        int pixel = pixels[y * width + x];
+                        r += basis * toLinear((pixel >> 16) & 0xff);
+                        g += basis * toLinear((pixel >> 8) & 0xff);
+                        b += basis * toLinear(pixel & 0xff);
+                    }
+                }
+                double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / (width * height);
+                factors[j * componentsX + i] = new double[]{r * scale, g * scale, b * scale};
+            }
+        }
+
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length);
+        encode83((componentsX - 1) + (componentsY - 1) * 9, 1, hash);
+
+        double maximumValue;
+        if (factors.length > 1) {
+            double actualMaximum = 0;
+            for (int i = 1; i < factors.length; i++) {
+                for (double value : factors[i]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(value));
+                }
+            }
+            int quantisedMaximum =
+                    (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166.0;
+            encode83(quantisedMaximum, 1, hash);
+        } else {
+            maximumValue = 1;
+            encode83(0, 1, hash);
+        }
+
+        double[] dc = factors[0];
+        encode83((toSrgb(dc[0]) << 16) + (toSrgb(dc[1]) << 8) + toSrgb(dc[2]), 4, hash);
+        for (int i = 1; i < factors.length; i++) {
+            double[] ac = factors[i];
+            encode83(quantiseAc(ac[0], maximumValue) * 19 * 19
+                    + quantiseAc(ac[1], maximumValue) * 19
+                    + quantiseAc(ac[2], maximumValue), 2, hash);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * @param hash   A BlurHash.
+     * @param width  The width of the image to make, a few pixels are enough.
+     * @param height The height of the image to make.
+     * @return The ARGB pixels of the image, row by row.
+     * @throws IllegalArgumentException If the hash is not a valid BlurHash.
+     */
+    public static int[] decode(String hash, int width, int height) {
+        if (hash == null || hash.length() < 6) {
+            throw new IllegalArgumentException("BlurHash too short: " + hash);
+        }
+        int sizeFlag = decode83(hash, 0, 1);
+        int componentsY = sizeFlag / 9 + 1;
+        int componentsX = sizeFlag % 9 + 1;
+        if (hash.length() != 4 + 2 * componentsX * componentsY) {
+            throw new IllegalArgumentException("Invalid BlurHash length: " + hash);
+        }
+        double maximumValue = (decode83(hash, 1, 2) + 1) / 166.0;
+
+        int count = componentsX * componentsY;
+        double[] colors = new double[count * 3];
+        int dc = decode83(hash, 2, 6);
+        colors[0] = toLinear(dc >> 16);
+        colors[1] = toLinear((dc >> 8) & 0xff);
+        colors[2] = toLinear(dc & 0xff);
+        for (int i = 1; i < count; i++) {
+            int ac = decode83(hash, 4 + i * 2, 6 + i * 2);
+            colors[i * 3] = unquantiseAc(ac / (19 * 19), maximumValue);
+            colors[i * 3 + 1] = unquantiseAc((ac / 19) % 19, maximumValue);
+            colors[i * 3 + 2] = unquantiseAc(ac % 19, maximumValue);
+        }
+
+        double[] cosX = cosines(componentsX, width);
+        double[] cosY = cosines(componentsY, height);
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double r = 0;
+                double g = 0;
+                double b = 0;
+                for (int j = 0; j < componentsY; j++) {
+                    double basisY = cosY[j * height + y];
+                    for (int i = 0; i < componentsX; i++) {
+                        double basis = cosX[i * width + x] * basisY;
+                        int color = (j * componentsX + i) * 3;
+                        r += colors[color] * basis;
+                        g += colors[color + 1] * basis;
+                        b += colors[color + 2] * basis;
+                    }
+                }
+                pixels[y * width + x] =
+                        0xff000000 | (toSrgb(r) << 16) | (toSrgb(g) << 8) | toSrgb(b);
+            }
+        }
+        return pixels;
+    }
+
+    /*
+     * cos(PI * component * position / size) for every component and position, by component.
+     */
+    private static double[] cosines(int components, int size) {
+        double[] cosines = new double[components * size];
+        for (int component = 0; component < components; component++) {
+            for (int position = 0; position < size; position++) {
+                cosines[component * size + position] =
+                        Math.cos(Math.PI * component * position / size);
+            }
+        }
+        return cosines;
+    }
+
+    private static int quantiseAc(double value, double maximumValue) {
+        return (int) Math.max(0, Math.min(18,
+                Math.floor(signPow(value / maximumValue, 0.5) * 9 + 9.5)));
+    }
+
+    private static double unquantiseAc(int quantised, double maximumValue) {
+        return signPow((quantised - 9) / 9.0, 2.0) * maximumValue;
+    }
+
+    private static double signPow(double value, double exponent) {
+        return Math.copySign(Math.pow(Math.abs(value), exponent), value);
+    }
+
+    private static double toLinear(int srgb) {
+        double value = srgb / 255.0;
+        return value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4);
+    }
+
+    private static int toSrgb(double linear) {
+        double value = Math.max(0, Math.min(1, linear));
+        if (value <= 0.0031308) {
+            return (int) (value * 12.92 * 255 + 0.5);
+        }
+        return (int) ((1.055 * Math.pow(value, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(int value, int length, StringBuilder out) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            out.append(BASE83.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = BASE83.indexOf(hash.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid BlurHash character: " + hash);
+            }
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.goranminov.popmovies.utilities;
+
+/**
+ * Source of the current time, so that time dependent code can be tested.
+ */
+public interface Clock {
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    long currentTimeMillis();
+}
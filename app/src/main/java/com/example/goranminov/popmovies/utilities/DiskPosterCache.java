@@ -0,0 +1,223 @@
+package com.example.goranminov.popmovies.utilities;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Directory of downloaded poster files with a byte budget.
+ *
+ * Files are named after a hash of their URL. The least recently used files are deleted once
+ * the directory goes over the budget; the order is kept in memory and rebuilt from the file
+ * modification times when the cache is opened.
+ */
+public class DiskPosterCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final File mDirectory;
+    private final long mMaxSize;
+
+    // File name to file size, in access order.
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSize;
+    private int mTempCounter;
+    private boolean mOpened;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    /**
+     * Creates a DiskPosterCache. The directory is indexed on first use, off the caller's
+     * thread as long as the first use is.
+     *
+     * @param directory    The directory the posters are stored in, created if needed.
+     * @param maxSizeBytes The budget for the total size of the files.
+     */
+    public DiskPosterCache(File directory, long maxSizeBytes) {
+        mDirectory = directory;
+        mMaxSize = maxSizeBytes;
+    }
+
+    /*
+     * Indexes the files already in the directory, least recently used first.
+     */
+    private void open() {
+        if (mOpened) {
+            return;
+        }
+        mOpened = true;
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            return;
+        }
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                // Left behind by a download that was interrupted.
+                file.delete();
+            } else {
+                mEntries.put(file.getName(), file.length());
+                mSize += file.length();
+            }
+        }
+        trimToSize();
+    }
+
+    /**
+     * @return The cached file of the URL, or null if it is not cached.
+     */
+    public synchronized File get(String url) {
+        open();
+        String name = fileName(url);
+        if (mEntries.get(name) == null) {
+            mMissCount++;
+            return null;
+        }
+        File file = new File(mDirectory, name);
+        if (!file.exists()) {
+            // Deleted behind our back, e.g. by the system clearing the cache directory.
+            mSize -= mEntries.remove(name);
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Writes the stream to the cache, evicting the least recently used files if needed.
+     * The stream is not closed.
+     *
+     * @return The cached file.
+     * @throws IOException If the stream can't be read or the file written.
+     */
+    public File put(String url, InputStream in) throws IOException {
+        String name = fileName(url);
+        File temp;
+        synchronized (this) {
+            open();
+            temp = new File(mDirectory, name + '.' + mTempCounter++ + TEMP_SUFFIX);
+        }
+        long length = 0;
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                length += read;
+            }
+        } catch (IOException e) {
+            out.close();
+            temp.delete();
+            throw e;
+        }
+        out.close();
+
+        File file = new File(mDirectory, name);
+        synchronized (this) {
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Can't rename " + temp + " to " + file);
+            }
+            Long previous = mEntries.put(name, length);
+            if (previous != null) {
+                mSize -= previous;
+            }
+            mSize += length;
+            trimToSize();
+        }
+        return file;
+    }
+
+    /**
+     * Deletes every cached file.
+     */
+    public synchronized void evictAll() {
+        open();
+        for (String name : mEntries.keySet()) {
+            new File(mDirectory, name).delete();
+        }
+        mEvictionCount += mEntries.size();
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            new File(mDirectory, eldest.getKey()).delete();
+            mSize -= eldest.getValue();
+            mEvictionCount++;
+        }
+    }
+
+    static String fileName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(url.getBytes("UTF-8"));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+                hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public synchronized long size() {
+        return mSize;
+    }
+
+    public long maxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized int entryCount() {
+        return mEntries.size();
+    }
+
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    public synchronized int evictionCount() {
+        return mEvictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DiskPosterCache[size=" + mSize + "/" + mMaxSize + ", entries=" + mEntries.size()
+                + ", hits=" + mHitCount + ", misses=" + mMissCount
+                + ", evictions=" + mEvictionCount + "]";
+    }
+}
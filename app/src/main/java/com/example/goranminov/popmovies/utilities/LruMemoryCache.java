@@ -0,0 +1,129 @@
+package com.example.goranminov.popmovies.utilities;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memory cache evicting its least recently used entries once their total size goes over the
+ * budget. Unlike Picasso's LruCache the budget can be changed, so the cache can shrink when
+ * the system is low on memory and grow back afterwards, see MemoryGovernor.
+ *
+ * @param <V> The type of the cached values.
+ */
+public abstract class LruMemoryCache<V> {
+
+    private final LinkedHashMap<String, V> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private int mMaxSize;
+    private int mSize;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mPutCount;
+    private int mEvictionCount;
+
+    /**
+     * @param maxSize The budget, in the unit of {@link #sizeOf(Object)}.
+     */
+    protected LruMemoryCache(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return The size of a value, in the unit of the budget.
+     */
+    protected abstract int sizeOf(V value);
+
+    /**
+     * @return The cached value, or null if it is not cached.
+     */
+    public synchronized V getEntry(String key) {
+        V value = mEntries.get(key);
+        if (value == null) {
+            mMissCount++;
+        } else {
+            mHitCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Caches the value, evicting the least recently used entries if needed.
+     */
+    public synchronized void putEntry(String key, V value) {
+        mPutCount++;
+        mSize += sizeOf(value);
+        V previous = mEntries.put(key, value);
+        if (previous != null) {
+            mSize -= sizeOf(previous);
+        }
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Removes the entries whose key starts with the prefix.
+     */
+    public synchronized void removeEntries(String keyPrefix) {
+        Iterator<Map.Entry<String, V>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, V> entry = iterator.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                iterator.remove();
+                mSize -= sizeOf(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Changes the budget, evicting entries if the cache is now too big.
+     */
+    public synchronized void resize(int maxSize) {
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void evictAll() {
+        trimToSize(-1);
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<String, V>> iterator = mEntries.entrySet().iterator();
+        while (mSize > maxSize && iterator.hasNext()) {
+            V eldest = iterator.next().getValue();
+            iterator.remove();
+            mSize -= sizeOf(eldest);
+            mEvictionCount++;
+        }
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public synchronized int maxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized int entryCount() {
+        return mEntries.size();
+    }
+
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    public synchronized int putCount() {
+        return mPutCount;
+    }
+
+    public synchronized int evictionCount() {
+        return mEvictionCount;
+    }
+}
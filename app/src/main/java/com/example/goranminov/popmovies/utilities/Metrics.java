@@ -0,0 +1,268 @@
+package com.example.goranminov.popmovies.utilities;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how long the requests, the JSON decoding, the first frame and the first poster take,
+ * for the debug overlay and the tests.
+ *
+ * Every Metric keeps its latest samples in a ring buffer: recording is an atomic increment and
+ * an atomic store, so the network threads never wait on each other or on a reader, and the
+ * memory used doesn't grow. A snapshot copies the ring and sorts the copy for the percentiles;
+ * a sample written while it is copied can be missed or seen, which is fine for a summary.
+ *
+ * Recording is off by default. Callers check {@link #isEnabled()} before taking any time, so
+ * a release build pays a volatile read per request and nothing else.
+ */
+public class Metrics {
+
+    /**
+     * What is measured. Times are recorded in nanoseconds, sizes in bytes.
+     */
+    public enum Metric {
+        // Resolving the host of a request, close to zero once the platform cached it.
+        DNS(true),
+        // Opening the connection, TCP and TLS, zero when a pooled connection is reused.
+        CONNECT(true),
+        // From the request being sent to the status line being read.
+        TTFB(true),
+        // Time spent reading the body from the connection.
+        DOWNLOAD(true),
+        // A whole request, from opening the connection to closing the response.
+        REQUEST(true),
+        // The size of a response body as transferred, before decompression.
+        RESPONSE_BYTES(false),
+        // Decoding a response, the time spent waiting for its bytes excluded.
+        JSON_DECODE(true),
+        // From MainActivity.onCreate to its first frame being drawn.
+        FIRST_FRAME(true),
+        // From MainActivity.onCreate to the first poster of the grid being drawn.
+        FIRST_POSTER(true);
+
+        private final boolean mTime;
+
+        Metric(boolean time) {
+            mTime = time;
+        }
+
+        public boolean isTime() {
+            return mTime;
+        }
+    }
+
+    /*
+     * The latest samples kept for each Metric, a power of two.
+     */
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private static final Object LOCK = new Object();
+    private static Metrics sInstance;
+
+    private final EnumMap<Metric, Ring> mRings = new EnumMap<>(Metric.class);
+    private volatile boolean mEnabled;
+
+    /**
+     * Creates a disabled Metrics.
+     *
+     * @param capacity How many of the latest samples are kept for each Metric, rounded up
+     *                 to a power of two.
+     */
+    public Metrics(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        for (Metric metric : Metric.values()) {
+            mRings.put(metric, new Ring(size));
+        }
+    }
+
+    /**
+     * @return The metrics of the whole application, disabled until the debug build turns
+     * them on.
+     */
+    public static Metrics getInstance() {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                sInstance = new Metrics(DEFAULT_CAPACITY);
+            }
+            return sInstance;
+        }
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * Records a sample, if enabled.
+     *
+     * @param metric The Metric measured.
+     * @param value  The sample, in nanoseconds for times and bytes for sizes.
+     */
+    public void record(Metric metric, long value) {
+        if (mEnabled) {
+            mRings.get(metric).add(value);
+        }
+    }
+
+    /**
+     * @return The summary of the samples of a Metric.
+     */
+    public Summary summary(Metric metric) {
+        return mRings.get(metric).summarize(metric);
+    }
+
+    /**
+     * @return The summaries of every Metric, in declaration order.
+     */
+    public Map<Metric, Summary> dump() {
+        Map<Metric, Summary> summaries = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            summaries.put(metric, summary(metric));
+        }
+        return summaries;
+    }
+
+    /**
+     * @return The summaries of the Metrics with samples, a line each, times in milliseconds.
+     */
+    public String dumpText() {
+        StringBuilder text = new StringBuilder();
+        for (Summary summary : dump().values()) {
+            if (summary.getCount() > 0) {
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                text.append(summary);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Forgets every sample.
+     */
+    public void reset() {
+        for (Ring ring : mRings.values()) {
+            ring.clear();
+        }
+    }
+
+    /**
+     * Percentiles of the latest samples of a Metric.
+     */
+    public static final class Summary {
+
+        private final Metric mMetric;
+        private final long mCount;
+        private final long mP50;
+        private final long mP90;
+        private final long mP99;
+        private final long mMax;
+
+        Summary(Metric metric, long count, long p50, long p90, long p99, long max) {
+            mMetric = metric;
+            mCount = count;
+            mP50 = p50;
+            mP90 = p90;
+            mP99 = p99;
+            mMax = max;
+        }
+
+        public Metric getMetric() {
+            return mMetric;
+        }
+
+        /**
+         * @return How many samples were recorded since the last reset, including the ones
+         * the ring no longer holds.
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getP50() {
+            return mP50;
+        }
+
+        public long getP90() {
+            return mP90;
+        }
+
+        public long getP99() {
+            return mP99;
+        }
+
+        public long getMax() {
+            return mMax;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s n=%d p50=%s p90=%s p99=%s max=%s",
+                    mMetric.name().toLowerCase(Locale.US), mCount, format(mP50), format(mP90),
+                    format(mP99), format(mMax));
+        }
+
+        private String format(long value) {
+            if (!mMetric.isTime()) {
+                return value < 1024 ? value + "B" : (value / 1024) + "KB";
+            }
+            return String.format(Locale.US, "%.1fms", value / 1e6);
+        }
+    }
+
+    /*
+     * Ring buffer of the latest samples. Writers claim a slot with the counter, and never
+     * wait.
+     */
+    private static final class Ring {
+        private final AtomicLongArray mValues;
+        private final AtomicLong mCount = new AtomicLong();
+        private final int mMask;
+
+        Ring(int size) {
+            mValues = new AtomicLongArray(size);
+            mMask = size - 1;
+        }
+
+        void add(long value) {
+            long slot = mCount.getAndIncrement();
+            mValues.set((int) (slot & mMask), value);
+        }
+
+        void clear() {
+            mCount.set(0);
+        }
+
+        Summary summarize(Metric metric) {
+            long count = mCount.get();
+            int size = (int) Math.min(count, mValues.length());
+            if (size == 0) {
+                return new Summary(metric, 0, 0, 0, 0, 0);
+            }
+            long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = mValues.get(i);
+            }
+            Arrays.sort(values);
+            return new Summary(metric, count, percentile(values, 50), percentile(values, 90),
+                    percentile(values, 99), values[size - 1]);
+        }
+
+        /*
+         * Nearest rank percentile of sorted values.
+         */
+        private static long percentile(long[] sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.goranminov.popmovies.utilities;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MovieDetails;
+import com.example.goranminov.popmovies.data.MoviePage;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility functions to handle TheMovieDB JSON data.
+ *
+ * The responses are decoded with a pull parser straight from the stream, so we never hold
+ * the whole body or a JSON tree in memory. Fields we don't use are skipped without being
+ * materialized.
+ */
+public final class MovieJsonUtils {
+
+    /*
+     * The names of the JSON fields that we need to extract.
+     */
+    private static final String MDB_PAGE = "page";
+    private static final String MDB_TOTAL_PAGES = "total_pages";
+    private static final String MDB_RESULTS = "results";
+    private static final String MDB_ID = "id";
+    private static final String MDB_ORIGINAL_TITLE = "original_title";
+    private static final String MDB_POSTER_PATH = "poster_path";
+    private static final String MDB_OVERVIEW = "overview";
+    private static final String MDB_VOTE_AVERAGE = "vote_average";
+    private static final String MDB_RELEASE_DATE = "release_date";
+
+    /*
+     * The fields of a movie details response, and of the responses it appends.
+     */
+    private static final String MDB_RUNTIME = "runtime";
+    private static final String MDB_TAGLINE = "tagline";
+    private static final String MDB_GENRES = "genres";
+    private static final String MDB_NAME = "name";
+    private static final String MDB_VIDEOS = "videos";
+    private static final String MDB_KEY = "key";
+    private static final String MDB_SITE = "site";
+    private static final String MDB_TYPE = "type";
+    private static final String MDB_REVIEWS = "reviews";
+    private static final String MDB_AUTHOR = "author";
+    private static final String MDB_CONTENT = "content";
+    private static final String MDB_CREDITS = "credits";
+    private static final String MDB_CAST = "cast";
+    private static final String MDB_CHARACTER = "character";
+
+    // The cast is billed in order, the detail screen doesn't show more than this.
+    private static final int MAX_CAST = 20;
+
+    /**
+     * Receives the sections of a movie details response as they are decoded.
+     */
+    public interface SectionListener {
+        /**
+         * @param details Everything decoded so far, see {@link MovieDetails#hasSection(int)}.
+         */
+        void onSectionDecoded(MovieDetails details);
+    }
+
+    private MovieJsonUtils() {
+    }
+
+    /**
+     * Decode a list response (e.g. /movie/popular) from the given stream. The stream is
+     * closed when this method returns.
+     *
+     * @param inputStream The UTF-8 encoded response body.
+     * @return The decoded page.
+     * @throws IOException If the stream can't be read or is not valid JSON.
+     */
+    public static MoviePage getMoviePageFromJson(InputStream inputStream) throws IOException {
+        return getMoviePageFromJson(new InputStreamReader(inputStream, "UTF-8"));
+    }
+
+    /**
+     * Decode a list response from the given Reader. The Reader is closed when this
+     * method returns.
+     *
+     * @param in The response body.
+     * @return The decoded page.
+     * @throws IOException If the body can't be read or is not valid JSON.
+     */
+    public static MoviePage getMoviePageFromJson(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        try {
+            int page = 1;
+            int totalPages = 1;
+            List<Movie> movies = new ArrayList<>();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case MDB_PAGE:
+                        page = reader.nextInt();
+                        break;
+                    case MDB_TOTAL_PAGES:
+                        totalPages = reader.nextInt();
+                        break;
+                    case MDB_RESULTS:
+                        readMovies(reader, movies);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new MoviePage(page, totalPages, movies);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed movie list", e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void readMovies(JsonReader reader, List<Movie> movies) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Movie movie = readMovie(reader);
+            if (movie != null) {
+                movies.add(movie);
+            }
+        }
+        reader.endArray();
+    }
+
+    /*
+     * Read a single movie object, returns null if it has no id.
+     */
+    private static Movie readMovie(JsonReader reader) throws IOException {
+        int id = -1;
+        String posterPath = null;
+        String title = null;
+        String overview = null;
+        float voteAverage = 0f;
+        int releaseDate = Movie.NO_RELEASE_DATE;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case MDB_ID:
+                    id = reader.nextInt();
+                    break;
+                case MDB_POSTER_PATH:
+                    posterPath = reader.nextString();
+                    break;
+                case MDB_ORIGINAL_TITLE:
+                    title = reader.nextString();
+                    break;
+                case MDB_OVERVIEW:
+                    overview = reader.nextString();
+                    break;
+                case MDB_VOTE_AVERAGE:
+                    voteAverage = (float) reader.nextDouble();
+                    break;
+                case MDB_RELEASE_DATE:
+                    releaseDate = Movie.parseEpochDay(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (id < 0) {
+            return null;
+        }
+        return new Movie(id, posterPath, title, overview, voteAverage, releaseDate);
+    }
+
+    /**
+     * Decode a /movie/{id} response appending the videos, reviews and credits from the given
+     * stream. The stream is closed when this method returns.
+     *
+     * The movie's own fields come first and the appended responses after them, each one is
+     * handed to the listener as soon as it is decoded, so the caller can show it while the
+     * rest is still downloading. Sections missing from the response are decoded as empty.
+     *
+     * @param inputStream The UTF-8 encoded response body.
+     * @param listener    Receives the details after each section, can be null.
+     * @return The complete details.
+     * @throws IOException If the stream can't be read or is not valid JSON.
+     */
+    public static MovieDetails getMovieDetailsFromJson(InputStream inputStream,
+                                                       SectionListener listener)
+            throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, "UTF-8"));
+        try {
+            DetailsBuilder details = new DetailsBuilder(listener);
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case MDB_ID:
+                        details.mMovieId = reader.nextInt();
+                        break;
+                    case MDB_RUNTIME:
+                        details.mRuntime = reader.nextInt();
+                        break;
+                    case MDB_TAGLINE:
+                        details.mTagline = reader.nextString();
+                        break;
+                    case MDB_GENRES:
+                        readGenres(reader, details.mGenres);
+                        break;
+                    case MDB_VIDEOS:
+                        details.publish(MovieDetails.SECTION_INFO);
+                        readResults(reader, MDB_VIDEOS, details);
+                        details.publish(MovieDetails.SECTION_VIDEOS);
+                        break;
+                    case MDB_REVIEWS:
+                        details.publish(MovieDetails.SECTION_INFO);
+                        readResults(reader, MDB_REVIEWS, details);
+                        details.publish(MovieDetails.SECTION_REVIEWS);
+                        break;
+                    case MDB_CREDITS:
+                        details.publish(MovieDetails.SECTION_INFO);
+                        readResults(reader, MDB_CREDITS, details);
+                        details.publish(MovieDetails.SECTION_CREDITS);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (details.mMovieId < 0) {
+                throw new IOException("Movie details without an id");
+            }
+            details.publish(MovieDetails.ALL_SECTIONS);
+            return details.build();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed movie details", e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void readGenres(JsonReader reader, List<String> genres) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (MDB_NAME.equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    genres.add(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
+    /*
+     * Read an appended response: the list we need is under "results", or "cast" for the
+     * credits.
+     */
+    private static void readResults(JsonReader reader, String section, DetailsBuilder details)
+            throws IOException {
+        String listName = MDB_CREDITS.equals(section) ? MDB_CAST : MDB_RESULTS;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!listName.equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Map<String, String> fields = readStrings(reader);
+                switch (section) {
+                    case MDB_VIDEOS:
+                        details.mVideos.add(new MovieDetails.Video(fields.get(MDB_KEY),
+                                fields.get(MDB_NAME), fields.get(MDB_SITE), fields.get(MDB_TYPE)));
+                        break;
+                    case MDB_REVIEWS:
+                        details.mReviews.add(new MovieDetails.Review(fields.get(MDB_AUTHOR),
+                                fields.get(MDB_CONTENT)));
+                        break;
+                    default:
+                        if (details.mCast.size() < MAX_CAST) {
+                            details.mCast.add(new MovieDetails.CastMember(fields.get(MDB_NAME),
+                                    fields.get(MDB_CHARACTER)));
+                        }
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    /*
+     * Read the string fields of an object, skipping the others.
+     */
+    private static Map<String, String> readStrings(JsonReader reader) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.STRING) {
+                fields.put(name, reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return fields;
+    }
+
+    /*
+     * The details decoded so far, handed to the listener each time a section is added.
+     */
+    private static final class DetailsBuilder {
+        final SectionListener mListener;
+        int mSections;
+        int mMovieId = -1;
+        int mRuntime = MovieDetails.NO_RUNTIME;
+        String mTagline;
+        final List<String> mGenres = new ArrayList<>();
+        final List<MovieDetails.Video> mVideos = new ArrayList<>();
+        final List<MovieDetails.Review> mReviews = new ArrayList<>();
+        final List<MovieDetails.CastMember> mCast = new ArrayList<>();
+
+        DetailsBuilder(SectionListener listener) {
+            mListener = listener;
+        }
+
+        void publish(int sections) {
+            if ((mSections | sections) == mSections) {
+                return;
+            }
+            mSections |= sections;
+            if (mListener != null) {
+                mListener.onSectionDecoded(build());
+            }
+        }
+
+        MovieDetails build() {
+            // Copies, the lists keep growing while the next sections are decoded.
+            return new MovieDetails(mMovieId, mSections, mRuntime, mTagline,
+                    new ArrayList<>(mGenres), new ArrayList<>(mVideos),
+                    new ArrayList<>(mReviews), new ArrayList<>(mCast));
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.goranminov.popmovies.utilities;
+
+import com.example.goranminov.popmovies.data.CachedPage;
+import com.example.goranminov.popmovies.data.FeedVariant;
+import com.example.goranminov.popmovies.data.MovieDetails;
+import com.example.goranminov.popmovies.data.MoviePage;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * These utilities will be used to communicate with TheMovieDB servers.
+ */
+public final class NetworkUtils {
+
+    public static final String MDB_BASE_URL = "http://api.themoviedb.org/3/movie/";
+    public static final String MDB_SEARCH_URL = "http://api.themoviedb.org/3/search/movie";
+
+    private static final String APPID_PARAM = "api_key";
+    private static final String PAGE_PARAM = "page";
+    private static final String QUERY_PARAM = "query";
+    private static final String APPEND_PARAM = "append_to_response";
+    private static final String LANGUAGE_PARAM = "language";
+    private static final String REGION_PARAM = "region";
+
+    // The responses appended to a movie details request, decoded in this order.
+    private static final String DETAILS_APPENDED = "videos,reviews,credits";
+
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private NetworkUtils() {
+    }
+
+    /**
+     * Builds the URL used to query one page of a TheMovieDB movie list.
+     * Possible parameters are available at TMDB's API page.
+     *
+     * @param baseUrl   The base URL ending with a slash, normally {@link #MDB_BASE_URL}.
+     * @param apiKey    The TheMovieDB API key.
+     * @param sortOrder The list to query, e.g. "popular" or "top_rated".
+     * @param page      The 1-based page to query.
+     * @return The URL to use to query TheMovieDB.
+     */
+    public static URL buildMovieListUrl(String baseUrl, String apiKey, String sortOrder, int page) {
+        return buildMovieListUrl(baseUrl, apiKey, sortOrder, page, null);
+    }
+
+    /**
+     * Builds the URL used to query one page of a TheMovieDB movie list in a language and
+     * region.
+     *
+     * @param baseUrl   The base URL ending with a slash, normally {@link #MDB_BASE_URL}.
+     * @param apiKey    The TheMovieDB API key.
+     * @param sortOrder The list to query, e.g. "popular" or "top_rated".
+     * @param page      The 1-based page to query.
+     * @param variant   The language and region, or null for TheMovieDB's defaults.
+     * @return The URL to use to query TheMovieDB.
+     */
+    public static URL buildMovieListUrl(String baseUrl, String apiKey, String sortOrder, int page,
+                                        FeedVariant variant) {
+        StringBuilder url = new StringBuilder(baseUrl).append(encode(sortOrder))
+                .append('?').append(APPID_PARAM).append('=').append(encode(apiKey))
+                .append('&').append(PAGE_PARAM).append('=').append(page);
+        if (variant != null) {
+            appendVariant(url, variant, true);
+        }
+        try {
+            return new URL(url.toString());
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid base URL " + baseUrl, e);
+        }
+    }
+
+    /**
+     * Builds the URL used to search TheMovieDB for movies by title. The response has the
+     * same shape as a page of a movie list.
+     *
+     * @param searchUrl The search endpoint, normally {@link #MDB_SEARCH_URL}.
+     * @param apiKey    The TheMovieDB API key.
+     * @param query     The text to search for.
+     * @param page      The 1-based page of results to query.
+     * @return The URL to use to query TheMovieDB.
+     */
+    public static URL buildSearchUrl(String searchUrl, String apiKey, String query, int page) {
+        return buildSearchUrl(searchUrl, apiKey, query, page, null);
+    }
+
+    /**
+     * Builds the URL used to search TheMovieDB for movies by title, with the results in a
+     * language.
+     *
+     * @param searchUrl The search endpoint, normally {@link #MDB_SEARCH_URL}.
+     * @param apiKey    The TheMovieDB API key.
+     * @param query     The text to search for.
+     * @param page      The 1-based page of results to query.
+     * @param variant   The language, or null for TheMovieDB's default. The results don't
+     *                  depend on the region.
+     * @return The URL to use to query TheMovieDB.
+     */
+    public static URL buildSearchUrl(String searchUrl, String apiKey, String query, int page,
+                                     FeedVariant variant) {
+        StringBuilder url = new StringBuilder(searchUrl)
+                .append('?').append(APPID_PARAM).append('=').append(encode(apiKey))
+                .append('&').append(QUERY_PARAM).append('=').append(encode(query))
+                .append('&').append(PAGE_PARAM).append('=').append(page);
+        if (variant != null) {
+            appendVariant(url, variant, false);
+        }
+        try {
+            return new URL(url.toString());
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid search URL " + searchUrl, e);
+        }
+    }
+
+    /**
+     * Builds the URL used to query the details of a movie, with its videos, reviews and
+     * credits appended so the detail screen needs a single request.
+     *
+     * @param baseUrl The base URL ending with a slash, normally {@link #MDB_BASE_URL}.
+     * @param apiKey  The TheMovieDB API key.
+     * @param movieId The TheMovieDB id of the movie.
+     * @return The URL to use to query TheMovieDB.
+     */
+    public static URL buildMovieDetailsUrl(String baseUrl, String apiKey, int movieId) {
+        return buildMovieDetailsUrl(baseUrl, apiKey, movieId, null);
+    }
+
+    /**
+     * Builds the URL used to query the details of a movie in a language, with its trailers,
+     * reviews and cast appended to the same response.
+     *
+     * @param baseUrl The base URL ending with a slash, normally {@link #MDB_BASE_URL}.
+     * @param apiKey  The TheMovieDB API key.
+     * @param movieId The TheMovieDB id of the movie.
+     * @param variant The language, or null for TheMovieDB's default. The details don't
+     *                depend on the region.
+     * @return The URL to use to query TheMovieDB.
+     */
+    public static URL buildMovieDetailsUrl(String baseUrl, String apiKey, int movieId,
+                                           FeedVariant variant) {
+        StringBuilder url = new StringBuilder(baseUrl).append(movieId)
+                .append('?').append(APPID_PARAM).append('=').append(encode(apiKey))
+                .append('&').append(APPEND_PARAM).append('=').append(encode(DETAILS_APPENDED));
+        if (variant != null) {
+            appendVariant(url, variant, false);
+        }
+        try {
+            return new URL(url.toString());
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid base URL " + baseUrl, e);
+        }
+    }
+
+    /*
+     * TheMovieDB takes the language with its region, e.g. "pt-BR", and the region alone for
+     * the release dates of the lists.
+     */
+    private static void appendVariant(StringBuilder url, FeedVariant variant,
+                                      boolean withRegion) {
+        url.append('&').append(LANGUAGE_PARAM).append('=').append(encode(variant.getTag()));
+        if (withRegion && variant.getRegion() != null) {
+            url.append('&').append(REGION_PARAM).append('=').append(encode(variant.getRegion()));
+        }
+    }
+
+    /**
+     * Fetches and decodes the details of a movie for the visible screen, handing each section
+     * to the listener as soon as it is read from the response stream.
+     *
+     * @param client   The client used to make the request.
+     * @param url      The URL built by {@link #buildMovieDetailsUrl(String, String, int)}.
+     * @param listener Receives the partial details, can be null.
+     * @return The complete details.
+     * @throws IOException Related to network and stream reading, or an unexpected HTTP status.
+     */
+    public static MovieDetails getMovieDetails(ApiClient client, URL url,
+                                               MovieJsonUtils.SectionListener listener)
+            throws IOException {
+        return getMovieDetails(client, url, RateLimiter.Priority.VISIBLE, listener);
+    }
+
+    /**
+     * Fetches and decodes the details of a movie, handing each section to the listener as
+     * soon as it is read from the response stream.
+     *
+     * @param client   The client used to make the request.
+     * @param url      The URL built by {@link #buildMovieDetailsUrl(String, String, int)}.
+     * @param ticket   The priority of the request.
+     * @param listener Receives the partial details, can be null.
+     * @return The complete details.
+     * @throws IOException Related to network and stream reading, or an unexpected HTTP status.
+     */
+    public static MovieDetails getMovieDetails(ApiClient client, URL url,
+                                               RateLimiter.Ticket ticket,
+                                               MovieJsonUtils.SectionListener listener)
+            throws IOException {
+        ApiClient.Response response = client.get(url, null, ticket);
+        try {
+            int responseCode = response.getCode();
+            if (responseCode != HttpURLConnection.HTTP_OK || response.getBody() == null) {
+                throw new IOException("Unexpected HTTP " + responseCode + " for " + url);
+            }
+            long start = System.nanoTime();
+            MovieDetails details =
+                    MovieJsonUtils.getMovieDetailsFromJson(response.getBody(), listener);
+            recordDecode(response, start);
+            return details;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Fetches and decodes one page of a movie list. The body is decoded straight from the
+     * response stream.
+     *
+     * @param client The client used to make the request.
+     * @param url    The URL to fetch the page from.
+     * @return The decoded page.
+     * @throws IOException Related to network and stream reading, or an unexpected HTTP status.
+     */
+    public static MoviePage getMoviePage(ApiClient client, URL url) throws IOException {
+        return fetchMoviePage(client, url, null, 0L).getPage();
+    }
+
+    /**
+     * Fetches one page of a movie list for the visible screen, see
+     * {@link #fetchMoviePage(ApiClient, URL, CachedPage, long, RateLimiter.Priority)}.
+     */
+    public static CachedPage fetchMoviePage(ApiClient client, URL url, CachedPage cached, long now)
+            throws IOException {
+        return fetchMoviePage(client, url, cached, now, RateLimiter.Priority.VISIBLE);
+    }
+
+    /**
+     * Fetches one page of a movie list. If we have a cached copy, the request is made
+     * conditional on its ETag and Last-Modified validators, and the cached page is returned
+     * when the server answers 304 Not Modified. The same page requested again while it is
+     * in flight is only fetched once.
+     *
+     * @param client   The client used to make the request.
+     * @param url      The URL to fetch the page from.
+     * @param cached   The cached copy of the page, can be null.
+     * @param now      The current time in milliseconds, recorded as the fetch time.
+     * @param priority The priority of the request.
+     * @return The fetched page, or the revalidated cached page.
+     * @throws IOException Related to network and stream reading, or an unexpected HTTP status.
+     */
+    public static CachedPage fetchMoviePage(ApiClient client, final URL url,
+                                            final CachedPage cached, final long now,
+                                            RateLimiter.Priority priority) throws IOException {
+        Map<String, String> requestHeaders = null;
+        if (cached != null) {
+            requestHeaders = new HashMap<>();
+            if (cached.getETag() != null) {
+                requestHeaders.put(IF_NONE_MATCH, cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                requestHeaders.put(IF_MODIFIED_SINCE, cached.getLastModified());
+            }
+        }
+        return client.fetch(url, requestHeaders, priority,
+                new ApiClient.ResponseHandler<CachedPage>() {
+                    @Override
+                    public CachedPage handle(ApiClient.Response response) throws IOException {
+                        int responseCode = response.getCode();
+                        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED
+                                && cached != null) {
+                            return cached.revalidatedAt(now);
+                        }
+                        if (responseCode != HttpURLConnection.HTTP_OK
+                                || response.getBody() == null) {
+                            throw new IOException("Unexpected HTTP " + responseCode + " for "
+                                    + url);
+                        }
+                        long start = System.nanoTime();
+                        MoviePage page = MovieJsonUtils.getMoviePageFromJson(response.getBody());
+                        recordDecode(response, start);
+                        return new CachedPage(page, response.getHeader(ETAG),
+                                response.getHeader(LAST_MODIFIED), now);
+                    }
+                });
+    }
+
+    /*
+     * The body is decoded as it downloads, the time the decoder waited for its bytes is
+     * not decoding time.
+     */
+    private static void recordDecode(ApiClient.Response response, long startNanos) {
+        Metrics metrics = response.getMetrics();
+        if (metrics != null) {
+            metrics.record(Metrics.Metric.JSON_DECODE,
+                    System.nanoTime() - startNanos - response.getReadNanos());
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
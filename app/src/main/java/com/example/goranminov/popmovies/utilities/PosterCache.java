@@ -0,0 +1,187 @@
+package com.example.goranminov.popmovies.utilities;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two tier poster cache behind the Picasso instance of the application.
+ *
+ * Decoded posters are kept in a memory LRU sized from the heap of the device, downloaded
+ * posters in a DiskPosterCache with a fixed byte budget. Both the grid and the detail screen
+ * get Picasso through Picasso.with(), which returns the instance built here once
+ * {@link #getInstance(Context)} was called, so a poster the grid showed is never downloaded
+ * again for the detail screen.
+ */
+public class PosterCache {
+
+    /*
+     * The memory tier gets an eighth of the heap (4MB of a 32MB heap, 24MB of a 192MB
+     * one), the disk tier 50MB.
+     */
+    private static final int MEMORY_CACHE_HEAP_FRACTION = 8;
+    private static final long DISK_CACHE_SIZE_BYTES = 50 * 1024 * 1024;
+    private static final String DISK_CACHE_DIR = "posters";
+
+    private static final Object LOCK = new Object();
+    private static PosterCache sInstance;
+
+    private final PosterMemoryCache mMemoryCache;
+    private final DiskPosterCache mDiskCache;
+    private final PosterDownloader mDownloader;
+    private final Picasso mPicasso;
+
+    private PosterCache(Context context, int memoryCacheBytes, DiskPosterCache diskCache,
+                        ApiClient client) {
+        mMemoryCache = new PosterMemoryCache(memoryCacheBytes);
+        mDiskCache = diskCache;
+        mDownloader = new PosterDownloader(client, diskCache);
+        mPicasso = new Picasso.Builder(context)
+                .memoryCache(mMemoryCache)
+                .downloader(mDownloader)
+                .build();
+    }
+
+    /**
+     * Returns the process wide cache, building it and installing its Picasso as the
+     * Picasso.with() singleton on the first call. That call must come before anything uses
+     * Picasso.with(), PopMoviesApplication makes it.
+     */
+    public static PosterCache getInstance(Context context) {
+        synchronized (LOCK) {
+            if (sInstance == null) {
+                Context appContext = context.getApplicationContext();
+                ActivityManager activityManager =
+                        (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+                int memoryCacheBytes = activityManager.getMemoryClass() * 1024 * 1024
+                        / MEMORY_CACHE_HEAP_FRACTION;
+                DiskPosterCache diskCache = new DiskPosterCache(
+                        new File(appContext.getCacheDir(), DISK_CACHE_DIR), DISK_CACHE_SIZE_BYTES);
+                // The image servers are not rate limited like the API, so the posters of a
+                // grid never wait for its pages.
+                ApiClient client = new ApiClient(ApiClient.DEFAULT_CONNECT_TIMEOUT_MILLIS,
+                        ApiClient.DEFAULT_READ_TIMEOUT_MILLIS, ApiClient.DEFAULT_MAX_RETRIES,
+                        ApiClient.DEFAULT_BACKOFF_MILLIS);
+                sInstance = new PosterCache(appContext, memoryCacheBytes, diskCache, client);
+                Picasso.setSingletonInstance(sInstance.mPicasso);
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * @param listener Told about the posters downloaded from now on, can be null.
+     */
+    public void setDownloadListener(PosterDownloader.Listener listener) {
+        mDownloader.setListener(listener);
+    }
+
+    /**
+     * Downloads a poster into the disk tier, unless it is there already, so it is shown
+     * without waiting on the network later. Blocks, must not be called on the main thread.
+     *
+     * @throws IOException If the poster can't be downloaded.
+     */
+    public void prefetch(String url) throws IOException {
+        mDownloader.prefetch(url);
+    }
+
+    public Picasso getPicasso() {
+        return mPicasso;
+    }
+
+    /**
+     * @return The memory tier, whose budget MemoryGovernor shrinks under memory pressure.
+     */
+    public PosterMemoryCache getMemoryCache() {
+        return mMemoryCache;
+    }
+
+    /**
+     * Empties the memory tier, the disk tier is kept.
+     */
+    public void clearMemory() {
+        mMemoryCache.evictAll();
+    }
+
+    /**
+     * @return The current counters of both tiers.
+     */
+    public Snapshot getSnapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Counters of a PosterCache at a point in time.
+     */
+    public static final class Snapshot {
+        public final int memorySize;
+        public final int memoryMaxSize;
+        public final int memoryHits;
+        public final int memoryMisses;
+        public final int memoryEvictions;
+        public final long diskSize;
+        public final long diskMaxSize;
+        public final int diskHits;
+        public final int diskMisses;
+        public final int diskEvictions;
+        public final long decodeCount;
+        public final long averageDecodeMillis;
+        public final long maxDecodeMillis;
+
+        Snapshot(PosterCache cache) {
+            PosterMemoryCache memory = cache.mMemoryCache;
+            memorySize = memory.size();
+            memoryMaxSize = memory.maxSize();
+            memoryHits = memory.hitCount();
+            memoryMisses = memory.missCount();
+            memoryEvictions = memory.evictionCount();
+
+            DiskPosterCache disk = cache.mDiskCache;
+            diskSize = disk.size();
+            diskMaxSize = disk.maxSize();
+            diskHits = disk.hitCount();
+            diskMisses = disk.missCount();
+            diskEvictions = disk.evictionCount();
+
+            PosterDownloader downloader = cache.mDownloader;
+            decodeCount = downloader.decodeCount();
+            averageDecodeMillis = decodeCount == 0 ? 0
+                    : TimeUnit.NANOSECONDS.toMillis(downloader.decodeNanos() / decodeCount);
+            maxDecodeMillis = TimeUnit.NANOSECONDS.toMillis(downloader.maxDecodeNanos());
+        }
+
+        /**
+         * @return The share of the requests served by the memory tier, between 0 and 1.
+         */
+        public float memoryHitRate() {
+            int requests = memoryHits + memoryMisses;
+            return requests == 0 ? 0f : (float) memoryHits / requests;
+        }
+
+        /**
+         * @return The share of the memory misses served by the disk tier, between 0 and 1.
+         */
+        public float diskHitRate() {
+            int requests = diskHits + diskMisses;
+            return requests == 0 ? 0f : (float) diskHits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "PosterCache.Snapshot[memory=" + memorySize + "/" + memoryMaxSize
+                    + " hits=" + memoryHits + " misses=" + memoryMisses
+                    + " evictions=" + memoryEvictions
+                    + ", disk=" + diskSize + "/" + diskMaxSize
+                    + " hits=" + diskHits + " misses=" + diskMisses
+                    + " evictions=" + diskEvictions
+                    + ", decodes=" + decodeCount + " avg=" + averageDecodeMillis + "ms"
+                    + " max=" + maxDecodeMillis + "ms]";
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.goranminov.popmovies.utilities;
+
+import android.net.Uri;
+
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.NetworkPolicy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picasso Downloader serving posters from the DiskPosterCache and downloading the missing
+ * ones with the ApiClient.
+ *
+ * The streams it returns time how long Picasso takes from the first read to closing them,
+ * which is the time spent decoding the poster.
+ */
+public class PosterDownloader implements Downloader {
+
+    /**
+     * Told about every poster downloaded into the disk cache.
+     */
+    public interface Listener {
+        /**
+         * Called on the download thread, must not block it.
+         *
+         * @param url  The URL of the poster.
+         * @param file The cached file.
+         */
+        void onPosterDownloaded(String url, File file);
+    }
+
+    private static final int HTTP_GATEWAY_TIMEOUT = 504;
+
+    /*
+     * The posters have their own disk budget, keep them out of the HTTP cache of the API.
+     */
+    private static final Map<String, String> NO_STORE =
+            Collections.singletonMap("Cache-Control", "no-store");
+
+    private final ApiClient mClient;
+    private final DiskPosterCache mDiskCache;
+    private volatile Listener mListener;
+
+    private final AtomicLong mDecodeCount = new AtomicLong();
+    private final AtomicLong mDecodeNanos = new AtomicLong();
+    private final AtomicLong mMaxDecodeNanos = new AtomicLong();
+
+    public PosterDownloader(ApiClient client, DiskPosterCache diskCache) {
+        mClient = client;
+        mDiskCache = diskCache;
+    }
+
+    /**
+     * @param listener Told about the posters downloaded from now on, can be null.
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public Response load(Uri uri, int networkPolicy) throws IOException {
+        String url = uri.toString();
+        if (NetworkPolicy.shouldReadFromDiskCache(networkPolicy)) {
+            File cached = mDiskCache.get(url);
+            if (cached != null) {
+                return new Response(new DecodeTimingStream(new FileInputStream(cached)), true,
+                        cached.length());
+            }
+        }
+        if (NetworkPolicy.isOfflineOnly(networkPolicy)) {
+            throw new ResponseException("Not cached: " + url, networkPolicy,
+                    HTTP_GATEWAY_TIMEOUT);
+        }
+
+        ApiClient.Response response = mClient.get(new URL(url), NO_STORE);
+        File file;
+        try {
+            if (response.getCode() != HttpURLConnection.HTTP_OK || response.getBody() == null) {
+                throw new ResponseException(response.getCode() + " for " + url, networkPolicy,
+                        response.getCode());
+            }
+            if (!NetworkPolicy.shouldWriteToDiskCache(networkPolicy)) {
+                // Not stored, Picasso reads the body and closes the response through the
+                // stream.
+                InputStream body = new ResponseStream(response);
+                response = null;
+                return new Response(new DecodeTimingStream(body), false, -1);
+            }
+            file = cache(url, response);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+        return new Response(new DecodeTimingStream(new FileInputStream(file)), false,
+                file.length());
+    }
+
+    /**
+     * Downloads a poster into the disk cache without decoding it, unless it is cached already.
+     *
+     * @param url The URL of the poster.
+     * @return The cached file.
+     * @throws IOException If the poster can't be downloaded or stored.
+     */
+    public File prefetch(String url) throws IOException {
+        File cached = mDiskCache.get(url);
+        if (cached != null) {
+            return cached;
+        }
+        ApiClient.Response response = mClient.get(new URL(url), NO_STORE);
+        try {
+            if (response.getCode() != HttpURLConnection.HTTP_OK || response.getBody() == null) {
+                throw new IOException(response.getCode() + " for " + url);
+            }
+            return cache(url, response);
+        } finally {
+            response.close();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    private File cache(String url, ApiClient.Response response) throws IOException {
+        File file = mDiskCache.put(url, response.getBody());
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onPosterDownloaded(url, file);
+        }
+        return file;
+    }
+
+    public long decodeCount() {
+        return mDecodeCount.get();
+    }
+
+    /**
+     * @return The total time spent decoding posters, in nanoseconds.
+     */
+    public long decodeNanos() {
+        return mDecodeNanos.get();
+    }
+
+    /**
+     * @return The longest time spent decoding a poster, in nanoseconds.
+     */
+    public long maxDecodeNanos() {
+        return mMaxDecodeNanos.get();
+    }
+
+    private void recordDecode(long nanos) {
+        mDecodeCount.incrementAndGet();
+        mDecodeNanos.addAndGet(nanos);
+        long max = mMaxDecodeNanos.get();
+        while (nanos > max && !mMaxDecodeNanos.compareAndSet(max, nanos)) {
+            max = mMaxDecodeNanos.get();
+        }
+    }
+
+    /*
+     * Measures the time from the first read to close.
+     */
+    private final class DecodeTimingStream extends FilterInputStream {
+
+        private long mStartNanos;
+        private boolean mClosed;
+
+        DecodeTimingStream(InputStream in) {
+            super(in);
+        }
+
+        private void start() {
+            if (mStartNanos == 0) {
+                mStartNanos = System.nanoTime();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            start();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            start();
+            return super.read(buffer, offset, count);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!mClosed) {
+                mClosed = true;
+                if (mStartNanos != 0) {
+                    recordDecode(System.nanoTime() - mStartNanos);
+                }
+            }
+            super.close();
+        }
+    }
+
+    /*
+     * Body of a response that was not stored, closing it closes the response.
+     */
+    private static final class ResponseStream extends FilterInputStream {
+
+        private final ApiClient.Response mResponse;
+
+        ResponseStream(ApiClient.Response response) {
+            super(response.getBody());
+            mResponse = response;
+        }
+
+        @Override
+        public void close() {
+            mResponse.close();
+        }
+    }
+}
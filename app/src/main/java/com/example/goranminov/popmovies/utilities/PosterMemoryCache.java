@@ -0,0 +1,50 @@
+package com.example.goranminov.popmovies.utilities;
+
+import android.graphics.Bitmap;
+
+import com.squareup.picasso.Cache;
+
+/**
+ * The memory tier of the PosterCache: Picasso's decoded posters, sized by their bytes, with
+ * a budget that shrinks when the system is low on memory.
+ */
+public class PosterMemoryCache extends LruMemoryCache<Bitmap> implements Cache {
+
+    // Separates the uri from the options in Picasso's cache keys.
+    private static final char KEY_SEPARATOR = '\n';
+
+    /**
+     * @param maxSizeBytes The budget for the bytes of the cached bitmaps.
+     */
+    public PosterMemoryCache(int maxSizeBytes) {
+        super(maxSizeBytes);
+    }
+
+    @Override
+    protected int sizeOf(Bitmap bitmap) {
+        return bitmap.getByteCount();
+    }
+
+    @Override
+    public Bitmap get(String key) {
+        return getEntry(key);
+    }
+
+    @Override
+    public void set(String key, Bitmap bitmap) {
+        if (key == null || bitmap == null) {
+            throw new NullPointerException("key == null || bitmap == null");
+        }
+        putEntry(key, bitmap);
+    }
+
+    @Override
+    public void clear() {
+        evictAll();
+    }
+
+    @Override
+    public void clearKeyUri(String uri) {
+        removeEntries(uri + KEY_SEPARATOR);
+    }
+}
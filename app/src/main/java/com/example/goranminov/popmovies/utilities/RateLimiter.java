@@ -0,0 +1,168 @@
+package com.example.goranminov.popmovies.utilities;
+
+/**
+ * Token bucket limiting the rate of the requests made to TheMovieDB, which answers a burst
+ * above its limit with 429 Too Many Requests.
+ *
+ * The bucket holds up to its capacity of tokens and gets a new one every refill interval,
+ * every request takes one. The last tokens are kept for the requests of the visible screen:
+ * a prefetch only gets a token when more than the reserve is left and no visible request is
+ * waiting. When the server asks us to slow down with Retry-After, no token is handed out
+ * until that time has passed.
+ */
+public class RateLimiter {
+
+    /**
+     * Who is waiting for a request.
+     */
+    public enum Priority implements Ticket {
+        // The screen the user is looking at.
+        VISIBLE,
+        // Data that may be shown later: prefetches and background syncs.
+        PREFETCH;
+
+        @Override
+        public Priority getPriority() {
+            return this;
+        }
+    }
+
+    /**
+     * A request waiting for a token. Its priority can be raised while it waits, when a
+     * visible request joins a prefetch in flight.
+     */
+    public interface Ticket {
+        Priority getPriority();
+    }
+
+    private final int mCapacity;
+    private final long mRefillIntervalMillis;
+    private final int mPrefetchReserve;
+    private final Clock mClock;
+
+    // Guarded by this.
+    private double mTokens;
+    private long mRefilledAt;
+    private long mPausedUntil;
+    private int mVisibleWaiting;
+
+    /**
+     * Creates a full RateLimiter.
+     *
+     * @param capacity             The most tokens the bucket holds, the longest burst.
+     * @param refillIntervalMillis The time it takes to get a token back.
+     * @param prefetchReserve      The tokens only visible requests can take.
+     * @param clock                Source of the current time.
+     */
+    public RateLimiter(int capacity, long refillIntervalMillis, int prefetchReserve,
+                       Clock clock) {
+        mCapacity = capacity;
+        mRefillIntervalMillis = refillIntervalMillis;
+        mPrefetchReserve = Math.min(prefetchReserve, capacity - 1);
+        mClock = clock;
+        mTokens = capacity;
+        mRefilledAt = clock.currentTimeMillis();
+    }
+
+    /**
+     * Takes a token, waiting until one is available to a request of that priority or the
+     * timeout passed.
+     *
+     * @param timeoutMillis The longest the request waits for its token.
+     * @return True if a token was taken, false if the timeout passed first.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public synchronized boolean acquire(Ticket ticket, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = mClock.currentTimeMillis() + timeoutMillis;
+        boolean countedVisible = false;
+        try {
+            while (true) {
+                Priority priority = ticket.getPriority();
+                if (priority == Priority.VISIBLE && !countedVisible) {
+                    mVisibleWaiting++;
+                    countedVisible = true;
+                }
+                long waitMillis = tryAcquire(priority);
+                if (waitMillis == 0) {
+                    return true;
+                }
+                long leftMillis = deadline - mClock.currentTimeMillis();
+                if (leftMillis <= 0) {
+                    return false;
+                }
+                wait(Math.min(waitMillis, leftMillis));
+            }
+        } finally {
+            if (countedVisible) {
+                mVisibleWaiting--;
+                // The prefetches held back by this request can go.
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Takes a token if one is available to a request of that priority.
+     *
+     * @return 0 if a token was taken, or how long to wait before trying again.
+     */
+    synchronized long tryAcquire(Priority priority) {
+        long now = mClock.currentTimeMillis();
+        if (now < mPausedUntil) {
+            return mPausedUntil - now;
+        }
+        refill(now);
+        boolean prefetch = priority == Priority.PREFETCH;
+        if (prefetch && mVisibleWaiting > 0) {
+            // Woken up when the visible requests got their tokens.
+            return Math.max(1, mRefillIntervalMillis);
+        }
+        double needed = prefetch ? 1 + mPrefetchReserve : 1;
+        if (mTokens >= needed) {
+            mTokens--;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((needed - mTokens) * mRefillIntervalMillis));
+    }
+
+    /**
+     * Holds every request back for a while, as asked by a Retry-After header. The bucket is
+     * emptied too, so the requests don't all go out again at once when the pause is over.
+     */
+    public synchronized void pauseFor(long millis) {
+        long now = mClock.currentTimeMillis();
+        mPausedUntil = Math.max(mPausedUntil, now + millis);
+        mTokens = 0;
+        mRefilledAt = Math.max(now, mPausedUntil);
+        notifyAll();
+    }
+
+    /**
+     * Wakes the waiting requests up, because the priority of one of them was raised.
+     */
+    public synchronized void onPriorityRaised() {
+        notifyAll();
+    }
+
+    /**
+     * @return The tokens left, for tests.
+     */
+    synchronized int getTokens() {
+        refill(mClock.currentTimeMillis());
+        return (int) mTokens;
+    }
+
+    private void refill(long now) {
+        if (now <= mRefilledAt) {
+            return;
+        }
+        if (mRefillIntervalMillis <= 0) {
+            mTokens = mCapacity;
+        } else {
+            mTokens = Math.min(mCapacity,
+                    mTokens + (double) (now - mRefilledAt) / mRefillIntervalMillis);
+        }
+        mRefilledAt = now;
+    }
+}
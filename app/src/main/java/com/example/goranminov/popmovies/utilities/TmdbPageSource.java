@@ -0,0 +1,48 @@
+package com.example.goranminov.popmovies.utilities;
+
+import com.example.goranminov.popmovies.data.FeedVariant;
+import com.example.goranminov.popmovies.data.MoviePage;
+import com.example.goranminov.popmovies.data.MoviePager;
+
+import java.io.IOException;
+
+/**
+ * PageSource fetching the movie lists from TheMovieDB.
+ */
+public class TmdbPageSource implements MoviePager.PageSource {
+
+    private final ApiClient mClient;
+    private final String mBaseUrl;
+    private final String mApiKey;
+    private final FeedVariant mVariant;
+
+    /**
+     * Creates a TmdbPageSource.
+     *
+     * @param client  The client used to make the requests.
+     * @param baseUrl The base URL ending with a slash, normally {@link NetworkUtils#MDB_BASE_URL}.
+     * @param apiKey  The TheMovieDB API key.
+     */
+    public TmdbPageSource(ApiClient client, String baseUrl, String apiKey) {
+        this(client, baseUrl, apiKey, null);
+    }
+
+    /**
+     * Creates a TmdbPageSource requesting the lists in a variant.
+     *
+     * @param variant The language and region of the lists, or null for TheMovieDB's default.
+     */
+    public TmdbPageSource(ApiClient client, String baseUrl, String apiKey, FeedVariant variant) {
+        mClient = client;
+        mBaseUrl = baseUrl;
+        mApiKey = apiKey;
+        mVariant = variant;
+    }
+
+    @Override
+    public MoviePage loadPage(String sortOrder, int page,
+                              MoviePager.RefreshCallback refreshCallback) throws IOException {
+        return NetworkUtils.getMoviePage(mClient,
+                NetworkUtils.buildMovieListUrl(mBaseUrl, mApiKey, sortOrder, page, mVariant));
+    }
+}
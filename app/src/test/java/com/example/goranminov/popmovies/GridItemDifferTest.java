@@ -0,0 +1,280 @@
+package com.example.goranminov.popmovies;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import com.example.goranminov.popmovies.data.Movie;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class GridItemDifferTest {
+
+    private final Queue<Runnable> mBackground = new ArrayDeque<>();
+    private final Queue<Runnable> mMainThread = new ArrayDeque<>();
+    private RecordingCallback mCallback;
+    private GridItemDiffer mDiffer;
+
+    @Before
+    public void setUp() {
+        mCallback = new RecordingCallback();
+        mDiffer = new GridItemDiffer(mCallback, queue(mBackground), queue(mMainThread));
+    }
+
+    private static Executor queue(final Queue<Runnable> tasks) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+    }
+
+    private void runAll() {
+        while (!mBackground.isEmpty() || !mMainThread.isEmpty()) {
+            if (!mBackground.isEmpty()) {
+                mBackground.poll().run();
+            } else {
+                mMainThread.poll().run();
+            }
+        }
+    }
+
+    private static Movie movie(int id, float voteAverage) {
+        return new Movie(id, "/" + id + ".jpg", "Movie " + id, "Overview " + id, voteAverage,
+                Movie.parseEpochDay("2017-03-26"));
+    }
+
+    private static List<GridItem> movies(int firstId, int count) {
+        List<GridItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(GridItem.movie(movie(firstId + i, 7f)));
+        }
+        return items;
+    }
+
+    /*
+     * Submits the list and checks that the dispatched events turn the old list into it.
+     */
+    private void submitAndVerify(List<GridItem> items) {
+        List<Long> oldIds = ids(mDiffer.getItems());
+        mCallback.mShown = new ArrayList<>(oldIds);
+        mDiffer.submitList(items);
+        runAll();
+        assertEquals(items, mDiffer.getItems());
+        assertTransformed(oldIds, ids(items), mCallback.mShown);
+    }
+
+    /*
+     * Inserted cells are null in the shown list, they must be the new items, every other
+     * cell must hold the item of its position.
+     */
+    private static void assertTransformed(List<Long> oldIds, List<Long> newIds,
+                                          List<Long> shown) {
+        assertEquals(newIds.size(), shown.size());
+        for (int i = 0; i < newIds.size(); i++) {
+            if (shown.get(i) == null) {
+                assertFalse(oldIds.contains(newIds.get(i)));
+            } else {
+                assertEquals(newIds.get(i), shown.get(i));
+            }
+        }
+    }
+
+    private static List<Long> ids(List<GridItem> items) {
+        List<Long> ids = new ArrayList<>();
+        for (GridItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void firstListIsInsertedWithoutBackgroundWork() {
+        mDiffer.submitList(movies(1, 20));
+
+        assertTrue(mBackground.isEmpty());
+        assertEquals(Collections.singletonList("inserted 0 20"), mCallback.mEvents);
+        assertEquals(20, mDiffer.getItems().size());
+    }
+
+    @Test
+    public void unchangedListDispatchesNothing() {
+        submitAndVerify(movies(1, 20));
+        mCallback.mEvents.clear();
+
+        // A refresh builds new, equal Movie instances.
+        submitAndVerify(movies(1, 20));
+
+        assertEquals(Collections.<String>emptyList(), mCallback.mEvents);
+    }
+
+    @Test
+    public void appendedPageIsOneInsert() {
+        submitAndVerify(movies(1, 20));
+        mCallback.mEvents.clear();
+
+        List<GridItem> twoPages = movies(1, 40);
+        submitAndVerify(twoPages);
+
+        assertEquals(Collections.singletonList("inserted 20 20"), mCallback.mEvents);
+    }
+
+    @Test
+    public void droppedPageIsOneRemove() {
+        submitAndVerify(movies(1, 40));
+        mCallback.mEvents.clear();
+
+        submitAndVerify(movies(21, 20));
+
+        assertEquals(Collections.singletonList("removed 0 20"), mCallback.mEvents);
+    }
+
+    @Test
+    public void changedMovieIsOneChange() {
+        submitAndVerify(movies(1, 20));
+        mCallback.mEvents.clear();
+
+        List<GridItem> updated = movies(1, 20);
+        updated.set(5, GridItem.movie(movie(6, 9.5f)));
+        submitAndVerify(updated);
+
+        assertEquals(Collections.singletonList("changed 5 1"), mCallback.mEvents);
+    }
+
+    @Test
+    public void swappedRankingsAreMovesOnly() {
+        submitAndVerify(movies(1, 20));
+        mCallback.mEvents.clear();
+
+        List<GridItem> reordered = movies(1, 20);
+        Collections.swap(reordered, 3, 4);
+        submitAndVerify(reordered);
+
+        assertFalse(mCallback.mEvents.isEmpty());
+        for (String event : mCallback.mEvents) {
+            assertTrue(event, event.startsWith("moved"));
+        }
+    }
+
+    @Test
+    public void newerListSupersedesPendingDiff() {
+        submitAndVerify(movies(1, 20));
+        mCallback.mEvents.clear();
+        mCallback.mShown = ids(mDiffer.getItems());
+
+        mDiffer.submitList(movies(1, 40));
+        mDiffer.submitList(movies(1, 60));
+        runAll();
+
+        assertEquals(60, mDiffer.getItems().size());
+        assertEquals(Collections.singletonList("inserted 20 40"), mCallback.mEvents);
+        assertTransformed(ids(movies(1, 20)), ids(movies(1, 60)), mCallback.mShown);
+    }
+
+    @Test
+    public void clearingCancelsPendingDiff() {
+        submitAndVerify(movies(1, 20));
+        mCallback.mEvents.clear();
+
+        mDiffer.submitList(movies(1, 40));
+        mDiffer.submitList(null);
+        runAll();
+
+        assertTrue(mDiffer.getItems().isEmpty());
+        assertEquals(Collections.singletonList("removed 0 20"), mCallback.mEvents);
+    }
+
+    @Test
+    public void submittedListIsCopied() {
+        List<GridItem> items = movies(1, 20);
+        mDiffer.submitList(items);
+        items.clear();
+
+        assertEquals(20, mDiffer.getItems().size());
+    }
+
+    @Test
+    public void headersKeepTheirIdentity() {
+        List<GridItem> sections = new ArrayList<>();
+        sections.add(GridItem.header("popular"));
+        sections.addAll(movies(1, 20));
+        submitAndVerify(sections);
+        mCallback.mEvents.clear();
+
+        List<GridItem> twoSections = new ArrayList<>(sections);
+        twoSections.add(GridItem.header("top_rated"));
+        twoSections.addAll(movies(101, 20));
+        submitAndVerify(twoSections);
+
+        assertEquals(Collections.singletonList("inserted 21 21"), mCallback.mEvents);
+    }
+
+    @Test
+    public void movieMovingToAnEarlierSectionIsAMove() {
+        List<GridItem> sections = new ArrayList<>();
+        sections.add(GridItem.header("popular"));
+        sections.addAll(movies(1, 4));
+        sections.add(GridItem.header("upcoming"));
+        sections.addAll(movies(101, 4));
+        submitAndVerify(sections);
+        mCallback.mEvents.clear();
+
+        // Movie 103 turns up in the popular list as well.
+        List<GridItem> moved = new ArrayList<>(sections);
+        moved.add(5, moved.remove(8));
+        submitAndVerify(moved);
+
+        assertEquals(Collections.singletonList("moved 8 5"), mCallback.mEvents);
+    }
+
+    @Test
+    public void headerIdsDontCollideWithMovieIds() {
+        assertTrue(GridItem.header("popular").getId() < 0);
+        assertTrue(GridItem.header("top_rated").getId() < 0);
+        assertTrue(GridItem.header("popular").getId() != GridItem.header("top_rated").getId());
+        assertEquals(GridItem.header("popular"), GridItem.header("popular"));
+    }
+
+    /*
+     * Records the events and applies them to a list of ids.
+     */
+    private static final class RecordingCallback implements ListUpdateCallback {
+
+        final List<String> mEvents = new ArrayList<>();
+        List<Long> mShown = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            mEvents.add("inserted " + position + " " + count);
+            for (int i = 0; i < count; i++) {
+                mShown.add(position + i, null);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mEvents.add("removed " + position + " " + count);
+            mShown.subList(position, position + count).clear();
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mEvents.add("moved " + fromPosition + " " + toPosition);
+            mShown.add(toPosition, mShown.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mEvents.add("changed " + position + " " + count);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.goranminov.popmovies;
+
+import android.content.ComponentCallbacks2;
+
+import com.example.goranminov.popmovies.data.MemoryPageCache;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MoviePage;
+import com.example.goranminov.popmovies.data.PosterSize;
+import com.example.goranminov.popmovies.utilities.Clock;
+import com.example.goranminov.popmovies.utilities.LruMemoryCache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MemoryGovernorTest {
+
+    // 16 posters of 1000 bytes, 8 pages.
+    private static final int POSTER_BYTES = 1000;
+    private static final int POSTERS = 16;
+    private static final int PAGES = 8;
+
+    private long mNow = 1490543485000L;
+
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+    };
+
+    private LruMemoryCache<String> mPosterCache;
+    private MemoryPageCache mPageCache;
+    private int mPageSize;
+    private MemoryGovernor mGovernor;
+    private final List<MemoryGovernor.Level> mLevels = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mPosterCache = new LruMemoryCache<String>(POSTERS * POSTER_BYTES) {
+            @Override
+            protected int sizeOf(String value) {
+                return POSTER_BYTES;
+            }
+        };
+        for (int i = 0; i < POSTERS; i++) {
+            mPosterCache.putEntry("poster" + i, "bitmap");
+        }
+
+        MoviePage page = page();
+        MemoryPageCache sizing = new MemoryPageCache(Integer.MAX_VALUE, Long.MAX_VALUE, mClock);
+        sizing.put("page", page);
+        mPageSize = sizing.size();
+        mPageCache = new MemoryPageCache(PAGES * mPageSize, TimeUnit.HOURS.toMillis(1), mClock);
+        for (int i = 1; i <= PAGES; i++) {
+            mPageCache.put("popular/" + i, page);
+        }
+
+        mGovernor = new MemoryGovernor(mPosterCache, mPageCache, mClock);
+        mGovernor.addListener(new MemoryGovernor.Listener() {
+            @Override
+            public void onMemoryLevelChanged(MemoryGovernor.Level level) {
+                mLevels.add(level);
+            }
+        });
+    }
+
+    private static MoviePage page() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            movies.add(new Movie(i, "/" + i + ".jpg", "Title " + i, "Overview " + i, 6f, 0));
+        }
+        return new MoviePage(1, 10, movies);
+    }
+
+    @Test
+    public void cachesKeepTheirBudgetWithoutPressure() {
+        assertEquals(MemoryGovernor.Level.NORMAL, mGovernor.getLevel());
+        assertEquals(POSTERS * POSTER_BYTES, mPosterCache.size());
+        assertEquals(PAGES, mPageCache.entryCount());
+        assertEquals(PosterSize.W185, mGovernor.getPosterSize(PosterSize.W185));
+    }
+
+    @Test
+    public void runningModerateHalvesTheCaches() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+        assertEquals(MemoryGovernor.Level.MODERATE, mGovernor.getLevel());
+        assertEquals(POSTERS / 2 * POSTER_BYTES, mPosterCache.size());
+        assertEquals(POSTERS / 2 * POSTER_BYTES, mPosterCache.maxSize());
+        assertEquals(PAGES / 2, mPageCache.entryCount());
+        assertTrue(mGovernor.getLevel().reducesBitmapDepth());
+        assertEquals(PosterSize.W185, mGovernor.getPosterSize(PosterSize.W185));
+    }
+
+    @Test
+    public void runningLowKeepsAQuarterAndRequestsSmallerPosters() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertEquals(POSTERS / 4 * POSTER_BYTES, mPosterCache.size());
+        assertEquals(PAGES / 4, mPageCache.entryCount());
+        assertEquals(PosterSize.W154, mGovernor.getPosterSize(PosterSize.W185));
+    }
+
+    @Test
+    public void lowMemoryDropsEveryPage() {
+        mGovernor.onLowMemory();
+
+        assertEquals(MemoryGovernor.Level.CRITICAL, mGovernor.getLevel());
+        assertEquals(POSTERS / 8 * POSTER_BYTES, mPosterCache.size());
+        assertEquals(0, mPageCache.entryCount());
+        // Pages are not kept until the pressure is over.
+        mPageCache.put("popular/1", page());
+        assertEquals(0, mPageCache.entryCount());
+    }
+
+    @Test
+    public void mostRecentlyUsedEntriesAreKept() {
+        mPosterCache.getEntry("poster0");
+        mPageCache.get("popular/1");
+
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertNotNull(mPosterCache.getEntry("poster0"));
+        assertNull(mPosterCache.getEntry("poster1"));
+        assertNotNull(mPageCache.get("popular/1"));
+        assertNull(mPageCache.get("popular/2"));
+    }
+
+    @Test
+    public void backgroundLevelsTrimHarderThanUiHidden() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(POSTERS / 2 * POSTER_BYTES, mPosterCache.size());
+
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(POSTERS / 4 * POSTER_BYTES, mPosterCache.size());
+
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(POSTERS / 8 * POSTER_BYTES, mPosterCache.size());
+        assertEquals(0, mPageCache.entryCount());
+        assertEquals(3, mLevels.size());
+    }
+
+    @Test
+    public void lowerLevelDoesNotGrowTheCachesBack() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+        assertEquals(MemoryGovernor.Level.CRITICAL, mGovernor.getLevel());
+        assertEquals(POSTERS / 8 * POSTER_BYTES, mPosterCache.maxSize());
+        assertEquals(1, mLevels.size());
+    }
+
+    @Test
+    public void budgetsComeBackOnceThePressureIsOver() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        mNow += MemoryGovernor.RECOVERY_MILLIS - 1;
+        // A new trim restarts the delay.
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        mNow += MemoryGovernor.RECOVERY_MILLIS - 1;
+        assertEquals(MemoryGovernor.Level.LOW, mGovernor.getLevel());
+
+        mNow += 1;
+
+        assertEquals(MemoryGovernor.Level.NORMAL, mGovernor.getLevel());
+        assertEquals(POSTERS * POSTER_BYTES, mPosterCache.maxSize());
+        assertEquals(PAGES * mPageSize, mPageCache.maxSize());
+        assertEquals(MemoryGovernor.Level.NORMAL, mLevels.get(mLevels.size() - 1));
+    }
+}
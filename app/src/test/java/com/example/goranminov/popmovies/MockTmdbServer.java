@@ -0,0 +1,469 @@
+package com.example.goranminov.popmovies;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the TheMovieDB API, serving canned movie list pages from
+ * /3/movie/{sortOrder}?page=N, canned movie details from /3/movie/{id}, and a page of canned
+ * results from /3/search/movie for any query. The list pages and the search results follow
+ * the language parameter, which is added to their titles and poster file names.
+ */
+public class MockTmdbServer {
+
+    public static final int MOVIES_PER_PAGE = 20;
+
+    /**
+     * The list the search results are taken from, see {@link #movieId(String, int, int)}.
+     */
+    public static final String SEARCH_RESULTS = "search";
+
+    private final HttpServer mServer;
+    private final int mTotalPages;
+    private final ConcurrentHashMap<String, AtomicInteger> mRequestCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger mTotalRequests = new AtomicInteger();
+    private final AtomicInteger mSearchRequests = new AtomicInteger();
+    private final ConcurrentHashMap<String, AtomicInteger> mLanguageRequests =
+            new ConcurrentHashMap<>();
+    private volatile CountDownLatch mGate;
+    private volatile int mStatusCode = 200;
+    private volatile int mVersion;
+    private final AtomicInteger mNotModifiedCount = new AtomicInteger();
+    private final AtomicInteger mGzipResponses = new AtomicInteger();
+    private final AtomicInteger mFailNextRequests = new AtomicInteger();
+    private final AtomicInteger mThrottleNextRequests = new AtomicInteger();
+    private volatile String mRetryAfter;
+    private final Set<String> mConnections = Collections.newSetFromMap(
+            new ConcurrentHashMap<String, Boolean>());
+    private final ConcurrentHashMap<String, Long> mLatencies = new ConcurrentHashMap<>();
+    private volatile int mSharedMovies;
+    private volatile int mChangedMovies = MOVIES_PER_PAGE;
+
+    public MockTmdbServer(int totalPages) throws IOException {
+        mTotalPages = totalPages;
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.createContext("/3/movie/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        mServer.createContext("/3/search/movie", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mSearchRequests.incrementAndGet();
+                if (mFailNextRequests.getAndDecrement() > 0) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = pageJson(SEARCH_RESULTS, 1, 1, 0, 0, MOVIES_PER_PAGE,
+                        languageOf(exchange)).getBytes("UTF-8");
+                exchange.getResponseHeaders()
+                        .set("Content-Type", "application/json;charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.start();
+    }
+
+    /**
+     * @return The base URL to use instead of NetworkUtils.MDB_BASE_URL.
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/3/movie/";
+    }
+
+    /**
+     * @return The URL to use instead of NetworkUtils.MDB_SEARCH_URL.
+     */
+    public String getSearchUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/3/search/movie";
+    }
+
+    public int getSearchRequestCount() {
+        return mSearchRequests.get();
+    }
+
+    /**
+     * Holds every response until {@link #openGate()} is called.
+     */
+    public void closeGate() {
+        mGate = new CountDownLatch(1);
+    }
+
+    public void openGate() {
+        CountDownLatch gate = mGate;
+        mGate = null;
+        if (gate != null) {
+            gate.countDown();
+        }
+    }
+
+    public void setStatusCode(int statusCode) {
+        mStatusCode = statusCode;
+    }
+
+    /**
+     * Changes the content (and ETag) of every page, as if the rankings were updated.
+     */
+    public void setVersion(int version) {
+        mVersion = version;
+    }
+
+    /**
+     * @return How many conditional requests were answered with 304 Not Modified.
+     */
+    public int getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    /**
+     * Delays every response of a list, as if its endpoint were slower.
+     */
+    public void setLatency(String sortOrder, long millis) {
+        mLatencies.put(sortOrder, millis);
+    }
+
+    /**
+     * Limits the changes of {@link #setVersion(int)} to the first movies of every page.
+     */
+    public void setChangedMovies(int count) {
+        mChangedMovies = count;
+    }
+
+    /**
+     * Makes the first movies of the first page the same in every list.
+     */
+    public void setSharedMovies(int count) {
+        mSharedMovies = count;
+    }
+
+    /**
+     * Answers the next requests with 503 Service Unavailable.
+     */
+    public void failNextRequests(int count) {
+        mFailNextRequests.set(count);
+    }
+
+    /**
+     * Answers the next requests of the movie lists with 429 Too Many Requests.
+     *
+     * @param retryAfter The Retry-After header of the answers, can be null.
+     */
+    public void throttleNextRequests(int count, String retryAfter) {
+        mRetryAfter = retryAfter;
+        mThrottleNextRequests.set(count);
+    }
+
+    /**
+     * @return How many distinct client connections were used.
+     */
+    public int getConnectionCount() {
+        return mConnections.size();
+    }
+
+    /**
+     * @return How many responses were sent gzip compressed.
+     */
+    public int getGzipResponseCount() {
+        return mGzipResponses.get();
+    }
+
+    public int getRequestCount(String sortOrder, int page) {
+        AtomicInteger count = mRequestCounts.get(sortOrder + "/" + page);
+        return count == null ? 0 : count.get();
+    }
+
+    public int getTotalRequests() {
+        return mTotalRequests.get();
+    }
+
+    /**
+     * @return How many list pages were requested in the language, "" for the requests
+     * without one.
+     */
+    public int getLanguageRequestCount(String language) {
+        AtomicInteger count = mLanguageRequests.get(language);
+        return count == null ? 0 : count.get();
+    }
+
+    public void shutdown() {
+        openGate();
+        mServer.stop(0);
+    }
+
+    /**
+     * Builds the id of a canned movie, unique across sort orders and pages.
+     */
+    public static int movieId(String sortOrder, int page, int index) {
+        return (Math.abs(sortOrder.hashCode()) % 1000) * 100000 + (page - 1) * MOVIES_PER_PAGE + index;
+    }
+
+    /**
+     * Builds the id of a movie that is in every list, see {@link #setSharedMovies(int)}.
+     */
+    public static int sharedMovieId(int index) {
+        return 1 + index;
+    }
+
+    public static String pageJson(String sortOrder, int page, int totalPages) {
+        return pageJson(sortOrder, page, totalPages, 0);
+    }
+
+    public static String pageJson(String sortOrder, int page, int totalPages, int version) {
+        return pageJson(sortOrder, page, totalPages, version, 0);
+    }
+
+    /**
+     * @param sharedMovies How many movies at the top of the first page have the same id in
+     *                     every list, see {@link #sharedMovieId(int)}.
+     */
+    public static String pageJson(String sortOrder, int page, int totalPages, int version,
+                                  int sharedMovies) {
+        return pageJson(sortOrder, page, totalPages, version, sharedMovies, MOVIES_PER_PAGE);
+    }
+
+    /**
+     * @param changedMovies How many movies at the top of every page carry the version.
+     */
+    public static String pageJson(String sortOrder, int page, int totalPages, int version,
+                                  int sharedMovies, int changedMovies) {
+        return pageJson(sortOrder, page, totalPages, version, sharedMovies, changedMovies, null);
+    }
+
+    /**
+     * @param language The language parameter of the request, or null. The titles and posters
+     *                 are translated to it, as TheMovieDB does.
+     */
+    public static String pageJson(String sortOrder, int page, int totalPages, int version,
+                                  int sharedMovies, int changedMovies, String language) {
+        String posterSuffix = language == null ? ".jpg" : "-" + language + ".jpg";
+        String titleSuffix = language == null ? "" : " (" + language + ")";
+        StringBuilder json = new StringBuilder("{\"page\":").append(page).append(",\"results\":[");
+        for (int i = 0; i < MOVIES_PER_PAGE; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            int id = page == 1 && i < sharedMovies
+                    ? sharedMovieId(i) : movieId(sortOrder, page, i);
+            json.append("{\"poster_path\":\"/").append(id).append(posterSuffix)
+                    .append("\",\"adult\":false,")
+                    .append("\"overview\":\"Overview of movie ").append(id).append("\",")
+                    .append("\"release_date\":\"2016-05-0").append(1 + i % 9).append("\",")
+                    .append("\"genre_ids\":[18,53],\"id\":").append(id).append(',')
+                    .append("\"original_title\":\"Movie ").append(id).append(titleSuffix)
+                    .append(version == 0 || i >= changedMovies ? "" : " v" + version)
+                    .append("\",")
+                    .append("\"popularity\":").append(100 - i).append(',')
+                    .append("\"vote_average\":").append(5 + i % 5).append(".5}");
+        }
+        return json.append("],\"total_results\":").append(totalPages * MOVIES_PER_PAGE)
+                .append(",\"total_pages\":").append(totalPages).append('}').toString();
+    }
+
+    private static String languageOf(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("language=")) {
+                    return param.substring(9);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String sortOrder = path.substring(path.lastIndexOf('/') + 1);
+        if (sortOrder.matches("[0-9]+")) {
+            serveDetails(exchange, Integer.parseInt(sortOrder));
+            return;
+        }
+        int page = 1;
+        String language = null;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("page=")) {
+                    page = Integer.parseInt(param.substring(5));
+                } else if (param.startsWith("language=")) {
+                    language = param.substring(9);
+                }
+            }
+        }
+        mTotalRequests.incrementAndGet();
+        String languageKey = language == null ? "" : language;
+        mLanguageRequests.putIfAbsent(languageKey, new AtomicInteger());
+        mLanguageRequests.get(languageKey).incrementAndGet();
+        mConnections.add(exchange.getRemoteAddress().toString());
+        AtomicInteger count = mRequestCounts.get(sortOrder + "/" + page);
+        if (count == null) {
+            mRequestCounts.putIfAbsent(sortOrder + "/" + page, new AtomicInteger());
+            count = mRequestCounts.get(sortOrder + "/" + page);
+        }
+        count.incrementAndGet();
+
+        CountDownLatch gate = mGate;
+        if (gate != null) {
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Long latency = mLatencies.get(sortOrder);
+        if (latency != null) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (mThrottleNextRequests.getAndDecrement() > 0) {
+            String retryAfter = mRetryAfter;
+            if (retryAfter != null) {
+                exchange.getResponseHeaders().set("Retry-After", retryAfter);
+            }
+            exchange.sendResponseHeaders(429, -1);
+            exchange.close();
+            return;
+        }
+
+        int version = mVersion;
+        String eTag = "\"" + sortOrder + "-" + page + "-v" + version
+                + (language == null ? "" : "-" + language) + "\"";
+        exchange.getResponseHeaders().set("ETag", eTag);
+        exchange.getResponseHeaders().set("Last-Modified", "Sun, 26 Mar 2017 15:51:25 GMT");
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            mNotModifiedCount.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = pageJson(sortOrder, page, mTotalPages, version, mSharedMovies,
+                mChangedMovies, language).getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            gzip.write(body);
+            gzip.close();
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            mGzipResponses.incrementAndGet();
+        }
+        int statusCode = mStatusCode;
+        if (mFailNextRequests.getAndDecrement() > 0) {
+            statusCode = 503;
+        }
+        if (statusCode != 200) {
+            exchange.sendResponseHeaders(statusCode, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    /**
+     * @return How many times the details of the movie were requested.
+     */
+    public int getDetailsRequestCount(int movieId) {
+        AtomicInteger count = mRequestCounts.get("details/" + movieId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Builds the details of a canned movie, with the appended responses that were asked for.
+     *
+     * @param appended The value of append_to_response, e.g. "videos,reviews", can be null.
+     */
+    public static String detailsJson(int movieId, String appended) {
+        List<String> sections = appended == null
+                ? Collections.<String>emptyList() : Arrays.asList(appended.split(","));
+        StringBuilder json = new StringBuilder("{\"id\":").append(movieId)
+                .append(",\"original_title\":\"Movie ").append(movieId).append('"')
+                .append(",\"runtime\":").append(90 + movieId % 60)
+                .append(",\"tagline\":\"Tagline of movie ").append(movieId).append('"')
+                .append(",\"genres\":[{\"id\":18,\"name\":\"Drama\"},")
+                .append("{\"id\":53,\"name\":\"Thriller\"}]");
+        if (sections.contains("videos")) {
+            json.append(",\"videos\":{\"results\":[{\"key\":\"k").append(movieId)
+                    .append("\",\"name\":\"Trailer\",\"site\":\"YouTube\",")
+                    .append("\"type\":\"Trailer\"}]}");
+        }
+        if (sections.contains("reviews")) {
+            json.append(",\"reviews\":{\"page\":1,\"results\":[{\"author\":\"critic\",")
+                    .append("\"content\":\"Review of movie ").append(movieId)
+                    .append("\"}],\"total_pages\":1}");
+        }
+        if (sections.contains("credits")) {
+            json.append(",\"credits\":{\"cast\":[{\"name\":\"Actor\",")
+                    .append("\"character\":\"Hero\"}],\"crew\":[]}");
+        }
+        return json.append('}').toString();
+    }
+
+    private void serveDetails(HttpExchange exchange, int movieId) throws IOException {
+        String appended = null;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("append_to_response=")) {
+                    appended = param.substring("append_to_response=".length());
+                }
+            }
+        }
+        mTotalRequests.incrementAndGet();
+        mRequestCounts.putIfAbsent("details/" + movieId, new AtomicInteger());
+        mRequestCounts.get("details/" + movieId).incrementAndGet();
+
+        CountDownLatch gate = mGate;
+        if (gate != null) {
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (mFailNextRequests.getAndDecrement() > 0) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = detailsJson(movieId, appended).getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.goranminov.popmovies;
+
+import com.example.goranminov.popmovies.data.FeedVariant;
+import com.example.goranminov.popmovies.data.HomeFeedLoader;
+import com.example.goranminov.popmovies.data.HomeSection;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MoviePager;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.TmdbPageSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MovieListModelTest {
+
+    private static final ApiClient TEST_CLIENT = new ApiClient(1000, 2000, 0, 0);
+
+    private static final int ROTATIONS = 10;
+
+    private static final FeedVariant ENGLISH = new FeedVariant("en", "US");
+    private static final FeedVariant GERMAN = new FeedVariant("de", "DE");
+
+    private MockTmdbServer mServer;
+    private ExecutorService mNetwork;
+    private ExecutorService mMain;
+    private MovieListModel mModel;
+
+    /*
+     * Stands in for MainActivity: it starts from the movies the model already has and
+     * applies the changes it is told about.
+     */
+    private static class FakeActivity implements MovieListModel.Ui {
+        final List<Movie> mShown = new ArrayList<>();
+        List<HomeSection> mSections = Collections.emptyList();
+        int mFailures;
+
+        @Override
+        public void onSectionsChanged(List<HomeSection> sections) {
+            mSections = sections;
+        }
+
+        @Override
+        public void onMoviesInserted(int position, List<Movie> movies) {
+            mShown.addAll(position, movies);
+        }
+
+        @Override
+        public void onMoviesRemoved(int position, int count) {
+            mShown.subList(position, position + count).clear();
+        }
+
+        @Override
+        public void onLoadFailed(int page, IOException e) {
+            mFailures++;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockTmdbServer(5);
+        mNetwork = Executors.newFixedThreadPool(3);
+        mMain = Executors.newSingleThreadExecutor();
+        TmdbPageSource source = new TmdbPageSource(TEST_CLIENT, mServer.getBaseUrl(), "key",
+                ENGLISH);
+        mModel = new MovieListModel(pagerFactory(source), homeLoaderFactory(source));
+    }
+
+    private MovieListModel.PagerFactory pagerFactory(final TmdbPageSource source) {
+        return new MovieListModel.PagerFactory() {
+            @Override
+            public MoviePager create(String sortOrder, MoviePager.Listener listener) {
+                return new MoviePager(sortOrder, source, mNetwork, mMain, listener, 10, 10);
+            }
+        };
+    }
+
+    private MovieListModel.HomeLoaderFactory homeLoaderFactory(final TmdbPageSource source) {
+        return new MovieListModel.HomeLoaderFactory() {
+            @Override
+            public HomeFeedLoader create(HomeFeedLoader.Listener listener) {
+                return new HomeFeedLoader(Arrays.asList("popular", "top_rated"), 2, source,
+                        mNetwork, mMain, listener);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+        mNetwork.shutdownNow();
+        mMain.shutdownNow();
+    }
+
+    private <T> T onMain(Callable<T> callable) throws Exception {
+        return mMain.submit(callable).get(5, TimeUnit.SECONDS);
+    }
+
+    /*
+     * What MainActivity does in onCreate.
+     */
+    private FakeActivity create() throws Exception {
+        return onMain(new Callable<FakeActivity>() {
+            @Override
+            public FakeActivity call() {
+                FakeActivity activity = new FakeActivity();
+                mModel.attach(activity);
+                activity.mShown.addAll(mModel.getMovies());
+                if (mModel.getSortOrder() == null) {
+                    mModel.showSortOrder("popular");
+                }
+                return activity;
+            }
+        });
+    }
+
+    private void destroy() throws Exception {
+        onMain(new Callable<Void>() {
+            @Override
+            public Void call() {
+                mModel.detach();
+                return null;
+            }
+        });
+    }
+
+    private boolean show(final String sortOrder) throws Exception {
+        return onMain(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mModel.showSortOrder(sortOrder);
+            }
+        });
+    }
+
+    /*
+     * What MainActivity does when the user picks another variant.
+     */
+    private void showVariant(FeedVariant variant) throws Exception {
+        final TmdbPageSource source = new TmdbPageSource(TEST_CLIENT, mServer.getBaseUrl(),
+                "key", variant);
+        onMain(new Callable<Void>() {
+            @Override
+            public Void call() {
+                mModel.replaceFactories(pagerFactory(source), homeLoaderFactory(source));
+                return null;
+            }
+        });
+    }
+
+    private boolean isReplacing() throws Exception {
+        return onMain(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mModel.isReplacing();
+            }
+        });
+    }
+
+    private static boolean allIn(List<Movie> movies, FeedVariant variant) {
+        for (Movie movie : movies) {
+            if (!movie.getTitle().endsWith("(" + variant.getTag() + ")")) {
+                return false;
+            }
+        }
+        return !movies.isEmpty();
+    }
+
+    private void awaitIdle() throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (onMain(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mModel.isLoading();
+            }
+        })) {
+            assertTrue("Timed out waiting for the model", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void rotationsDuringLoadMakeOneNetworkCall() throws Exception {
+        mServer.closeGate();
+        FakeActivity activity = create();
+        for (int i = 0; i < ROTATIONS; i++) {
+            destroy();
+            activity = create();
+        }
+        mServer.openGate();
+        awaitIdle();
+
+        assertEquals(1, mServer.getTotalRequests());
+        assertEquals(20, activity.mShown.size());
+    }
+
+    @Test
+    public void rotationsAfterLoadReuseTheMovies() throws Exception {
+        create();
+        awaitIdle();
+        FakeActivity activity = null;
+        for (int i = 0; i < ROTATIONS; i++) {
+            destroy();
+            activity = create();
+        }
+
+        assertEquals(1, mServer.getTotalRequests());
+        assertEquals(20, activity.mShown.size());
+    }
+
+    @Test
+    public void detachedActivityReceivesNothing() throws Exception {
+        mServer.closeGate();
+        FakeActivity old = create();
+        destroy();
+        mServer.openGate();
+        awaitIdle();
+
+        assertTrue(old.mShown.isEmpty());
+        assertEquals(20, create().mShown.size());
+    }
+
+    @Test
+    public void showingTheSameSortOrderIsCoalesced() throws Exception {
+        create();
+        assertFalse(show("popular"));
+        assertFalse(show("popular"));
+        awaitIdle();
+
+        assertEquals(1, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void onlyTheLatestSortOrderIsDelivered() throws Exception {
+        mServer.closeGate();
+        FakeActivity activity = create();
+        assertTrue(show("top_rated"));
+        mServer.openGate();
+        awaitIdle();
+        // Give the superseded response time to (not) arrive.
+        Thread.sleep(200);
+
+        assertEquals(20, activity.mShown.size());
+        assertEquals(MockTmdbServer.movieId("top_rated", 1, 0), activity.mShown.get(0).getId());
+        assertEquals(activity.mShown, onMain(new Callable<List<Movie>>() {
+            @Override
+            public List<Movie> call() {
+                return new ArrayList<>(mModel.getMovies());
+            }
+        }));
+    }
+
+    @Test
+    public void failedSortOrderCanBeRetried() throws Exception {
+        mServer.setStatusCode(500);
+        FakeActivity activity = create();
+        awaitIdle();
+        assertEquals(1, activity.mFailures);
+        assertTrue(onMain(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mModel.hasFailed();
+            }
+        }));
+
+        mServer.setStatusCode(200);
+        assertTrue(show("popular"));
+        awaitIdle();
+        assertEquals(20, activity.mShown.size());
+    }
+
+    @Test
+    public void switchesBetweenTheHomeGridAndASortOrder() throws Exception {
+        FakeActivity activity = create();
+        awaitIdle();
+        assertTrue(show(MovieListModel.SORT_HOME));
+        assertFalse(show(MovieListModel.SORT_HOME));
+        awaitIdle();
+
+        assertEquals(2, activity.mSections.size());
+        assertEquals("popular", activity.mSections.get(0).getFeed());
+        assertEquals(40, activity.mSections.get(1).getMovies().size());
+        assertTrue(onMain(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mModel.getMovies().isEmpty() && mModel.isHome();
+            }
+        }));
+
+        activity.mShown.clear();
+        assertTrue(show("popular"));
+        awaitIdle();
+        assertEquals(20, activity.mShown.size());
+        assertTrue(onMain(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mModel.getSections().isEmpty();
+            }
+        }));
+    }
+
+    @Test
+    public void oldVariantIsShownUntilTheNewOneArrives() throws Exception {
+        FakeActivity activity = create();
+        awaitIdle();
+        mServer.closeGate();
+        showVariant(GERMAN);
+
+        assertTrue(isReplacing());
+        assertEquals(20, activity.mShown.size());
+        assertTrue(allIn(activity.mShown, ENGLISH));
+
+        mServer.openGate();
+        awaitIdle();
+        assertFalse(isReplacing());
+        assertEquals(20, activity.mShown.size());
+        assertTrue(allIn(activity.mShown, GERMAN));
+        assertEquals(1, mServer.getLanguageRequestCount("de-DE"));
+    }
+
+    @Test
+    public void failedVariantKeepsTheOldList() throws Exception {
+        FakeActivity activity = create();
+        awaitIdle();
+        mServer.setStatusCode(500);
+        showVariant(GERMAN);
+        awaitIdle();
+
+        assertFalse(isReplacing());
+        assertEquals(0, activity.mFailures);
+        assertEquals(20, activity.mShown.size());
+        assertTrue(allIn(activity.mShown, ENGLISH));
+    }
+
+    @Test
+    public void homeGridSwapsInOnceEverySectionLoaded() throws Exception {
+        FakeActivity activity = create();
+        assertTrue(show(MovieListModel.SORT_HOME));
+        awaitIdle();
+        showVariant(GERMAN);
+        awaitIdle();
+
+        assertEquals(2, activity.mSections.size());
+        for (HomeSection section : activity.mSections) {
+            assertTrue(allIn(section.getMovies(), GERMAN));
+        }
+    }
+}
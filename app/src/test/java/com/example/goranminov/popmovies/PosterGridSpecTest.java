@@ -0,0 +1,58 @@
+package com.example.goranminov.popmovies;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PosterGridSpecTest {
+
+    // grid_poster_width at xxhdpi.
+    private static final int TARGET_WIDTH = 540;
+
+    @Test
+    public void phoneInPortraitHasTwoColumns() {
+        // 360dp and 411dp wide.
+        assertEquals(2, PosterGridSpec.forWidth(1080, TARGET_WIDTH).getSpanCount());
+        assertEquals(2, PosterGridSpec.forWidth(1233, TARGET_WIDTH).getSpanCount());
+    }
+
+    @Test
+    public void phoneInLandscapeHasFourColumns() {
+        assertEquals(4, PosterGridSpec.forWidth(1920, TARGET_WIDTH).getSpanCount());
+        assertEquals(4, PosterGridSpec.forWidth(2193, TARGET_WIDTH).getSpanCount());
+    }
+
+    @Test
+    public void columnsStayBetweenTwoAndSix() {
+        assertEquals(PosterGridSpec.MIN_SPAN_COUNT,
+                PosterGridSpec.forWidth(480, TARGET_WIDTH).getSpanCount());
+        assertEquals(PosterGridSpec.MAX_SPAN_COUNT,
+                PosterGridSpec.forWidth(5000, TARGET_WIDTH).getSpanCount());
+    }
+
+    @Test
+    public void cellsHaveThePosterAspectRatio() {
+        PosterGridSpec spec = PosterGridSpec.forSpanCount(1080, 2);
+
+        assertEquals(540, spec.getCellWidth());
+        assertEquals(810, spec.getCellHeight());
+    }
+
+    @Test
+    public void posterCoversTheCell() {
+        for (int spanCount = 2; spanCount <= 6; spanCount++) {
+            PosterGridSpec spec = PosterGridSpec.forSpanCount(2560, spanCount);
+
+            assertTrue(spec.toString(),
+                    spec.getPosterSize().getWidth() >= spec.getCellWidth());
+        }
+    }
+
+    @Test
+    public void moreColumnsRequestSmallerPosters() {
+        PosterGridSpec two = PosterGridSpec.forSpanCount(1080, 2);
+        PosterGridSpec six = PosterGridSpec.forSpanCount(1080, 6);
+
+        assertTrue(six.getPosterSize().getWidth() < two.getPosterSize().getWidth());
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.MockTmdbServer;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.Clock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CachingPageSourceTest {
+
+    private static final String SORT = "top_rated";
+    private static final FeedVariant VARIANT = new FeedVariant("en", "US");
+    private static final long TTL = TimeUnit.MINUTES.toMillis(60);
+
+    private MockTmdbServer mServer;
+    private InMemoryCatalogStore mStore;
+    private MemoryPageCache mMemoryCache;
+    private SearchIndex mSearchIndex;
+    private CachingPageSource mSource;
+    private long mNow = 1490543485000L;
+    private final List<Runnable> mRevalidations = new ArrayList<>();
+    private final List<MoviePage> mRefreshed = new ArrayList<>();
+
+    private final MoviePager.RefreshCallback mRefreshCallback = new MoviePager.RefreshCallback() {
+        @Override
+        public void onPageRefreshed(MoviePage page) {
+            mRefreshed.add(page);
+        }
+    };
+
+    private final Executor mQueue = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mRevalidations.add(command);
+        }
+    };
+
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockTmdbServer(3);
+        mStore = new InMemoryCatalogStore();
+        mMemoryCache = new MemoryPageCache(1024 * 1024, TimeUnit.MINUTES.toMillis(10), mClock);
+        mSearchIndex = new SearchIndex();
+        mSource = source(VARIANT);
+    }
+
+    /*
+     * A source sharing the server, caches and store of mSource.
+     */
+    private CachingPageSource source(FeedVariant variant) {
+        return new CachingPageSource(new ApiClient(1000, 2000, 0, 0), mServer.getBaseUrl(),
+                "key", variant, mMemoryCache, mStore, mSearchIndex, mQueue, TTL, mClock);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+    }
+
+    private void runRevalidations() {
+        List<Runnable> tasks = new ArrayList<>(mRevalidations);
+        mRevalidations.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void coldStartFetchesAndStoresThePage() throws Exception {
+        MoviePage page = mSource.loadPage(SORT, 1, mRefreshCallback);
+
+        assertEquals(20, page.getMovies().size());
+        assertEquals(1, mServer.getRequestCount(SORT, 1));
+        CachedPage stored = mStore.getPage(VARIANT.partition(SORT), 1);
+        assertNotNull(stored);
+        assertEquals("\"top_rated-1-v0-en-US\"", stored.getETag());
+        assertEquals(mNow, stored.getFetchedAt());
+    }
+
+    @Test
+    public void loadedPagesAreIndexedForSearch() throws Exception {
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        mSource.loadPage(SORT, 2, mRefreshCallback);
+
+        assertEquals(40, mSearchIndex.size());
+        int id = MockTmdbServer.movieId(SORT, 2, 3);
+        List<Movie> found = mSearchIndex.search("movie " + id, 10);
+        assertEquals(1, found.size());
+        assertEquals(id, found.get(0).getId());
+    }
+
+    @Test
+    public void repeatedLoadIsServedFromMemory() throws Exception {
+        MoviePage first = mSource.loadPage(SORT, 1, mRefreshCallback);
+        mNow += TimeUnit.MINUTES.toMillis(1);
+
+        MoviePage page = mSource.loadPage(SORT, 1, mRefreshCallback);
+
+        assertSame(first, page);
+        assertEquals(1, mMemoryCache.hitCount());
+        assertEquals(1, mStore.getReadCount());
+        assertEquals(1, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void freshPageIsServedWithoutNetwork() throws Exception {
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        mNow += TimeUnit.MINUTES.toMillis(59);
+
+        MoviePage page = mSource.loadPage(SORT, 1, mRefreshCallback);
+
+        assertEquals(20, page.getMovies().size());
+        assertTrue(mRevalidations.isEmpty());
+        assertEquals(1, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void stalePageIsServedAndRevalidatedWithNotModified() throws Exception {
+        MoviePage first = mSource.loadPage(SORT, 1, mRefreshCallback);
+        mNow += TimeUnit.MINUTES.toMillis(61);
+
+        MoviePage page = mSource.loadPage(SORT, 1, mRefreshCallback);
+        assertSame(first, page);
+        assertEquals(1, mRevalidations.size());
+
+        runRevalidations();
+        assertEquals(1, mServer.getNotModifiedCount());
+        assertTrue(mRefreshed.isEmpty());
+        assertEquals(mNow, mStore.getPage(VARIANT.partition(SORT), 1).getFetchedAt());
+    }
+
+    @Test
+    public void stalePageInMemoryIsRevalidated() throws Exception {
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        // Read back from the store while fresh, so the memory cache holds it as it goes stale.
+        mNow += TimeUnit.MINUTES.toMillis(55);
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        mNow += TimeUnit.MINUTES.toMillis(6);
+
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        assertEquals(1, mMemoryCache.hitCount());
+        assertEquals(1, mRevalidations.size());
+
+        runRevalidations();
+        assertEquals(1, mServer.getNotModifiedCount());
+        // The memory copy was revalidated too.
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        assertTrue(mRevalidations.isEmpty());
+    }
+
+    @Test
+    public void failedRevalidationIsRetriedOnTheNextLoad() throws Exception {
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        mNow += TimeUnit.MINUTES.toMillis(61);
+        mServer.setVersion(1);
+        mServer.setStatusCode(503);
+
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        runRevalidations();
+        assertTrue(mRefreshed.isEmpty());
+
+        mServer.setStatusCode(200);
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        assertEquals(1, mRevalidations.size());
+        runRevalidations();
+        assertEquals(1, mRefreshed.size());
+    }
+
+    @Test
+    public void changedPageIsStoredAndHandedToTheCallback() throws Exception {
+        mSource.loadPage(SORT, 2, mRefreshCallback);
+        mServer.setVersion(1);
+        mNow += TimeUnit.HOURS.toMillis(2);
+
+        mSource.loadPage(SORT, 2, mRefreshCallback);
+        runRevalidations();
+
+        assertEquals(1, mRefreshed.size());
+        assertEquals(2, mRefreshed.get(0).getPage());
+        assertTrue(mRefreshed.get(0).getMovies().get(0).getTitle().endsWith(" v1"));
+        assertEquals("\"top_rated-2-v1-en-US\"",
+                mStore.getPage(VARIANT.partition(SORT), 2).getETag());
+        assertSame(mRefreshed.get(0), mSource.loadPage(SORT, 2, mRefreshCallback));
+    }
+
+    @Test
+    public void concurrentLoadsRevalidateOnce() throws Exception {
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        mNow += TimeUnit.HOURS.toMillis(2);
+
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        assertEquals(1, mRevalidations.size());
+
+        runRevalidations();
+        mNow += TimeUnit.HOURS.toMillis(2);
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        assertEquals(1, mRevalidations.size());
+    }
+
+    @Test
+    public void storedPageIsServedOffline() throws Exception {
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        mServer.shutdown();
+        mNow += TimeUnit.DAYS.toMillis(3);
+
+        MoviePage page = mSource.loadPage(SORT, 1, mRefreshCallback);
+        runRevalidations();
+
+        assertEquals(20, page.getMovies().size());
+        assertTrue(mRefreshed.isEmpty());
+    }
+
+    @Test
+    public void variantsAreFetchedAndCachedApart() throws Exception {
+        FeedVariant german = new FeedVariant("de", "DE");
+        CachingPageSource germanSource = source(german);
+
+        MoviePage english = mSource.loadPage(SORT, 1, mRefreshCallback);
+        MoviePage germanPage = germanSource.loadPage(SORT, 1, mRefreshCallback);
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        germanSource.loadPage(SORT, 1, mRefreshCallback);
+
+        assertEquals(1, mServer.getLanguageRequestCount("en-US"));
+        assertEquals(1, mServer.getLanguageRequestCount("de-DE"));
+        assertTrue(english.getMovies().get(0).getTitle().endsWith("(en-US)"));
+        assertTrue(germanPage.getMovies().get(0).getTitle().endsWith("(de-DE)"));
+        assertEquals("\"top_rated-1-v0-de-DE\"",
+                mStore.getPage(german.partition(SORT), 1).getETag());
+        assertEquals("\"top_rated-1-v0-en-US\"",
+                mStore.getPage(VARIANT.partition(SORT), 1).getETag());
+    }
+
+    @Test
+    public void storedPagesOfAnotherVariantAreNotServedOffline() throws Exception {
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+        mServer.shutdown();
+        CachingPageSource germanSource = source(new FeedVariant("de", "DE"));
+
+        try {
+            germanSource.loadPage(SORT, 1, mRefreshCallback);
+            fail("Expected the page of the other variant not to be served");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void missingPageFailsOffline() throws Exception {
+        mServer.shutdown();
+        mSource.loadPage(SORT, 1, mRefreshCallback);
+    }
+}
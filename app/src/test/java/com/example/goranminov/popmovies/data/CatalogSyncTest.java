@@ -0,0 +1,181 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.MockTmdbServer;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.Clock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CatalogSyncTest {
+
+    private static final List<String> SORT_ORDERS = Arrays.asList("popular", "top_rated");
+    private static final long FRESH = TimeUnit.MINUTES.toMillis(60);
+    private static final FeedVariant VARIANT = new FeedVariant("en", "US");
+
+    private MockTmdbServer mServer;
+    private InMemoryCatalogStore mStore;
+    private SearchIndex mSearchIndex;
+    private final List<String> mFetchedPosters = new ArrayList<>();
+    private long mNow = 1490543485000L;
+
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockTmdbServer(5);
+        mStore = new InMemoryCatalogStore();
+        mSearchIndex = new SearchIndex();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+    }
+
+    private CatalogSync sync(CatalogSync.PosterFetcher posterFetcher) {
+        return new CatalogSync(new ApiClient(1000, 2000, 0, 0), mServer.getBaseUrl(), "key",
+                VARIANT, mStore, mSearchIndex, posterFetcher, PosterSize.W185, SORT_ORDERS, 3, FRESH,
+                mClock);
+    }
+
+    private CatalogSync sync() {
+        return sync(new CatalogSync.PosterFetcher() {
+            @Override
+            public void fetch(String url) {
+                mFetchedPosters.add(url);
+            }
+        });
+    }
+
+    @Test
+    public void firstSyncStoresThePagesOfEveryList() throws Exception {
+        CatalogSync.Result result = sync().sync();
+
+        assertEquals(6, result.pagesFetched);
+        assertEquals(6 * MockTmdbServer.MOVIES_PER_PAGE, result.moviesWritten);
+        for (String sortOrder : SORT_ORDERS) {
+            for (int page = 1; page <= 3; page++) {
+                assertEquals(1, mServer.getRequestCount(sortOrder, page));
+                CachedPage stored = mStore.getPage(VARIANT.partition(sortOrder), page);
+                assertEquals(mNow, stored.getFetchedAt());
+            }
+            assertEquals(0, mServer.getRequestCount(sortOrder, 4));
+        }
+        assertEquals(120, mSearchIndex.size());
+    }
+
+    @Test
+    public void onlyTheChangedMoviesAreWritten() throws Exception {
+        sync().sync();
+        mNow += FRESH;
+        mServer.setChangedMovies(2);
+        mServer.setVersion(1);
+
+        CatalogSync.Result result = sync().sync();
+
+        assertEquals(6, result.pagesFetched);
+        assertEquals(6 * 2, result.moviesWritten);
+        Movie changed = mStore.getPage(VARIANT.partition("popular"), 1).getPage().getMovies().get(0);
+        assertTrue(changed.getTitle().endsWith(" v1"));
+    }
+
+    @Test
+    public void unchangedPagesAreRevalidated() throws Exception {
+        sync().sync();
+        mNow += FRESH;
+
+        CatalogSync.Result result = sync().sync();
+
+        assertEquals(0, result.pagesFetched);
+        assertEquals(6, result.pagesNotModified);
+        assertEquals(0, result.moviesWritten);
+        assertEquals(6, mServer.getNotModifiedCount());
+        assertEquals(mNow, mStore.getPage(VARIANT.partition("top_rated"), 3).getFetchedAt());
+    }
+
+    @Test
+    public void freshPagesAreNotRequested() throws Exception {
+        sync().sync();
+        mNow += FRESH - 1;
+
+        CatalogSync.Result result = sync().sync();
+
+        assertEquals(6, result.pagesSkipped);
+        assertEquals(6, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void postersOfThePagesAreFetched() throws Exception {
+        sync().sync();
+
+        assertEquals(6 * MockTmdbServer.MOVIES_PER_PAGE, mFetchedPosters.size());
+        int id = MockTmdbServer.movieId("popular", 1, 0);
+        // The posters are those of the variant.
+        assertTrue(mFetchedPosters.contains(PosterSize.W185.getBaseUrl() + id + "-en-US.jpg"));
+    }
+
+    @Test
+    public void posterFailuresDontFailTheSync() throws Exception {
+        CatalogSync.Result result = sync(new CatalogSync.PosterFetcher() {
+            @Override
+            public void fetch(String url) throws IOException {
+                throw new IOException("Poster not found");
+            }
+        }).sync();
+
+        assertEquals(6, result.pagesFetched);
+        assertEquals(120, result.postersFailed);
+    }
+
+    @Test
+    public void stopsAtTheLastPage() throws Exception {
+        mServer.shutdown();
+        mServer = new MockTmdbServer(2);
+
+        CatalogSync.Result result = sync().sync();
+
+        assertEquals(4, result.pagesFetched);
+        assertEquals(0, mServer.getRequestCount("popular", 3));
+    }
+
+    @Test
+    public void failedSyncCanBeRetried() throws Exception {
+        mServer.setStatusCode(503);
+        try {
+            sync().sync();
+            fail("Expected the sync to fail");
+        } catch (IOException expected) {
+        }
+        assertNull(mStore.getPage(VARIANT.partition("popular"), 1));
+
+        mServer.setStatusCode(200);
+        CatalogSync.Result result = sync().sync();
+        assertEquals(6, result.pagesFetched);
+    }
+
+    @Test
+    public void cancelledSyncStopsBeforeTheNextRequest() throws Exception {
+        CatalogSync sync = sync();
+        sync.cancel();
+
+        CatalogSync.Result result = sync.sync();
+
+        assertTrue(result.cancelled);
+        assertEquals(0, mServer.getTotalRequests());
+    }
+}
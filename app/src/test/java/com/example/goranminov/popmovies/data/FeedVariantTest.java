@@ -0,0 +1,35 @@
+package com.example.goranminov.popmovies.data;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class FeedVariantTest {
+
+    @Test
+    public void takesTheLanguageAndRegionOfTheLocale() {
+        assertEquals("pt-BR", FeedVariant.fromLocale(new Locale("pt", "BR")).getTag());
+        assertEquals("fr", FeedVariant.fromLocale(Locale.FRENCH).getTag());
+        assertEquals("en", FeedVariant.fromLocale(new Locale("")).getTag());
+    }
+
+    @Test
+    public void replacesTheWithdrawnLanguageCodes() {
+        // Older Android versions report these languages under their withdrawn codes.
+        assertEquals("he-IL", FeedVariant.fromLocale(new Locale("iw", "IL")).getTag());
+        assertEquals("id", FeedVariant.fromTag("in").getTag());
+        assertEquals("yi", new FeedVariant("JI", null).getTag());
+        assertEquals(FeedVariant.fromTag("he-IL"), FeedVariant.fromTag("iw-IL"));
+    }
+
+    @Test
+    public void parsesItsOwnTags() {
+        FeedVariant variant = new FeedVariant("de", "at");
+
+        assertEquals("de-AT", variant.getTag());
+        assertEquals(variant, FeedVariant.fromTag(variant.getTag()));
+        assertEquals("popular@de-AT", variant.partition("popular"));
+    }
+}
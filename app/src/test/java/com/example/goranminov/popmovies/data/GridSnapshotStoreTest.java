@@ -0,0 +1,140 @@
+package com.example.goranminov.popmovies.data;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class GridSnapshotStoreTest {
+
+    private static final Movie ARRIVAL = new Movie(329865, "/arrival.jpg", "Arrival",
+            "A linguist works with the military.", 7.4f, 17115);
+    private static final Movie UNTITLED = new Movie(1, null, null, null, 0f,
+            Movie.NO_RELEASE_DATE);
+    private static final Movie LOGAN = new Movie(263115, "/logan.jpg", "Logan",
+            "In the near future, a weary Logan cares for an ailing Professor X.", 7.8f, 17228);
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private GridSnapshotStore mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = new File(mFolder.getRoot(), "grid.snapshot");
+        mStore = new GridSnapshotStore(mFile);
+    }
+
+    private static GridSnapshot homeSnapshot() {
+        Map<Integer, byte[]> thumbnails = new HashMap<>();
+        thumbnails.put(ARRIVAL.getId(), new byte[]{(byte) 0xff, (byte) 0xd8, 1, 2, 3});
+        List<HomeSection> sections = Arrays.asList(
+                new HomeSection("popular", Arrays.asList(ARRIVAL, UNTITLED)),
+                new HomeSection("top_rated", Collections.singletonList(LOGAN)));
+        return new GridSnapshot("home", sections, thumbnails);
+    }
+
+    @Test
+    public void snapshotRoundTrips() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        homeSnapshot().writeTo(out);
+        GridSnapshot read = GridSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals("home", read.getSortOrder());
+        assertEquals(2, read.getSections().size());
+        assertEquals("popular", read.getSections().get(0).getFeed());
+        assertEquals("top_rated", read.getSections().get(1).getFeed());
+        assertEquals(Arrays.asList(ARRIVAL, UNTITLED, LOGAN), read.getMovies());
+        assertEquals(1, read.getThumbnails().size());
+        assertArrayEquals(new byte[]{(byte) 0xff, (byte) 0xd8, 1, 2, 3},
+                read.getThumbnails().get(ARRIVAL.getId()));
+    }
+
+    @Test
+    public void savedSnapshotIsLoaded() throws Exception {
+        assertNull(mStore.load());
+
+        mStore.save(homeSnapshot());
+        GridSnapshot single = new GridSnapshot("top_rated", Collections.singletonList(
+                new HomeSection("top_rated", Collections.singletonList(LOGAN))),
+                Collections.<Integer, byte[]>emptyMap());
+        mStore.save(single);
+        GridSnapshot loaded = mStore.load();
+
+        assertEquals("top_rated", loaded.getSortOrder());
+        assertEquals(Collections.singletonList(LOGAN), loaded.getMovies());
+        assertTrue(loaded.getThumbnails().isEmpty());
+        assertFalse(new File(mFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void truncatedFileIsDeleted() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        homeSnapshot().writeTo(out);
+        write(Arrays.copyOf(out.toByteArray(), out.size() / 2));
+
+        assertNull(mStore.load());
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void fileOfAnotherFormatIsDeleted() throws Exception {
+        write("{\"results\":[]}".getBytes("UTF-8"));
+
+        assertNull(mStore.load());
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void snapshotOfAnOlderVersionIsDeleted() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        homeSnapshot().writeTo(out);
+        byte[] bytes = out.toByteArray();
+        // The version follows the magic.
+        bytes[7] = 1;
+        write(bytes);
+
+        assertNull(mStore.load());
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void corruptLengthIsRejected() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        homeSnapshot().writeTo(out);
+        byte[] bytes = out.toByteArray();
+        // The movie count follows the magics, the versions, the list length and the sort order.
+        int movieCount = 4 + 4 + 4 + 4 + 1 + 1 + "home".length();
+        bytes[movieCount] = (byte) 0xff;
+        bytes[movieCount + 1] = (byte) 0xff;
+        bytes[movieCount + 2] = (byte) 0xff;
+        bytes[movieCount + 3] = (byte) 0x0f;
+        write(bytes);
+
+        assertNull(mStore.load());
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        OutputStream out = new FileOutputStream(mFile);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
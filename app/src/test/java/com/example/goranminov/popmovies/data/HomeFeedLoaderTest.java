@@ -0,0 +1,267 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.MockTmdbServer;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.TmdbPageSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HomeFeedLoaderTest {
+
+    private static final ApiClient TEST_CLIENT = new ApiClient(1000, 5000, 0, 0);
+
+    private static final List<String> FEEDS =
+            Arrays.asList("popular", "top_rated", "now_playing", "upcoming");
+    private static final int PAGES_PER_FEED = 3;
+
+    private MockTmdbServer mServer;
+    private ExecutorService mNetwork;
+    private ExecutorService mMain;
+    private final LinkedBlockingQueue<List<HomeSection>> mUpdates = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<String> mFailures = new LinkedBlockingQueue<>();
+
+    private final HomeFeedLoader.Listener mListener = new HomeFeedLoader.Listener() {
+        @Override
+        public void onSectionsChanged(List<HomeSection> sections) {
+            mUpdates.add(sections);
+        }
+
+        @Override
+        public void onLoadFailed(String feed, int page, IOException e) {
+            mFailures.add(feed + "/" + page);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockTmdbServer(5);
+        mNetwork = Executors.newFixedThreadPool(FEEDS.size() * PAGES_PER_FEED);
+        mMain = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+        mNetwork.shutdownNow();
+        mMain.shutdownNow();
+    }
+
+    private HomeFeedLoader newLoader(MoviePager.PageSource source) {
+        return new HomeFeedLoader(FEEDS, PAGES_PER_FEED, source, mNetwork, mMain, mListener);
+    }
+
+    private HomeFeedLoader newLoader() {
+        return newLoader(new TmdbPageSource(TEST_CLIENT, mServer.getBaseUrl(), "key"));
+    }
+
+    private void load(final HomeFeedLoader loader) throws Exception {
+        mMain.submit(new Runnable() {
+            @Override
+            public void run() {
+                loader.load();
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    private void awaitIdle(final HomeFeedLoader loader) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mMain.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return loader.isLoading();
+            }
+        }).get(5, TimeUnit.SECONDS)) {
+            assertTrue("Timed out waiting for the loader", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private List<HomeSection> lastUpdate() {
+        List<HomeSection> last = null;
+        for (List<HomeSection> update : mUpdates) {
+            last = update;
+        }
+        assertNotNull("No sections were delivered", last);
+        return last;
+    }
+
+    private static List<String> feeds(List<HomeSection> sections) {
+        List<String> feeds = new ArrayList<>();
+        for (HomeSection section : sections) {
+            feeds.add(section.getFeed());
+        }
+        return feeds;
+    }
+
+    private static HomeSection section(List<HomeSection> sections, String feed) {
+        for (HomeSection section : sections) {
+            if (section.getFeed().equals(feed)) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void loadsEveryPageOfEveryFeedOnce() throws Exception {
+        HomeFeedLoader loader = newLoader();
+        load(loader);
+        awaitIdle(loader);
+
+        for (String feed : FEEDS) {
+            for (int page = 1; page <= PAGES_PER_FEED; page++) {
+                assertEquals(feed + "/" + page, 1, mServer.getRequestCount(feed, page));
+            }
+        }
+        List<HomeSection> sections = lastUpdate();
+        assertEquals(FEEDS, feeds(sections));
+        for (HomeSection section : sections) {
+            assertEquals(PAGES_PER_FEED * MockTmdbServer.MOVIES_PER_PAGE,
+                    section.getMovies().size());
+            assertEquals(MockTmdbServer.movieId(section.getFeed(), 1, 0),
+                    section.getMovies().get(0).getId());
+        }
+    }
+
+    @Test
+    public void takesAboutAsLongAsTheSlowestRequest() throws Exception {
+        mServer.setLatency("popular", 400);
+        mServer.setLatency("top_rated", 100);
+        mServer.setLatency("now_playing", 200);
+        mServer.setLatency("upcoming", 50);
+        HomeFeedLoader loader = newLoader();
+
+        long start = System.nanoTime();
+        load(loader);
+        awaitIdle(loader);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // One request after the other would take 3 * 750ms.
+        assertTrue("Took " + elapsedMillis + "ms", elapsedMillis >= 400);
+        assertTrue("Took " + elapsedMillis + "ms", elapsedMillis < 900);
+        assertEquals(FEEDS, feeds(lastUpdate()));
+    }
+
+    @Test
+    public void sectionsAppearAsTheirPagesArrive() throws Exception {
+        mServer.setLatency("popular", 600);
+        mServer.setLatency("top_rated", 400);
+        mServer.setLatency("now_playing", 200);
+        HomeFeedLoader loader = newLoader();
+        load(loader);
+
+        // The fastest feed shows up first, before the slow ones are in.
+        List<HomeSection> first = mUpdates.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals(Arrays.asList("upcoming"), feeds(first));
+
+        awaitIdle(loader);
+        // The other sections are slotted in front of it, in feed order.
+        List<String> previous = feeds(first);
+        for (List<HomeSection> update : mUpdates) {
+            List<String> current = feeds(update);
+            assertTrue(current.containsAll(previous));
+            assertEquals(current, orderedLikeFeeds(current));
+            previous = current;
+        }
+        assertEquals(FEEDS, previous);
+    }
+
+    private static List<String> orderedLikeFeeds(List<String> feeds) {
+        List<String> ordered = new ArrayList<>(FEEDS);
+        ordered.retainAll(feeds);
+        return ordered;
+    }
+
+    @Test
+    public void movieIsOnlyShownInTheHighestRankedFeed() throws Exception {
+        mServer.setSharedMovies(5);
+        // Upcoming is in first, the shared movies move to popular once it arrives.
+        mServer.setLatency("popular", 300);
+        HomeFeedLoader loader = newLoader();
+        load(loader);
+        List<HomeSection> first = mUpdates.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        awaitIdle(loader);
+
+        assertFalse(first.isEmpty());
+        assertEquals(MockTmdbServer.sharedMovieId(0), first.get(0).getMovies().get(0).getId());
+
+        List<HomeSection> sections = lastUpdate();
+        Set<Integer> ids = new HashSet<>();
+        int count = 0;
+        for (HomeSection section : sections) {
+            for (Movie movie : section.getMovies()) {
+                ids.add(movie.getId());
+                count++;
+            }
+        }
+        assertEquals(count, ids.size());
+        assertEquals(FEEDS.size() * PAGES_PER_FEED * MockTmdbServer.MOVIES_PER_PAGE
+                - (FEEDS.size() - 1) * 5, count);
+        assertEquals(MockTmdbServer.sharedMovieId(0),
+                section(sections, "popular").getMovies().get(0).getId());
+        assertEquals(MockTmdbServer.movieId("upcoming", 1, 5),
+                section(sections, "upcoming").getMovies().get(0).getId());
+    }
+
+    @Test
+    public void failedPageDoesNotHoldUpTheRestOfItsSection() throws Exception {
+        final TmdbPageSource source = new TmdbPageSource(TEST_CLIENT, mServer.getBaseUrl(), "key");
+        HomeFeedLoader loader = newLoader(new MoviePager.PageSource() {
+            @Override
+            public MoviePage loadPage(String sortOrder, int page,
+                                      MoviePager.RefreshCallback refreshCallback)
+                    throws IOException {
+                if (sortOrder.equals("top_rated") && page == 2) {
+                    throw new IOException("Connection reset");
+                }
+                return source.loadPage(sortOrder, page, refreshCallback);
+            }
+        });
+        load(loader);
+        awaitIdle(loader);
+
+        assertEquals("top_rated/2", mFailures.poll(1, TimeUnit.SECONDS));
+        List<HomeSection> sections = lastUpdate();
+        assertEquals(FEEDS, feeds(sections));
+        List<Movie> topRated = section(sections, "top_rated").getMovies();
+        assertEquals(2 * MockTmdbServer.MOVIES_PER_PAGE, topRated.size());
+        assertEquals(MockTmdbServer.movieId("top_rated", 3, 0),
+                topRated.get(MockTmdbServer.MOVIES_PER_PAGE).getId());
+    }
+
+    @Test
+    public void releasedLoaderDeliversNothing() throws Exception {
+        mServer.closeGate();
+        final HomeFeedLoader loader = newLoader();
+        load(loader);
+        mMain.submit(new Runnable() {
+            @Override
+            public void run() {
+                loader.release();
+            }
+        }).get(5, TimeUnit.SECONDS);
+        mServer.openGate();
+        awaitIdle(loader);
+
+        assertTrue(mUpdates.isEmpty());
+        assertTrue(mFailures.isEmpty());
+    }
+}
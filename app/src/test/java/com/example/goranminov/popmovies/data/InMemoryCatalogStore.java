@@ -0,0 +1,92 @@
+package com.example.goranminov.popmovies.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CatalogStore kept in a map, standing in for the SQLite store in JVM tests.
+ */
+public class InMemoryCatalogStore implements CatalogStore {
+
+    private final Map<String, CachedPage> mPages = new HashMap<>();
+    private final Map<String, String> mPlaceholders = new HashMap<>();
+    private int mReadCount;
+
+    @Override
+    public synchronized CachedPage getPage(String sortOrder, int page) {
+        mReadCount++;
+        return mPages.get(sortOrder + '/' + page);
+    }
+
+    /**
+     * @return How many times getPage was called.
+     */
+    public synchronized int getReadCount() {
+        return mReadCount;
+    }
+
+    @Override
+    public synchronized void putPage(String sortOrder, CachedPage page) {
+        mPages.put(sortOrder + '/' + page.getPage().getPage(), page);
+    }
+
+    @Override
+    public synchronized int mergePage(String sortOrder, CachedPage page) {
+        CachedPage stored = mPages.put(sortOrder + '/' + page.getPage().getPage(), page);
+        List<Movie> movies = page.getPage().getMovies();
+        if (stored == null) {
+            return movies.size();
+        }
+        List<Movie> storedMovies = stored.getPage().getMovies();
+        int changes = Math.max(0, storedMovies.size() - movies.size());
+        for (int i = 0; i < movies.size(); i++) {
+            if (i >= storedMovies.size() || !movies.get(i).equals(storedMovies.get(i))) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public synchronized void touchPage(String sortOrder, int page, long fetchedAt) {
+        CachedPage cached = mPages.get(sortOrder + '/' + page);
+        if (cached != null) {
+            mPages.put(sortOrder + '/' + page, cached.revalidatedAt(fetchedAt));
+        }
+    }
+
+    @Override
+    public synchronized List<Movie> getAllMovies() {
+        Map<Integer, Movie> movies = new LinkedHashMap<>();
+        for (CachedPage page : mPages.values()) {
+            for (Movie movie : page.getPage().getMovies()) {
+                if (!movies.containsKey(movie.getId())) {
+                    movies.put(movie.getId(), movie);
+                }
+            }
+        }
+        return new ArrayList<>(movies.values());
+    }
+
+    @Override
+    public synchronized Map<String, String> getPosterPlaceholders(
+            Collection<String> posterFileNames) {
+        Map<String, String> placeholders = new HashMap<>();
+        for (String fileName : posterFileNames) {
+            String blurHash = mPlaceholders.get(fileName);
+            if (blurHash != null) {
+                placeholders.put(fileName, blurHash);
+            }
+        }
+        return placeholders;
+    }
+
+    @Override
+    public synchronized void putPosterPlaceholder(String posterFileName, String blurHash) {
+        mPlaceholders.put(posterFileName, blurHash);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MemoryPageCacheTest {
+
+    private static final long EXPIRY = 60_000L;
+
+    private long mNow = 1000L;
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+    };
+
+    private MoviePage mPage;
+    private int mPageSize;
+
+    @Before
+    public void setUp() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            movies.add(new Movie(i, "/" + i + ".jpg", "Title " + i, "Overview " + i, 6f, 0));
+        }
+        mPage = new MoviePage(1, 10, movies);
+        mPageSize = MemoryPageCache.sizeOf(mPage);
+    }
+
+    @Test
+    public void keysIncludeEndpointPageAndVariant() {
+        FeedVariant us = new FeedVariant("en", "US");
+        assertEquals("popular/2/en-US", MemoryPageCache.key("popular", 2, us));
+        assertFalse(MemoryPageCache.key("popular", 2, us)
+                .equals(MemoryPageCache.key("popular", 2, new FeedVariant("de", "DE"))));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        MemoryPageCache cache = new MemoryPageCache(10 * mPageSize, EXPIRY, mClock);
+        assertNull(cache.get("popular/1/en"));
+        cache.put("popular/1/en", mPage);
+        assertSame(mPage, cache.get("popular/1/en"));
+        assertSame(mPage, cache.get("popular/1/en"));
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenOverBudget() {
+        MemoryPageCache cache = new MemoryPageCache(3 * mPageSize, EXPIRY, mClock);
+        cache.put("a", mPage);
+        cache.put("b", mPage);
+        cache.put("c", mPage);
+        // Touch "a" so "b" becomes the eldest.
+        cache.get("a");
+        cache.put("d", mPage);
+
+        assertEquals(3, cache.entryCount());
+        assertEquals(1, cache.evictionCount());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertTrue(cache.size() <= cache.maxSize());
+    }
+
+    @Test
+    public void entriesExpire() {
+        MemoryPageCache cache = new MemoryPageCache(3 * mPageSize, EXPIRY, mClock);
+        cache.put("a", mPage);
+        mNow += EXPIRY - 1;
+        assertNotNull(cache.get("a"));
+        mNow += 1;
+        assertNull(cache.get("a"));
+
+        assertEquals(1, cache.expiredCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void replacingAnEntryKeepsTheSizeRight() {
+        MemoryPageCache cache = new MemoryPageCache(3 * mPageSize, EXPIRY, mClock);
+        cache.put("a", mPage);
+        cache.put("a", mPage);
+        assertEquals(mPageSize, cache.size());
+        assertEquals(1, cache.entryCount());
+    }
+
+    @Test
+    public void pageBiggerThanTheBudgetIsNotCached() {
+        MemoryPageCache cache = new MemoryPageCache(mPageSize - 1, EXPIRY, mClock);
+        cache.put("a", mPage);
+        assertEquals(0, cache.entryCount());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void resizeEvicts() {
+        MemoryPageCache cache = new MemoryPageCache(3 * mPageSize, EXPIRY, mClock);
+        cache.put("a", mPage);
+        cache.put("b", mPage);
+        cache.put("c", mPage);
+        cache.resize(mPageSize);
+
+        assertEquals(1, cache.entryCount());
+        assertNotNull(cache.get("c"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.goranminov.popmovies.data;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the allocations made on the grid bind path by the old delimiter packed
+ * String against the Movie model.
+ */
+public class MovieBindBenchmarkTest {
+
+    private static final String MDB_BASE = "http://image.tmdb.org/t/p/w185/";
+    private static final int MOVIES = 20;
+    private static final int ROUNDS = 50_000;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Keeps the JIT from dropping the work we measure.
+    private int mSink;
+
+    @Test
+    public void modelBindAllocatesLessThanStringParsing() {
+        final String[] packed = new String[MOVIES];
+        final Movie[] movies = new Movie[MOVIES];
+        for (int i = 0; i < MOVIES; i++) {
+            String posterPath = "/poster" + i + ".jpg";
+            packed[i] = posterPath + "!" + "Title " + i + "@" + "An overview for " + i
+                    + "#" + "7.5" + "£" + "2017-03-26";
+            movies[i] = new Movie(i, posterPath, "Title " + i, "An overview for " + i, 7.5f,
+                    Movie.parseEpochDay("2017-03-26"));
+        }
+
+        // Warm up both paths before measuring.
+        bindPacked(packed, ROUNDS);
+        bindModel(movies, ROUNDS);
+
+        long packedBytes = measure(new Runnable() {
+            @Override
+            public void run() {
+                bindPacked(packed, ROUNDS);
+            }
+        });
+        long modelBytes = measure(new Runnable() {
+            @Override
+            public void run() {
+                bindModel(movies, ROUNDS);
+            }
+        });
+
+        long binds = (long) ROUNDS * MOVIES;
+        assertTrue(mSink != 0);
+        assertTrue(modelBytes < packedBytes);
+        assertTrue(modelBytes / binds == 0);
+    }
+
+    private void bindPacked(String[] packed, int rounds) {
+        for (int r = 0; r < rounds; r++) {
+            for (String selectedMovie : packed) {
+                String url = MDB_BASE + selectedMovie.substring(0, selectedMovie.indexOf("!"));
+                mSink += url.length();
+            }
+        }
+    }
+
+    private void bindModel(Movie[] movies, int rounds) {
+        for (int r = 0; r < rounds; r++) {
+            for (Movie movie : movies) {
+                mSink += movie.getPosterUrl(PosterSize.W185).length();
+            }
+        }
+    }
+
+    private static long measure(Runnable runnable) {
+        long threadId = Thread.currentThread().getId();
+        long before = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return THREAD_BEAN.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.MockTmdbServer;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class MovieDetailsRepositoryTest {
+
+    private static final int MOVIE_ID = 263115;
+
+    private MockTmdbServer mServer;
+    private MovieDetailsRepository mRepository;
+    private final List<Runnable> mNetworkTasks = new ArrayList<>();
+    private final List<Runnable> mPrefetchTasks = new ArrayList<>();
+    private final List<Runnable> mMainTasks = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockTmdbServer(1);
+        mRepository = new MovieDetailsRepository(new ApiClient(1000, 2000, 0, 0),
+                mServer.getBaseUrl(), "key", new FeedVariant("en", "US"), 2, queue(mNetworkTasks), queue(mPrefetchTasks),
+                queue(mMainTasks));
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+    }
+
+    private static Executor queue(final List<Runnable> tasks) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+    }
+
+    private static void run(List<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    @Test
+    public void deliversTheSectionsAsTheyAreDecoded() {
+        RecordingListener listener = new RecordingListener();
+        mRepository.load(MOVIE_ID, listener);
+        assertTrue(mRepository.isLoading(MOVIE_ID));
+        run(mNetworkTasks);
+        run(mMainTasks);
+
+        // The info, then each of the three appended sections.
+        assertEquals(4, listener.mDetails.size());
+        assertEquals(MovieDetails.SECTION_INFO, listener.mDetails.get(0).getSections());
+        MovieDetails details = listener.last();
+        assertTrue(details.isComplete());
+        assertEquals("Drama", details.getGenres().get(0));
+        assertEquals(1, details.getVideos().size());
+        assertEquals(1, details.getReviews().size());
+        assertEquals("Hero", details.getCast().get(0).getCharacter());
+        assertEquals(1, mServer.getDetailsRequestCount(MOVIE_ID));
+        assertFalse(mRepository.isLoading(MOVIE_ID));
+    }
+
+    @Test
+    public void anotherVariantDropsTheCachedDetails() {
+        mRepository.load(MOVIE_ID, new RecordingListener());
+        run(mNetworkTasks);
+        run(mMainTasks);
+
+        mRepository.setVariant(new FeedVariant("en", "US"));
+        assertNotNull(mRepository.getCached(MOVIE_ID));
+        mRepository.setVariant(new FeedVariant("de", "DE"));
+        assertNull(mRepository.getCached(MOVIE_ID));
+    }
+
+    @Test
+    public void detailsOfTheOldVariantAreNotCached() {
+        mRepository.load(MOVIE_ID, new RecordingListener());
+        mRepository.setVariant(new FeedVariant("de", "DE"));
+        run(mNetworkTasks);
+        run(mMainTasks);
+
+        assertNull(mRepository.getCached(MOVIE_ID));
+        assertFalse(mRepository.isLoading(MOVIE_ID));
+    }
+
+    @Test
+    public void cachedDetailsAreDeliveredRightAway() {
+        mRepository.load(MOVIE_ID, new RecordingListener());
+        run(mNetworkTasks);
+        run(mMainTasks);
+
+        RecordingListener listener = new RecordingListener();
+        mRepository.load(MOVIE_ID, listener);
+
+        assertEquals(1, listener.mDetails.size());
+        assertTrue(listener.last().isComplete());
+        assertSame(listener.last(), mRepository.getCached(MOVIE_ID));
+        assertTrue(mNetworkTasks.isEmpty());
+        assertEquals(1, mServer.getDetailsRequestCount(MOVIE_ID));
+    }
+
+    @Test
+    public void prefetchedDetailsAreCached() {
+        mRepository.prefetch(MOVIE_ID);
+        mRepository.prefetch(MOVIE_ID);
+        assertTrue(mNetworkTasks.isEmpty());
+        run(mPrefetchTasks);
+        run(mMainTasks);
+
+        assertNotNull(mRepository.getCached(MOVIE_ID));
+        assertEquals(1, mServer.getDetailsRequestCount(MOVIE_ID));
+    }
+
+    @Test
+    public void loadDoesNotWaitForAQueuedPrefetch() {
+        mRepository.prefetch(MOVIE_ID);
+        RecordingListener listener = new RecordingListener();
+        mRepository.load(MOVIE_ID, listener);
+        run(mNetworkTasks);
+        run(mMainTasks);
+
+        assertTrue(listener.last().isComplete());
+
+        // The prefetch finds the request already made.
+        run(mPrefetchTasks);
+        assertEquals(1, mServer.getDetailsRequestCount(MOVIE_ID));
+    }
+
+    @Test
+    public void loadJoinsARunningPrefetch() {
+        mRepository.prefetch(MOVIE_ID);
+        run(mPrefetchTasks);
+        // The info section is already decoded when the screen opens.
+        mMainTasks.remove(0).run();
+
+        RecordingListener listener = new RecordingListener();
+        mRepository.load(MOVIE_ID, listener);
+        assertEquals(1, listener.mDetails.size());
+        assertTrue(listener.last().hasSection(MovieDetails.SECTION_INFO));
+
+        run(mNetworkTasks);
+        run(mMainTasks);
+        assertTrue(listener.last().isComplete());
+        assertEquals(1, mServer.getDetailsRequestCount(MOVIE_ID));
+    }
+
+    @Test
+    public void removedListenerIsNotCalled() {
+        RecordingListener listener = new RecordingListener();
+        mRepository.load(MOVIE_ID, listener);
+        mRepository.removeListener(MOVIE_ID, listener);
+        run(mNetworkTasks);
+        run(mMainTasks);
+
+        assertTrue(listener.mDetails.isEmpty());
+        assertNotNull(mRepository.getCached(MOVIE_ID));
+    }
+
+    @Test
+    public void failureIsReportedAndNotCached() {
+        mServer.failNextRequests(1);
+        RecordingListener listener = new RecordingListener();
+        mRepository.load(MOVIE_ID, listener);
+        run(mNetworkTasks);
+        run(mMainTasks);
+
+        assertEquals(1, listener.mFailures);
+        assertNull(mRepository.getCached(MOVIE_ID));
+
+        mRepository.load(MOVIE_ID, listener);
+        run(mNetworkTasks);
+        run(mMainTasks);
+        assertTrue(listener.last().isComplete());
+    }
+
+    @Test
+    public void leastRecentlyUsedDetailsAreEvicted() {
+        for (int movieId = 1; movieId <= 3; movieId++) {
+            mRepository.prefetch(movieId);
+            run(mPrefetchTasks);
+            run(mMainTasks);
+            if (movieId == 2) {
+                // Opening the first movie again makes the second one the eldest.
+                mRepository.getCached(1);
+            }
+        }
+
+        assertNotNull(mRepository.getCached(1));
+        assertNull(mRepository.getCached(2));
+        assertNotNull(mRepository.getCached(3));
+    }
+
+    private static class RecordingListener implements MovieDetailsRepository.Listener {
+        final List<MovieDetails> mDetails = new ArrayList<>();
+        int mFailures;
+
+        @Override
+        public void onDetailsLoaded(MovieDetails details) {
+            mDetails.add(details);
+        }
+
+        @Override
+        public void onDetailsFailed(int movieId, IOException e) {
+            mFailures++;
+        }
+
+        MovieDetails last() {
+            return mDetails.get(mDetails.size() - 1);
+        }
+    }
+}
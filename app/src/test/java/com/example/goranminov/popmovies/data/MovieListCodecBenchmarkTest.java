@@ -0,0 +1,72 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.MovieJsonUtils;
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the size of a page of movies in MovieListCodec against the old delimiter packed
+ * Strings and against JSON. The encode and decode times are measured by ListCodecBenchmark
+ * in the benchmark module.
+ */
+public class MovieListCodecBenchmarkTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void binaryIsSmallerThanStringsAndJson() throws Exception {
+        MovieList list = readPage("popular_page1.json");
+
+        byte[] binary = MovieListCodec.encode(list);
+        String packed = encodePacked(list);
+        String json = new Gson().toJson(list.getMovies());
+
+        assertEquals(list.getMovies(), MovieListCodec.decode(binary).getMovies());
+        assertTrue(binary.length < packed.getBytes(UTF_8).length);
+        assertTrue(binary.length < json.getBytes(UTF_8).length);
+    }
+
+    /*
+     * The Strings the grid used to pass to the detail screen, one per movie, joined by a
+     * newline as an EXTRA_TEXT list would be.
+     */
+    private static String encodePacked(MovieList list) {
+        StringBuilder packed = new StringBuilder();
+        for (Movie movie : list.getMovies()) {
+            packed.append(movie.getPosterPath()).append('!').append(movie.getTitle())
+                    .append('@').append(movie.getOverview()).append('#')
+                    .append(movie.getVoteAverage()).append('£')
+                    .append(formatDate(movie.getReleaseDate())).append('\n');
+        }
+        return packed.toString();
+    }
+
+    /*
+     * A date of the same length as TheMovieDB's yyyy-MM-dd, only its size matters here.
+     */
+    private static String formatDate(int epochDay) {
+        if (epochDay == Movie.NO_RELEASE_DATE) {
+            return "";
+        }
+        return Movie.yearFromEpochDay(epochDay) + "-01-01";
+    }
+
+    private MovieList readPage(String name) throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(name);
+        try {
+            List<Movie> movies = MovieJsonUtils.getMoviePageFromJson(inputStream).getMovies();
+            return new MovieList("popular", Arrays.asList(new HomeSection("popular", movies)));
+        } finally {
+            inputStream.close();
+        }
+    }
+}
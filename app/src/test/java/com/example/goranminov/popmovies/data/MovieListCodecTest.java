@@ -0,0 +1,154 @@
+package com.example.goranminov.popmovies.data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MovieListCodecTest {
+
+    private static final Movie ARRIVAL = new Movie(329865, "/arrival.jpg", "Arrival",
+            "A linguist works with the military.", 7.4f, 17115);
+    private static final Movie UNTITLED = new Movie(1, null, null, null, 0f,
+            Movie.NO_RELEASE_DATE);
+    private static final Movie LOGAN = new Movie(263115, "/logan.jpg", "Logan",
+            "In the near future, a weary Logan cares for an ailing Professor X.", 7.8f, 17228);
+
+    private static MovieList homeList() {
+        return new MovieList("home", Arrays.asList(
+                new HomeSection("popular", Arrays.asList(ARRIVAL, UNTITLED, LOGAN)),
+                new HomeSection("top_rated", Collections.singletonList(LOGAN)),
+                new HomeSection("upcoming", Collections.<Movie>emptyList())));
+    }
+
+    private static Movie single(MovieList list) {
+        assertEquals(1, list.getMovies().size());
+        return list.getMovies().get(0);
+    }
+
+    private static MovieList singleList(Movie movie) {
+        return new MovieList("popular", Collections.singletonList(
+                new HomeSection("popular", Collections.singletonList(movie))));
+    }
+
+    @Test
+    public void listRoundTrips() throws Exception {
+        MovieList read = MovieListCodec.decode(MovieListCodec.encode(homeList()));
+
+        assertEquals("home", read.getSortOrder());
+        assertEquals(3, read.getSections().size());
+        assertEquals("popular", read.getSections().get(0).getFeed());
+        assertEquals("top_rated", read.getSections().get(1).getFeed());
+        assertEquals("upcoming", read.getSections().get(2).getFeed());
+        assertEquals(Arrays.asList(ARRIVAL, UNTITLED, LOGAN, LOGAN), read.getMovies());
+        assertTrue(read.getSections().get(2).getMovies().isEmpty());
+    }
+
+    @Test
+    public void nullsAndExtremeValuesRoundTrip() throws Exception {
+        Movie empty = new Movie(Integer.MAX_VALUE, "", "", "", Float.NaN, -1);
+        Movie negative = new Movie(-5, "/p.jpg", "T", "O", -0f, Integer.MAX_VALUE);
+
+        assertEquals(UNTITLED, single(MovieListCodec.decode(
+                MovieListCodec.encode(singleList(UNTITLED)))));
+        assertEquals(empty, single(MovieListCodec.decode(
+                MovieListCodec.encode(singleList(empty)))));
+        assertEquals(negative, single(MovieListCodec.decode(
+                MovieListCodec.encode(singleList(negative)))));
+
+        MovieList nullNames = new MovieList(null, Collections.singletonList(
+                new HomeSection(null, Collections.singletonList(ARRIVAL))));
+        MovieList read = MovieListCodec.decode(MovieListCodec.encode(nullNames));
+        assertNull(read.getSortOrder());
+        assertNull(read.getSections().get(0).getFeed());
+    }
+
+    @Test
+    public void unicodeAndLongStringsRoundTrip() throws Exception {
+        // Characters outside the BMP, which writeUTF would mangle, and over its 64KB limit.
+        StringBuilder overview = new StringBuilder();
+        while (overview.length() < 100_000) {
+            overview.append("Amélie 🎬 千と千尋 ");
+        }
+        Movie movie = new Movie(194, "/amélie.jpg", "Le Fabuleux Destin d'Amélie Poulain",
+                overview.toString(), 7.9f, 11437);
+
+        assertEquals(movie, single(MovieListCodec.decode(
+                MovieListCodec.encode(singleList(movie)))));
+    }
+
+    @Test
+    public void movieInSeveralSectionsIsStoredOnce() {
+        MovieList once = new MovieList("home", Arrays.asList(
+                new HomeSection("popular", Collections.singletonList(LOGAN)),
+                new HomeSection("top_rated", Collections.<Movie>emptyList())));
+        MovieList twice = new MovieList("home", Arrays.asList(
+                new HomeSection("popular", Collections.singletonList(LOGAN)),
+                new HomeSection("top_rated", Collections.singletonList(LOGAN))));
+
+        // The second occurrence is a one byte index.
+        assertEquals(MovieListCodec.encode(once).length + 1,
+                MovieListCodec.encode(twice).length);
+    }
+
+    @Test
+    public void firstMoviesAreKept() {
+        MovieList first = homeList().first(2);
+
+        assertEquals(Arrays.asList(ARRIVAL, UNTITLED), first.getMovies());
+        assertEquals(1, first.getSections().size());
+        assertEquals("home", first.getSortOrder());
+        assertEquals(Arrays.asList(ARRIVAL, UNTITLED, LOGAN, LOGAN),
+                homeList().first(10).getMovies());
+    }
+
+    @Test
+    public void truncatedBytesAreRejected() {
+        byte[] bytes = MovieListCodec.encode(homeList());
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                MovieListCodec.decode(Arrays.copyOf(bytes, length));
+                fail("Decoded " + length + " of " + bytes.length + " bytes");
+            } catch (IOException expected) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void otherVersionIsRejected() throws Exception {
+        byte[] bytes = MovieListCodec.encode(homeList());
+        // The version follows the magic.
+        bytes[4] = MovieListCodec.VERSION + 1;
+        assertRejected(bytes);
+
+        bytes = MovieListCodec.encode(homeList());
+        bytes[0] = 'X';
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void corruptCountIsRejected() {
+        byte[] bytes = MovieListCodec.encode(homeList());
+        // The movie count follows the magic, the version and the sort order.
+        int movieCount = 4 + 1 + 1 + "home".length();
+        bytes[movieCount] = (byte) 0xff;
+        bytes[movieCount + 1] = (byte) 0xff;
+        bytes[movieCount + 2] = (byte) 0xff;
+        bytes[movieCount + 3] = (byte) 0x0f;
+        assertRejected(bytes);
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            List<Movie> movies = MovieListCodec.decode(bytes).getMovies();
+            fail("Decoded " + movies);
+        } catch (IOException expected) {
+            // Expected.
+        }
+    }
+}
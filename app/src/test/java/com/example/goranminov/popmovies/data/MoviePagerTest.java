@@ -0,0 +1,233 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.MockTmdbServer;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+import com.example.goranminov.popmovies.utilities.TmdbPageSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MoviePagerTest {
+
+    private static final ApiClient TEST_CLIENT = new ApiClient(1000, 2000, 0, 0);
+
+    private static final String SORT = "popular";
+
+    private MockTmdbServer mServer;
+    private ExecutorService mNetwork;
+    private ExecutorService mMain;
+    private final LinkedBlockingQueue<String> mEvents = new LinkedBlockingQueue<>();
+
+    private final MoviePager.Listener mListener = new MoviePager.Listener() {
+        @Override
+        public void onMoviesInserted(int position, List<Movie> movies) {
+            mEvents.add("insert " + position + " " + movies.size());
+        }
+
+        @Override
+        public void onMoviesRemoved(int position, int count) {
+            mEvents.add("remove " + position + " " + count);
+        }
+
+        @Override
+        public void onLoadFailed(int page, IOException e) {
+            mEvents.add("fail " + page);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockTmdbServer(5);
+        mNetwork = Executors.newFixedThreadPool(3);
+        mMain = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+        mNetwork.shutdownNow();
+        mMain.shutdownNow();
+    }
+
+    private MoviePager newPager(int maxPages) {
+        return new MoviePager(SORT, new TmdbPageSource(TEST_CLIENT, mServer.getBaseUrl(), "key"),
+                mNetwork, mMain, mListener, 10, maxPages);
+    }
+
+    private void onMain(Runnable runnable) throws Exception {
+        mMain.submit(runnable).get(5, TimeUnit.SECONDS);
+    }
+
+    private void scroll(final MoviePager pager, final int first, final int last) throws Exception {
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                pager.onScrolled(first, last);
+            }
+        });
+    }
+
+    private String nextEvent() throws InterruptedException {
+        String event = mEvents.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Timed out waiting for the pager", event);
+        return event;
+    }
+
+    private void assertNoEvent() throws InterruptedException {
+        assertNull(mEvents.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void loadsOnlyTheFirstPageInitially() throws Exception {
+        final MoviePager pager = newPager(10);
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                pager.loadInitial();
+            }
+        });
+
+        assertEquals("insert 0 20", nextEvent());
+        assertNoEvent();
+        assertEquals(1, mServer.getRequestCount(SORT, 1));
+        assertEquals(0, mServer.getRequestCount(SORT, 2));
+    }
+
+    @Test
+    public void prefetchesNextPageNearTheEnd() throws Exception {
+        MoviePager pager = newPager(10);
+        scroll(pager, 0, 0);
+        assertEquals("insert 0 20", nextEvent());
+
+        scroll(pager, 0, 5);
+        assertNoEvent();
+
+        scroll(pager, 2, 9);
+        assertEquals("insert 20 20", nextEvent());
+        assertEquals(40, pager.getItemCount());
+    }
+
+    @Test
+    public void deduplicatesInFlightPageRequests() throws Exception {
+        MoviePager pager = newPager(10);
+        scroll(pager, 0, 0);
+        assertEquals("insert 0 20", nextEvent());
+
+        mServer.closeGate();
+        for (int i = 10; i < 20; i++) {
+            scroll(pager, i - 8, i);
+        }
+        mServer.openGate();
+
+        assertEquals("insert 20 20", nextEvent());
+        assertNoEvent();
+        assertEquals(1, mServer.getRequestCount(SORT, 2));
+    }
+
+    @Test
+    public void capsPagesInMemoryAndReloadsDroppedPages() throws Exception {
+        MoviePager pager = newPager(3);
+        scroll(pager, 0, 0);
+        assertEquals("insert 0 20", nextEvent());
+        scroll(pager, 12, 19);
+        assertEquals("insert 20 20", nextEvent());
+        scroll(pager, 32, 39);
+        assertEquals("insert 40 20", nextEvent());
+
+        scroll(pager, 52, 59);
+        assertEquals("insert 60 20", nextEvent());
+        assertEquals("remove 0 20", nextEvent());
+        assertEquals(3, pager.getLoadedPageCount());
+        assertEquals(2, pager.getFirstLoadedPage());
+        assertEquals(60, pager.getItemCount());
+
+        // Scrolling back to the start of the window brings page 1 back and drops page 4.
+        scroll(pager, 0, 7);
+        assertEquals("insert 0 20", nextEvent());
+        assertEquals("remove 60 20", nextEvent());
+        assertEquals(1, pager.getFirstLoadedPage());
+        assertEquals(2, mServer.getRequestCount(SORT, 1));
+    }
+
+    @Test
+    public void stopsAtTheLastPage() throws Exception {
+        MoviePager pager = newPager(10);
+        scroll(pager, 0, 0);
+        nextEvent();
+        for (int page = 2; page <= 5; page++) {
+            int last = page * 20 - 11;
+            scroll(pager, last - 7, last);
+            assertEquals("insert " + (page - 1) * 20 + " 20", nextEvent());
+        }
+
+        scroll(pager, 92, 99);
+        assertNoEvent();
+        assertEquals(0, mServer.getRequestCount(SORT, 6));
+    }
+
+    @Test
+    public void reportsFailuresAndRetriesOnNextScroll() throws Exception {
+        MoviePager pager = newPager(10);
+        mServer.setStatusCode(500);
+        scroll(pager, 0, 0);
+        assertEquals("fail 1", nextEvent());
+        assertFalse(pager.isLoading());
+
+        mServer.setStatusCode(200);
+        scroll(pager, 0, 0);
+        assertEquals("insert 0 20", nextEvent());
+    }
+
+    @Test
+    public void releasedPagerIgnoresLateResults() throws Exception {
+        final MoviePager pager = newPager(10);
+        mServer.closeGate();
+        scroll(pager, 0, 0);
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                pager.release();
+            }
+        });
+        mServer.openGate();
+
+        assertNoEvent();
+        assertEquals(0, pager.getItemCount());
+    }
+
+    @Test
+    public void refreshedPageReplacesItsMovies() throws Exception {
+        final MoviePager.RefreshCallback[] refresh = new MoviePager.RefreshCallback[1];
+        final TmdbPageSource network = new TmdbPageSource(TEST_CLIENT, mServer.getBaseUrl(), "key");
+        MoviePager.PageSource source = new MoviePager.PageSource() {
+            @Override
+            public MoviePage loadPage(String sortOrder, int page,
+                                      MoviePager.RefreshCallback refreshCallback) throws IOException {
+                refresh[0] = refreshCallback;
+                return network.loadPage(sortOrder, page, refreshCallback);
+            }
+        };
+        MoviePager pager = new MoviePager(SORT, source, mNetwork, mMain, mListener, 10, 10);
+        scroll(pager, 0, 0);
+        assertEquals("insert 0 20", nextEvent());
+        scroll(pager, 2, 9);
+        assertEquals("insert 20 20", nextEvent());
+
+        mServer.setVersion(1);
+        refresh[0].onPageRefreshed(network.loadPage(SORT, 2, null));
+
+        assertEquals("remove 20 20", nextEvent());
+        assertEquals("insert 20 20", nextEvent());
+        assertEquals(40, pager.getItemCount());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.MockTmdbServer;
+import com.example.goranminov.popmovies.utilities.ApiClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class MovieSearchTest {
+
+    private MockTmdbServer mServer;
+    private InMemoryCatalogStore mStore;
+    private SearchIndex mIndex;
+    private MovieSearch mSearch;
+    private final List<Runnable> mTasks = new ArrayList<>();
+    private final List<String> mDelivered = new ArrayList<>();
+    private final List<List<Movie>> mResults = new ArrayList<>();
+    private final List<Boolean> mRemote = new ArrayList<>();
+
+    private final MovieSearch.Callback mCallback = new MovieSearch.Callback() {
+        @Override
+        public void onResults(String query, List<Movie> movies, boolean remote) {
+            mDelivered.add(query);
+            mResults.add(movies);
+            mRemote.add(remote);
+        }
+
+        @Override
+        public void onSearchFailed(String query, IOException e) {
+            mDelivered.add("failed: " + query);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockTmdbServer(1);
+        mStore = new InMemoryCatalogStore();
+        mStore.putPage("popular", new CachedPage(new MoviePage(1, 1, Arrays.asList(
+                movie(1, "Logan", "A weary Logan cares for Professor X."),
+                movie(2, "Get Out", "A young man visits his girlfriend's parents."))),
+                null, null, 0));
+        mIndex = new SearchIndex();
+        mSearch = search(null);
+    }
+
+    private MovieSearch search(FeedVariant variant) {
+        // Every step is queued, so the tests decide what runs before what.
+        Executor queue = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mTasks.add(command);
+            }
+        };
+        return new MovieSearch(mIndex, mStore, new ApiClient(1000, 2000, 0, 0),
+                mServer.getSearchUrl(), "key", variant, 10, queue, queue, queue);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+    }
+
+    private static Movie movie(int id, String title, String overview) {
+        return new Movie(id, "/" + id + ".jpg", title, overview, 7f,
+                Movie.parseEpochDay("2017-03-26"));
+    }
+
+    private void runTasks() {
+        while (!mTasks.isEmpty()) {
+            mTasks.remove(0).run();
+        }
+    }
+
+    @Test
+    public void firstQueryFillsTheIndexFromTheStore() {
+        mSearch.search("log", mCallback);
+        runTasks();
+
+        assertEquals(Arrays.asList("log"), mDelivered);
+        assertEquals(1, mResults.get(0).size());
+        assertEquals(1, mResults.get(0).get(0).getId());
+        assertFalse(mRemote.get(0));
+        assertEquals(2, mIndex.size());
+        assertEquals(0, mServer.getSearchRequestCount());
+    }
+
+    @Test
+    public void missSearchesTheServerAndIndexesWhatItFinds() {
+        mSearch.search("Movie", mCallback);
+        runTasks();
+
+        assertEquals(Arrays.asList("Movie"), mDelivered);
+        assertTrue(mRemote.get(0));
+        assertEquals(10, mResults.get(0).size());
+        assertEquals(1, mServer.getSearchRequestCount());
+
+        // The server's movies are now found locally.
+        mSearch.search("Movie", mCallback);
+        runTasks();
+
+        assertFalse(mRemote.get(1));
+        assertEquals(10, mResults.get(1).size());
+        assertEquals(1, mServer.getSearchRequestCount());
+    }
+
+    @Test
+    public void serverIsSearchedInTheLanguageOfTheVariant() {
+        mSearch = search(new FeedVariant("de", "DE"));
+        mSearch.search("Movie", mCallback);
+        runTasks();
+
+        assertTrue(mRemote.get(0));
+        assertTrue(mResults.get(0).get(0).getTitle().endsWith(" (de-DE)"));
+    }
+
+    @Test
+    public void shortMissIsNotSentToTheServer() {
+        mSearch.search("zz", mCallback);
+        runTasks();
+
+        assertEquals(Arrays.asList("zz"), mDelivered);
+        assertTrue(mResults.get(0).isEmpty());
+        assertFalse(mRemote.get(0));
+        assertEquals(0, mServer.getSearchRequestCount());
+    }
+
+    @Test
+    public void newerQuerySupersedesTheRunningOne() {
+        mSearch.search("mov", mCallback);
+        mSearch.search("movi", mCallback);
+        mSearch.search("movie", mCallback);
+        runTasks();
+
+        // Only the last query is answered, the other two never reach the server.
+        assertEquals(Arrays.asList("movie"), mDelivered);
+        assertEquals(1, mServer.getSearchRequestCount());
+    }
+
+    @Test
+    public void cancelDropsTheResults() {
+        mSearch.search("logan", mCallback);
+        mSearch.cancel();
+        runTasks();
+
+        assertTrue(mDelivered.isEmpty());
+    }
+
+    @Test
+    public void failedRequestIsReported() {
+        mServer.failNextRequests(1);
+        mSearch.search("nothing here", mCallback);
+        runTasks();
+
+        assertEquals(Arrays.asList("failed: nothing here"), mDelivered);
+    }
+}
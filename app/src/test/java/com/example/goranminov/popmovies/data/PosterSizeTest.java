@@ -0,0 +1,61 @@
+package com.example.goranminov.popmovies.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PosterSizeTest {
+
+    @Test
+    public void picksSmallestSizeCoveringTheWidth() {
+        assertEquals(PosterSize.W92, PosterSize.forWidth(0));
+        assertEquals(PosterSize.W92, PosterSize.forWidth(92));
+        assertEquals(PosterSize.W154, PosterSize.forWidth(93));
+        assertEquals(PosterSize.W185, PosterSize.forWidth(160));
+        // A 2 column grid on a 1080px wide xxhdpi phone.
+        assertEquals(PosterSize.W780, PosterSize.forWidth(540));
+        assertEquals(PosterSize.W780, PosterSize.forWidth(780));
+    }
+
+    @Test
+    public void fallsBackToOriginalForWideViews() {
+        // A 2 column grid on a 1440px wide xxxhdpi phone still fits in w780...
+        assertEquals(PosterSize.W780, PosterSize.forWidth(720));
+        // ...but a full width poster does not.
+        assertEquals(PosterSize.ORIGINAL, PosterSize.forWidth(1440));
+    }
+
+    @Test
+    public void buildsPosterUrls() {
+        Movie movie = new Movie(1, "/abc.jpg", "Title", "Overview", 7f, Movie.NO_RELEASE_DATE);
+
+        assertEquals("http://image.tmdb.org/t/p/w92/abc.jpg", movie.getPosterUrl(PosterSize.W92));
+        assertEquals("http://image.tmdb.org/t/p/w342/abc.jpg",
+                movie.getPosterUrl(PosterSize.W342));
+        assertEquals("http://image.tmdb.org/t/p/original/abc.jpg",
+                movie.getPosterUrl(PosterSize.ORIGINAL));
+        assertEquals("abc.jpg", movie.getPosterFileName());
+    }
+
+    @Test
+    public void remembersPosterUrls() {
+        Movie movie = new Movie(1, "/abc.jpg", "Title", "Overview", 7f, Movie.NO_RELEASE_DATE);
+
+        assertSame(movie.getPosterUrl(PosterSize.W500), movie.getPosterUrl(PosterSize.W500));
+    }
+
+    @Test
+    public void movieWithoutPosterHasNoUrl() {
+        Movie movie = new Movie(1, null, "Title", "Overview", 7f, Movie.NO_RELEASE_DATE);
+
+        assertNull(movie.getPosterUrl(PosterSize.W780));
+        assertNull(movie.getPosterFileName());
+    }
+
+    @Test
+    public void smallerSizeStopsAtTheSmallest() {
+        assertEquals(PosterSize.W154, PosterSize.W185.smaller());
+        assertEquals(PosterSize.W780, PosterSize.ORIGINAL.smaller());
+        assertEquals(PosterSize.W92, PosterSize.W92.smaller());
+    }
+}
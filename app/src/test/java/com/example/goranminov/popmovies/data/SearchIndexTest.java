@@ -0,0 +1,215 @@
+package com.example.goranminov.popmovies.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SearchIndexTest {
+
+    private SearchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new SearchIndex();
+    }
+
+    private static Movie movie(int id, String title, String overview) {
+        return new Movie(id, "/" + id + ".jpg", title, overview, 7f,
+                Movie.parseEpochDay("2017-03-26"));
+    }
+
+    private List<Integer> search(String query) {
+        List<Integer> ids = new ArrayList<>();
+        for (Movie movie : mIndex.search(query, 100)) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void tokenizesIntoFoldedWords() {
+        assertEquals(Arrays.asList("amelie", "s", "fabuleux", "destin", "2001"),
+                SearchIndex.tokenize("Amélie's FABULEUX destin (2001)"));
+        assertEquals(Collections.<String>emptyList(), SearchIndex.tokenize(" -- "));
+        assertEquals(Collections.<String>emptyList(), SearchIndex.tokenize(null));
+    }
+
+    @Test
+    public void findsWordPrefixesInTitlesAndOverviews() {
+        mIndex.add(Arrays.asList(
+                movie(1, "Logan", "In the near future, a weary Logan cares for Professor X."),
+                movie(2, "Kong: Skull Island", "Explorers venture into an uncharted island."),
+                movie(3, "Beauty and the Beast", "A young woman is held in a castle.")));
+
+        assertEquals(Arrays.asList(1), search("log"));
+        assertEquals(Arrays.asList(2), search("isl"));
+        assertEquals(Arrays.asList(3), search("castle"));
+        assertEquals(Arrays.asList(3, 1), search("the"));
+        assertEquals(Collections.<Integer>emptyList(), search("zebra"));
+        assertEquals(Collections.<Integer>emptyList(), search("   "));
+    }
+
+    @Test
+    public void everyWordMustMatch() {
+        mIndex.add(Arrays.asList(
+                movie(1, "The Dark Knight", "Batman faces the Joker."),
+                movie(2, "The Dark Tower", "A gunslinger hunts the man in black."),
+                movie(3, "Knight and Day", "A fugitive couple goes on a dark adventure.")));
+
+        assertEquals(Arrays.asList(1, 2, 3), search("dark"));
+        assertEquals(Arrays.asList(1, 3), search("dark kni"));
+        assertEquals(Arrays.asList(2), search("dark tow"));
+    }
+
+    @Test
+    public void titleMatchesComeFirst() {
+        mIndex.add(Arrays.asList(
+                movie(1, "Arrival", "Linguists meet visitors from space."),
+                movie(2, "Passengers", "A spacecraft carries thousands of people."),
+                movie(3, "Space Jam", "Michael Jordan plays basketball with the Looney Tunes.")));
+
+        assertEquals(Arrays.asList(3, 1, 2), search("spac"));
+    }
+
+    @Test
+    public void matchesAccentsAndCaseLoosely() {
+        mIndex.add(Collections.singletonList(movie(1, "Le Fabuleux Destin d'Amélie Poulain",
+                "Amélie, une jeune serveuse")));
+
+        assertEquals(Arrays.asList(1), search("AMEL"));
+        assertEquals(Arrays.asList(1), search("amél"));
+        assertEquals(Arrays.asList(1), search("poulain destin"));
+    }
+
+    @Test
+    public void changedMovieReplacesItsPreviousVersion() {
+        mIndex.add(Collections.singletonList(movie(1, "Untitled Project", "Coming soon.")));
+        mIndex.add(Collections.singletonList(movie(1, "Ghost in the Shell", "A cyborg hunts.")));
+
+        assertEquals(Collections.<Integer>emptyList(), search("untitled"));
+        assertEquals(Arrays.asList(1), search("ghost"));
+        assertEquals(1, mIndex.size());
+    }
+
+    @Test
+    public void unchangedMovieIsIndexedOnce() {
+        List<Movie> page = Arrays.asList(
+                movie(1, "Logan", "A weary Logan."),
+                movie(2, "Get Out", "A young man visits his girlfriend's parents."));
+        mIndex.add(page);
+        mIndex.add(page);
+
+        assertEquals(Arrays.asList(1), search("logan"));
+        assertEquals(2, mIndex.size());
+    }
+
+    @Test
+    public void resultsAreCappedAtTheLimit() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            movies.add(movie(i, "Movie " + i, "Overview"));
+        }
+        mIndex.add(movies);
+
+        assertEquals(10, mIndex.search("movie", 10).size());
+        assertEquals(0, mIndex.search("movie", 0).size());
+    }
+
+    @Test
+    public void voteChangeKeepsTheDocument() {
+        mIndex.add(Collections.singletonList(movie(1, "Logan", "A weary Logan.")));
+        Movie revoted = new Movie(1, "/1.jpg", "Logan", "A weary Logan.", 8.5f,
+                Movie.parseEpochDay("2017-03-26"));
+        mIndex.add(Collections.singletonList(revoted));
+
+        assertEquals(1, mIndex.documentCount());
+        assertEquals(8.5f, mIndex.search("logan", 10).get(0).getVoteAverage(), 0f);
+    }
+
+    @Test
+    public void replacedMoviesAreReclaimed() {
+        for (int version = 0; version < 10; version++) {
+            List<Movie> movies = new ArrayList<>();
+            for (int id = 0; id < 20; id++) {
+                movies.add(movie(id, "Movie " + id + " v" + version, "Overview " + version));
+            }
+            mIndex.add(movies);
+        }
+
+        assertEquals(20, mIndex.size());
+        assertTrue(mIndex.documentCount() <= 2 * 20);
+        assertEquals(Collections.<Integer>emptyList(), search("v3"));
+        assertEquals(Arrays.asList(7), search("movie 7 v9"));
+        assertEquals(20, search("overview 9").size());
+        // The words of the reclaimed versions are gone too.
+        assertTrue(mIndex.termCount() <= 2 * (20 + 3));
+    }
+
+    @Test
+    public void prefixQueriesOverALargeCorpusMatchEveryWord() {
+        String[] syllables = {"ka", "lo", "mi", "ra", "te", "su", "no", "vi"};
+        Random random = new Random(50000);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder title = new StringBuilder();
+            StringBuilder overview = new StringBuilder();
+            for (int w = 0; w < 40; w++) {
+                StringBuilder word = w < 3 ? title : overview;
+                word.append(' ');
+                for (int s = 0; s < 2 + random.nextInt(3); s++) {
+                    word.append(syllables[random.nextInt(syllables.length)]);
+                }
+            }
+            movies.add(movie(i, title.toString(), overview.toString()));
+        }
+        mIndex.add(movies);
+
+        for (String query : new String[]{"k", "ka", "kalo", "kalo mi", "mira tesu", "zz"}) {
+            assertEquals(query, scan(movies, query, 60), mIndex.search(query, 60));
+        }
+    }
+
+    /*
+     * What search() must return, by looking at every movie.
+     */
+    private static List<Movie> scan(List<Movie> movies, String query, int limit) {
+        List<String> words = SearchIndex.tokenize(query);
+        List<Movie> inTitle = new ArrayList<>();
+        List<Movie> anywhere = new ArrayList<>();
+        for (Movie movie : movies) {
+            List<String> title = SearchIndex.tokenize(movie.getTitle());
+            List<String> all = new ArrayList<>(title);
+            all.addAll(SearchIndex.tokenize(movie.getOverview()));
+            if (matchesAll(title, words)) {
+                inTitle.add(movie);
+            } else if (matchesAll(all, words)) {
+                anywhere.add(movie);
+            }
+        }
+        inTitle.addAll(anywhere);
+        return inTitle.subList(0, Math.min(limit, inTitle.size()));
+    }
+
+    private static boolean matchesAll(List<String> text, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            boolean found = false;
+            for (String word : text) {
+                if (word.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.goranminov.popmovies.data;
+
+import com.example.goranminov.popmovies.utilities.Clock;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SyncScheduleTest {
+
+    private static final long INTERVAL = TimeUnit.HOURS.toMillis(6);
+    private static final long INITIAL_BACKOFF = TimeUnit.MINUTES.toMillis(15);
+    private static final long MAX_BACKOFF = TimeUnit.HOURS.toMillis(24);
+
+    private long mNow = 1490543485000L;
+
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+    };
+
+    private SyncSchedule schedule(int failures, long nextRunAt) {
+        return new SyncSchedule(INTERVAL, INITIAL_BACKOFF, MAX_BACKOFF, failures, nextRunAt,
+                mClock);
+    }
+
+    @Test
+    public void successWaitsOneInterval() {
+        SyncSchedule schedule = schedule(0, 0);
+
+        assertEquals(INTERVAL, schedule.onSuccess());
+        assertEquals(mNow + INTERVAL, schedule.getNextRunAt());
+    }
+
+    @Test
+    public void backoffDoublesAfterEachFailure() {
+        SyncSchedule schedule = schedule(0, 0);
+
+        assertEquals(INITIAL_BACKOFF, schedule.onFailure());
+        assertEquals(2 * INITIAL_BACKOFF, schedule.onFailure());
+        assertEquals(4 * INITIAL_BACKOFF, schedule.onFailure());
+        assertEquals(3, schedule.getFailures());
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        SyncSchedule schedule = schedule(40, 0);
+
+        assertEquals(MAX_BACKOFF, schedule.onFailure());
+        assertEquals(41, schedule.getFailures());
+    }
+
+    @Test
+    public void successResetsTheBackoff() {
+        SyncSchedule schedule = schedule(3, 0);
+        schedule.onSuccess();
+
+        assertEquals(0, schedule.getFailures());
+        assertEquals(INITIAL_BACKOFF, schedule.onFailure());
+    }
+
+    @Test
+    public void cancelledSyncIsNotAFailure() {
+        SyncSchedule schedule = schedule(2, 0);
+
+        assertEquals(INITIAL_BACKOFF, schedule.onCancelled());
+        assertEquals(2, schedule.getFailures());
+    }
+
+    @Test
+    public void remainingDelayFollowsTheClock() {
+        SyncSchedule schedule = schedule(0, mNow + INTERVAL);
+
+        mNow += TimeUnit.HOURS.toMillis(4);
+        assertEquals(TimeUnit.HOURS.toMillis(2), schedule.getRemainingDelay());
+        mNow += TimeUnit.HOURS.toMillis(4);
+        assertEquals(0, schedule.getRemainingDelay());
+    }
+}
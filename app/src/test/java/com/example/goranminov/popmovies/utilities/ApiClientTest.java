@@ -0,0 +1,289 @@
+package com.example.goranminov.popmovies.utilities;
+
+import com.example.goranminov.popmovies.MockTmdbServer;
+import com.example.goranminov.popmovies.data.CachedPage;
+import com.example.goranminov.popmovies.data.MoviePage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ApiClientTest {
+
+    private MockTmdbServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockTmdbServer(5);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+    }
+
+    private URL pageUrl(int page) {
+        return NetworkUtils.buildMovieListUrl(mServer.getBaseUrl(), "key", "popular", page);
+    }
+
+    @Test
+    public void reusesConnectionAcrossRequests() throws Exception {
+        ApiClient client = new ApiClient(1000, 2000, 0, 0);
+        for (int page = 1; page <= 5; page++) {
+            MoviePage moviePage = NetworkUtils.getMoviePage(client, pageUrl(page));
+            assertEquals(page, moviePage.getPage());
+        }
+
+        assertEquals(5, mServer.getTotalRequests());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void decodesGzipResponses() throws Exception {
+        ApiClient client = new ApiClient(1000, 2000, 0, 0);
+        MoviePage page = NetworkUtils.getMoviePage(client, pageUrl(1));
+
+        assertEquals(1, mServer.getGzipResponseCount());
+        assertEquals(MockTmdbServer.MOVIES_PER_PAGE, page.getMovies().size());
+        assertEquals(MockTmdbServer.movieId("popular", 1, 0), page.getMovies().get(0).getId());
+    }
+
+    @Test
+    public void recordsRequestMetricsWhenEnabled() throws Exception {
+        Metrics metrics = new Metrics(16);
+        metrics.setEnabled(true);
+        ApiClient client = new ApiClient(1000, 2000, 0, 0, metrics);
+        for (int page = 1; page <= 3; page++) {
+            NetworkUtils.getMoviePage(client, pageUrl(page));
+        }
+
+        for (Metrics.Metric metric : new Metrics.Metric[]{Metrics.Metric.DNS,
+                Metrics.Metric.CONNECT, Metrics.Metric.TTFB, Metrics.Metric.DOWNLOAD,
+                Metrics.Metric.REQUEST, Metrics.Metric.RESPONSE_BYTES,
+                Metrics.Metric.JSON_DECODE}) {
+            assertEquals(metric.name(), 3, metrics.summary(metric).getCount());
+        }
+        Metrics.Summary requests = metrics.summary(Metrics.Metric.REQUEST);
+        assertTrue(requests.getP50() > 0);
+        assertTrue(requests.getMax() >= requests.getP50());
+        // The bytes on the wire, gzip compressed.
+        long bytes = metrics.summary(Metrics.Metric.RESPONSE_BYTES).getMax();
+        assertTrue(bytes > 0);
+        assertTrue(bytes < MockTmdbServer.pageJson("popular", 3, 5).length());
+        assertEquals(0, metrics.summary(Metrics.Metric.FIRST_POSTER).getCount());
+    }
+
+    @Test
+    public void recordsNothingWhenDisabled() throws Exception {
+        Metrics metrics = new Metrics(16);
+        ApiClient client = new ApiClient(1000, 2000, 0, 0, metrics);
+        NetworkUtils.getMoviePage(client, pageUrl(1));
+
+        for (Metrics.Summary summary : metrics.dump().values()) {
+            assertEquals(0, summary.getCount());
+        }
+    }
+
+    @Test
+    public void retriesServerErrors() throws Exception {
+        ApiClient client = new ApiClient(1000, 2000, 2, 1);
+        mServer.failNextRequests(2);
+
+        MoviePage page = NetworkUtils.getMoviePage(client, pageUrl(1));
+
+        assertEquals(1, page.getPage());
+        assertEquals(3, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void returnsServerErrorOnceRetriesAreExhausted() throws Exception {
+        ApiClient client = new ApiClient(1000, 2000, 1, 1);
+        mServer.failNextRequests(5);
+
+        ApiClient.Response response = client.get(pageUrl(1), null);
+        try {
+            assertEquals(503, response.getCode());
+        } finally {
+            response.close();
+        }
+        assertEquals(2, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void timesOutAndRetries() throws Exception {
+        ApiClient client = new ApiClient(1000, 200, 1, 1);
+        mServer.closeGate();
+        try {
+            client.get(pageUrl(1), null);
+            fail("Expected a timeout");
+        } catch (IOException expected) {
+            // The read timeout fired on every attempt.
+        } finally {
+            mServer.openGate();
+        }
+        assertEquals(2, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void burstOfIdenticalRequestsGoesOutOnce() throws Exception {
+        ApiClient client = new ApiClient(1000, 5000, 0, 0);
+        mServer.closeGate();
+
+        List<Future<CachedPage>> pages = fetchConcurrently(client, 100);
+
+        CachedPage first = pages.get(0).get();
+        for (Future<CachedPage> page : pages) {
+            assertSame(first, page.get());
+        }
+        assertEquals(1, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void failureIsSharedByIdenticalRequests() throws Exception {
+        ApiClient client = new ApiClient(1000, 5000, 0, 0);
+        mServer.setStatusCode(503);
+        mServer.closeGate();
+
+        List<Future<CachedPage>> pages = fetchConcurrently(client, 10);
+
+        for (Future<CachedPage> page : pages) {
+            try {
+                page.get();
+                fail("Expected the request to fail");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof IOException);
+            }
+        }
+        assertEquals(1, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void sameRequestAfterTheFirstIsDoneGoesOutAgain() throws Exception {
+        ApiClient client = new ApiClient(1000, 2000, 0, 0);
+        NetworkUtils.fetchMoviePage(client, pageUrl(1), null, 0L);
+        NetworkUtils.fetchMoviePage(client, pageUrl(1), null, 0L);
+
+        assertEquals(2, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void rateLimiterSpacesRequestsOut() throws Exception {
+        ApiClient client = new ApiClient(1000, 2000, 0, 0,
+                new RateLimiter(2, 200, 0, Clock.SYSTEM), new Metrics(16));
+        long start = System.nanoTime();
+        for (int page = 1; page <= 4; page++) {
+            NetworkUtils.getMoviePage(client, pageUrl(page));
+        }
+
+        // Two requests of the burst, then one every 200ms.
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(350));
+        assertEquals(4, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void retriesAfterTheDelayTheServerAskedFor() throws Exception {
+        RateLimiter limiter = new RateLimiter(10, 100, 0, Clock.SYSTEM);
+        ApiClient client = new ApiClient(1000, 2000, 1, 1, limiter, new Metrics(16));
+        mServer.throttleNextRequests(1, "1");
+        long start = System.nanoTime();
+
+        MoviePage page = NetworkUtils.getMoviePage(client, pageUrl(1));
+
+        assertEquals(1, page.getPage());
+        assertEquals(2, mServer.getTotalRequests());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test
+    public void retryAfterBeyondTheLimitIsNotWaitedFor() throws Exception {
+        ApiClient client = new ApiClient(1000, 2000, 2, 1);
+        mServer.throttleNextRequests(5, "3600");
+
+        ApiClient.Response response = client.get(pageUrl(1), null);
+        try {
+            assertEquals(429, response.getCode());
+        } finally {
+            response.close();
+        }
+        assertEquals(1, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void retryAfterBeyondTheLimitDoesNotHoldTheOtherRequests() throws Exception {
+        ApiClient client = new ApiClient(1000, 2000, 2, 1,
+                new RateLimiter(10, 100, 0, Clock.SYSTEM), new Metrics(16));
+        mServer.throttleNextRequests(1, "3600");
+
+        ApiClient.Response throttled = client.get(pageUrl(1), null);
+        try {
+            assertEquals(429, throttled.getCode());
+        } finally {
+            throttled.close();
+        }
+
+        long start = System.currentTimeMillis();
+        ApiClient.Response response = client.get(pageUrl(2), null);
+        try {
+            assertEquals(200, response.getCode());
+        } finally {
+            response.close();
+        }
+        assertTrue(System.currentTimeMillis() - start < ApiClient.MAX_RETRY_AFTER_MILLIS);
+        assertEquals(2, mServer.getTotalRequests());
+    }
+
+    @Test
+    public void parsesRetryAfterSecondsAndDates() {
+        long now = 1490543485000L;
+        assertEquals(120000, ApiClient.parseRetryAfter("120", now));
+        // Sun, 26 Mar 2017 15:51:25 GMT plus 30 seconds.
+        assertEquals(30000, ApiClient.parseRetryAfter("Sun, 26 Mar 2017 15:51:55 GMT", now));
+        assertEquals(0, ApiClient.parseRetryAfter("Sun, 26 Mar 2017 15:00:00 GMT", now));
+        assertEquals(-1, ApiClient.parseRetryAfter("soon", now));
+        assertEquals(-1, ApiClient.parseRetryAfter(null, now));
+    }
+
+    /*
+     * Fetches the first page from as many threads at once, while the gate of the server
+     * holds the response back until they are all waiting for it.
+     */
+    private List<Future<CachedPage>> fetchConcurrently(final ApiClient client, int count)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        final CountDownLatch ready = new CountDownLatch(count);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<CachedPage>> pages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pages.add(executor.submit(new Callable<CachedPage>() {
+                @Override
+                public CachedPage call() throws Exception {
+                    ready.countDown();
+                    start.await();
+                    return NetworkUtils.fetchMoviePage(client, pageUrl(1), null, 0L);
+                }
+            }));
+        }
+        ready.await();
+        start.countDown();
+        // Lets every thread join the request in flight.
+        Thread.sleep(300);
+        mServer.openGate();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return pages;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.goranminov.popmovies.utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BlurHashTest {
+
+    private static int[] solid(int width, int height, int color) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = color;
+        }
+        return pixels;
+    }
+
+    private static int channelDistance(int a, int b) {
+        return Math.max(Math.abs(((a >> 16) & 0xff) - ((b >> 16) & 0xff)),
+                Math.max(Math.abs(((a >> 8) & 0xff) - ((b >> 8) & 0xff)),
+                        Math.abs((a & 0xff) - (b & 0xff))));
+    }
+
+    @Test
+    public void posterHashIsTwentyEightCharacters() {
+        String hash = BlurHash.encode(solid(32, 48, 0xff336699), 32, 48, 3, 4);
+
+        assertEquals(28, hash.length());
+    }
+
+    @Test
+    public void solidColourRoundTrips() {
+        int color = 0xff336699;
+        String hash = BlurHash.encode(solid(32, 48, color), 32, 48, 3, 4);
+        int[] pixels = BlurHash.decode(hash, 8, 12);
+
+        assertEquals(8 * 12, pixels.length);
+        // The basis is sampled at the pixel edges, so a flat image keeps a slight gradient.
+        for (int pixel : pixels) {
+            assertEquals(0xff, pixel >>> 24);
+            assertTrue(channelDistance(color, pixel) <= 12);
+        }
+    }
+
+    @Test
+    public void keepsTheLayoutOfTheColours() {
+        // Red on top, blue below.
+        int width = 30;
+        int height = 45;
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = y < height / 2 ? 0xffff0000 : 0xff0000ff;
+            }
+        }
+        int[] decoded = BlurHash.decode(BlurHash.encode(pixels, width, height, 3, 4), 4, 6);
+
+        int top = decoded[0];
+        int bottom = decoded[decoded.length - 1];
+        assertTrue(((top >> 16) & 0xff) > (top & 0xff));
+        assertTrue((bottom & 0xff) > ((bottom >> 16) & 0xff));
+    }
+
+    @Test
+    public void decodedHashEncodesToTheSameHash() {
+        // The example of the reference implementation, 4x3 components.
+        String hash = "LEHV6nWB2yk8pyo0adR*.7kCMdnj";
+        int[] pixels = BlurHash.decode(hash, 64, 48);
+
+        String again = BlurHash.encode(pixels, 64, 48, 4, 3);
+        assertEquals(hash.length(), again.length());
+        // Same components and average colour.
+        assertEquals(hash.charAt(0), again.charAt(0));
+        assertEquals(hash.substring(2, 6), again.substring(2, 6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedHash() {
+        BlurHash.decode("LEHV6nWB2yk8pyo0adR*.7kCMd", 4, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidCharacters() {
+        BlurHash.decode("LEHV6nWB2yk8pyo0adR*.7kCM\"nj", 4, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooManyComponents() {
+        BlurHash.encode(solid(4, 4, 0), 4, 4, 10, 1);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.goranminov.popmovies.utilities;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+public class DiskPosterCacheTest {
+
+    private static final String URL_A = "http://image.tmdb.org/t/p/w185/a.jpg";
+    private static final String URL_B = "http://image.tmdb.org/t/p/w185/b.jpg";
+    private static final String URL_C = "http://image.tmdb.org/t/p/w185/c.jpg";
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static InputStream bytes(int count, int value) {
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = (byte) value;
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private static int firstByte(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return in.read();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void storesAndServesFiles() throws Exception {
+        DiskPosterCache cache = new DiskPosterCache(mFolder.newFolder("posters"), 1000);
+
+        assertNull(cache.get(URL_A));
+        cache.put(URL_A, bytes(100, 7));
+        File file = cache.get(URL_A);
+
+        assertNotNull(file);
+        assertEquals(100, file.length());
+        assertEquals(7, firstByte(file));
+        assertEquals(100, cache.size());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenOverBudget() throws Exception {
+        DiskPosterCache cache = new DiskPosterCache(mFolder.newFolder("posters"), 250);
+        cache.put(URL_A, bytes(100, 1));
+        cache.put(URL_B, bytes(100, 2));
+        // Use A, so B is the least recently used.
+        assertNotNull(cache.get(URL_A));
+
+        cache.put(URL_C, bytes(100, 3));
+
+        assertNull(cache.get(URL_B));
+        assertNotNull(cache.get(URL_A));
+        assertNotNull(cache.get(URL_C));
+        assertEquals(200, cache.size());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void replacingAFileKeepsTheSizeRight() throws Exception {
+        DiskPosterCache cache = new DiskPosterCache(mFolder.newFolder("posters"), 1000);
+        cache.put(URL_A, bytes(100, 1));
+        cache.put(URL_A, bytes(40, 2));
+
+        assertEquals(40, cache.size());
+        assertEquals(1, cache.entryCount());
+        assertEquals(2, firstByte(cache.get(URL_A)));
+    }
+
+    @Test
+    public void reopenedCacheFindsItsFiles() throws Exception {
+        File directory = mFolder.newFolder("posters");
+        new DiskPosterCache(directory, 1000).put(URL_A, bytes(100, 1));
+        // An interrupted download.
+        assertTrue(new File(directory, "abc.0.tmp").createNewFile());
+
+        DiskPosterCache reopened = new DiskPosterCache(directory, 1000);
+
+        assertNotNull(reopened.get(URL_A));
+        assertEquals(100, reopened.size());
+        assertFalse(new File(directory, "abc.0.tmp").exists());
+    }
+
+    @Test
+    public void reopenedCacheTrimsToTheNewBudget() throws Exception {
+        File directory = mFolder.newFolder("posters");
+        DiskPosterCache cache = new DiskPosterCache(directory, 1000);
+        cache.put(URL_A, bytes(100, 1));
+        cache.put(URL_B, bytes(100, 2));
+        assertTrue(cache.get(URL_A).setLastModified(2000000000000L));
+        assertTrue(cache.get(URL_B).setLastModified(1000000000000L));
+
+        DiskPosterCache reopened = new DiskPosterCache(directory, 150);
+
+        // B was used longer ago.
+        assertNull(reopened.get(URL_B));
+        assertNotNull(reopened.get(URL_A));
+    }
+
+    @Test
+    public void fileDeletedBehindOurBackIsAMiss() throws Exception {
+        DiskPosterCache cache = new DiskPosterCache(mFolder.newFolder("posters"), 1000);
+        File file = cache.put(URL_A, bytes(100, 1));
+        assertTrue(file.delete());
+
+        assertNull(cache.get(URL_A));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void evictAllDeletesTheFiles() throws Exception {
+        DiskPosterCache cache = new DiskPosterCache(mFolder.newFolder("posters"), 1000);
+        File file = cache.put(URL_A, bytes(100, 1));
+
+        cache.evictAll();
+
+        assertFalse(file.exists());
+        assertEquals(0, cache.size());
+        assertNull(cache.get(URL_A));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.goranminov.popmovies.utilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LruMemoryCacheTest {
+
+    private LruMemoryCache<String> mCache;
+
+    @Before
+    public void setUp() {
+        // Sized by the length of the values.
+        mCache = new LruMemoryCache<String>(10) {
+            @Override
+            protected int sizeOf(String value) {
+                return value.length();
+            }
+        };
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenOverBudget() {
+        mCache.putEntry("a", "aaaa");
+        mCache.putEntry("b", "bbbb");
+        mCache.getEntry("a");
+        mCache.putEntry("c", "cccc");
+
+        assertEquals("aaaa", mCache.getEntry("a"));
+        assertNull(mCache.getEntry("b"));
+        assertEquals(8, mCache.size());
+        assertEquals(1, mCache.evictionCount());
+    }
+
+    @Test
+    public void replacingAnEntryCountsItsNewSize() {
+        mCache.putEntry("a", "aaaa");
+        mCache.putEntry("a", "aa");
+
+        assertEquals(2, mCache.size());
+        assertEquals(1, mCache.entryCount());
+    }
+
+    @Test
+    public void resizeEvictsUntilTheCacheFits() {
+        mCache.putEntry("a", "aaa");
+        mCache.putEntry("b", "bbb");
+        mCache.putEntry("c", "ccc");
+
+        mCache.resize(5);
+
+        assertEquals(3, mCache.size());
+        assertEquals("ccc", mCache.getEntry("c"));
+        mCache.resize(10);
+        mCache.putEntry("a", "aaa");
+        assertEquals(6, mCache.size());
+    }
+
+    @Test
+    public void removesEntriesByPrefix() {
+        mCache.putEntry("http://a\n100x150", "aa");
+        mCache.putEntry("http://a\n200x300", "aa");
+        mCache.putEntry("http://ab\n100x150", "aa");
+
+        mCache.removeEntries("http://a\n");
+
+        assertEquals(1, mCache.entryCount());
+        assertEquals(2, mCache.size());
+    }
+
+    @Test
+    public void evictAllEmptiesTheCache() {
+        mCache.putEntry("a", "aaa");
+        mCache.putEntry("b", "");
+
+        mCache.evictAll();
+
+        assertEquals(0, mCache.entryCount());
+        assertEquals(0, mCache.size());
+        assertEquals(10, mCache.maxSize());
+    }
+}
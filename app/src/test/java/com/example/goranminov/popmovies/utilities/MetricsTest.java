@@ -0,0 +1,114 @@
+package com.example.goranminov.popmovies.utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    private static Metrics enabledMetrics(int capacity) {
+        Metrics metrics = new Metrics(capacity);
+        metrics.setEnabled(true);
+        return metrics;
+    }
+
+    @Test
+    public void summarizesPercentiles() {
+        Metrics metrics = enabledMetrics(128);
+        // Recorded out of order, 1 to 100.
+        for (int i = 0; i < 100; i++) {
+            metrics.record(Metrics.Metric.TTFB, (i * 37) % 100 + 1);
+        }
+
+        Metrics.Summary summary = metrics.summary(Metrics.Metric.TTFB);
+        assertEquals(100, summary.getCount());
+        assertEquals(50, summary.getP50());
+        assertEquals(90, summary.getP90());
+        assertEquals(99, summary.getP99());
+        assertEquals(100, summary.getMax());
+    }
+
+    @Test
+    public void keepsOnlyTheLatestSamples() {
+        Metrics metrics = enabledMetrics(4);
+        for (int i = 1; i <= 10; i++) {
+            metrics.record(Metrics.Metric.REQUEST, i * 1000);
+        }
+
+        Metrics.Summary summary = metrics.summary(Metrics.Metric.REQUEST);
+        assertEquals(10, summary.getCount());
+        assertEquals(8000, summary.getP50());
+        assertEquals(10000, summary.getMax());
+    }
+
+    @Test
+    public void recordsNothingWhenDisabled() {
+        Metrics metrics = new Metrics(4);
+        metrics.record(Metrics.Metric.DNS, 5);
+        assertEquals(0, metrics.summary(Metrics.Metric.DNS).getCount());
+        assertEquals("", metrics.dumpText());
+
+        metrics.setEnabled(true);
+        metrics.record(Metrics.Metric.DNS, 5);
+        assertEquals(1, metrics.summary(Metrics.Metric.DNS).getCount());
+    }
+
+    @Test
+    public void resetForgetsTheSamples() {
+        Metrics metrics = enabledMetrics(4);
+        metrics.record(Metrics.Metric.JSON_DECODE, 5);
+        metrics.reset();
+
+        assertEquals(0, metrics.summary(Metrics.Metric.JSON_DECODE).getCount());
+        assertEquals(0, metrics.summary(Metrics.Metric.JSON_DECODE).getMax());
+    }
+
+    @Test
+    public void dumpsTheRecordedMetrics() {
+        Metrics metrics = enabledMetrics(8);
+        metrics.record(Metrics.Metric.FIRST_POSTER, 1500000000L);
+        metrics.record(Metrics.Metric.RESPONSE_BYTES, 4096);
+
+        assertEquals("response_bytes n=1 p50=4KB p90=4KB p99=4KB max=4KB\n"
+                + "first_poster n=1 p50=1500.0ms p90=1500.0ms p99=1500.0ms max=1500.0ms",
+                metrics.dumpText());
+        assertEquals(Metrics.Metric.values().length, metrics.dump().size());
+    }
+
+    @Test
+    public void concurrentWritersDontLoseCounts() throws Exception {
+        final Metrics metrics = enabledMetrics(256);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 10000; i++) {
+                        metrics.record(Metrics.Metric.DOWNLOAD, 7);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Metrics.Summary summary = metrics.summary(Metrics.Metric.DOWNLOAD);
+        assertEquals(40000, summary.getCount());
+        assertEquals(7, summary.getP50());
+        assertEquals(7, summary.getMax());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.goranminov.popmovies.utilities;
+
+import com.example.goranminov.popmovies.data.Movie;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the allocations of the streaming decoder against the previous StringBuffer +
+ * org.json implementation of getMovieDataFromJson. The throughput of both is measured by
+ * JsonDecodeBenchmark in the benchmark module.
+ */
+public class MovieJsonBenchmarkTest {
+
+    private static final int ROUNDS = 2_000;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private int mSink;
+
+    @Test
+    public void streamingDecoderAllocatesLessThanDom() throws Exception {
+        byte[] body = readFixture("popular_page1.json");
+
+        // Warm up both paths before measuring.
+        runLegacy(body, ROUNDS);
+        runStreaming(body, ROUNDS);
+
+        long threadId = Thread.currentThread().getId();
+
+        long before = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+        runLegacy(body, ROUNDS);
+        long legacyBytes = THREAD_BEAN.getThreadAllocatedBytes(threadId) - before;
+
+        before = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+        runStreaming(body, ROUNDS);
+        long streamingBytes = THREAD_BEAN.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(mSink != 0);
+        assertTrue(streamingBytes < legacyBytes);
+    }
+
+    private void runLegacy(byte[] body, int rounds) throws IOException, JSONException {
+        for (int i = 0; i < rounds; i++) {
+            mSink += legacyGetMovieDataFromJson(new ByteArrayInputStream(body)).length;
+        }
+    }
+
+    private void runStreaming(byte[] body, int rounds) throws IOException {
+        for (int i = 0; i < rounds; i++) {
+            mSink += MovieJsonUtils.getMoviePageFromJson(new ByteArrayInputStream(body))
+                    .getMovies().size();
+        }
+    }
+
+    /*
+     * The previous implementation: buffer the whole body, then build a DOM tree.
+     */
+    private static Movie[] legacyGetMovieDataFromJson(InputStream inputStream)
+            throws IOException, JSONException {
+        StringBuffer stringBuffer = new StringBuffer();
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            stringBuffer.append(line + "\n");
+        }
+        bufferedReader.close();
+
+        JSONArray results = new JSONObject(stringBuffer.toString()).getJSONArray("results");
+        Movie[] movies = new Movie[results.length()];
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject movie = results.getJSONObject(i);
+            movies[i] = new Movie(
+                    movie.getInt("id"),
+                    movie.isNull("poster_path") ? null : movie.getString("poster_path"),
+                    movie.getString("original_title"),
+                    movie.getString("overview"),
+                    (float) movie.getDouble("vote_average"),
+                    Movie.parseEpochDay(movie.optString("release_date")));
+        }
+        return movies;
+    }
+
+    private byte[] readFixture(String name) throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(name);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.goranminov.popmovies.utilities;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MovieDetails;
+import com.example.goranminov.popmovies.data.MoviePage;
+import com.example.goranminov.popmovies.data.PosterSize;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MovieJsonUtilsTest {
+
+    private MoviePage parseFixture(String name) throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(name);
+        assertNotNull("Missing fixture " + name, inputStream);
+        return MovieJsonUtils.getMoviePageFromJson(inputStream);
+    }
+
+    @Test
+    public void parsesPopularFixture() throws Exception {
+        MoviePage page = parseFixture("popular_page1.json");
+
+        assertEquals(1, page.getPage());
+        assertEquals(982, page.getTotalPages());
+        assertTrue(page.hasNextPage());
+        assertEquals(20, page.getMovies().size());
+
+        Movie logan = page.getMovies().get(0);
+        assertEquals(263115, logan.getId());
+        assertEquals("Logan", logan.getTitle());
+        assertEquals("/p000000a.jpg", logan.getPosterPath());
+        assertEquals(5.0f, logan.getVoteAverage(), 0f);
+        assertEquals(2016, logan.getReleaseYear());
+    }
+
+    @Test
+    public void keepsDelimiterCharactersInOverview() throws Exception {
+        Movie movie = parseFixture("popular_page1.json").getMovies().get(3);
+        assertTrue(movie.getOverview().endsWith("Tickets: $12 @ the door! #1 hit, £8 in London."));
+    }
+
+    @Test
+    public void handlesMissingPosterAndReleaseDate() throws Exception {
+        MoviePage page = parseFixture("popular_page1.json");
+        assertNull(page.getMovies().get(17).getPosterPath());
+        assertNull(page.getMovies().get(17).getPosterUrl(PosterSize.W185));
+        assertEquals(Movie.NO_RELEASE_DATE, page.getMovies().get(18).getReleaseDate());
+    }
+
+    @Test
+    public void parsesLaterPage() throws Exception {
+        MoviePage page = parseFixture("top_rated_page2.json");
+        assertEquals(2, page.getPage());
+        assertEquals(301, page.getTotalPages());
+        assertEquals(20, page.getMovies().size());
+    }
+
+    @Test
+    public void skipsUnknownFieldsAndNulls() throws Exception {
+        String json = "{\"dates\":{\"maximum\":\"2017-04-01\"},\"page\":3,\"results\":[{\"id\":7,"
+                + "\"genre_ids\":[1,2],\"belongs_to_collection\":{\"id\":1,\"parts\":[{}]},"
+                + "\"poster_path\":null,\"original_title\":\"T\",\"overview\":null,"
+                + "\"vote_average\":8,\"release_date\":null}],\"total_pages\":null}";
+        MoviePage page = MovieJsonUtils.getMoviePageFromJson(new StringReader(json));
+
+        assertEquals(3, page.getPage());
+        assertEquals(1, page.getMovies().size());
+        Movie movie = page.getMovies().get(0);
+        assertEquals(7, movie.getId());
+        assertEquals("T", movie.getTitle());
+        assertNull(movie.getOverview());
+        assertEquals(8f, movie.getVoteAverage(), 0f);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedBody() throws Exception {
+        MovieJsonUtils.getMoviePageFromJson(new StringReader("{\"results\":[{\"id\":\"x\"}]}"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedBody() throws Exception {
+        MovieJsonUtils.getMoviePageFromJson(new StringReader("{\"page\":1,\"results\":[{\"id\":1,"));
+    }
+
+    @Test
+    public void parsesMovieDetailsFixture() throws Exception {
+        InputStream inputStream =
+                getClass().getClassLoader().getResourceAsStream("movie_details_263115.json");
+        MovieDetails details = MovieJsonUtils.getMovieDetailsFromJson(inputStream, null);
+
+        assertEquals(263115, details.getMovieId());
+        assertTrue(details.isComplete());
+        assertEquals(137, details.getRuntime());
+        assertEquals("His time has come", details.getTagline());
+        assertEquals(Arrays.asList("Action", "Drama", "Science Fiction"), details.getGenres());
+
+        assertEquals(3, details.getVideos().size());
+        MovieDetails.Video trailer = details.getVideos().get(0);
+        assertEquals("Trailer", trailer.getType());
+        assertEquals("https://www.youtube.com/watch?v=Div0iP65aZo", trailer.getWatchUrl());
+        assertNull(details.getVideos().get(2).getWatchUrl());
+
+        assertEquals(2, details.getReviews().size());
+        assertEquals("Gimly", details.getReviews().get(1).getAuthor());
+        assertEquals("Worth the wait.", details.getReviews().get(1).getContent());
+
+        // The crew is skipped, a null character is kept as null.
+        assertEquals(3, details.getCast().size());
+        assertEquals("Hugh Jackman", details.getCast().get(0).getName());
+        assertEquals("Logan / Wolverine", details.getCast().get(0).getCharacter());
+        assertNull(details.getCast().get(2).getCharacter());
+    }
+
+    @Test
+    public void handsOutMovieDetailsSectionBySection() throws Exception {
+        InputStream inputStream =
+                getClass().getClassLoader().getResourceAsStream("movie_details_263115.json");
+        final List<MovieDetails> partials = new ArrayList<>();
+        MovieDetails details = MovieJsonUtils.getMovieDetailsFromJson(inputStream,
+                new MovieJsonUtils.SectionListener() {
+                    @Override
+                    public void onSectionDecoded(MovieDetails partial) {
+                        partials.add(partial);
+                    }
+                });
+
+        assertEquals(4, partials.size());
+        assertEquals(MovieDetails.SECTION_INFO, partials.get(0).getSections());
+        assertEquals(137, partials.get(0).getRuntime());
+        assertTrue(partials.get(0).getVideos().isEmpty());
+        assertTrue(partials.get(1).hasSection(MovieDetails.SECTION_VIDEOS));
+        assertEquals(3, partials.get(1).getVideos().size());
+        assertFalse(partials.get(1).hasSection(MovieDetails.SECTION_REVIEWS));
+        assertTrue(partials.get(2).hasSection(MovieDetails.SECTION_REVIEWS));
+        assertFalse(partials.get(2).isComplete());
+        assertSame(details.getCast().get(0).getName(), partials.get(3).getCast().get(0).getName());
+        assertTrue(partials.get(3).isComplete());
+    }
+
+    @Test
+    public void missingSectionsAreDecodedAsEmpty() throws Exception {
+        String json = "{\"id\":5,\"runtime\":null,\"genres\":[],\"videos\":{\"results\":[]}}";
+        final List<MovieDetails> partials = new ArrayList<>();
+        MovieDetails details = MovieJsonUtils.getMovieDetailsFromJson(
+                new ByteArrayInputStream(json.getBytes("UTF-8")),
+                new MovieJsonUtils.SectionListener() {
+                    @Override
+                    public void onSectionDecoded(MovieDetails partial) {
+                        partials.add(partial);
+                    }
+                });
+
+        assertEquals(3, partials.size());
+        assertTrue(details.isComplete());
+        assertEquals(MovieDetails.NO_RUNTIME, details.getRuntime());
+        assertTrue(details.getReviews().isEmpty());
+        assertTrue(details.getCast().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMovieDetailsWithoutId() throws Exception {
+        MovieJsonUtils.getMovieDetailsFromJson(
+                new ByteArrayInputStream("{\"runtime\":90}".getBytes("UTF-8")), null);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.goranminov.popmovies.utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    private long mNow = 1490543485000L;
+
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+    };
+
+    @Test
+    public void burstUpToTheCapacityThenOneTokenPerInterval() {
+        RateLimiter limiter = new RateLimiter(3, 100, 0, mClock);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+        }
+        assertEquals(100, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+
+        mNow += 100;
+        assertEquals(0, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+        assertEquals(100, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+    }
+
+    @Test
+    public void refillsUpToTheCapacity() {
+        RateLimiter limiter = new RateLimiter(3, 100, 0, mClock);
+        limiter.tryAcquire(RateLimiter.Priority.VISIBLE);
+
+        mNow += TimeUnit.MINUTES.toMillis(1);
+
+        assertEquals(3, limiter.getTokens());
+    }
+
+    @Test
+    public void prefetchesLeaveTheReserveToVisibleRequests() {
+        RateLimiter limiter = new RateLimiter(4, 100, 2, mClock);
+        assertEquals(0, limiter.tryAcquire(RateLimiter.Priority.PREFETCH));
+        assertEquals(0, limiter.tryAcquire(RateLimiter.Priority.PREFETCH));
+        assertEquals(100, limiter.tryAcquire(RateLimiter.Priority.PREFETCH));
+
+        assertEquals(0, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+        assertEquals(0, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+        assertEquals(0, limiter.getTokens());
+    }
+
+    @Test
+    public void pauseHoldsEveryRequestBack() {
+        RateLimiter limiter = new RateLimiter(3, 100, 0, mClock);
+        limiter.pauseFor(1000);
+
+        assertEquals(1000, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+        mNow += 1000;
+        // The bucket fills up again from the end of the pause.
+        assertEquals(100, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+        mNow += 100;
+        assertEquals(0, limiter.tryAcquire(RateLimiter.Priority.VISIBLE));
+    }
+
+    @Test
+    public void acquireGivesUpAtTheTimeout() throws Exception {
+        RateLimiter limiter = new RateLimiter(3, 100, 0, Clock.SYSTEM);
+        limiter.pauseFor(TimeUnit.MINUTES.toMillis(1));
+
+        long start = System.currentTimeMillis();
+        assertFalse(limiter.acquire(RateLimiter.Priority.VISIBLE, 50));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void visibleRequestsGoBeforeWaitingPrefetches() throws Exception {
+        final RateLimiter limiter = new RateLimiter(1, 500, 0, Clock.SYSTEM);
+        assertTrue(limiter.acquire(RateLimiter.Priority.VISIBLE, 2000));
+        final List<RateLimiter.Priority> order =
+                Collections.synchronizedList(new ArrayList<RateLimiter.Priority>());
+
+        Thread prefetch = acquireOnThread(limiter, RateLimiter.Priority.PREFETCH, order);
+        Thread visible = acquireOnThread(limiter, RateLimiter.Priority.VISIBLE, order);
+        prefetch.join(2000);
+        visible.join(2000);
+
+        assertEquals(2, order.size());
+        assertEquals(RateLimiter.Priority.VISIBLE, order.get(0));
+    }
+
+    /*
+     * Starts a thread taking a token, and waits until it is blocked in the limiter.
+     */
+    private static Thread acquireOnThread(final RateLimiter limiter,
+                                          final RateLimiter.Priority priority,
+                                          final List<RateLimiter.Priority> order)
+            throws InterruptedException {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (limiter.acquire(priority, 2000)) {
+                        order.add(priority);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.PosterSize;
+import com.example.goranminov.popmovies.utilities.MovieJsonUtils;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Binding every cell of a list once, and opening the detail screen of every movie once:
+ * the Movie model against the legacy delimited Strings.
+ *
+ * An operation covers the whole list, divide by movieCount for the cost of one cell.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BindBenchmark {
+
+    @Param({"20", "1000", "10000"})
+    public int movieCount;
+
+    private List<Movie> mMovies;
+    private String[] mPacked;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        byte[] body = TmdbPayloads.moviePage(movieCount);
+        mMovies = MovieJsonUtils.getMoviePageFromJson(new ByteArrayInputStream(body))
+                .getMovies();
+        mPacked = LegacyPaths.getMovieDataFromJson(body);
+    }
+
+    @Benchmark
+    public void bindModel(Blackhole blackhole) {
+        for (int i = 0; i < mMovies.size(); i++) {
+            blackhole.consume(mMovies.get(i).getPosterUrl(PosterSize.W185));
+        }
+    }
+
+    @Benchmark
+    public void bindLegacy(Blackhole blackhole) {
+        for (String movie : mPacked) {
+            blackhole.consume(LegacyPaths.posterUrl(movie));
+        }
+    }
+
+    @Benchmark
+    public void detailModel(Blackhole blackhole) {
+        for (int i = 0; i < mMovies.size(); i++) {
+            Movie movie = mMovies.get(i);
+            blackhole.consume(movie.getPosterUrl(PosterSize.W342));
+            blackhole.consume(movie.getTitle());
+            blackhole.consume(movie.getOverview());
+            blackhole.consume(movie.getVoteAverage());
+            blackhole.consume(movie.getReleaseYear());
+        }
+    }
+
+    @Benchmark
+    public void detailLegacy(Blackhole blackhole) {
+        for (String movie : mPacked) {
+            blackhole.consume(LegacyPaths.parsePassedData(movie));
+        }
+    }
+}
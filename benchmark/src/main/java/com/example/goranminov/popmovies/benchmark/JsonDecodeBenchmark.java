@@ -0,0 +1,51 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import com.example.goranminov.popmovies.data.MoviePage;
+import com.example.goranminov.popmovies.utilities.MovieJsonUtils;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Decoding a list response: the streaming MovieJsonUtils decoder against the legacy
+ * StringBuffer + org.json one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonDecodeBenchmark {
+
+    @Param({"20", "1000", "10000"})
+    public int movieCount;
+
+    private byte[] mBody;
+
+    @Setup
+    public void setUp() {
+        mBody = TmdbPayloads.moviePage(movieCount);
+    }
+
+    @Benchmark
+    public MoviePage streaming() throws IOException {
+        return MovieJsonUtils.getMoviePageFromJson(new ByteArrayInputStream(mBody));
+    }
+
+    @Benchmark
+    public String[] legacyDom() throws IOException, JSONException {
+        return LegacyPaths.getMovieDataFromJson(mBody);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * The first implementations of the hot paths, kept as baselines: the StringBuffer + org.json
+ * decoder that packed each movie into a delimited String, and the substring parsing of those
+ * Strings when a cell was bound or the detail screen opened.
+ */
+final class LegacyPaths {
+
+    private static final String MDB_BASE = "http://image.tmdb.org/t/p/w185/";
+
+    private LegacyPaths() {
+    }
+
+    /*
+     * The old getMovieDataFromJson together with the reading of the response. The result
+     * array is sized to the response, the original always made 20 entries.
+     */
+    static String[] getMovieDataFromJson(byte[] body) throws IOException, JSONException {
+        BufferedReader bufferedReader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(body)));
+        StringBuffer stringBuffer = new StringBuffer();
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            stringBuffer.append(line + "\n");
+        }
+        bufferedReader.close();
+
+        JSONObject moviesResultJsonObject = new JSONObject(stringBuffer.toString());
+        JSONArray moviesResultJsonArray = moviesResultJsonObject.getJSONArray("results");
+        String[] resultString = new String[moviesResultJsonArray.length()];
+        for (int i = 0; i < moviesResultJsonArray.length(); i++) {
+            JSONObject moviesResults = moviesResultJsonArray.getJSONObject(i);
+            String originalTitle = moviesResults.getString("original_title");
+            String posterPath = moviesResults.getString("poster_path");
+            String overview = moviesResults.getString("overview");
+            String voteAverage = moviesResults.getString("vote_average");
+            String releaseDate = moviesResults.getString("release_date");
+            resultString[i] = posterPath + "!" + originalTitle + "@"
+                    + overview + "#" + voteAverage
+                    + "£" + releaseDate;
+        }
+        return resultString;
+    }
+
+    /*
+     * The old onBindViewHolder, minus the Picasso call.
+     */
+    static String posterUrl(String selectedMovie) {
+        return MDB_BASE + selectedMovie.substring(0, selectedMovie.indexOf("!"));
+    }
+
+    /*
+     * The old parsePassedData, returning the Strings it set on the views.
+     */
+    static int parsePassedData(String movieDetails) {
+        String moviePath = MDB_BASE + movieDetails.substring(0, movieDetails.indexOf("!"));
+        String movieTitle = movieDetails.substring(movieDetails.indexOf("!") + 1,
+                movieDetails.indexOf("@"));
+        String movieOverview = movieDetails.substring(movieDetails.indexOf("@") + 1,
+                movieDetails.indexOf("#"));
+        String movieVoteAverage = movieDetails.substring(movieDetails.indexOf("#") + 1,
+                movieDetails.indexOf("£")) + "/10";
+        String movieReleaseDate = movieDetails.substring(movieDetails.indexOf("#") + 1,
+                movieDetails.length() - 1);
+        movieReleaseDate = movieReleaseDate.substring(movieReleaseDate.indexOf("£") + 1,
+                movieReleaseDate.indexOf("-"));
+        return moviePath.length() + movieTitle.length() + movieOverview.length()
+                + movieVoteAverage.length() + movieReleaseDate.length();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import com.example.goranminov.popmovies.data.HomeSection;
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.MovieList;
+import com.example.goranminov.popmovies.data.MovieListCodec;
+import com.example.goranminov.popmovies.utilities.MovieJsonUtils;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encoding and decoding the movies of the grid for the saved state: MovieListCodec against
+ * JSON.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListCodecBenchmark {
+
+    @Param({"20", "60"})
+    public int movieCount;
+
+    private final Gson mGson = new Gson();
+    private MovieList mList;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Movie> movies = MovieJsonUtils.getMoviePageFromJson(
+                new ByteArrayInputStream(TmdbPayloads.moviePage(movieCount))).getMovies();
+        mList = new MovieList("popular",
+                Collections.singletonList(new HomeSection("popular", movies)));
+    }
+
+    @Benchmark
+    public MovieList binary() throws IOException {
+        return MovieListCodec.decode(MovieListCodec.encode(mList));
+    }
+
+    @Benchmark
+    public Movie[] json() {
+        return mGson.fromJson(mGson.toJson(mList.getMovies()), Movie[].class);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import com.example.goranminov.popmovies.data.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds a catalog of movies for the search benchmarks, with a fixed seed so every run
+ * indexes the same texts.
+ *
+ * The words are made of syllables, and drawn with a skew towards the first ones of the
+ * vocabulary, so like in real overviews a few words are on most movies and most words on
+ * a few. {@link #word(int)} gives the word of a rank to build queries from.
+ */
+final class SearchCorpus {
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ra", "te", "su", "no", "vi",
+            "de", "ba", "zo", "pe", "li", "gu", "fa", "ho"
+    };
+
+    private static final int VOCABULARY_SIZE = 30000;
+
+    private SearchCorpus() {
+    }
+
+    /**
+     * @param movieCount The number of movies.
+     * @return The movies, with titles of one to four words and overviews of 20 to 60.
+     */
+    static List<Movie> movies(int movieCount) {
+        Random random = new Random(movieCount);
+        List<Movie> movies = new ArrayList<>(movieCount);
+        for (int i = 0; i < movieCount; i++) {
+            movies.add(new Movie(100000 + i, "/" + i + ".jpg",
+                    words(random, 1 + random.nextInt(4)),
+                    words(random, 20 + random.nextInt(41)),
+                    random.nextInt(100) / 10f, 10000 + random.nextInt(8000)));
+        }
+        return movies;
+    }
+
+    /**
+     * @param rank The rank of the word, 0 being the most frequent.
+     * @return The word, two syllables or more.
+     */
+    static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        int value = rank + SYLLABLES.length;
+        while (value > 0) {
+            word.append(SYLLABLES[value % SYLLABLES.length]);
+            value /= SYLLABLES.length;
+        }
+        return word.toString();
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            double skewed = Math.pow(random.nextDouble(), 3);
+            words.append(word((int) (skewed * VOCABULARY_SIZE)));
+        }
+        return words.toString();
+    }
+}
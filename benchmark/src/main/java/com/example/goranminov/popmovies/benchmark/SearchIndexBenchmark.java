@@ -0,0 +1,67 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.SearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing a whole catalog at once, what the first search after a start does, and adding
+ * one page to a full index, what every page loaded while browsing does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "10000", "50000"})
+    public int movieCount;
+
+    private List<Movie> mMovies;
+    private SearchIndex mFullIndex;
+    private List<Movie> mPage;
+
+    @Setup
+    public void setUp() {
+        mMovies = SearchCorpus.movies(movieCount + PAGE_SIZE);
+        mPage = mMovies.subList(movieCount, movieCount + PAGE_SIZE);
+        mMovies = mMovies.subList(0, movieCount);
+        mFullIndex = new SearchIndex();
+        mFullIndex.add(mMovies);
+    }
+
+    @Benchmark
+    public SearchIndex buildIndex() {
+        SearchIndex index = new SearchIndex();
+        index.add(mMovies);
+        return index;
+    }
+
+    /*
+     * The page is already indexed after the first call, so this measures the check that
+     * skips unchanged movies, which is what revisiting a page costs.
+     */
+    @Benchmark
+    public SearchIndex addKnownPage() {
+        mFullIndex.add(mPage);
+        return mFullIndex;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.SearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the search index over 50,000 movies, for the queries typing a title
+ * goes through: a single letter matching most of the catalog, a syllable, a whole frequent
+ * word, two words, and a query nothing matches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchQueryBenchmark {
+
+    private static final int MOVIE_COUNT = 50000;
+    private static final int RESULT_LIMIT = 60;
+
+    @Param({"k", "ka", "kalo", "kalo sulo", "xyz"})
+    public String query;
+
+    private SearchIndex mIndex;
+
+    @Setup
+    public void setUp() {
+        mIndex = new SearchIndex();
+        mIndex.add(SearchCorpus.movies(MOVIE_COUNT));
+    }
+
+    @Benchmark
+    public List<Movie> search() {
+        return mIndex.search(query, RESULT_LIMIT);
+    }
+}
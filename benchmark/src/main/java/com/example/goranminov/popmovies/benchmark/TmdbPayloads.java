@@ -0,0 +1,96 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Builds TheMovieDB list responses shaped like the real ones, every field of a result
+ * included, with a fixed seed so every run decodes the same bytes.
+ *
+ * The texts leave out the delimiters of the legacy packed Strings ("!@#£"), which the
+ * legacy parsing can't cope with.
+ */
+final class TmdbPayloads {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] WORDS = {
+            "a", "retired", "assassin", "returns", "to", "the", "city", "where", "his",
+            "daughter", "vanished", "twenty", "years", "ago", "only", "find", "that", "nothing",
+            "is", "what", "it", "seems", "and", "everyone", "he", "trusted", "lied", "café",
+            "naïve", "\\\"quoted\\\"", "hero's", "über", "déjà", "vu"
+    };
+
+    private TmdbPayloads() {
+    }
+
+    /**
+     * @param movieCount The number of results.
+     * @return A list response with that many results, UTF-8 encoded.
+     */
+    static byte[] moviePage(int movieCount) {
+        Random random = new Random(movieCount);
+        StringBuilder json = new StringBuilder(movieCount * 900);
+        json.append("{\"page\":1,\"results\":[");
+        for (int i = 0; i < movieCount; i++) {
+            int id = 100000 + i;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"poster_path\":\"/").append(randomPath(random)).append(".jpg\",")
+                    .append("\"adult\":false,")
+                    .append("\"overview\":\"").append(overview(random)).append("\",")
+                    .append("\"release_date\":\"").append(1970 + random.nextInt(48)).append('-')
+                    .append(twoDigits(1 + random.nextInt(12))).append('-')
+                    .append(twoDigits(1 + random.nextInt(28))).append("\",")
+                    .append("\"genre_ids\":[").append(random.nextInt(100)).append(',')
+                    .append(random.nextInt(100)).append("],")
+                    .append("\"id\":").append(id).append(',')
+                    .append("\"original_title\":\"").append(title(random)).append("\",")
+                    .append("\"original_language\":\"en\",")
+                    .append("\"title\":\"").append(title(random)).append("\",")
+                    .append("\"backdrop_path\":\"/").append(randomPath(random)).append(".jpg\",")
+                    .append("\"popularity\":").append(random.nextInt(200)).append('.')
+                    .append(random.nextInt(1000000)).append(',')
+                    .append("\"vote_count\":").append(random.nextInt(20000)).append(',')
+                    .append("\"video\":false,")
+                    .append("\"vote_average\":").append(random.nextInt(10)).append('.')
+                    .append(random.nextInt(10)).append('}');
+        }
+        json.append("],\"total_results\":").append(movieCount)
+                .append(",\"total_pages\":").append(Math.max(1, movieCount / 20)).append('}');
+        return json.toString().getBytes(UTF_8);
+    }
+
+    private static String randomPath(Random random) {
+        char[] path = new char[27];
+        for (int i = 0; i < path.length; i++) {
+            int c = random.nextInt(62);
+            path[i] = (char) (c < 10 ? '0' + c : c < 36 ? 'a' + c - 10 : 'A' + c - 36);
+        }
+        return new String(path);
+    }
+
+    private static String title(Random random) {
+        return words(random, 1 + random.nextInt(4));
+    }
+
+    private static String overview(Random random) {
+        return words(random, 30 + random.nextInt(50));
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            words.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.goranminov.popmovies.benchmark;
+
+import com.example.goranminov.popmovies.data.Movie;
+import com.example.goranminov.popmovies.data.PosterSize;
+import com.example.goranminov.popmovies.utilities.NetworkUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+
+/**
+ * Building request URLs. The legacy Uri.buildUpon() construction is Android code that can't
+ * run on the desktop JVM, so only the current builders are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBuildBenchmark {
+
+    private int mPage;
+
+    @Benchmark
+    public URL movieListUrl() {
+        mPage = mPage % 500 + 1;
+        return NetworkUtils.buildMovieListUrl(NetworkUtils.MDB_BASE_URL, "0123456789abcdef",
+                "top_rated", mPage);
+    }
+
+    @Benchmark
+    public String posterUrlFirstBuild() {
+        // A new Movie each time, so the URL is built rather than remembered.
+        return new Movie(1, "/kqjL17yufvn9OVLyXYpvtyrFfak.jpg", "Title", "Overview", 7.5f,
+                Movie.NO_RELEASE_DATE).getPosterUrl(PosterSize.W185);
+    }
+}